@@ -0,0 +1,103 @@
+package com.masterwayne.whiteboard_app.benchmark;
+
+import com.masterwayne.whiteboard_app.model.DrawPayload;
+import com.masterwayne.whiteboard_app.persistence.PersistenceWorker;
+import com.masterwayne.whiteboard_app.persistence.PersistenceWorker.PersistenceTask;
+import com.masterwayne.whiteboard_app.service.WhiteboardService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One PersistenceWorker batch (applyBatch in its own transaction) against the embedded H2 database,
+ * for batches of 1 to 500 draw events on a board already holding boardShapes shapes. Batches are
+ * handed over with submitReplayChunk, which runs exactly one applyBatch and completes when it has
+ * committed. Each measured batch starts from the same board: the board is cleared and re-seeded
+ * before every iteration, and an iteration is a single batch.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 20)
+@Measurement(iterations = 30)
+@Fork(1)
+public class ApplyBatchBenchmark {
+    private static final String SESSION = "apply-batch-bench";
+    private static final String CHANNEL = "general";
+
+    @Param({"1", "50", "500"})
+    public int batchSize;
+
+    @Param({"0", "5000"})
+    public int boardShapes;
+
+    private ConfigurableApplicationContext context;
+    private PersistenceWorker worker;
+    private List<PersistenceTask> batch;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        context = BenchmarkContexts.start();
+        context.getBean(WhiteboardService.class).createSession(SESSION, "bench");
+        worker = context.getBean(PersistenceWorker.class);
+    }
+
+    @Setup(Level.Iteration)
+    public void resetBoard() {
+        DrawPayload clear = new DrawPayload();
+        clear.setType("clear");
+        List<PersistenceTask> reset = new ArrayList<>();
+        reset.add(PersistenceTask.clearTask(SESSION, CHANNEL, clear));
+        if (boardShapes > 0) {
+            reset.add(PersistenceTask.drawBatchTask(SESSION, CHANNEL, shapes(boardShapes, 0)));
+        }
+        worker.submitReplayChunk(reset).join();
+
+        batch = new ArrayList<>(batchSize);
+        for (DrawPayload shape : shapes(batchSize, boardShapes)) {
+            batch.add(PersistenceTask.drawTask(SESSION, CHANNEL, shape));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void applyBatch() {
+        worker.submitReplayChunk(batch).join();
+    }
+
+    private static List<DrawPayload> shapes(int count, long firstSeq) {
+        List<DrawPayload> shapes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            DrawPayload shape = new DrawPayload();
+            shape.setType("line-segment");
+            shape.setX1(100.0 + (i * 7) % 800);
+            shape.setY1(200.0 + (i * 13) % 600);
+            shape.setX2(102.5 + (i * 7) % 800);
+            shape.setY2(203.0 + (i * 13) % 600);
+            shape.setColor("#1f6feb");
+            shape.setLineWidth(3);
+            shape.setSeq(firstSeq + i + 1);
+            shapes.add(shape);
+        }
+        return shapes;
+    }
+}
@@ -0,0 +1,169 @@
+package com.masterwayne.whiteboard_app.benchmark;
+
+import com.masterwayne.whiteboard_app.WhiteboardAppApplication;
+import com.masterwayne.whiteboard_app.storage.UploadStore;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.lang.NonNull;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * A join storm: 16 participants join a channel at once and each loads its attachments (a dozen
+ * screenshots, 50 KB to 2 MB). One operation is one participant's join.
+ *
+ * - legacyHandlerColdJoin: the resource handler /uploads/** used before (no ETag, no cache policy)
+ * - coldJoin: AttachmentController with nothing cached
+ * - revalidatingJoin: a client that kept the ETags; every request answers 304
+ *
+ * bodyBytes and notModified are totals per iteration. A revalidating join saves the whole cold join
+ * body (about 7.6 MB here); a browser honouring 'immutable' skips even the 304 round trips.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Threads(16)
+@Fork(1)
+public class AttachmentJoinStormBenchmark {
+    private static final int[] ATTACHMENT_KB = {50, 80, 120, 200, 250, 300, 400, 600, 800, 1000, 1500, 2000};
+
+    private ConfigurableApplicationContext context;
+    private Path dir;
+    private String baseUrl;
+    private final List<String> storedNames = new ArrayList<>();
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Participant {
+        public long bodyBytes;
+        public long notModified;
+        final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        final Map<String, String> etags = new HashMap<>();
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bodyBytes = 0;
+            notModified = 0;
+        }
+    }
+
+    /**
+     * The handler WebConfig registered for /uploads/** before attachments had their own controller.
+     */
+    public static class LegacyUploadHandler implements WebMvcConfigurer {
+        @Value("${whiteboard.uploads.dir}")
+        private String uploadDir;
+
+        @Override
+        public void addResourceHandlers(@NonNull ResourceHandlerRegistry registry) {
+            registry.addResourceHandler("/legacy-uploads/**")
+                    .addResourceLocations(Paths.get(uploadDir).toAbsolutePath().normalize().toUri().toString());
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("attachment-join-storm");
+        context = new SpringApplication(WhiteboardAppApplication.class, LegacyUploadHandler.class).run(
+                "--server.port=0",
+                "--spring.profiles.active=dev",
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=WARN",
+                "--logging.level.com.masterwayne.whiteboard_app=WARN",
+                "--logging.level.org.springframework=WARN",
+                "--whiteboard.uploads.dir=" + dir.resolve("uploads"),
+                "--whiteboard.uploads.meta-dir=" + dir.resolve("meta"));
+        baseUrl = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+
+        UploadStore uploadStore = context.getBean(UploadStore.class);
+        Random random = new Random(42);
+        for (int i = 0; i < ATTACHMENT_KB.length; i++) {
+            byte[] content = new byte[ATTACHMENT_KB[i] * 1024];
+            random.nextBytes(content);
+            String name = "screenshot-" + i + ".png";
+            storedNames.add(uploadStore.store(new MockMultipartFile("file", name, "image/png", content), name, "image/png")
+                    .storedName());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public void legacyHandlerColdJoin(Participant participant) throws Exception {
+        join(participant, "/legacy-uploads/", false);
+    }
+
+    @Benchmark
+    public void coldJoin(Participant participant) throws Exception {
+        join(participant, "/uploads/", false);
+    }
+
+    @Benchmark
+    public void revalidatingJoin(Participant participant) throws Exception {
+        join(participant, "/uploads/", true);
+    }
+
+    private void join(Participant participant, String prefix, boolean revalidate) throws Exception {
+        for (String name : storedNames) {
+            HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + prefix + name));
+            String etag = participant.etags.get(name);
+            if (revalidate && etag != null) {
+                request.header("If-None-Match", etag);
+            }
+            HttpResponse<InputStream> response = participant.client.send(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+            try (InputStream body = response.body()) {
+                participant.bodyBytes += body.transferTo(OutputStream.nullOutputStream());
+            }
+            if (response.statusCode() == 304) {
+                participant.notModified++;
+            }
+            response.headers().firstValue("ETag").ifPresent(value -> participant.etags.put(name, value));
+        }
+    }
+}
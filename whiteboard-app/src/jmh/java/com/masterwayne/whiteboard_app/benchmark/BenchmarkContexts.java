@@ -0,0 +1,48 @@
+package com.masterwayne.whiteboard_app.benchmark;
+
+import com.masterwayne.whiteboard_app.WhiteboardAppApplication;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Boots the application for benchmarks that need the real persistence stack: dev profile (embedded
+ * H2), a random port, quiet logging.
+ */
+final class BenchmarkContexts {
+
+    private BenchmarkContexts() {
+    }
+
+    static ConfigurableApplicationContext start(String... extraArgs) {
+        return start(context -> {
+        }, extraArgs);
+    }
+
+    /**
+     * Same, with an initializer that runs before any bean is created (e.g. to register a
+     * BeanPostProcessor that wraps infrastructure beans).
+     */
+    static ConfigurableApplicationContext start(ApplicationContextInitializer<ConfigurableApplicationContext> initializer,
+                                                String... extraArgs) {
+        List<String> args = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--spring.profiles.active=dev",
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=WARN",
+                "--logging.level.com.masterwayne.whiteboard_app=WARN",
+                "--logging.level.org.springframework=WARN",
+                "--logging.level.org.springframework.web=WARN",
+                "--logging.level.org.springframework.web.socket=WARN",
+                "--logging.level.org.springframework.messaging=WARN",
+                "--logging.level.com.masterwayne.whiteboard_app.service=WARN",
+                "--logging.level.org.hibernate.SQL=WARN"));
+        args.addAll(List.of(extraArgs));
+        SpringApplication application = new SpringApplication(WhiteboardAppApplication.class);
+        application.addInitializers(initializer);
+        return application.run(args.toArray(String[]::new));
+    }
+}
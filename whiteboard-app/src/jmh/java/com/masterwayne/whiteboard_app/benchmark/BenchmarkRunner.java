@@ -0,0 +1,140 @@
+package com.masterwayne.whiteboard_app.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Entry point of the benchmarks profile. Runs JMH with the usual command line, but unless -rf/-rff
+ * are given writes the results as JSON to target/jmh-results/&lt;timestamp&gt;.json, so every run
+ * leaves a file that can be compared with an earlier one:
+ *
+ *   ./mvnw -Pbenchmarks test-compile exec:exec -Djmh.args="DrawPayloadJsonBenchmark"
+ *   ./mvnw -Pbenchmarks test-compile exec:exec -Djmh.args="compare base.json candidate.json 5"
+ *
+ * compare prints each benchmark (with its params) from both files with the relative change; a change
+ * larger than the threshold percent (default 5) whose error intervals do not overlap is flagged, and
+ * the exit status is 1 when any of them is a regression. load and soak run StompLoadGenerator and
+ * FallbackSoak instead of JMH:
+ *
+ *   ./mvnw -Pbenchmarks test-compile exec:exec -Djmh.args="load --sessions=4 --participants=8"
+ *   ./mvnw -Pbenchmarks test-compile exec:exec -Djmh.args="soak --fault=stall"
+ */
+public final class BenchmarkRunner {
+    private static final Path RESULTS_DIR = Paths.get("target", "jmh-results");
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("compare")) {
+            if (args.length < 3) {
+                System.err.println("Usage: compare <baseline.json> <candidate.json> [thresholdPercent]");
+                System.exit(2);
+            }
+            double threshold = args.length > 3 ? Double.parseDouble(args[3]) : 5.0;
+            System.exit(compare(Paths.get(args[1]), Paths.get(args[2]), threshold) ? 1 : 0);
+        }
+        if (args.length > 0 && args[0].equals("load")) {
+            System.exit(StompLoadGenerator.run(Arrays.copyOfRange(args, 1, args.length)));
+        }
+        if (args.length > 0 && args[0].equals("soak")) {
+            System.exit(FallbackSoak.run(Arrays.copyOfRange(args, 1, args.length)));
+        }
+
+        CommandLineOptions options = new CommandLineOptions(args);
+        if (options.shouldHelp() || options.shouldList() || options.shouldListWithParams()
+                || options.shouldListProfilers() || options.shouldListResultFormats()) {
+            Main.main(args);
+            return;
+        }
+        ChainedOptionsBuilder builder = new OptionsBuilder().parent(options);
+        if (!options.getResultFormat().hasValue() && !options.getResult().hasValue()) {
+            Files.createDirectories(RESULTS_DIR);
+            Path result = RESULTS_DIR.resolve(LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".json");
+            builder.resultFormat(ResultFormatType.JSON).result(result.toString());
+            System.out.println("# Results will be written to " + result.toAbsolutePath());
+        }
+        new Runner(builder.build()).run();
+    }
+
+    private record Score(String mode, double score, double error, String unit) {
+        boolean lowerIsBetter() {
+            return !mode.equals("thrpt");
+        }
+    }
+
+    // Returns whether any benchmark regressed beyond the threshold
+    private static boolean compare(Path baselineFile, Path candidateFile, double thresholdPercent) throws IOException {
+        Map<String, Score> baseline = readScores(baselineFile);
+        Map<String, Score> candidate = readScores(candidateFile);
+        boolean regressed = false;
+        System.out.printf("%-72s %16s %16s %9s%n", "Benchmark", "Baseline", "Candidate", "Change");
+        for (Map.Entry<String, Score> entry : candidate.entrySet()) {
+            Score after = entry.getValue();
+            Score before = baseline.get(entry.getKey());
+            if (before == null) {
+                System.out.printf("%-72s %16s %16s %9s%n", entry.getKey(), "-", format(after), "new");
+                continue;
+            }
+            double change = before.score() == 0 ? 0 : (after.score() - before.score()) / before.score() * 100;
+            boolean overlapping = Math.abs(after.score() - before.score()) <= before.error() + after.error();
+            String verdict = "";
+            if (!overlapping && Math.abs(change) > thresholdPercent) {
+                boolean worse = after.lowerIsBetter() ? change > 0 : change < 0;
+                verdict = worse ? "  REGRESSION" : "  improvement";
+                regressed |= worse;
+            }
+            System.out.printf("%-72s %16s %16s %+8.1f%%%s%n", entry.getKey(), format(before), format(after), change, verdict);
+        }
+        for (String missing : baseline.keySet()) {
+            if (!candidate.containsKey(missing)) {
+                System.out.printf("%-72s %16s %16s %9s%n", missing, format(baseline.get(missing)), "-", "removed");
+            }
+        }
+        return regressed;
+    }
+
+    private static String format(Score score) {
+        return String.format("%.3f %s", score.score(), score.unit());
+    }
+
+    private static Map<String, Score> readScores(Path file) throws IOException {
+        JsonNode results = new ObjectMapper().readTree(file.toFile());
+        Map<String, Score> scores = new LinkedHashMap<>();
+        for (JsonNode result : results) {
+            String name = result.path("benchmark").asText();
+            name = name.substring(name.lastIndexOf('.', name.lastIndexOf('.') - 1) + 1);
+            Map<String, String> params = new TreeMap<>();
+            for (Map.Entry<String, JsonNode> param : result.path("params").properties()) {
+                params.put(param.getKey(), param.getValue().asText());
+            }
+            List<String> parts = new ArrayList<>();
+            params.forEach((key, value) -> parts.add(key + "=" + value));
+            String key = name + (parts.isEmpty() ? "" : " " + String.join(",", parts)) + " [" + result.path("mode").asText() + "]";
+            JsonNode metric = result.path("primaryMetric");
+            double error = metric.path("scoreError").asDouble(0);
+            scores.put(key, new Score(result.path("mode").asText(), metric.path("score").asDouble(),
+                    Double.isNaN(error) ? 0 : error, metric.path("scoreUnit").asText()));
+        }
+        return scores;
+    }
+}
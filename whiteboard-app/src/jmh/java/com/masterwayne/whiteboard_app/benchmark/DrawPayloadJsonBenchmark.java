@@ -0,0 +1,84 @@
+package com.masterwayne.whiteboard_app.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.masterwayne.whiteboard_app.model.DrawPayload;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson cost of one DrawPayload as the STOMP message converter sees it: decoding the inbound
+ * frame body (bytes) and encoding the broadcast. The mapper is built like Spring Boot's default.
+ * 'objectMapper' goes through ObjectMapper.readValue/writeValueAsBytes on every call; 'cached'
+ * uses a prebuilt ObjectReader/ObjectWriter for the type.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DrawPayloadJsonBenchmark {
+
+    @Param({"line-segment", "text"})
+    public String type;
+
+    private final ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+    private final ObjectReader reader = objectMapper.readerFor(DrawPayload.class);
+    private final ObjectWriter writer = objectMapper.writerFor(DrawPayload.class);
+    private DrawPayload payload;
+    private byte[] json;
+
+    @Setup
+    public void setUp() throws Exception {
+        payload = new DrawPayload();
+        payload.setType(type);
+        payload.setX1(412.5);
+        payload.setY1(318.0);
+        payload.setColor("#1f6feb");
+        payload.setSeq(48213L);
+        if (type.equals("text")) {
+            payload.setId("3f2b9c1e-8d4a-4f7b-9a51-0c6e2d7b8a11");
+            payload.setText("Move the login form below the fold?");
+            payload.setFontSize(18);
+        } else {
+            payload.setX2(415.0);
+            payload.setY2(321.5);
+            payload.setLineWidth(3);
+        }
+        json = objectMapper.writeValueAsBytes(payload);
+    }
+
+    @Benchmark
+    public DrawPayload decodeObjectMapper() throws Exception {
+        return objectMapper.readValue(json, DrawPayload.class);
+    }
+
+    @Benchmark
+    public DrawPayload decodeCached() throws Exception {
+        return reader.readValue(json);
+    }
+
+    @Benchmark
+    public byte[] encodeObjectMapper() throws Exception {
+        return objectMapper.writeValueAsBytes(payload);
+    }
+
+    @Benchmark
+    public byte[] encodeCached() throws Exception {
+        return writer.writeValueAsBytes(payload);
+    }
+}
@@ -0,0 +1,105 @@
+package com.masterwayne.whiteboard_app.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.masterwayne.whiteboard_app.model.DrawPayload;
+import com.masterwayne.whiteboard_app.storage.FallbackAppender.FsyncPolicy;
+import com.masterwayne.whiteboard_app.storage.FallbackLog;
+import com.masterwayne.whiteboard_app.storage.FallbackStorage.FallbackEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Writing draw events to the fallback log during an outage, as FallbackStorage.writeDrawPayload does:
+ * serialize the FallbackEvent, then append the line. Four writers (the persistence worker and
+ * request threads) share the log; the fsync policy decides whether an append waits for the disk
+ * (EVENT, group-committed) or only for the queue (INTERVAL, OS). The log is cleared between
+ * iterations so segments do not pile up. See FallbackReadBenchmark for the replay side.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class FallbackAppendBenchmark {
+    private static final long SEGMENT_BYTES = 16L * 1024 * 1024;
+
+    @Param({"OS", "INTERVAL", "EVENT"})
+    public FsyncPolicy fsyncPolicy;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private Path dir;
+    private FallbackLog fallbackLog;
+
+    @State(Scope.Thread)
+    public static class Writer {
+        final DrawPayload payload = new DrawPayload();
+        long seq;
+
+        @Setup
+        public void setUp() {
+            payload.setType("line-segment");
+            payload.setX1(412.5);
+            payload.setY1(318.0);
+            payload.setX2(415.0);
+            payload.setY2(321.5);
+            payload.setColor("#1f6feb");
+            payload.setLineWidth(3);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("fallback-append-bench");
+        fallbackLog = new FallbackLog(dir, null, objectMapper, fsyncPolicy, 200, 10_000, SEGMENT_BYTES, 1);
+    }
+
+    @TearDown(Level.Iteration)
+    public void clear() throws IOException {
+        fallbackLog.flush();
+        fallbackLog.clear();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        fallbackLog.close();
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public void append(Writer writer) throws IOException {
+        writer.payload.setSeq(++writer.seq);
+        byte[] json = objectMapper.writeValueAsBytes(
+                new FallbackEvent("DRAW", "design-review", "general", writer.payload, Instant.now()));
+        byte[] line = Arrays.copyOf(json, json.length + 1);
+        line[json.length] = '\n';
+        fallbackLog.append(line);
+    }
+}
@@ -0,0 +1,144 @@
+package com.masterwayne.whiteboard_app.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.masterwayne.whiteboard_app.model.ChatMessage;
+import com.masterwayne.whiteboard_app.model.DrawPayload;
+import com.masterwayne.whiteboard_app.storage.FallbackAppender.FsyncPolicy;
+import com.masterwayne.whiteboard_app.storage.FallbackEventDecoder;
+import com.masterwayne.whiteboard_app.storage.FallbackLog;
+import com.masterwayne.whiteboard_app.storage.FallbackPosition;
+import com.masterwayne.whiteboard_app.storage.FallbackStorage.FallbackEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Replay read cost of a fallback backlog with sealed segments left raw (level 0) or deflated.
+ * The setup prints the on-disk compression ratio and how long the background compressor took;
+ * the benchmarks measure reading every chunk from the checkpoint, with and without decoding.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx2g"})
+public class FallbackCompressionBenchmark {
+    private static final int CHUNK = 500;
+    private static final long SEGMENT_BYTES = 16L * 1024 * 1024;
+    private static final String[] COLORS = {"#1f6feb", "#d73a49", "#28a745", "#000000"};
+
+    @Param({"0", "1", "6"})
+    public int compressionLevel;
+
+    @Param({"128"})
+    public int backlogMb;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private Path dir;
+    private FallbackLog fallbackLog;
+    private FallbackEventDecoder decoder;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("fallback-compression-bench");
+        fallbackLog = new FallbackLog(dir, null, objectMapper, FsyncPolicy.OS, 200, 10_000, SEGMENT_BYTES,
+                compressionLevel);
+        long target = (long) backlogMb * 1024 * 1024;
+        long rawBytes = 0;
+        for (long i = 0; rawBytes < target; i++) {
+            byte[] json = objectMapper.writeValueAsBytes(event(i));
+            byte[] line = Arrays.copyOf(json, json.length + 1);
+            line[json.length] = '\n';
+            fallbackLog.append(line);
+            rawBytes += line.length;
+        }
+        fallbackLog.flush();
+        long start = System.nanoTime();
+        fallbackLog.awaitCompression(TimeUnit.MINUTES.toMillis(10));
+        long compressMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        System.out.printf("%nlevel=%d raw=%d MB on-disk=%d MB ratio=%.1fx compressed-segments=%d/%d compressor-tail=%d ms%n",
+                compressionLevel, rawBytes >> 20, fallbackLog.getLiveBytes() >> 20,
+                (double) rawBytes / fallbackLog.getLiveBytes(), fallbackLog.getCompressedSegmentCount(),
+                fallbackLog.getSegmentCount(), compressMs);
+        decoder = new FallbackEventDecoder(objectMapper, 1);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        fallbackLog.close();
+        decoder.close();
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public long replayRead(Blackhole blackhole) throws IOException {
+        return replayAll(false, blackhole);
+    }
+
+    @Benchmark
+    public long replayReadAndDecode(Blackhole blackhole) throws IOException {
+        return replayAll(true, blackhole);
+    }
+
+    private long replayAll(boolean decode, Blackhole blackhole) throws IOException {
+        long events = 0;
+        FallbackPosition position = fallbackLog.getCheckpoint();
+        while (true) {
+            FallbackLog.ReadResult result = fallbackLog.read(position, CHUNK);
+            if (result.lines().isEmpty()) {
+                return events;
+            }
+            blackhole.consume(decode ? decoder.decode(result.lines()) : result.lines());
+            events += result.lines().size();
+            position = result.next();
+        }
+    }
+
+    // A mix of stroke segments and chat across a few boards, as an outage would record
+    private static FallbackEvent event(long i) {
+        String session = "design-review-" + (i % 6);
+        String channel = i % 3 == 0 ? "general" : "wireframes";
+        if (i % 50 == 0) {
+            ChatMessage message = new ChatMessage();
+            message.setSenderName("user-" + (i % 17));
+            message.setContent("Moving the header block over a bit, see stroke " + i);
+            return new FallbackEvent("CHAT", session, channel, message, Instant.now());
+        }
+        DrawPayload payload = new DrawPayload();
+        payload.setType("line-segment");
+        payload.setX1(100.0 + (i * 7) % 800);
+        payload.setY1(200.0 + (i * 13) % 600);
+        payload.setX2(102.5 + (i * 7) % 800);
+        payload.setY2(203.0 + (i * 13) % 600);
+        payload.setColor(COLORS[(int) (i % COLORS.length)]);
+        payload.setLineWidth(3);
+        payload.setSeq(i);
+        return new FallbackEvent("DRAW", session, channel, payload, Instant.now());
+    }
+}
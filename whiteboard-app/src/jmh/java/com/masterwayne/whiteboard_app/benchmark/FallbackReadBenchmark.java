@@ -0,0 +1,164 @@
+package com.masterwayne.whiteboard_app.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.masterwayne.whiteboard_app.model.DrawPayload;
+import com.masterwayne.whiteboard_app.storage.FallbackAppender.FsyncPolicy;
+import com.masterwayne.whiteboard_app.storage.FallbackEventDecoder;
+import com.masterwayne.whiteboard_app.storage.FallbackLog;
+import com.masterwayne.whiteboard_app.storage.FallbackPosition;
+import com.masterwayne.whiteboard_app.storage.FallbackStorage.FallbackEvent;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Time to read and decode a whole fallback backlog: the old BufferedReader.readLine plus one
+ * readValue per line over a single file, against the mapped segment scanner with inline and
+ * fork-join decoding. The *Only variants measure finding record boundaries without decoding.
+ * The default backlog is 256 MB to keep a run short; '-p backlogMb=1024' gives the 1 GB case.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx4g"})
+public class FallbackReadBenchmark {
+    private static final int CHUNK = 500;
+    private static final long SEGMENT_BYTES = 16L * 1024 * 1024;
+
+    @Param({"256"})
+    public int backlogMb;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+    private Path dir;
+    private Path singleFile;
+    private FallbackLog fallbackLog;
+    private FallbackEventDecoder inlineDecoder;
+    private FallbackEventDecoder parallelDecoder;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("fallback-read-bench");
+        singleFile = dir.resolve("offline-persist.jsonl");
+        long target = (long) backlogMb * 1024 * 1024;
+        long written = 0;
+        try (OutputStream out = Files.newOutputStream(singleFile)) {
+            for (long i = 0; written < target; i++) {
+                byte[] line = (objectMapper.writeValueAsString(event(i)) + "\n").getBytes();
+                out.write(line);
+                written += line.length;
+            }
+        }
+        // The legacy file is migrated into segments; write it once more for the readLine baseline
+        Path legacyCopy = dir.resolve("legacy.jsonl");
+        Files.copy(singleFile, legacyCopy);
+        fallbackLog = new FallbackLog(dir.resolve("fallback"), legacyCopy, objectMapper, FsyncPolicy.OS, 200, 16,
+                SEGMENT_BYTES);
+        inlineDecoder = new FallbackEventDecoder(objectMapper, 1);
+        parallelDecoder = new FallbackEventDecoder(objectMapper, 0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        fallbackLog.close();
+        inlineDecoder.close();
+        parallelDecoder.close();
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public long readLineSequentialDecode(Blackhole blackhole) throws IOException {
+        long events = 0;
+        try (BufferedReader reader = Files.newBufferedReader(singleFile)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                blackhole.consume(objectMapper.readValue(line, FallbackEvent.class));
+                events++;
+            }
+        }
+        return events;
+    }
+
+    @Benchmark
+    public long readLineOnly(Blackhole blackhole) throws IOException {
+        long events = 0;
+        try (BufferedReader reader = Files.newBufferedReader(singleFile)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                blackhole.consume(line);
+                events++;
+            }
+        }
+        return events;
+    }
+
+    @Benchmark
+    public long mappedScanOnly(Blackhole blackhole) throws IOException {
+        return replayAll(null, blackhole);
+    }
+
+    @Benchmark
+    public long mappedScanInlineDecode(Blackhole blackhole) throws IOException {
+        return replayAll(inlineDecoder, blackhole);
+    }
+
+    @Benchmark
+    public long mappedScanForkJoinDecode(Blackhole blackhole) throws IOException {
+        return replayAll(parallelDecoder, blackhole);
+    }
+
+    // Same access pattern as FallbackReplayer: chunked reads from the checkpoint
+    private long replayAll(FallbackEventDecoder decoder, Blackhole blackhole) throws IOException {
+        long events = 0;
+        FallbackPosition position = fallbackLog.getCheckpoint();
+        while (true) {
+            FallbackLog.ReadResult result = fallbackLog.read(position, CHUNK);
+            if (result.lines().isEmpty()) {
+                return events;
+            }
+            blackhole.consume(decoder != null ? decoder.decode(result.lines()) : result.lines());
+            events += result.lines().size();
+            position = result.next();
+        }
+    }
+
+    private static FallbackEvent event(long i) {
+        DrawPayload payload = new DrawPayload();
+        payload.setType("line-segment");
+        payload.setX1(100.0 + i % 800);
+        payload.setY1(200.0 + i % 600);
+        payload.setX2(102.5 + i % 800);
+        payload.setY2(203.0 + i % 600);
+        payload.setColor("#1f6feb");
+        payload.setLineWidth(3);
+        payload.setSeq(i);
+        return new FallbackEvent("DRAW", "design-review-" + (i % 8), "general", payload, Instant.now());
+    }
+}
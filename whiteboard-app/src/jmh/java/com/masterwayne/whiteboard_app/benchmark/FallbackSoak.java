@@ -0,0 +1,424 @@
+package com.masterwayne.whiteboard_app.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.masterwayne.whiteboard_app.benchmark.FaultInjectingDataSource.Fault;
+import com.masterwayne.whiteboard_app.model.DrawPayload;
+import com.masterwayne.whiteboard_app.persistence.PersistenceWorker;
+import com.masterwayne.whiteboard_app.persistence.ReplayJob;
+import com.masterwayne.whiteboard_app.persistence.ReplayJobManager;
+import com.masterwayne.whiteboard_app.service.WhiteboardService;
+import com.masterwayne.whiteboard_app.storage.FallbackStorage;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Soak run of the persistence and fallback path against the embedded H2 database. The application
+ * starts in-process with its DataSource wrapped in a {@link FaultInjectingDataSource} and a private
+ * fallback directory; one producer per session then feeds draw batches through
+ * WhiteboardService.addShapes at a steady rate through three phases:
+ * - baseline: healthy database
+ * - fault: the chosen fault is injected (error, latency, stall or ambiguous-commit)
+ * - recovery: faults cleared, traffic continues and the harness replays the fallback log through
+ *   ReplayJobManager (as POST /api/recovery/replay would) until it is empty and the queue has drained
+ *
+ * Sampled every 250 ms: persistence queue depth and fallback log size, giving queue growth and the
+ * fallback write rate during the fault. Replay catch-up time runs from the end of the fault until
+ * the log is empty and the queue is back to its baseline depth. Finally every seq handed out is
+ * checked against the shapes in the database: seqs missing (lost) or stored more than once
+ * (duplicated) are reported, and the exit status is 1 if there are any.
+ *
+ *   ./mvnw -Pbenchmarks test-compile exec:exec -Djmh.args="soak --fault=error --fault-duration=30"
+ *
+ * Options: --sessions=4 --rate=200 (events/s, all sessions) --batch=4 (events per draw batch)
+ * --baseline=10 --fault-duration=20 --recovery=20 (seconds) --fault=error|latency|stall|ambiguous-commit
+ * --error-rate=1.0 --latency-ms=50 --stall-timeout-ms=20000 --catch-up-timeout=300 (seconds) --json=path
+ */
+final class FallbackSoak {
+    private static final String CHANNEL = "general";
+    private static final long SAMPLE_MILLIS = 250;
+    private static final long POLL_MILLIS = 50;
+    private static final Path RESULTS_DIR = Paths.get("target", "soak-results");
+
+    private final Options options;
+    private final FaultInjectingDataSource dataSource;
+    private final WhiteboardService whiteboardService;
+    private final PersistenceWorker persistenceWorker;
+    private final FallbackStorage fallbackStorage;
+    private final ReplayJobManager replayJobManager;
+    private final List<Producer> producers = new ArrayList<>();
+    private final LongAdder producerErrors = new LongAdder();
+    private final AtomicLong maxQueueSize = new AtomicLong();
+    private final AtomicLong phaseMaxQueueSize = new AtomicLong();
+    private final AtomicLong maxFallbackEvents = new AtomicLong();
+    private volatile boolean producing = true;
+
+    private FallbackSoak(Options options, ConfigurableApplicationContext context) {
+        this.options = options;
+        this.dataSource = (FaultInjectingDataSource) context.getBean(DataSource.class);
+        this.whiteboardService = context.getBean(WhiteboardService.class);
+        this.persistenceWorker = context.getBean(PersistenceWorker.class);
+        this.fallbackStorage = context.getBean(FallbackStorage.class);
+        this.replayJobManager = context.getBean(ReplayJobManager.class);
+        dataSource.configure(options.errorRate(), options.latencyMillis(), options.stallTimeoutMillis());
+    }
+
+    static int run(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        Path fallbackDir = Files.createTempDirectory("fallback-soak");
+        ConfigurableApplicationContext context = BenchmarkContexts.start(
+                applicationContext -> applicationContext.getBeanFactory().addBeanPostProcessor(new BeanPostProcessor() {
+                    @Override
+                    public Object postProcessAfterInitialization(Object bean, String beanName) {
+                        return bean instanceof DataSource target && !(bean instanceof FaultInjectingDataSource)
+                                ? new FaultInjectingDataSource(target) : bean;
+                    }
+                }),
+                "--whiteboard.fallback.dir=" + fallbackDir,
+                "--whiteboard.replay.enabled=false",
+                "--whiteboard.uploads.sweep.enabled=false",
+                // One line per failed batch and per fallback event would swamp the run
+                "--logging.level.com.masterwayne.whiteboard_app.persistence=OFF",
+                "--logging.level.com.masterwayne.whiteboard_app.storage=OFF",
+                "--logging.level.com.masterwayne.whiteboard_app.service.WhiteboardService=OFF",
+                "--logging.level.org.hibernate=OFF",
+                "--logging.level.com.zaxxer.hikari=OFF");
+        try {
+            return new FallbackSoak(options, context).execute();
+        } finally {
+            context.close();
+            try (Stream<Path> files = Files.walk(fallbackDir)) {
+                for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        }
+    }
+
+    private int execute() throws Exception {
+        String runId = Long.toString(System.currentTimeMillis(), 36);
+        for (int s = 0; s < options.sessions(); s++) {
+            String session = "soak-" + runId + "-" + s;
+            whiteboardService.createSession(session, "soak");
+            producers.add(new Producer(session, (double) options.rate() / options.sessions()));
+        }
+
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "soak-sampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sampler.scheduleAtFixedRate(() -> {
+            int queueSize = persistenceWorker.getQueueSize();
+            maxQueueSize.accumulateAndGet(queueSize, Math::max);
+            phaseMaxQueueSize.accumulateAndGet(queueSize, Math::max);
+            maxFallbackEvents.accumulateAndGet(fallbackStorage.getFallbackEventCount(), Math::max);
+        }, 0, SAMPLE_MILLIS, TimeUnit.MILLISECONDS);
+
+        List<Thread> threads = new ArrayList<>();
+        for (Producer producer : producers) {
+            Thread thread = new Thread(producer, "soak-producer-" + producer.session);
+            thread.setDaemon(true);
+            thread.start();
+            threads.add(thread);
+        }
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("options", options);
+
+        Map<String, Object> baseline = phase(options.baselineSeconds());
+        summary.put("baseline", baseline);
+
+        dataSource.inject(options.fault());
+        Map<String, Object> fault = phase(options.faultSeconds());
+        fault.put("fault", options.fault());
+        fault.put("injectedFaults", dataSource.getInjectedCount());
+        summary.put("fault", fault);
+
+        dataSource.clear();
+        System.out.println("# recovery: replaying the fallback log");
+        long recoveryStarted = System.nanoTime();
+        long steadyQueueSize = Math.max(1, (long) baseline.get("maxQueueSize"));
+        Map<String, Object> catchUp = catchUp(recoveryStarted, steadyQueueSize);
+        long remaining = TimeUnit.SECONDS.toNanos(options.recoverySeconds()) - (System.nanoTime() - recoveryStarted);
+        if (remaining > 0) {
+            TimeUnit.NANOSECONDS.sleep(remaining);
+        }
+        producing = false;
+        for (Thread thread : threads) {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        }
+        // An empty replay chunk queues behind every live task, so once it completes the worker is idle;
+        // events whose batch failed after recovery began (late fallback writes) then get one more pass
+        persistenceWorker.submitReplayChunk(List.of()).get(options.catchUpTimeoutSeconds(), TimeUnit.SECONDS);
+        catchUp.put("finalPass", catchUp(System.nanoTime(), 0));
+        summary.put("recovery", catchUp);
+        sampler.shutdownNow();
+
+        Map<String, Object> verification = verify();
+        summary.put("verification", verification);
+        summary.put("maxQueueSize", maxQueueSize.get());
+        summary.put("maxFallbackEvents", maxFallbackEvents.get());
+        summary.put("producerErrors", producerErrors.sum());
+
+        print(summary);
+        Path json = options.json() != null ? options.json()
+                : RESULTS_DIR.resolve(LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".json");
+        if (json.getParent() != null) {
+            Files.createDirectories(json.getParent());
+        }
+        new ObjectMapper().findAndRegisterModules().writerWithDefaultPrettyPrinter().writeValue(json.toFile(), summary);
+        System.out.println("# Results written to " + json.toAbsolutePath());
+
+        boolean intact = (long) verification.get("lost") == 0 && (long) verification.get("duplicated") == 0;
+        return intact && Boolean.TRUE.equals(catchUp.get("caughtUp")) ? 0 : 1;
+    }
+
+    // Runs traffic for the given time and reports what the queue and the fallback log did meanwhile
+    private Map<String, Object> phase(int seconds) throws InterruptedException {
+        System.out.printf("# %s: %d s%n", dataSource.getFault() == Fault.NONE ? "healthy" : dataSource.getFault(), seconds);
+        long sentBefore = sent();
+        int queueBefore = persistenceWorker.getQueueSize();
+        long fallbackBefore = fallbackStorage.getFallbackEventCount();
+        phaseMaxQueueSize.set(queueBefore);
+        long started = System.nanoTime();
+        TimeUnit.SECONDS.sleep(seconds);
+        double elapsed = (System.nanoTime() - started) / 1e9;
+
+        Map<String, Object> phase = new LinkedHashMap<>();
+        phase.put("seconds", round(elapsed));
+        phase.put("eventsSent", sent() - sentBefore);
+        phase.put("eventsPerSecond", round((sent() - sentBefore) / elapsed));
+        int queueAfter = persistenceWorker.getQueueSize();
+        phase.put("queueSizeAtEnd", queueAfter);
+        phase.put("maxQueueSize", phaseMaxQueueSize.get());
+        phase.put("queueGrowthPerSecond", round((queueAfter - queueBefore) / elapsed));
+        long fallbackWritten = fallbackStorage.getFallbackEventCount() - fallbackBefore;
+        phase.put("fallbackEventsWritten", fallbackWritten);
+        phase.put("fallbackWritesPerSecond", round(fallbackWritten / elapsed));
+        return phase;
+    }
+
+    // Replays until the fallback log is empty and the live queue is back to steadyQueueSize, or the timeout passes
+    private Map<String, Object> catchUp(long since, long steadyQueueSize) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(options.catchUpTimeoutSeconds());
+        long replayed = 0;
+        long deadLettered = 0;
+        long pausedMillis = 0;
+        int runs = 0;
+        long pendingAtStart = fallbackStorage.getFallbackEventCount();
+        boolean caughtUp = false;
+        ReplayJob job = null;
+        while (System.nanoTime() < deadline) {
+            if (job != null && job.isFinished()) {
+                replayed += job.getReplayed();
+                deadLettered += job.getDeadLettered();
+                job = null;
+            }
+            if (job == null && fallbackStorage.getFallbackEventCount() > 0) {
+                job = replayJobManager.submit(0);
+                runs++;
+            }
+            if (job != null && job.getState() == ReplayJob.State.PAUSED) {
+                pausedMillis += POLL_MILLIS;
+            }
+            long pendingWrites = ((Number) fallbackStorage.getFallbackStats().get("pendingWrites")).longValue();
+            if (job == null && fallbackStorage.getFallbackEventCount() == 0 && pendingWrites == 0
+                    && persistenceWorker.getQueueSize() <= steadyQueueSize) {
+                caughtUp = true;
+                break;
+            }
+            TimeUnit.MILLISECONDS.sleep(POLL_MILLIS);
+        }
+        if (job != null) {
+            job.requestCancel();
+            while (!job.isFinished()) {
+                TimeUnit.MILLISECONDS.sleep(POLL_MILLIS);
+            }
+            replayed += job.getReplayed();
+            deadLettered += job.getDeadLettered();
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("fallbackEventsAtStart", pendingAtStart);
+        result.put("replayed", replayed);
+        result.put("deadLettered", deadLettered);
+        result.put("replayRuns", runs);
+        result.put("replayPausedMillis", pausedMillis);
+        result.put("caughtUp", caughtUp);
+        result.put("catchUpMillis", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - since));
+        return result;
+    }
+
+    private Map<String, Object> verify() throws Exception {
+        long expected = 0;
+        long lost = 0;
+        long duplicated = 0;
+        long unexpected = 0;
+        for (Producer producer : producers) {
+            Map<Long, Integer> stored = new HashMap<>();
+            for (DrawPayload shape : whiteboardService.getShapes(producer.session, CHANNEL)) {
+                stored.merge(shape.getSeq(), 1, Integer::sum);
+            }
+            Set<Long> seqs = new HashSet<>(producer.seqs);
+            expected += seqs.size();
+            for (Long seq : seqs) {
+                int copies = stored.getOrDefault(seq, 0);
+                if (copies == 0) {
+                    lost++;
+                } else {
+                    duplicated += copies - 1;
+                }
+            }
+            for (Long seq : stored.keySet()) {
+                if (!seqs.contains(seq)) {
+                    unexpected++;
+                }
+            }
+        }
+        Map<String, Object> verification = new LinkedHashMap<>();
+        verification.put("expected", expected);
+        verification.put("lost", lost);
+        verification.put("duplicated", duplicated);
+        verification.put("unexpected", unexpected);
+        return verification;
+    }
+
+    private long sent() {
+        long sent = 0;
+        for (Producer producer : producers) {
+            sent += producer.sent.sum();
+        }
+        return sent;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void print(Map<String, Object> summary) {
+        System.out.printf("%n%s%n", summary.get("options"));
+        for (String key : List.of("baseline", "fault", "recovery", "verification")) {
+            System.out.printf("%-13s %s%n", key, summary.get(key));
+        }
+        System.out.printf("%-13s maxQueueSize=%s, maxFallbackEvents=%s, producerErrors=%s%n", "overall",
+                summary.get("maxQueueSize"), summary.get("maxFallbackEvents"), summary.get("producerErrors"));
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+
+    /**
+     * Paced draw traffic for one session: a batch every batch/rate seconds, catching up after a
+     * slow call instead of dropping the rate. Keeps every seq it was handed for the final check.
+     */
+    private final class Producer implements Runnable {
+        final String session;
+        final double eventsPerSecond;
+        final List<Long> seqs = new ArrayList<>();
+        final LongAdder sent = new LongAdder();
+
+        Producer(String session, double eventsPerSecond) {
+            this.session = session;
+            this.eventsPerSecond = eventsPerSecond;
+        }
+
+        @Override
+        public void run() {
+            long intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) * options.batch() / eventsPerSecond);
+            long next = System.nanoTime();
+            double x = 400;
+            double y = 300;
+            while (producing) {
+                long wait = next - System.nanoTime();
+                if (wait > 0) {
+                    try {
+                        TimeUnit.NANOSECONDS.sleep(wait);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+                next += intervalNanos;
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                List<DrawPayload> batch = new ArrayList<>(options.batch());
+                for (int i = 0; i < options.batch(); i++) {
+                    DrawPayload segment = new DrawPayload();
+                    segment.setType("line-segment");
+                    segment.setX1(x);
+                    segment.setY1(y);
+                    x = Math.max(0, Math.min(1200, x + random.nextDouble(-6, 6)));
+                    y = Math.max(0, Math.min(800, y + random.nextDouble(-6, 6)));
+                    segment.setX2(x);
+                    segment.setY2(y);
+                    segment.setColor("#1f6feb");
+                    segment.setLineWidth(3);
+                    batch.add(segment);
+                }
+                try {
+                    whiteboardService.addShapes(session, CHANNEL, batch);
+                    for (DrawPayload segment : batch) {
+                        seqs.add(segment.getSeq());
+                    }
+                    sent.add(batch.size());
+                } catch (Exception e) {
+                    producerErrors.increment();
+                }
+            }
+        }
+    }
+
+    record Options(int sessions, int rate, int batch, int baselineSeconds, int faultSeconds, int recoverySeconds,
+                   Fault fault, double errorRate, long latencyMillis, long stallTimeoutMillis,
+                   int catchUpTimeoutSeconds, Path json) {
+
+        static Options parse(String[] args) {
+            Map<String, String> values = new HashMap<>();
+            for (String arg : args) {
+                int equals = arg.indexOf('=');
+                if (!arg.startsWith("--") || equals < 0) {
+                    throw new IllegalArgumentException("Expected --name=value, got '" + arg + "'");
+                }
+                values.put(arg.substring(2, equals), arg.substring(equals + 1));
+            }
+            Options options = new Options(
+                    Integer.parseInt(values.getOrDefault("sessions", "4")),
+                    Integer.parseInt(values.getOrDefault("rate", "200")),
+                    Integer.parseInt(values.getOrDefault("batch", "4")),
+                    Integer.parseInt(values.getOrDefault("baseline", "10")),
+                    Integer.parseInt(values.getOrDefault("fault-duration", "20")),
+                    Integer.parseInt(values.getOrDefault("recovery", "20")),
+                    Fault.valueOf(values.getOrDefault("fault", "error").toUpperCase(Locale.ROOT).replace('-', '_')),
+                    Double.parseDouble(values.getOrDefault("error-rate", "1.0")),
+                    Long.parseLong(values.getOrDefault("latency-ms", "50")),
+                    Long.parseLong(values.getOrDefault("stall-timeout-ms", "20000")),
+                    Integer.parseInt(values.getOrDefault("catch-up-timeout", "300")),
+                    values.containsKey("json") ? Paths.get(values.get("json")) : null);
+            values.keySet().removeAll(List.of("sessions", "rate", "batch", "baseline", "fault-duration", "recovery",
+                    "fault", "error-rate", "latency-ms", "stall-timeout-ms", "catch-up-timeout", "json"));
+            if (!values.isEmpty()) {
+                throw new IllegalArgumentException("Unknown options " + values.keySet());
+            }
+            return options;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.masterwayne.whiteboard_app.benchmark;
+
+import com.masterwayne.whiteboard_app.messaging.SharedFrameStompEncoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.messaging.MessageHeaders;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompEncoder;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.util.MimeTypeUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding cost of one broadcast delivered to N subscribers of a board, standard Spring encoder
+ * versus the shared-frame encoder. Run with '-prof gc' to compare allocation rate per broadcast.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FanOutEncodeBenchmark {
+
+    @Param({"10", "50", "200"})
+    public int subscribers;
+
+    private final StompEncoder standardEncoder = new StompEncoder();
+    private final SharedFrameStompEncoder sharedEncoder = new SharedFrameStompEncoder();
+    private MessageHeaders[] subscriberHeaders;
+    private byte[] payload;
+
+    @Setup
+    public void setUp() {
+        payload = ("{\"type\":\"line-segment\",\"id\":null,\"targetId\":null,\"x1\":412.5,\"y1\":318.0,"
+                + "\"x2\":415.0,\"y2\":321.5,\"color\":\"#1f6feb\",\"text\":null,\"fontSize\":null,"
+                + "\"dx\":null,\"dy\":null,\"lineWidth\":3,\"seq\":48213}").getBytes(StandardCharsets.UTF_8);
+        subscriberHeaders = new MessageHeaders[subscribers];
+        for (int i = 0; i < subscribers; i++) {
+            StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.MESSAGE);
+            accessor.setDestination("/topic/whiteboard/design-review/general");
+            accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+            accessor.setSubscriptionId("sub-" + i);
+            accessor.setMessageId("session" + i + "-" + 1000 + i);
+            subscriberHeaders[i] = accessor.getMessageHeaders();
+        }
+    }
+
+    @Benchmark
+    public void standardEncoder(Blackhole blackhole) {
+        for (MessageHeaders headers : subscriberHeaders) {
+            blackhole.consume(standardEncoder.encode(headers, payload));
+        }
+    }
+
+    @Benchmark
+    public void sharedFrameEncoder(Blackhole blackhole) {
+        // A fresh payload array per broadcast, as the broker would hand over
+        byte[] broadcast = payload.clone();
+        for (MessageHeaders headers : subscriberHeaders) {
+            blackhole.consume(sharedEncoder.encode(headers, broadcast));
+        }
+    }
+}
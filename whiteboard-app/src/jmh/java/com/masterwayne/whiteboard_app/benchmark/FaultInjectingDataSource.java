@@ -0,0 +1,143 @@
+package com.masterwayne.whiteboard_app.benchmark;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Wraps the application's DataSource and injects the failures a sick database produces, switchable
+ * at runtime:
+ * - ERROR: connection acquisition fails (SQLTransientConnectionException) with probability errorRate
+ * - LATENCY: every connection acquisition waits latencyMillis first, i.e. every transaction is slower
+ * - STALL: acquisition blocks until the fault is cleared, or fails after stallTimeoutMillis as the
+ *   pool's connection timeout would
+ * - AMBIGUOUS_COMMIT: commit reaches the database, then the connection "drops" before the caller
+ *   hears back (SQLRecoverableException), with probability errorRate
+ * The wrapper sits in front of the pool, so every transaction goes through it.
+ */
+final class FaultInjectingDataSource extends DelegatingDataSource {
+
+    enum Fault { NONE, ERROR, LATENCY, STALL, AMBIGUOUS_COMMIT }
+
+    private final Object stallMonitor = new Object();
+    private final LongAdder injected = new LongAdder();
+    private volatile Fault fault = Fault.NONE;
+    private volatile double errorRate = 1.0;
+    private volatile long latencyMillis = 50;
+    private volatile long stallTimeoutMillis = 20_000;
+
+    FaultInjectingDataSource(DataSource target) {
+        super(target);
+    }
+
+    void inject(Fault fault) {
+        synchronized (stallMonitor) {
+            this.fault = fault;
+            stallMonitor.notifyAll();
+        }
+    }
+
+    void clear() {
+        inject(Fault.NONE);
+    }
+
+    void configure(double errorRate, long latencyMillis, long stallTimeoutMillis) {
+        this.errorRate = errorRate;
+        this.latencyMillis = latencyMillis;
+        this.stallTimeoutMillis = stallTimeoutMillis;
+    }
+
+    Fault getFault() {
+        return fault;
+    }
+
+    long getInjectedCount() {
+        return injected.sum();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        beforeAcquire();
+        return wrap(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        beforeAcquire();
+        return wrap(super.getConnection(username, password));
+    }
+
+    private void beforeAcquire() throws SQLException {
+        switch (fault) {
+            case ERROR -> {
+                if (ThreadLocalRandom.current().nextDouble() < errorRate) {
+                    injected.increment();
+                    throw new SQLTransientConnectionException("Injected fault: connection refused");
+                }
+            }
+            case LATENCY -> {
+                injected.increment();
+                sleep(latencyMillis);
+            }
+            case STALL -> awaitStallEnd();
+            default -> {
+            }
+        }
+    }
+
+    private void awaitStallEnd() throws SQLException {
+        injected.increment();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(stallTimeoutMillis);
+        synchronized (stallMonitor) {
+            while (fault == Fault.STALL) {
+                long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                if (remaining <= 0) {
+                    throw new SQLTransientConnectionException(
+                            "Injected fault: connection is not available, request timed out after " + stallTimeoutMillis + "ms");
+                }
+                try {
+                    stallMonitor.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SQLTransientConnectionException("Interrupted while stalled", e);
+                }
+            }
+        }
+    }
+
+    private Connection wrap(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    boolean commit = method.getName().equals("commit") && method.getParameterCount() == 0;
+                    Object result;
+                    try {
+                        result = method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                    if (commit && fault == Fault.AMBIGUOUS_COMMIT && ThreadLocalRandom.current().nextDouble() < errorRate) {
+                        injected.increment();
+                        throw new SQLRecoverableException("Injected fault: connection lost after commit");
+                    }
+                    return result;
+                });
+    }
+
+    private static void sleep(long millis) throws SQLException {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted during injected latency", e);
+        }
+    }
+}
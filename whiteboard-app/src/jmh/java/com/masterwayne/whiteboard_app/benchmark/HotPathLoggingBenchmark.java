@@ -0,0 +1,179 @@
+package com.masterwayne.whiteboard_app.benchmark;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.FileAppender;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.masterwayne.whiteboard_app.exception.SessionException;
+import com.masterwayne.whiteboard_app.model.DrawPayload;
+import com.masterwayne.whiteboard_app.persistence.DurabilityWatermarks;
+import com.masterwayne.whiteboard_app.persistence.PersistenceWorker;
+import com.masterwayne.whiteboard_app.repository.ChannelDirectory;
+import com.masterwayne.whiteboard_app.service.ChannelSequencer;
+import com.masterwayne.whiteboard_app.service.WhiteboardService;
+import com.masterwayne.whiteboard_app.storage.FallbackAppender;
+import com.masterwayne.whiteboard_app.storage.FallbackStorage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Logging cost on the draw hot path: WhiteboardService.addShape (sequence, enqueue, broadcast) from
+ * four STOMP threads while the persistence worker drains into a discarding event store, under each
+ * logging setup of logback-spring.xml, rebuilt here with files standing in for the console:
+ * - off: no logging at all, the baseline
+ * - dev: DEBUG for the app and Spring messaging, synchronous console, async file (blocking when full)
+ * - prod: INFO, async console and file with bounded, non-blocking queues
+ * The logging share of a setup is (score - off) / score.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class HotPathLoggingBenchmark {
+    private static final String PATTERN = "%d{yyyy-MM-dd HH:mm:ss} [%thread] %-5level %logger{36} - %msg%n";
+
+    @Param({"off", "dev", "prod"})
+    public String logging;
+
+    private Path dir;
+    private PersistenceWorker worker;
+    private FallbackStorage fallbackStorage;
+    private WhiteboardService service;
+
+    @State(Scope.Thread)
+    public static class Drawer {
+        final DrawPayload payload = new DrawPayload();
+        final String channel = "general";
+
+        @Setup
+        public void setUp() {
+            payload.setType("line-segment");
+            payload.setX1(412.5);
+            payload.setY1(318.0);
+            payload.setX2(415.0);
+            payload.setY2(321.5);
+            payload.setColor("#1f6feb");
+            payload.setLineWidth(3);
+        }
+    }
+
+    @Setup
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("hot-path-logging");
+        configureLogging();
+        worker = new PersistenceWorker(SubmitDrawEventBenchmark.discardingStore(), null,
+                new DurabilityWatermarks(null, null, false));
+        ExecutorSubscribableChannel brokerChannel = new ExecutorSubscribableChannel();
+        brokerChannel.subscribe(message -> { });
+        // Sequences start at 0: nothing stored and an empty fallback log
+        fallbackStorage = new FallbackStorage(new ObjectMapper(), FallbackAppender.FsyncPolicy.INTERVAL, 200, 1000,
+                1 << 20, 1, 1, 1, dir.resolve("fallback").toString());
+        // Every channel exists, without a database behind the directory
+        ChannelDirectory directory = new ChannelDirectory(null, null) {
+            @Override
+            public boolean channelExists(String sessionName, String channelName) {
+                return true;
+            }
+        };
+        service = new WhiteboardService(null, directory, null, worker, null, null, null,
+                new ChannelSequencer(SubmitDrawEventBenchmark.discardingStore(), fallbackStorage, directory),
+                new SimpMessagingTemplate(brokerChannel), null);
+        service.init();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        service.destroy();
+        fallbackStorage.shutdown();
+        ((LoggerContext) LoggerFactory.getILoggerFactory()).stop();
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public void addShape(Drawer drawer) throws SessionException {
+        service.addShape("design-review", drawer.channel, drawer.payload);
+    }
+
+    private void configureLogging() {
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        context.reset();
+        Logger root = context.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME);
+        switch (logging) {
+            case "off" -> root.setLevel(Level.OFF);
+            case "dev" -> {
+                root.setLevel(Level.INFO);
+                root.addAppender(file(context, "console"));
+                root.addAppender(async(context, file(context, "app"), 512, 0, false));
+                context.getLogger("com.masterwayne.whiteboard_app").setLevel(Level.DEBUG);
+                context.getLogger("org.springframework.messaging").setLevel(Level.DEBUG);
+                context.getLogger("org.springframework.web.socket").setLevel(Level.DEBUG);
+            }
+            case "prod" -> {
+                root.setLevel(Level.INFO);
+                root.addAppender(async(context, file(context, "console"), 8192, 1638, true));
+                root.addAppender(async(context, file(context, "app"), 8192, 1638, true));
+            }
+            default -> throw new IllegalArgumentException("Unknown logging setup: " + logging);
+        }
+    }
+
+    private Appender<ILoggingEvent> file(LoggerContext context, String name) {
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern(PATTERN);
+        encoder.start();
+        FileAppender<ILoggingEvent> appender = new FileAppender<>();
+        appender.setContext(context);
+        appender.setName(name);
+        appender.setFile(dir.resolve(name + ".log").toString());
+        appender.setEncoder(encoder);
+        appender.start();
+        return appender;
+    }
+
+    private static Appender<ILoggingEvent> async(LoggerContext context, Appender<ILoggingEvent> target,
+                                                 int queueSize, int discardingThreshold, boolean neverBlock) {
+        AsyncAppender appender = new AsyncAppender();
+        appender.setContext(context);
+        appender.setName("async-" + target.getName());
+        appender.setQueueSize(queueSize);
+        appender.setDiscardingThreshold(discardingThreshold);
+        appender.setNeverBlock(neverBlock);
+        appender.addAppender(target);
+        appender.start();
+        return appender;
+    }
+}
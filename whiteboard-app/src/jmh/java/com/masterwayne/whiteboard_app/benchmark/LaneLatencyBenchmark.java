@@ -0,0 +1,141 @@
+package com.masterwayne.whiteboard_app.benchmark;
+
+import com.masterwayne.whiteboard_app.messaging.PriorityLaneExecutor;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.broker.OrderedMessageChannelDecorator;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Chat dispatch latency to a client whose outbound channel is saturated by a draw flood, sent the way
+ * the broker sends it: through an ExecutorSubscribableChannel, with publish order kept per client.
+ * Compares one FIFO pool behind Spring's per-client ordering (lanes disabled), the lane executor behind
+ * that same ordering, and the lane executor keeping order per client and lane (lanes enabled).
+ * A feeder thread keeps a constant backlog of ~50us draw messages spread over a few clients; each
+ * benchmark call sends one chat message to the first of them and waits until it has been handled.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LaneLatencyBenchmark {
+    private static final int THREADS = 4;
+    private static final int CLIENTS = 8;
+    private static final Log orderLogger = LogFactory.getLog(LaneLatencyBenchmark.class);
+
+    @Param({"fifo", "lanes-client-order", "lanes"})
+    public String executorKind;
+
+    @Param({"2000"})
+    public int drawBacklog;
+
+    private Executor executor;
+    private final MessageChannel[] clientChannels = new MessageChannel[CLIENTS];
+    private Thread feeder;
+    private volatile boolean flooding;
+    private final AtomicInteger pendingDraws = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        if ("fifo".equals(executorKind)) {
+            executor = new ThreadPoolExecutor(THREADS, THREADS, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>());
+        } else {
+            executor = new PriorityLaneExecutor("bench", THREADS, Map.of(
+                    PriorityLaneExecutor.Lane.CHAT, 4,
+                    PriorityLaneExecutor.Lane.CONTROL, 2,
+                    PriorityLaneExecutor.Lane.DRAW, 1));
+        }
+        ExecutorSubscribableChannel outbound = new ExecutorSubscribableChannel(executor);
+        outbound.subscribe(message -> ((Runnable) message.getPayload()).run());
+        // What setPreservePublishOrder(true) does to the client outbound channel
+        boolean clientOrder = !"lanes".equals(executorKind);
+        OrderedMessageChannelDecorator.configureInterceptor(outbound, clientOrder);
+        for (int i = 0; i < CLIENTS; i++) {
+            clientChannels[i] = clientOrder ? new OrderedMessageChannelDecorator(outbound, orderLogger) : outbound;
+        }
+
+        Runnable draw = () -> {
+            spin(50_000);
+            pendingDraws.decrementAndGet();
+        };
+        flooding = true;
+        feeder = new Thread(() -> {
+            int client = 0;
+            while (flooding) {
+                if (pendingDraws.get() < drawBacklog) {
+                    pendingDraws.incrementAndGet();
+                    clientChannels[client].send(message("/topic/whiteboard/design-review/general", client, draw));
+                    client = (client + 1) % CLIENTS;
+                } else {
+                    Thread.onSpinWait();
+                }
+            }
+        }, "draw-flood");
+        feeder.setDaemon(true);
+        feeder.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws InterruptedException {
+        flooding = false;
+        feeder.join();
+        if (executor instanceof PriorityLaneExecutor laneExecutor) {
+            laneExecutor.shutdown();
+        } else {
+            ((ExecutorService) executor).shutdownNow();
+        }
+    }
+
+    @Benchmark
+    public void chatUnderDrawFlood() throws Exception {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        clientChannels[0].send(message("/topic/chat/design-review/general", 0, () -> done.complete(null)));
+        done.get(30, TimeUnit.SECONDS);
+    }
+
+    private static void spin(long nanos) {
+        long deadline = System.nanoTime() + nanos;
+        while (System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+    }
+
+    // A broadcast as the broker addresses it to one subscriber session; the payload is the handling
+    private static Message<Runnable> message(String destination, int client, Runnable handling) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(destination);
+        accessor.setSessionId("client-" + client);
+        // As SimpleBrokerMessageHandler leaves them, which the ordered decorator relies on
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(handling, accessor.getMessageHeaders());
+    }
+}
@@ -0,0 +1,111 @@
+package com.masterwayne.whiteboard_app.benchmark;
+
+import com.masterwayne.whiteboard_app.model.ChatMessage;
+import com.masterwayne.whiteboard_app.model.DrawPayload;
+import com.masterwayne.whiteboard_app.persistence.PersistenceWorker;
+import com.masterwayne.whiteboard_app.persistence.PersistenceWorker.PersistenceTask;
+import com.masterwayne.whiteboard_app.service.WhiteboardService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading a board through WhiteboardService for boards of different sizes. Every read path starts
+ * with loadSessionGraph (session, manager, channels, then each channel's shapes and chat) followed
+ * by the channel-name map (buildChannelMap or its inline copy):
+ * - loadShapes / loadChat: the history REST endpoints
+ * - joinAsManager: joinSession for the manager, which loads the graph and returns it unchanged
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SessionGraphBenchmark {
+    private static final String SESSION = "session-graph-bench";
+    private static final String MANAGER = "bench";
+    private static final String CHANNEL = "general";
+    private static final int SEED_CHUNK = 2000;
+
+    @Param({"100", "5000", "50000"})
+    public int shapes;
+
+    @Param({"200"})
+    public int chatMessages;
+
+    private ConfigurableApplicationContext context;
+    private WhiteboardService service;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        context = BenchmarkContexts.start();
+        service = context.getBean(WhiteboardService.class);
+        service.createSession(SESSION, MANAGER);
+        PersistenceWorker worker = context.getBean(PersistenceWorker.class);
+
+        for (int from = 0; from < shapes; from += SEED_CHUNK) {
+            List<DrawPayload> chunk = new ArrayList<>();
+            for (int i = from; i < Math.min(shapes, from + SEED_CHUNK); i++) {
+                DrawPayload shape = new DrawPayload();
+                shape.setType("line-segment");
+                shape.setX1(100.0 + (i * 7) % 800);
+                shape.setY1(200.0 + (i * 13) % 600);
+                shape.setX2(102.5 + (i * 7) % 800);
+                shape.setY2(203.0 + (i * 13) % 600);
+                shape.setColor("#1f6feb");
+                shape.setLineWidth(3);
+                shape.setSeq((long) i + 1);
+                chunk.add(shape);
+            }
+            worker.submitReplayChunk(List.of(PersistenceTask.drawBatchTask(SESSION, CHANNEL, chunk))).join();
+        }
+        List<PersistenceTask> chat = new ArrayList<>();
+        for (int i = 0; i < chatMessages; i++) {
+            ChatMessage message = new ChatMessage();
+            message.setSenderName("user-" + (i % 7));
+            message.setContent("Moving the header block over a bit, see stroke " + i);
+            message.setMessageType("TEXT");
+            message.setTimestamp(Instant.now());
+            message.setSeq((long) i + 1);
+            chat.add(PersistenceTask.chatTask(SESSION, CHANNEL, message));
+        }
+        worker.submitReplayChunk(chat).join();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int loadShapes() throws Exception {
+        return service.getShapes(SESSION, CHANNEL).size();
+    }
+
+    @Benchmark
+    public int loadChat() throws Exception {
+        return service.getChatMessages(SESSION, CHANNEL).size();
+    }
+
+    @Benchmark
+    public Object joinAsManager() throws Exception {
+        return service.joinSession(SESSION, MANAGER);
+    }
+}
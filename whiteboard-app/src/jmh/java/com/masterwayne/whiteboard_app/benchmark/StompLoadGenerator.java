@@ -0,0 +1,597 @@
+package com.masterwayne.whiteboard_app.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.masterwayne.whiteboard_app.dto.ChatPayload;
+import com.masterwayne.whiteboard_app.dto.CreateSessionRequest;
+import com.masterwayne.whiteboard_app.dto.JoinSessionRequest;
+import com.masterwayne.whiteboard_app.model.DrawPayload;
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import io.micrometer.core.instrument.simple.CountingMode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompFrameHandler;
+import org.springframework.messaging.simp.stomp.StompHeaders;
+import org.springframework.messaging.simp.stomp.StompSession;
+import org.springframework.messaging.simp.stomp.StompSessionHandlerAdapter;
+import org.springframework.web.socket.client.standard.StandardWebSocketClient;
+import org.springframework.web.socket.messaging.WebSocketStompClient;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Headless load generator for the /ws endpoint: N sessions x M participants, each participant one
+ * WebSocketStompClient connection on the raw WebSocket transport (/ws/websocket), subscribed to its
+ * board's draw and chat topics and publishing what the browser client publishes:
+ * - freehand strokes: 'line-segment' events at 60 Hz, flushed every 40 ms as one /app/draw-batch frame
+ *   (the frontend's SEGMENT_FLUSH_MS buffering)
+ * - 'shape-rect' / 'shape-circle' / 'shape-line' and 'move-rect' as single /app/draw frames
+ * - chat messages on /app/chat
+ *
+ * Every published frame carries its send time (in the id of its first draw event, or as a prefix of
+ * the chat content), so each delivery to each subscriber yields one publish-to-receive latency.
+ * Persistence lag is sampled by polling the shapes endpoint with afterSeq for the highest durable seq
+ * of every board and comparing it with the highest seq broadcast so far; the persistence queue size
+ * comes from /actuator/metrics. Once traffic stops the generator waits until every broadcast draw
+ * event is durable and reports how long that took.
+ *
+ * Without --url the application is started in-process on the dev profile (embedded H2, random port):
+ *
+ *   ./mvnw -Pbenchmarks test-compile exec:exec -Djmh.args="load --sessions=4 --participants=8 --duration=60"
+ *
+ * Options, with per-participant rates in events per second:
+ *   --sessions=2 --participants=4 --duration=30 --warmup=5 (seconds)
+ *   --strokes=0.5 --shapes=0.1 --moves=0.05 --chat=0.1
+ *   --lag-interval=1000 (ms, 0 disables sampling) --url=http://host:8080 --json=path
+ * The summary is also written as JSON, by default to target/load-results/&lt;timestamp&gt;.json. The exit
+ * status is 1 when the broadcast events did not all become durable within the drain timeout.
+ */
+final class StompLoadGenerator {
+    private static final String CHANNEL = "general";
+    private static final String STAMP = "lt:";
+    private static final long TICK_MILLIS = 40;
+    private static final double SEGMENTS_PER_TICK = 60.0 * TICK_MILLIS / 1000;
+    private static final Duration DRAIN_TIMEOUT = Duration.ofMinutes(2);
+    private static final Path RESULTS_DIR = Paths.get("target", "load-results");
+    private static final String[] SHAPES = {"shape-rect", "shape-circle", "shape-line"};
+    private static final String[] COLORS = {"#1f6feb", "#d73a49", "#28a745", "#6f42c1", "#000000"};
+
+    private final Options options;
+    private final HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry(
+            key -> "simple.mode".equals(key) ? CountingMode.CUMULATIVE.name() : null, Clock.SYSTEM);
+    private final Timer drawLatency = latencyTimer("draw");
+    private final Timer chatLatency = latencyTimer("chat");
+    private final Map<String, LongAdder> framesSent = new LinkedHashMap<>();
+    private final LongAdder eventsSent = new LongAdder();
+    private final LongAdder framesDelivered = new LongAdder();
+    private final LongAdder eventsDelivered = new LongAdder();
+    private final LongAdder deliveriesTotal = new LongAdder();
+    private final LongAdder sendErrors = new LongAdder();
+    private final LongAdder transportErrors = new LongAdder();
+    private final List<Board> boards = new ArrayList<>();
+    private final List<Participant> participants = new ArrayList<>();
+    private volatile boolean recording;
+
+    private long maxQueueSize = -1;
+    private long maxLag;
+    private long lagSamples;
+    private long lagSum;
+
+    private StompLoadGenerator(Options options) {
+        this.options = options;
+        for (String kind : List.of("draw-batch", "draw", "chat")) {
+            framesSent.put(kind, new LongAdder());
+        }
+    }
+
+    static int run(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        ConfigurableApplicationContext context = null;
+        String baseUrl = options.url();
+        if (baseUrl == null) {
+            context = BenchmarkContexts.start();
+            baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+        }
+        try {
+            return new StompLoadGenerator(options).execute(baseUrl.replaceAll("/+$", ""));
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+        }
+    }
+
+    private int execute(String baseUrl) throws Exception {
+        String runId = Long.toString(System.currentTimeMillis(), 36);
+        for (int s = 0; s < options.sessions(); s++) {
+            Board board = new Board("load-" + runId + "-" + s);
+            boards.add(board);
+            for (int p = 0; p < options.participants(); p++) {
+                String user = "user-" + p;
+                if (p == 0) {
+                    CreateSessionRequest request = new CreateSessionRequest();
+                    request.setSessionName(board.name);
+                    request.setManagerName(user);
+                    post(baseUrl + "/api/sessions/create", request);
+                } else {
+                    JoinSessionRequest request = new JoinSessionRequest();
+                    request.setSessionName(board.name);
+                    request.setUserName(user);
+                    post(baseUrl + "/api/sessions/join", request);
+                }
+                participants.add(new Participant(board, user));
+            }
+        }
+
+        WebSocketStompClient stompClient = new WebSocketStompClient(new StandardWebSocketClient());
+        stompClient.setMessageConverter(new MappingJackson2MessageConverter());
+        stompClient.setInboundMessageSizeLimit(512 * 1024);
+        String wsUrl = baseUrl.replaceFirst("^http", "ws") + "/ws/websocket";
+        for (Participant participant : participants) {
+            participant.connect(stompClient, wsUrl);
+        }
+        System.out.printf("# %d sessions x %d participants connected to %s%n",
+                options.sessions(), options.participants(), wsUrl);
+
+        ScheduledExecutorService traffic = Executors.newScheduledThreadPool(
+                Math.max(2, Runtime.getRuntime().availableProcessors() / 2), daemon("load-traffic"));
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(daemon("load-sampler"));
+        for (Participant participant : participants) {
+            traffic.scheduleAtFixedRate(participant::tick,
+                    ThreadLocalRandom.current().nextLong(TICK_MILLIS), TICK_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        if (options.lagIntervalMillis() > 0) {
+            sampler.scheduleWithFixedDelay(() -> sampleLag(baseUrl),
+                    options.lagIntervalMillis(), options.lagIntervalMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        Thread.sleep(TimeUnit.SECONDS.toMillis(options.warmupSeconds()));
+        recording = true;
+        long started = System.nanoTime();
+        Thread.sleep(TimeUnit.SECONDS.toMillis(options.durationSeconds()));
+        recording = false;
+        double measuredSeconds = (System.nanoTime() - started) / 1e9;
+
+        traffic.shutdown();
+        traffic.awaitTermination(5, TimeUnit.SECONDS);
+        sampler.shutdown();
+        sampler.awaitTermination(30, TimeUnit.SECONDS);
+        awaitQuiescentDeliveries();
+
+        long drainStarted = System.nanoTime();
+        boolean drained = awaitDurable(baseUrl);
+        long drainMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - drainStarted);
+
+        for (Participant participant : participants) {
+            participant.disconnect();
+        }
+        stompClient.stop();
+
+        Map<String, Object> summary = summary(measuredSeconds, drained, drainMillis);
+        print(summary);
+        Path json = options.json() != null ? options.json()
+                : RESULTS_DIR.resolve(LocalDateTime.now().format(DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss")) + ".json");
+        if (json.getParent() != null) {
+            Files.createDirectories(json.getParent());
+        }
+        objectMapper.writerWithDefaultPrettyPrinter().writeValue(json.toFile(), summary);
+        System.out.println("# Results written to " + json.toAbsolutePath());
+        return drained ? 0 : 1;
+    }
+
+    private Timer latencyTimer(String kind) {
+        return Timer.builder("load.publish.receive")
+                .tag("kind", kind)
+                .publishPercentiles(0.5, 0.9, 0.99, 0.999)
+                .percentilePrecision(2)
+                .distributionStatisticExpiry(Duration.ofDays(1))
+                .distributionStatisticBufferLength(1)
+                .register(registry);
+    }
+
+    // Lets the frames still in flight when traffic stopped arrive before the drain is timed
+    private void awaitQuiescentDeliveries() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        long previous = -1;
+        while (System.nanoTime() < deadline) {
+            long current = deliveriesTotal.sum();
+            if (current == previous) {
+                return;
+            }
+            previous = current;
+            Thread.sleep(500);
+        }
+    }
+
+    private boolean awaitDurable(String baseUrl) throws InterruptedException {
+        long deadline = System.nanoTime() + DRAIN_TIMEOUT.toNanos();
+        while (System.nanoTime() < deadline) {
+            boolean durable = true;
+            for (Board board : boards) {
+                if (board.persistedSeq < board.broadcastSeq.get()) {
+                    board.persistedSeq = Math.max(board.persistedSeq, fetchPersistedSeq(baseUrl, board));
+                    durable &= board.persistedSeq >= board.broadcastSeq.get();
+                }
+            }
+            if (durable) {
+                return true;
+            }
+            Thread.sleep(100);
+        }
+        return false;
+    }
+
+    private void sampleLag(String baseUrl) {
+        long queueSize = fetchQueueSize(baseUrl);
+        if (queueSize > maxQueueSize) {
+            maxQueueSize = queueSize;
+        }
+        for (Board board : boards) {
+            long broadcast = board.broadcastSeq.get();
+            board.persistedSeq = Math.max(board.persistedSeq, fetchPersistedSeq(baseUrl, board));
+            long lag = Math.max(0, broadcast - board.persistedSeq);
+            if (recording) {
+                maxLag = Math.max(maxLag, lag);
+                lagSum += lag;
+                lagSamples++;
+            }
+        }
+    }
+
+    private long fetchPersistedSeq(String baseUrl, Board board) {
+        try {
+            JsonNode shapes = get(baseUrl + "/api/sessions/" + board.name + "/channels/" + CHANNEL
+                    + "/shapes?afterSeq=" + board.persistedSeq);
+            long max = board.persistedSeq;
+            for (JsonNode shape : shapes) {
+                max = Math.max(max, shape.path("seq").asLong());
+            }
+            return max;
+        } catch (IOException | InterruptedException e) {
+            return board.persistedSeq;
+        }
+    }
+
+    private long fetchQueueSize(String baseUrl) {
+        try {
+            JsonNode metric = get(baseUrl + "/actuator/metrics/whiteboard.persistence.queue.size");
+            return metric.path("measurements").path(0).path("value").asLong(-1);
+        } catch (IOException | InterruptedException e) {
+            return -1;
+        }
+    }
+
+    private JsonNode get(String url) throws IOException, InterruptedException {
+        HttpResponse<byte[]> response = http.send(HttpRequest.newBuilder(URI.create(url)).GET().build(),
+                HttpResponse.BodyHandlers.ofByteArray());
+        if (response.statusCode() != 200) {
+            throw new IOException("GET " + url + " returned " + response.statusCode());
+        }
+        return objectMapper.readTree(response.body());
+    }
+
+    private void post(String url, Object body) throws IOException, InterruptedException {
+        HttpResponse<String> response = http.send(HttpRequest.newBuilder(URI.create(url))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(body)))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() / 100 != 2) {
+            throw new IllegalStateException("POST " + url + " returned " + response.statusCode() + ": " + response.body());
+        }
+    }
+
+    private void delivered(Timer latency, String stamp, int events) {
+        deliveriesTotal.increment();
+        if (!recording) {
+            return;
+        }
+        framesDelivered.increment();
+        eventsDelivered.add(events);
+        if (stamp != null && stamp.startsWith(STAMP)) {
+            int end = stamp.indexOf(':', STAMP.length());
+            long sentAt = Long.parseLong(stamp.substring(STAMP.length(), end < 0 ? stamp.length() : end));
+            latency.record(System.nanoTime() - sentAt, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private Map<String, Object> summary(double measuredSeconds, boolean drained, long drainMillis) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("sessions", options.sessions());
+        summary.put("participantsPerSession", options.participants());
+        summary.put("warmupSeconds", options.warmupSeconds());
+        summary.put("measuredSeconds", round(measuredSeconds));
+        summary.put("rates", Map.of("strokes", options.strokes(), "shapes", options.shapes(),
+                "moves", options.moves(), "chat", options.chat()));
+
+        Map<String, Object> sent = new LinkedHashMap<>();
+        framesSent.forEach((kind, count) -> sent.put(kind, count.sum()));
+        sent.put("events", eventsSent.sum());
+        summary.put("sentFrames", sent);
+
+        Map<String, Object> delivered = new LinkedHashMap<>();
+        delivered.put("frames", framesDelivered.sum());
+        delivered.put("events", eventsDelivered.sum());
+        delivered.put("framesPerSecond", round(framesDelivered.sum() / measuredSeconds));
+        delivered.put("eventsPerSecond", round(eventsDelivered.sum() / measuredSeconds));
+        summary.put("delivered", delivered);
+
+        summary.put("latencyMillis", Map.of("draw", latencySummary(drawLatency), "chat", latencySummary(chatLatency)));
+
+        Map<String, Object> persistence = new LinkedHashMap<>();
+        persistence.put("maxQueueSize", maxQueueSize);
+        persistence.put("maxLagEvents", maxLag);
+        persistence.put("meanLagEvents", lagSamples == 0 ? 0 : round((double) lagSum / lagSamples));
+        persistence.put("drained", drained);
+        persistence.put("drainMillis", drainMillis);
+        summary.put("persistence", persistence);
+
+        Map<String, Object> errors = new LinkedHashMap<>();
+        errors.put("send", sendErrors.sum());
+        errors.put("transport", transportErrors.sum());
+        summary.put("errors", errors);
+        return summary;
+    }
+
+    private static Map<String, Object> latencySummary(Timer timer) {
+        HistogramSnapshot snapshot = timer.takeSnapshot();
+        Map<String, Object> latency = new LinkedHashMap<>();
+        latency.put("count", snapshot.count());
+        latency.put("mean", round(snapshot.mean(TimeUnit.MILLISECONDS)));
+        for (ValueAtPercentile percentile : snapshot.percentileValues()) {
+            latency.put("p" + BigDecimal.valueOf(percentile.percentile()).movePointRight(2).stripTrailingZeros().toPlainString(),
+                    round(percentile.value(TimeUnit.MILLISECONDS)));
+        }
+        latency.put("max", round(snapshot.max(TimeUnit.MILLISECONDS)));
+        return latency;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void print(Map<String, Object> summary) {
+        System.out.printf("%nLoad: %s sessions x %s participants, %s s measured after %s s warm-up%n",
+                summary.get("sessions"), summary.get("participantsPerSession"),
+                summary.get("measuredSeconds"), summary.get("warmupSeconds"));
+        System.out.printf("%-12s %s%n", "Sent", summary.get("sentFrames"));
+        System.out.printf("%-12s %s%n", "Delivered", summary.get("delivered"));
+        Map<String, Object> latency = (Map<String, Object>) summary.get("latencyMillis");
+        System.out.printf("%-12s %s%n", "Draw (ms)", latency.get("draw"));
+        System.out.printf("%-12s %s%n", "Chat (ms)", latency.get("chat"));
+        System.out.printf("%-12s %s%n", "Persistence", summary.get("persistence"));
+        System.out.printf("%-12s %s%n", "Errors", summary.get("errors"));
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static final class Board {
+        final String name;
+        final AtomicLong broadcastSeq = new AtomicLong();
+        volatile long persistedSeq;
+
+        Board(String name) {
+            this.name = name;
+        }
+    }
+
+    private final class Participant {
+        final Board board;
+        final String user;
+        StompSession session;
+        int strokeTicksLeft;
+        double strokeX;
+        double strokeY;
+        double segmentCarry;
+        long counter;
+
+        Participant(Board board, String user) {
+            this.board = board;
+            this.user = user;
+        }
+
+        void connect(WebSocketStompClient client, String wsUrl) throws Exception {
+            session = client.connectAsync(wsUrl, new StompSessionHandlerAdapter() {
+                @Override
+                public void handleException(StompSession session, StompCommand command, StompHeaders headers,
+                                            byte[] payload, Throwable exception) {
+                    transportErrors.increment();
+                }
+
+                @Override
+                public void handleTransportError(StompSession session, Throwable exception) {
+                    transportErrors.increment();
+                }
+            }).get(10, TimeUnit.SECONDS);
+            session.subscribe("/topic/whiteboard/" + board.name + "/" + CHANNEL, new JsonFrames() {
+                @Override
+                public void handleFrame(StompHeaders headers, Object payload) {
+                    JsonNode frame = (JsonNode) payload;
+                    JsonNode first = frame.isArray() ? frame.path(0) : frame;
+                    long seq = 0;
+                    for (JsonNode event : frame.isArray() ? frame : List.of(frame)) {
+                        seq = Math.max(seq, event.path("seq").asLong());
+                    }
+                    board.broadcastSeq.accumulateAndGet(seq, Math::max);
+                    delivered(drawLatency, first.path("id").asText(null), frame.isArray() ? frame.size() : 1);
+                }
+            });
+            session.subscribe("/topic/chat/" + board.name + "/" + CHANNEL, new JsonFrames() {
+                @Override
+                public void handleFrame(StompHeaders headers, Object payload) {
+                    delivered(chatLatency, ((JsonNode) payload).path("content").asText(null), 1);
+                }
+            });
+        }
+
+        void disconnect() {
+            if (session != null && session.isConnected()) {
+                session.disconnect();
+            }
+        }
+
+        // One flush interval of a browser: continue or start a stroke, maybe place a shape, move or chat
+        void tick() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            double tickSeconds = TICK_MILLIS / 1000.0;
+            try {
+                if (strokeTicksLeft == 0 && random.nextDouble() < options.strokes() * tickSeconds) {
+                    strokeTicksLeft = random.nextInt(8, 38);
+                    strokeX = random.nextDouble(50, 1150);
+                    strokeY = random.nextDouble(50, 750);
+                }
+                if (strokeTicksLeft > 0) {
+                    strokeTicksLeft--;
+                    sendSegments(random);
+                }
+                if (random.nextDouble() < options.shapes() * tickSeconds) {
+                    DrawPayload shape = event(SHAPES[random.nextInt(SHAPES.length)], random);
+                    shape.setX2(shape.getX1() + random.nextDouble(20, 300));
+                    shape.setY2(shape.getY1() + random.nextDouble(20, 200));
+                    send("draw", "/app/draw/", shape, 1);
+                }
+                if (random.nextDouble() < options.moves() * tickSeconds) {
+                    DrawPayload move = event("move-rect", random);
+                    move.setX2(move.getX1() + 200);
+                    move.setY2(move.getY1() + 150);
+                    move.setDx(random.nextDouble(-80, 80));
+                    move.setDy(random.nextDouble(-80, 80));
+                    move.setLineWidth(1);
+                    send("draw", "/app/draw/", move, 1);
+                }
+                if (random.nextDouble() < options.chat() * tickSeconds) {
+                    ChatPayload chat = new ChatPayload();
+                    chat.setSenderName(user);
+                    chat.setMessageType("text");
+                    chat.setContent(STAMP + System.nanoTime() + ": moving the header block over a bit");
+                    send("chat", "/app/chat/", chat, 1);
+                }
+            } catch (RuntimeException e) {
+                sendErrors.increment();
+            }
+        }
+
+        private void sendSegments(ThreadLocalRandom random) {
+            segmentCarry += SEGMENTS_PER_TICK;
+            int count = (int) segmentCarry;
+            segmentCarry -= count;
+            if (count == 0) {
+                return;
+            }
+            List<DrawPayload> segments = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                DrawPayload segment = new DrawPayload();
+                segment.setType("line-segment");
+                segment.setX1(strokeX);
+                segment.setY1(strokeY);
+                strokeX += random.nextDouble(-6, 6);
+                strokeY += random.nextDouble(-6, 6);
+                segment.setX2(strokeX);
+                segment.setY2(strokeY);
+                segment.setColor(COLORS[Math.floorMod(user.hashCode(), COLORS.length)]);
+                segment.setLineWidth(3);
+                segments.add(segment);
+            }
+            segments.get(0).setId(STAMP + System.nanoTime() + ":" + user + "-" + (++counter));
+            send("draw-batch", "/app/draw-batch/", segments, count);
+        }
+
+        private DrawPayload event(String type, ThreadLocalRandom random) {
+            DrawPayload event = new DrawPayload();
+            event.setType(type);
+            event.setId(STAMP + System.nanoTime() + ":" + user + "-" + (++counter));
+            event.setX1(random.nextDouble(50, 900));
+            event.setY1(random.nextDouble(50, 600));
+            event.setColor(COLORS[random.nextInt(COLORS.length)]);
+            event.setLineWidth(random.nextInt(1, 6));
+            return event;
+        }
+
+        private void send(String kind, String prefix, Object payload, int events) {
+            if (recording) {
+                framesSent.get(kind).increment();
+                eventsSent.add(events);
+            }
+            session.send(prefix + board.name + "/" + CHANNEL, payload);
+        }
+    }
+
+    private abstract static class JsonFrames implements StompFrameHandler {
+        @Override
+        public Type getPayloadType(StompHeaders headers) {
+            return JsonNode.class;
+        }
+    }
+
+    record Options(int sessions, int participants, int durationSeconds, int warmupSeconds,
+                   double strokes, double shapes, double moves, double chat,
+                   long lagIntervalMillis, String url, Path json) {
+
+        static Options parse(String[] args) {
+            Map<String, String> values = new HashMap<>();
+            for (String arg : args) {
+                int equals = arg.indexOf('=');
+                if (!arg.startsWith("--") || equals < 0) {
+                    throw new IllegalArgumentException("Expected --name=value, got '" + arg + "'");
+                }
+                values.put(arg.substring(2, equals), arg.substring(equals + 1));
+            }
+            Options options = new Options(
+                    Integer.parseInt(values.getOrDefault("sessions", "2")),
+                    Integer.parseInt(values.getOrDefault("participants", "4")),
+                    Integer.parseInt(values.getOrDefault("duration", "30")),
+                    Integer.parseInt(values.getOrDefault("warmup", "5")),
+                    Double.parseDouble(values.getOrDefault("strokes", "0.5")),
+                    Double.parseDouble(values.getOrDefault("shapes", "0.1")),
+                    Double.parseDouble(values.getOrDefault("moves", "0.05")),
+                    Double.parseDouble(values.getOrDefault("chat", "0.1")),
+                    Long.parseLong(values.getOrDefault("lag-interval", "1000")),
+                    values.get("url"),
+                    values.containsKey("json") ? Paths.get(values.get("json")) : null);
+            values.keySet().removeAll(List.of("sessions", "participants", "duration", "warmup", "strokes",
+                    "shapes", "moves", "chat", "lag-interval", "url", "json"));
+            if (!values.isEmpty()) {
+                throw new IllegalArgumentException("Unknown options " + values.keySet());
+            }
+            return options;
+        }
+    }
+}
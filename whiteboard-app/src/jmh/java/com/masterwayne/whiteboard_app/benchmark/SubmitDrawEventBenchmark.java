@@ -0,0 +1,97 @@
+package com.masterwayne.whiteboard_app.benchmark;
+
+import com.masterwayne.whiteboard_app.model.DrawPayload;
+import com.masterwayne.whiteboard_app.persistence.DurabilityWatermarks;
+import com.masterwayne.whiteboard_app.persistence.PersistenceWorker;
+import com.masterwayne.whiteboard_app.storage.ChannelEventStore;
+import com.masterwayne.whiteboard_app.storage.InMemoryChannelEventStore;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Contention on PersistenceWorker.submitDrawEvent: several threads (the STOMP inbound pool) offering
+ * draw events while the single consumer drains them in batches. The event store discards every
+ * batch, so the score is the cost of the hand-off itself: queue contention
+ * plus the consumer's batching. A refused offer (queue full) yields and retries, as a caller applying
+ * back-pressure would, so every operation is one accepted event and 'rejected' counts the retries.
+ * Vary the producer count with '-t'.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class SubmitDrawEventBenchmark {
+    private static final String SESSION = "design-review";
+
+    private PersistenceWorker worker;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Producer {
+        public long rejected;
+        final DrawPayload payload = new DrawPayload();
+        final String channel = "general";
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            rejected = 0;
+            payload.setType("line-segment");
+            payload.setX1(412.5);
+            payload.setY1(318.0);
+            payload.setX2(415.0);
+            payload.setY2(321.5);
+            payload.setColor("#1f6feb");
+            payload.setLineWidth(3);
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Queue-full errors would otherwise be logged once per rejected event
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME))
+                .setLevel(ch.qos.logback.classic.Level.OFF);
+        worker = new PersistenceWorker(discardingStore(), null, new DurabilityWatermarks(null, null, false));
+        worker.start();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        worker.shutdown();
+    }
+
+    @Benchmark
+    public void submitDrawEvent(Producer producer) {
+        while (!worker.submitDrawEvent(SESSION, producer.channel, producer.payload)) {
+            producer.rejected++;
+            Thread.yield();
+        }
+    }
+
+    // Batches are dropped, so the benchmark measures the queue rather than heap growth
+    static ChannelEventStore discardingStore() {
+        return new InMemoryChannelEventStore() {
+            @Override
+            public void append(List<ChannelAppend> appends) {
+            }
+        };
+    }
+}
@@ -0,0 +1,48 @@
+package com.masterwayne.whiteboard_app.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.masterwayne.whiteboard_app.repository.ChannelDirectory;
+import com.masterwayne.whiteboard_app.repository.ChannelRepository;
+import com.masterwayne.whiteboard_app.repository.WhiteboardSessionRepository;
+import com.masterwayne.whiteboard_app.storage.ChannelEventStore;
+import com.masterwayne.whiteboard_app.storage.InMemoryChannelEventStore;
+import com.masterwayne.whiteboard_app.storage.JpaChannelEventStore;
+import com.masterwayne.whiteboard_app.storage.LogStructuredChannelEventStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.file.Paths;
+
+/**
+ * Selects where channel history lives (whiteboard.store.engine); see {@link ChannelEventStore}.
+ */
+@Configuration
+public class EventStoreConfig {
+    private static final Logger logger = LoggerFactory.getLogger(EventStoreConfig.class);
+
+    @Bean
+    public ChannelEventStore channelEventStore(@Value("${whiteboard.store.engine:jpa}") String engine,
+                                               @Value("${whiteboard.store.log.dir:data/store}") String logDir,
+                                               @Value("${whiteboard.store.log.segment-max-bytes:67108864}") long segmentMaxBytes,
+                                               @Value("${whiteboard.store.log.index-interval-bytes:4096}") int indexIntervalBytes,
+                                               @Value("${whiteboard.store.log.fsync:true}") boolean fsync,
+                                               WhiteboardSessionRepository sessionRepository,
+                                               ChannelRepository channelRepository,
+                                               ChannelDirectory channelDirectory,
+                                               PlatformTransactionManager transactionManager,
+                                               ObjectMapper objectMapper) {
+        logger.info("Channel history engine: {}", engine);
+        return switch (engine.toLowerCase()) {
+            case "jpa" -> new JpaChannelEventStore(sessionRepository, channelRepository, transactionManager);
+            case "log" -> new LogStructuredChannelEventStore(Paths.get(logDir), objectMapper,
+                    channelDirectory::channelExists, segmentMaxBytes, indexIntervalBytes, fsync);
+            case "memory" -> new InMemoryChannelEventStore(channelDirectory::channelExists);
+            default -> throw new IllegalArgumentException("Unknown whiteboard.store.engine '" + engine
+                    + "' (expected jpa, log or memory)");
+        };
+    }
+}
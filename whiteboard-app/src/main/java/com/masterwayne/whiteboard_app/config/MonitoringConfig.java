@@ -1,5 +1,7 @@
 package com.masterwayne.whiteboard_app.config;
 
+import com.masterwayne.whiteboard_app.messaging.PriorityLaneExecutor;
+import com.masterwayne.whiteboard_app.messaging.PriorityLanes;
 import com.masterwayne.whiteboard_app.persistence.PersistenceWorker;
 import com.masterwayne.whiteboard_app.storage.FallbackStorage;
 import io.micrometer.core.instrument.Gauge;
@@ -14,6 +16,7 @@ public class MonitoringConfig {
     @Bean
     public ApplicationRunner persistenceMetricsBinder(PersistenceWorker worker,
                                                        FallbackStorage fallbackStorage,
+                                                       PriorityLanes priorityLanes,
                                                        MeterRegistry registry) {
         return args -> {
             Gauge.builder("whiteboard.persistence.queue.size", worker, PersistenceWorker::getQueueSize)
@@ -31,6 +34,16 @@ public class MonitoringConfig {
             Gauge.builder("whiteboard.fallback.file.size.bytes", fallbackStorage, FallbackStorage::getFallbackFileSizeBytes)
                     .description("Size of the fallback JSONL file on disk")
                     .register(registry);
+
+            for (PriorityLaneExecutor executor : priorityLanes.getExecutors()) {
+                for (PriorityLaneExecutor.Lane lane : PriorityLaneExecutor.Lane.values()) {
+                    Gauge.builder("whiteboard.lanes.queue.depth", executor, e -> e.getQueueDepth(lane))
+                            .description("Messages waiting in a STOMP channel priority lane")
+                            .tag("executor", executor.getName())
+                            .tag("lane", lane.name().toLowerCase())
+                            .register(registry);
+                }
+            }
         };
     }
 }
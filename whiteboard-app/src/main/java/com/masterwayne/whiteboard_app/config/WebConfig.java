@@ -3,12 +3,8 @@ package com.masterwayne.whiteboard_app.config;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.lang.NonNull;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
-import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
-import java.nio.file.Path;
-import java.nio.file.Paths;
-
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
 
@@ -20,12 +16,4 @@ public class WebConfig implements WebMvcConfigurer {
                 .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS")
                 .allowCredentials(true);
     }
-
-    @Override
-    public void addResourceHandlers(@NonNull ResourceHandlerRegistry registry) {
-        Path uploadDir = Paths.get("data", "uploads").toAbsolutePath().normalize();
-        String uploadLocation = uploadDir.toUri().toString();
-        registry.addResourceHandler("/uploads/**")
-                .addResourceLocations(uploadLocation);
-    }
 }
@@ -1,15 +1,63 @@
 package com.masterwayne.whiteboard_app.config;
 
+import com.masterwayne.whiteboard_app.diagnostics.BroadcastFanoutRecorder;
+import com.masterwayne.whiteboard_app.messaging.MessageStageTimer;
+import com.masterwayne.whiteboard_app.messaging.PriorityLanes;
+import com.masterwayne.whiteboard_app.messaging.SessionTrafficMeter;
+import com.masterwayne.whiteboard_app.messaging.SharedFrameStompEncoder;
+import com.masterwayne.whiteboard_app.service.PresenceService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.messaging.simp.config.ChannelRegistration;
 import org.springframework.messaging.simp.config.MessageBrokerRegistry;
 import org.springframework.web.socket.config.annotation.EnableWebSocketMessageBroker;
 import org.springframework.web.socket.config.annotation.StompEndpointRegistry;
 import org.springframework.web.socket.config.annotation.WebSocketMessageBrokerConfigurer;
 import org.springframework.web.socket.config.annotation.WebSocketTransportRegistration;
+import org.springframework.web.socket.messaging.StompSubProtocolHandler;
+import org.springframework.web.socket.messaging.SubProtocolWebSocketHandler;
 
 @Configuration
 @EnableWebSocketMessageBroker
 public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
+    private static final Logger logger = LoggerFactory.getLogger(WebSocketConfig.class);
+    private final PresenceService presenceService;
+    private final PriorityLanes priorityLanes;
+    private final MessageStageTimer stageTimer;
+    private final BroadcastFanoutRecorder fanoutRecorder;
+    private final SessionTrafficMeter trafficMeter;
+
+    // Lazy: PresenceService needs the broker template that this configurer helps build
+    public WebSocketConfig(@Lazy PresenceService presenceService, PriorityLanes priorityLanes,
+                           MessageStageTimer stageTimer, BroadcastFanoutRecorder fanoutRecorder,
+                           SessionTrafficMeter trafficMeter) {
+        this.presenceService = presenceService;
+        this.priorityLanes = priorityLanes;
+        this.stageTimer = stageTimer;
+        this.fanoutRecorder = fanoutRecorder;
+        this.trafficMeter = trafficMeter;
+    }
+
+    /**
+     * Swaps in the shared-frame encoder once the STOMP sub-protocol handler exists and before the
+     * broker starts, so broadcast frames are encoded once per message rather than once per subscriber.
+     */
+    @Bean
+    public static SmartInitializingSingleton sharedFrameStompEncoderInstaller(ListableBeanFactory beanFactory) {
+        return () -> beanFactory.getBeansOfType(SubProtocolWebSocketHandler.class).values().forEach(handler ->
+                handler.getProtocolHandlers().stream()
+                        .filter(StompSubProtocolHandler.class::isInstance)
+                        .map(StompSubProtocolHandler.class::cast)
+                        .forEach(stompHandler -> {
+                            stompHandler.setEncoder(new SharedFrameStompEncoder());
+                            logger.info("Shared-frame STOMP encoder installed on {}", stompHandler);
+                        }));
+    }
 
     @Override
     public void configureMessageBroker(MessageBrokerRegistry registry) {
@@ -17,6 +65,42 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
         registry.enableSimpleBroker("/topic");
         // This sets up the "/app" prefix for messages that go from the client to the server
         registry.setApplicationDestinationPrefixes("/app");
+        // Deliver broadcasts to each client in the order they were sequenced. The lane executor keeps
+        // that order per client and lane itself; Spring's per-client ordering would queue a client's
+        // chat behind its whole draw backlog
+        registry.setPreservePublishOrder(!priorityLanes.isEnabled());
+        // Emits JFR fan-out events; a no-op unless a recording enables them
+        registry.configureBrokerChannel().interceptors(fanoutRecorder);
+        if (stageTimer.isEnabled()) {
+            registry.configureBrokerChannel().interceptors(stageTimer.broker());
+        }
+    }
+
+    @Override
+    public void configureClientInboundChannel(ChannelRegistration registration) {
+        // Chat and control frames get their own lanes so a draw flood cannot queue ahead of them
+        if (priorityLanes.isEnabled()) {
+            registration.executor(priorityLanes.getInbound());
+        }
+        if (stageTimer.isEnabled()) {
+            registration.interceptors(stageTimer.inbound());
+        }
+        if (trafficMeter.isEnabled()) {
+            registration.interceptors(trafficMeter.inbound());
+        }
+    }
+
+    @Override
+    public void configureClientOutboundChannel(ChannelRegistration registration) {
+        if (priorityLanes.isEnabled()) {
+            registration.executor(priorityLanes.getOutbound());
+        }
+        if (stageTimer.isEnabled()) {
+            registration.interceptors(stageTimer.outbound());
+        }
+        if (trafficMeter.isEnabled()) {
+            registration.interceptors(trafficMeter.outbound());
+        }
     }
 
     @Override
@@ -25,12 +109,15 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
         registry.setMessageSizeLimit(512 * 1024) // 512KB max message size
                .setSendTimeLimit(20 * 1000) // 20 seconds to send a message
                .setSendBufferSizeLimit(512 * 1024) // 512KB send buffer
-               .setTimeToFirstMessage(60 * 1000); // 60 seconds to receive first message
+               .setTimeToFirstMessage(60 * 1000) // 60 seconds to receive first message
+               .addDecoratorFactory(new WebSocketInterceptor(presenceService));
     }
 
     @Override
     public void registerStompEndpoints(StompEndpointRegistry registry) {
         // Register the STOMP endpoint and enable SockJS fallback
+        // Handle each client's frames in arrival order so its events are sequenced in send order
+        registry.setPreserveReceiveOrder(true);
         registry.addEndpoint("/ws")
                 .setAllowedOriginPatterns("http://localhost:*", "http://127.0.0.1:*", "*")
                 .withSockJS()
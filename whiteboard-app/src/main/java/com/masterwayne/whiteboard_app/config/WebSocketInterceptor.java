@@ -1,5 +1,6 @@
 package com.masterwayne.whiteboard_app.config;
 
+import com.masterwayne.whiteboard_app.service.PresenceService;
 import org.springframework.web.socket.WebSocketHandler;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
@@ -9,6 +10,11 @@ import org.slf4j.LoggerFactory;
 
 public class WebSocketInterceptor implements WebSocketHandlerDecoratorFactory {
     private static final Logger logger = LoggerFactory.getLogger(WebSocketInterceptor.class);
+    private final PresenceService presenceService;
+
+    public WebSocketInterceptor(PresenceService presenceService) {
+        this.presenceService = presenceService;
+    }
 
     @Override
     public WebSocketHandler decorate(WebSocketHandler handler) {
@@ -23,6 +29,8 @@ public class WebSocketInterceptor implements WebSocketHandlerDecoratorFactory {
             public void afterConnectionClosed(WebSocketSession session, org.springframework.web.socket.CloseStatus closeStatus) throws Exception {
                 logger.info("WebSocket connection closed: {} - Code: {} - Reason: {}", 
                     session.getId(), closeStatus.getCode(), closeStatus.getReason());
+                // The STOMP session id is the WebSocket session id, which is how presence keys clients
+                presenceService.evict(session.getId());
                 super.afterConnectionClosed(session, closeStatus);
             }
         };
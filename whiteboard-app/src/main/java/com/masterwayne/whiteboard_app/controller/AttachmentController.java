@@ -0,0 +1,187 @@
+package com.masterwayne.whiteboard_app.controller;
+
+import com.masterwayne.whiteboard_app.storage.UploadStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Serves chat attachments under /uploads/** (replaces the generic resource handler).
+ *
+ * Design:
+ * - Strong ETag from the SHA-256 content hash; stored names never change content, so responses
+ *   carry Cache-Control: public, max-age=1y, immutable and participants re-joining a channel do not
+ *   re-download or even revalidate
+ * - Conditional requests (If-None-Match / If-Modified-Since) answer 304 without touching the body
+ * - A single byte range is served as 206 (If-Range respected); multiple ranges get the full body
+ * - Bodies go out through Tomcat sendfile when the connector supports it (zero-copy, and never
+ *   compressed); otherwise FileChannel.transferTo into the response channel
+ * - Allow-listed image types are served inline (see UploadStore.inlineContentType); anything else
+ *   goes out as application/octet-stream with Content-Disposition: attachment, so an uploaded page
+ *   or script is never rendered on this origin
+ * - Counters: requests by outcome, bytes sent, and bytes saved by 304s
+ */
+@Controller
+public class AttachmentController {
+    private static final Logger logger = LoggerFactory.getLogger(AttachmentController.class);
+    private static final String CACHE_CONTROL = "public, max-age=31536000, immutable";
+    private static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private final UploadStore uploadStore;
+    private final boolean compressionEnabled;
+    private final List<String> compressibleTypes;
+    private final Map<String, Counter> outcomes = new ConcurrentHashMap<>();
+    private final MeterRegistry registry;
+    private final Counter bytesSent;
+    private final Counter bytesSaved;
+
+    public AttachmentController(UploadStore uploadStore,
+                                MeterRegistry registry,
+                                @Value("${server.compression.enabled:false}") boolean compressionEnabled,
+                                @Value("${server.compression.mime-types:}") List<String> compressibleTypes) {
+        this.uploadStore = uploadStore;
+        this.registry = registry;
+        this.compressionEnabled = compressionEnabled;
+        this.compressibleTypes = compressibleTypes;
+        this.bytesSent = Counter.builder("whiteboard.attachments.bytes.sent")
+                .description("Attachment body bytes written to clients")
+                .baseUnit("bytes")
+                .register(registry);
+        this.bytesSaved = Counter.builder("whiteboard.attachments.bytes.saved")
+                .description("Attachment body bytes not sent because the client copy was still valid (304)")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    @GetMapping("/uploads/{name}")
+    public void serve(@PathVariable String name, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        Path file = uploadStore.resolve(name).orElse(null);
+        if (file == null) {
+            count("not_found");
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        long length = Files.size(file);
+        String etag = "\"" + uploadStore.contentDigest(name, file) + "\"";
+        response.setHeader(HttpHeaders.CACHE_CONTROL, CACHE_CONTROL);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        if (new ServletWebRequest(request, response).checkNotModified(etag, Files.getLastModifiedTime(file).toMillis())) {
+            // 304 (or 412 for a failed If-Match); headers are set by checkNotModified
+            if (response.getStatus() == HttpServletResponse.SC_NOT_MODIFIED) {
+                count("not_modified");
+                bytesSaved.increment(length);
+            }
+            return;
+        }
+
+        String contentType = UploadStore.inlineContentType(name).orElse(null);
+        if (contentType == null) {
+            contentType = MediaType.APPLICATION_OCTET_STREAM_VALUE;
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(name).build().toString());
+        }
+        response.setContentType(contentType);
+        response.setHeader("X-Content-Type-Options", "nosniff");
+
+        boolean sendfile = Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED));
+        HttpRange range = requestedRange(request, etag, sendfile || !compressible(contentType));
+        long start = 0;
+        long end = length;
+        if (range != null) {
+            if (length == 0 || range.getRangeStart(length) >= length) {
+                count("range_not_satisfiable");
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                response.sendError(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE.value());
+                return;
+            }
+            start = range.getRangeStart(length);
+            end = range.getRangeEnd(length) + 1;
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + (end - 1) + "/" + length);
+            count("partial");
+        } else {
+            count("full");
+        }
+        response.setContentLengthLong(end - start);
+        if ("HEAD".equals(request.getMethod())) {
+            return;
+        }
+
+        if (sendfile && end > start) {
+            request.setAttribute(SENDFILE_FILENAME, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end);
+        } else {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+                for (long position = start; position < end; ) {
+                    position += channel.transferTo(position, end - position, out);
+                }
+            }
+        }
+        bytesSent.increment(end - start);
+    }
+
+    // Null means send the whole file: no Range, a stale If-Range, several ranges, or a malformed header
+    private HttpRange requestedRange(HttpServletRequest request, String etag, boolean rangesAllowed) {
+        String header = request.getHeader(HttpHeaders.RANGE);
+        if (header == null || !rangesAllowed) {
+            return null;
+        }
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange != null && !ifRange.equals(etag)) {
+            return null;
+        }
+        try {
+            List<HttpRange> ranges = HttpRange.parseRanges(header);
+            return ranges.size() == 1 ? ranges.get(0) : null;
+        } catch (IllegalArgumentException e) {
+            logger.debug("Ignoring malformed Range header: {}", header);
+            return null;
+        }
+    }
+
+    // Without sendfile, the connector may gzip these, which would break byte ranges
+    private boolean compressible(String contentType) {
+        if (!compressionEnabled) {
+            return false;
+        }
+        String baseType = contentType.split(";", 2)[0].trim();
+        return compressibleTypes.stream().anyMatch(type -> type.trim().equalsIgnoreCase(baseType));
+    }
+
+    private void count(String outcome) {
+        outcomes.computeIfAbsent(outcome, key -> Counter.builder("whiteboard.attachments.requests")
+                .description("Attachment requests by outcome")
+                .tag("outcome", key)
+                .register(registry)).increment();
+    }
+}
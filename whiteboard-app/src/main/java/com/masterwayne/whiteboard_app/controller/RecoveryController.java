@@ -1,7 +1,11 @@
 package com.masterwayne.whiteboard_app.controller;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
-import com.masterwayne.whiteboard_app.service.WhiteboardService;
+import com.masterwayne.whiteboard_app.dto.DurabilityUpdate;
+import com.masterwayne.whiteboard_app.persistence.DurabilityWatermarks;
+import com.masterwayne.whiteboard_app.persistence.PersistenceWorker;
+import com.masterwayne.whiteboard_app.persistence.ReplayJob;
+import com.masterwayne.whiteboard_app.persistence.ReplayJobManager;
 import com.masterwayne.whiteboard_app.storage.FallbackStorage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -9,11 +13,15 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.net.URI;
 import java.time.Instant;
+import java.util.List;
 
 /**
  * Admin/Recovery REST endpoints for monitoring and managing persistence health.
@@ -25,11 +33,17 @@ public class RecoveryController {
     private static final Logger logger = LoggerFactory.getLogger(RecoveryController.class);
 
     @Autowired
-    private WhiteboardService whiteboardService;
+    private ReplayJobManager replayJobManager;
 
     @Autowired
     private FallbackStorage fallbackStorage;
 
+    @Autowired
+    private DurabilityWatermarks durabilityWatermarks;
+
+    @Autowired
+    private PersistenceWorker persistenceWorker;
+
     /**
      * GET /api/recovery/status
      * Returns the current recovery status including fallback file statistics and persistence health.
@@ -66,39 +80,93 @@ public class RecoveryController {
         }
     }
 
+    /**
+     * GET /api/recovery/durability
+     * Returns the durability watermark of every channel stream written since startup, and whether the
+     * fallback log is holding it back.
+     */
+    @GetMapping("/durability")
+    public ResponseEntity<List<DurabilityUpdate>> getDurability() {
+        return ResponseEntity.ok(durabilityWatermarks.snapshot());
+    }
+
     /**
      * POST /api/recovery/replay
-     * Triggers replay of all fallback events back into the database.
+     * Starts replay of fallback events back into the database as a background job and returns at once.
+     * If a replay job is already running, that job is returned instead of starting another.
      * Use this endpoint when the database becomes available after being down.
      */
     @PostMapping("/replay")
-    public ResponseEntity<ReplayResult> triggerReplay() {
+    public ResponseEntity<ReplayJobStatus> triggerReplay(
+            @RequestParam(value = "maxEventsPerSecond", defaultValue = "0") int maxEventsPerSecond) {
         logger.info("Replay triggered manually via admin endpoint");
 
-        try {
-            int replayedCount = whiteboardService.replayFallbackEvents();
-            ReplayResult result = new ReplayResult(
-                    "SUCCESS",
-                    "Fallback events replayed successfully",
-                    replayedCount,
-                    Instant.now()
-            );
-            return ResponseEntity.ok(result);
-        } catch (Exception ex) {
-            logger.error("Error during replay", ex);
-            ReplayResult result = new ReplayResult(
-                    "ERROR",
-                    "Replay failed: " + ex.getMessage(),
-                    0,
-                    Instant.now()
-            );
-            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(result);
-        }
+        ReplayJob job = replayJobManager.submit(maxEventsPerSecond);
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/recovery/replay/" + job.getId()))
+                .body(toStatus(job));
+    }
+
+    /**
+     * GET /api/recovery/replay/{jobId}
+     * Returns progress of a replay job: processed, remaining, throughput and ETA.
+     */
+    @GetMapping("/replay/{jobId}")
+    public ResponseEntity<ReplayJobStatus> getReplayJob(@PathVariable String jobId) {
+        return replayJobManager.find(jobId)
+                .map(job -> ResponseEntity.ok(toStatus(job)))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * GET /api/recovery/replay
+     * Lists the most recent replay jobs, oldest first.
+     */
+    @GetMapping("/replay")
+    public ResponseEntity<List<ReplayJobStatus>> listReplayJobs() {
+        return ResponseEntity.ok(replayJobManager.recentJobs().stream().map(this::toStatus).toList());
+    }
+
+    /**
+     * POST /api/recovery/replay/{jobId}/cancel
+     * Stops a replay job after its current chunk; replayed events stay committed.
+     */
+    @PostMapping("/replay/{jobId}/cancel")
+    public ResponseEntity<ReplayJobStatus> cancelReplayJob(@PathVariable String jobId) {
+        return replayJobManager.find(jobId)
+                .map(job -> {
+                    job.requestCancel();
+                    logger.warn("Cancel requested for replay job {}", jobId);
+                    return ResponseEntity.accepted().body(toStatus(job));
+                })
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    private ReplayJobStatus toStatus(ReplayJob job) {
+        long remaining = fallbackStorage.getFallbackEventCount();
+        double eventsPerSecond = job.getEventsPerSecond();
+        Long etaSeconds = job.isFinished() ? Long.valueOf(0L)
+                : eventsPerSecond > 0 ? Long.valueOf((long) Math.ceil(remaining / eventsPerSecond)) : null;
+        return new ReplayJobStatus(
+                job.getId(),
+                job.getState().name(),
+                job.getMessage(),
+                job.getReplayed(),
+                job.getDeadLettered(),
+                job.getProcessed(),
+                remaining,
+                eventsPerSecond,
+                etaSeconds,
+                job.getStartedAt(),
+                job.getFinishedAt(),
+                Instant.now()
+        );
     }
 
     /**
      * POST /api/recovery/clear-fallback
-     * Clears the fallback file after successful recovery.
+     * Clears the fallback file after successful recovery. Events it still held stop showing in history
+     * reads and stop holding back durability watermarks.
      * WARNING: Only use this after confirming all events have been replayed and persisted in the database.
      */
     @PostMapping("/clear-fallback")
@@ -106,7 +174,7 @@ public class RecoveryController {
         logger.warn("Fallback file clear requested via admin endpoint");
 
         try {
-            fallbackStorage.clearFallbackFile();
+            persistenceWorker.clearFallback();
             ClearResult result = new ClearResult(
                     "SUCCESS",
                     "Fallback file cleared successfully",
@@ -189,31 +257,74 @@ public class RecoveryController {
     }
 
     /**
-     * Replay result response DTO.
+     * Replay job progress response DTO.
      */
-    public static class ReplayResult {
-        @JsonProperty("status")
-        private final String status;
+    public static class ReplayJobStatus {
+        @JsonProperty("jobId")
+        private final String jobId;
+
+        @JsonProperty("state")
+        private final String state;
 
         @JsonProperty("message")
         private final String message;
 
         @JsonProperty("replayedEventCount")
-        private final int replayedEventCount;
+        private final long replayedEventCount;
+
+        @JsonProperty("deadLetteredEventCount")
+        private final long deadLetteredEventCount;
+
+        @JsonProperty("processedEventCount")
+        private final long processedEventCount;
+
+        @JsonProperty("remainingEventCount")
+        private final long remainingEventCount;
+
+        @JsonProperty("eventsPerSecond")
+        private final double eventsPerSecond;
+
+        @JsonProperty("etaSeconds")
+        private final Long etaSeconds;
+
+        @JsonProperty("startedAt")
+        private final Instant startedAt;
+
+        @JsonProperty("finishedAt")
+        private final Instant finishedAt;
 
         @JsonProperty("timestamp")
         private final Instant timestamp;
 
-        public ReplayResult(String status, String message, int replayedEventCount, Instant timestamp) {
-            this.status = status;
+        public ReplayJobStatus(String jobId, String state, String message, long replayedEventCount,
+                               long deadLetteredEventCount, long processedEventCount, long remainingEventCount,
+                               double eventsPerSecond, Long etaSeconds, Instant startedAt, Instant finishedAt,
+                               Instant timestamp) {
+            this.jobId = jobId;
+            this.state = state;
             this.message = message;
             this.replayedEventCount = replayedEventCount;
+            this.deadLetteredEventCount = deadLetteredEventCount;
+            this.processedEventCount = processedEventCount;
+            this.remainingEventCount = remainingEventCount;
+            this.eventsPerSecond = eventsPerSecond;
+            this.etaSeconds = etaSeconds;
+            this.startedAt = startedAt;
+            this.finishedAt = finishedAt;
             this.timestamp = timestamp;
         }
 
-        public String getStatus() { return status; }
+        public String getJobId() { return jobId; }
+        public String getState() { return state; }
         public String getMessage() { return message; }
-        public int getReplayedEventCount() { return replayedEventCount; }
+        public long getReplayedEventCount() { return replayedEventCount; }
+        public long getDeadLetteredEventCount() { return deadLetteredEventCount; }
+        public long getProcessedEventCount() { return processedEventCount; }
+        public long getRemainingEventCount() { return remainingEventCount; }
+        public double getEventsPerSecond() { return eventsPerSecond; }
+        public Long getEtaSeconds() { return etaSeconds; }
+        public Instant getStartedAt() { return startedAt; }
+        public Instant getFinishedAt() { return finishedAt; }
         public Instant getTimestamp() { return timestamp; }
     }
 
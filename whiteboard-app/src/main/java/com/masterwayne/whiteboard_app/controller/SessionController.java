@@ -4,10 +4,13 @@ import com.masterwayne.whiteboard_app.dto.CreateSessionRequest;
 import com.masterwayne.whiteboard_app.dto.JoinSessionRequest;
 import com.masterwayne.whiteboard_app.dto.SessionResponseDTO;
 import com.masterwayne.whiteboard_app.dto.ChannelDTO;
+import com.masterwayne.whiteboard_app.dto.DurabilityStatus;
+import com.masterwayne.whiteboard_app.dto.PresenceUpdate;
 import com.masterwayne.whiteboard_app.exception.SessionException;
 import com.masterwayne.whiteboard_app.model.ChatMessage;
 import com.masterwayne.whiteboard_app.model.DrawPayload;
 import com.masterwayne.whiteboard_app.model.WhiteboardSession;
+import com.masterwayne.whiteboard_app.service.PresenceService;
 import com.masterwayne.whiteboard_app.service.WhiteboardService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -24,10 +27,12 @@ import org.springframework.web.bind.annotation.*;
 // @CrossOrigin annotation is no longer needed as frontend and backend are served from the same origin.
 public class SessionController {
     private final WhiteboardService whiteboardService;
+    private final PresenceService presenceService;
 
     @Autowired
-    public SessionController(WhiteboardService whiteboardService) {
+    public SessionController(WhiteboardService whiteboardService, PresenceService presenceService) {
         this.whiteboardService = whiteboardService;
+        this.presenceService = presenceService;
     }
 
     @PostMapping("/create")
@@ -64,8 +69,8 @@ public class SessionController {
                     .map(channel -> new ChannelDTO(
                             channel.getId(),
                             channel.getChannelName(),
-                            channel.getChatMessages() != null ? channel.getChatMessages().size() : 0,
-                            channel.getShapes() != null ? channel.getShapes().size() : 0
+                            (int) whiteboardService.countChatMessages(session.getSessionName(), channel.getChannelName()),
+                            (int) whiteboardService.countShapes(session.getSessionName(), channel.getChannelName())
                     ))
                     .collect(java.util.stream.Collectors.toList()));
         }
@@ -93,8 +98,8 @@ public class SessionController {
                         .map(channel -> new ChannelDTO(
                                 channel.getId(),
                                 channel.getChannelName(),
-                                channel.getChatMessages() != null ? channel.getChatMessages().size() : 0,
-                                channel.getShapes() != null ? channel.getShapes().size() : 0
+                                (int) whiteboardService.countChatMessages(sessionName, channel.getChannelName()),
+                                (int) whiteboardService.countShapes(sessionName, channel.getChannelName())
                         ))
                         .collect(java.util.stream.Collectors.toList());
                 return ResponseEntity.ok(channels);
@@ -105,20 +110,52 @@ public class SessionController {
     }
 
     // Convenience endpoints to inspect persisted data per channel
+    // Optional afterSeq/toSeq select only a missing sequence range (gap repair) instead of the full history
     @GetMapping("/{sessionName}/channels/{channelName}/chat")
     public ResponseEntity<java.util.List<ChatMessage>> getChat(
             @PathVariable String sessionName,
-            @PathVariable String channelName) throws SessionException {
+            @PathVariable String channelName,
+            @RequestParam(required = false) Long afterSeq,
+            @RequestParam(required = false) Long toSeq) throws SessionException {
+        if (afterSeq != null) {
+            return ResponseEntity.ok(whiteboardService.getChatMessagesInRange(
+                    sessionName, channelName, afterSeq, toSeq != null ? toSeq : Long.MAX_VALUE));
+        }
         return ResponseEntity.ok(whiteboardService.getChatMessages(sessionName, channelName));
     }
 
     @GetMapping("/{sessionName}/channels/{channelName}/shapes")
     public ResponseEntity<java.util.List<DrawPayload>> getShapes(
             @PathVariable String sessionName,
-            @PathVariable String channelName) throws SessionException {
+            @PathVariable String channelName,
+            @RequestParam(required = false) Long afterSeq,
+            @RequestParam(required = false) Long toSeq) throws SessionException {
+        if (afterSeq != null) {
+            return ResponseEntity.ok(whiteboardService.getShapesInRange(
+                    sessionName, channelName, afterSeq, toSeq != null ? toSeq : Long.MAX_VALUE));
+        }
         return ResponseEntity.ok(whiteboardService.getShapes(sessionName, channelName));
     }
 
+    /**
+     * Durable-up-to sequence per stream; events with seq above it may still be lost on a crash.
+     * Advances live on /topic/durability/{sessionName} when whiteboard.durability.notify is on.
+     */
+    @GetMapping("/{sessionName}/channels/{channelName}/durability")
+    public ResponseEntity<DurabilityStatus> getDurability(
+            @PathVariable String sessionName,
+            @PathVariable String channelName) throws SessionException {
+        return ResponseEntity.ok(whiteboardService.getDurability(sessionName, channelName));
+    }
+
+    /**
+     * Current cursor/presence state for late joiners; live changes arrive on /topic/presence/{sessionName}
+     */
+    @GetMapping("/{sessionName}/presence")
+    public ResponseEntity<java.util.List<PresenceUpdate>> getPresence(@PathVariable String sessionName) {
+        return ResponseEntity.ok(presenceService.snapshot(sessionName));
+    }
+
     @PostMapping("/{sessionName}/channels/{channelName}/chat")
     public ResponseEntity<ChatMessage> postChatMessage(
             @PathVariable String sessionName,
@@ -1,6 +1,8 @@
 package com.masterwayne.whiteboard_app.controller;
 
 import com.masterwayne.whiteboard_app.dto.UploadResponse;
+import com.masterwayne.whiteboard_app.storage.ThumbnailService;
+import com.masterwayne.whiteboard_app.storage.UploadStore;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.util.StringUtils;
@@ -11,10 +13,7 @@ import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/uploads")
@@ -22,6 +21,14 @@ public class UploadController {
 
     private static final long MAX_UPLOAD_BYTES = 10L * 1024L * 1024L; // 10MB
 
+    private final UploadStore uploadStore;
+    private final ThumbnailService thumbnailService;
+
+    public UploadController(UploadStore uploadStore, ThumbnailService thumbnailService) {
+        this.uploadStore = uploadStore;
+        this.thumbnailService = thumbnailService;
+    }
+
     @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public ResponseEntity<UploadResponse> upload(@RequestParam("file") MultipartFile file) throws IOException {
         if (file == null || file.isEmpty()) {
@@ -34,25 +41,25 @@ public class UploadController {
         String originalName = StringUtils.hasText(file.getOriginalFilename()) ? file.getOriginalFilename() : "upload";
         originalName = Paths.get(originalName).getFileName().toString();
 
-        String ext = "";
-        int dot = originalName.lastIndexOf('.');
-        if (dot >= 0 && dot < originalName.length() - 1) {
-            ext = originalName.substring(dot);
+        String declaredType = file.getContentType();
+        if (!StringUtils.hasText(declaredType)) {
+            declaredType = MediaType.APPLICATION_OCTET_STREAM_VALUE;
         }
 
-        String storedName = UUID.randomUUID() + ext;
-        Path uploadDir = Paths.get("data", "uploads").toAbsolutePath().normalize();
-        Files.createDirectories(uploadDir);
+        // Content-addressed: identical files share one stored blob and URL
+        UploadStore.StoredUpload stored = uploadStore.store(file, originalName, declaredType);
+        // What /uploads serves it as, from the stored name; the declared type is only recorded
+        String contentType = UploadStore.inlineContentType(stored.storedName())
+                .orElse(MediaType.APPLICATION_OCTET_STREAM_VALUE);
 
-        Path out = uploadDir.resolve(storedName).normalize();
-        Files.copy(file.getInputStream(), out);
-
-        String contentType = file.getContentType();
-        if (!StringUtils.hasText(contentType)) {
-            contentType = "application/octet-stream";
-        }
+        // Renditions are generated in the background; their URLs are known up front
+        ThumbnailService.ImageRenditions renditions = contentType.startsWith("image/")
+                ? thumbnailService.schedule(stored).orElse(null)
+                : null;
 
-        String url = "/uploads/" + storedName;
-        return ResponseEntity.ok(new UploadResponse(url, originalName, storedName, contentType, file.getSize()));
+        String url = "/uploads/" + stored.storedName();
+        return ResponseEntity.ok(new UploadResponse(url, originalName, stored.storedName(), contentType, file.getSize(),
+                renditions != null ? renditions.thumbnailUrl() : null,
+                renditions != null ? renditions.previewUrl() : null));
     }
 }
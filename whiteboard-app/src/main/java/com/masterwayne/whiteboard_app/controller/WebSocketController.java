@@ -1,18 +1,21 @@
 package com.masterwayne.whiteboard_app.controller;
 
 import com.masterwayne.whiteboard_app.dto.ChatPayload;
+import com.masterwayne.whiteboard_app.dto.PresenceUpdate;
 import com.masterwayne.whiteboard_app.model.DrawPayload;
-import com.masterwayne.whiteboard_app.model.ChatMessage;
+import com.masterwayne.whiteboard_app.service.PresenceService;
 import com.masterwayne.whiteboard_app.service.WhiteboardService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.messaging.handler.annotation.DestinationVariable;
 import org.springframework.messaging.handler.annotation.MessageMapping;
-import org.springframework.messaging.handler.annotation.SendTo;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.stereotype.Controller;
 import org.springframework.messaging.handler.annotation.Payload;
 
+import java.util.List;
+
 /**
  * WebSocket controller for real-time drawing and chat communication.
  * Uses STOMP message mapping to handle incoming messages and broadcast to subscribers.
@@ -22,37 +25,66 @@ import org.springframework.messaging.handler.annotation.Payload;
 public class WebSocketController {
     private static final Logger logger = LoggerFactory.getLogger(WebSocketController.class);
     private final WhiteboardService whiteboardService;
+    private final PresenceService presenceService;
 
     @Autowired
-    public WebSocketController(WhiteboardService whiteboardService) {
+    public WebSocketController(WhiteboardService whiteboardService, PresenceService presenceService) {
         this.whiteboardService = whiteboardService;
+        this.presenceService = presenceService;
     }
 
+    /**
+     * Broadcast to /topic/whiteboard/{sessionName}/{channelName} happens inside the service, under the
+     * channel sequence, so that subscribers receive events in seq order.
+     */
     @MessageMapping("/draw/{sessionName}/{channelName}")
-    @SendTo("/topic/whiteboard/{sessionName}/{channelName}")
-    public DrawPayload handleDrawEvent(@DestinationVariable String sessionName,
-                                       @DestinationVariable String channelName,
-                                       @Payload DrawPayload payload) {
+    public void handleDrawEvent(@DestinationVariable String sessionName,
+                                @DestinationVariable String channelName,
+                                @Payload DrawPayload payload) {
         try {
             whiteboardService.addShape(sessionName, channelName, payload);
-            return payload;
         } catch (Exception ex) {
             logger.error("Unexpected error handling draw event", ex);
             throw new RuntimeException("Unexpected error: " + ex.getMessage());
         }
     }
 
+    /**
+     * Accepts a client-side buffered array of draw events (typically freehand line segments); the
+     * service broadcasts it back to subscribers as a single frame.
+     */
+    @MessageMapping("/draw-batch/{sessionName}/{channelName}")
+    public void handleDrawBatch(@DestinationVariable String sessionName,
+                                @DestinationVariable String channelName,
+                                @Payload List<DrawPayload> payloads) {
+        try {
+            whiteboardService.addShapes(sessionName, channelName, payloads);
+        } catch (Exception ex) {
+            logger.error("Error handling draw batch: {}", ex.getMessage(), ex);
+            throw new RuntimeException("Failed to handle draw batch: " + ex.getMessage());
+        }
+    }
+
     @MessageMapping("/chat/{sessionName}/{channelName}")
-    @SendTo("/topic/chat/{sessionName}/{channelName}")
-    public ChatMessage handleChatMessage(@DestinationVariable String sessionName,
-                                         @DestinationVariable String channelName,
-                                         @Payload ChatPayload payload) {
+    public void handleChatMessage(@DestinationVariable String sessionName,
+                                  @DestinationVariable String channelName,
+                                  @Payload ChatPayload payload) {
         try {
-            ChatMessage savedMessage = whiteboardService.postChatMessage(sessionName, channelName, payload);
-            return savedMessage;
+            whiteboardService.postChatMessage(sessionName, channelName, payload);
         } catch (Exception ex) {
             logger.error("Error handling chat message: {}", ex.getMessage(), ex);
             throw new RuntimeException("Failed to persist chat message: " + ex.getMessage());
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Cursor/presence updates are conflated per client and fanned out on the presence tick
+     * to /topic/presence/{sessionName}; they are never persisted.
+     */
+    @MessageMapping("/presence/{sessionName}")
+    public void handlePresence(@DestinationVariable String sessionName,
+                               @Payload PresenceUpdate update,
+                               SimpMessageHeaderAccessor headerAccessor) {
+        presenceService.update(sessionName, headerAccessor.getSessionId(), update);
+    }
+}
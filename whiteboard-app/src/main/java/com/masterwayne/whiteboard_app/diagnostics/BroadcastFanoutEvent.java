@@ -0,0 +1,24 @@
+package com.masterwayne.whiteboard_app.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One message dispatched by the simple broker to every subscriber of its destination.
+ */
+@Name("whiteboard.BroadcastFanout")
+@Label("Broadcast Fan-out")
+@Category({"Whiteboard", "Messaging"})
+@Description("A broadcast copied to each subscriber's outbound channel")
+@StackTrace(false)
+public class BroadcastFanoutEvent extends Event {
+    @Label("Destination")
+    public String destination;
+
+    @Label("Subscribers")
+    public int subscribers;
+}
@@ -0,0 +1,50 @@
+package com.masterwayne.whiteboard_app.diagnostics;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Broker channel interceptor emitting a BroadcastFanoutEvent per broadcast while a recording has the
+ * event enabled. The broker channel is synchronous, so the send spans the simple broker's whole
+ * fan-out to the subscribers' outbound channels.
+ */
+@Component
+public class BroadcastFanoutRecorder implements ChannelInterceptor {
+    private final ObjectProvider<SimpleBrokerMessageHandler> brokerHandler;
+    private final ThreadLocal<BroadcastFanoutEvent> current = new ThreadLocal<>();
+
+    public BroadcastFanoutRecorder(ObjectProvider<SimpleBrokerMessageHandler> brokerHandler) {
+        this.brokerHandler = brokerHandler;
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        BroadcastFanoutEvent event = new BroadcastFanoutEvent();
+        if (event.isEnabled() && SimpMessageHeaderAccessor.getDestination(message.getHeaders()) != null) {
+            event.begin();
+            current.set(event);
+        }
+        return message;
+    }
+
+    @Override
+    public void afterSendCompletion(Message<?> message, MessageChannel channel, boolean sent, Exception ex) {
+        BroadcastFanoutEvent event = current.get();
+        if (event == null) {
+            return;
+        }
+        current.remove();
+        event.end();
+        if (event.shouldCommit()) {
+            event.destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+            SimpleBrokerMessageHandler handler = brokerHandler.getIfAvailable();
+            event.subscribers = handler != null ? handler.getSubscriptionRegistry().findSubscriptions(message).size() : -1;
+            event.commit();
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.masterwayne.whiteboard_app.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One event serialized and handed to the fallback log appender.
+ */
+@Name("whiteboard.FallbackWrite")
+@Label("Fallback Write")
+@Category({"Whiteboard", "Persistence"})
+@Description("An event written to the fallback log because its database batch failed")
+@StackTrace(false)
+public class FallbackWriteEvent extends Event {
+    @Label("Event Type")
+    public String eventType;
+
+    @Label("Session")
+    public String sessionName;
+
+    @Label("Channel")
+    public String channelName;
+
+    @Label("Bytes")
+    @DataAmount
+    public int bytes;
+}
@@ -0,0 +1,138 @@
+package com.masterwayne.whiteboard_app.diagnostics;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.boot.actuate.endpoint.web.annotation.WebEndpoint;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * GET /actuator/jfr?seconds=30&settings=profile records a time-boxed Java Flight Recording and
+ * streams the .jfr file back, e.g. {@code curl -o spike.jfr localhost:8080/actuator/jfr?seconds=60}.
+ *
+ * Design:
+ * - The JDK's "default" or "profile" settings, plus every whiteboard event with no threshold, so
+ *   one file shows persistence batches, fallback writes, replay chunks and broadcast fan-out
+ *   alongside GC, locks and allocation
+ * - Without the JDK's initial environment variable and system property events, so a recording
+ *   does not carry the credentials the process was started with
+ * - Exposed only by the dev profile or on a private management port, since it is unauthenticated
+ * - One recording at a time; a concurrent request gets 429 rather than a second recording
+ * - The request thread waits out the recording, as the heapdump endpoint waits for its dump; the
+ *   duration is capped by whiteboard.jfr.max-seconds
+ * - The temporary file is deleted once the response has been streamed
+ */
+@Component
+@WebEndpoint(id = "jfr")
+public class JfrEndpoint {
+    private static final Logger logger = LoggerFactory.getLogger(JfrEndpoint.class);
+    private static final int DEFAULT_SECONDS = 30;
+    private static final List<Class<? extends jdk.jfr.Event>> WHITEBOARD_EVENTS = List.of(
+            PersistenceBatchEvent.class, FallbackWriteEvent.class, ReplayChunkEvent.class, BroadcastFanoutEvent.class);
+    private static final List<String> SECRET_BEARING_EVENTS = List.of(
+            "jdk.InitialEnvironmentVariable", "jdk.InitialSystemProperty");
+
+    private final int maxSeconds;
+    private final Lock lock = new ReentrantLock();
+
+    public JfrEndpoint(@Value("${whiteboard.jfr.max-seconds:300}") int maxSeconds) {
+        this.maxSeconds = maxSeconds;
+    }
+
+    @ReadOperation(produces = "application/octet-stream")
+    public WebEndpointResponse<Resource> record(@Nullable Integer seconds, @Nullable String settings) {
+        int duration = seconds != null ? seconds : DEFAULT_SECONDS;
+        if (duration < 1 || duration > maxSeconds) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_BAD_REQUEST);
+        }
+        Configuration configuration;
+        try {
+            configuration = Configuration.getConfiguration(settings != null ? settings : "profile");
+        } catch (IOException | ParseException e) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_BAD_REQUEST);
+        }
+        if (!lock.tryLock()) {
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_TOO_MANY_REQUESTS);
+        }
+        try {
+            return new WebEndpointResponse<>(record(configuration, duration), WebEndpointResponse.STATUS_OK);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_SERVICE_UNAVAILABLE);
+        } catch (IOException e) {
+            logger.error("JFR recording failed", e);
+            return new WebEndpointResponse<>(WebEndpointResponse.STATUS_INTERNAL_SERVER_ERROR);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private Resource record(Configuration configuration, int seconds) throws IOException, InterruptedException {
+        Path file = Files.createTempFile("whiteboard-", ".jfr");
+        try (Recording recording = new Recording(configuration)) {
+            recording.setName("whiteboard-actuator");
+            for (Class<? extends jdk.jfr.Event> event : WHITEBOARD_EVENTS) {
+                recording.enable(event).withThreshold(Duration.ZERO);
+            }
+            for (String event : SECRET_BEARING_EVENTS) {
+                recording.disable(event);
+            }
+            logger.info("Starting {}s JFR recording with '{}' settings", seconds, configuration.getName());
+            recording.start();
+            Thread.sleep(seconds * 1000L);
+            recording.stop();
+            recording.dump(file);
+        } catch (IOException | InterruptedException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+        logger.info("JFR recording finished: {} bytes", Files.size(file));
+        return new TemporaryFileResource(file.toFile());
+    }
+
+    /** Deletes the recording once the response body has been read. */
+    private static final class TemporaryFileResource extends FileSystemResource {
+        TemporaryFileResource(File file) {
+            super(file);
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            return new FilterInputStream(super.getInputStream()) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        Files.deleteIfExists(getFile().toPath());
+                    }
+                }
+            };
+        }
+
+        @Override
+        public boolean isFile() {
+            // Streamed through getInputStream rather than served as a file region
+            return false;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.masterwayne.whiteboard_app.diagnostics;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Caps a per-event log statement at a number of lines per interval, e.g.
+ * {@code if (log.isDebugEnabled() && limiter.tryAcquire()) log.debug("... suppressed={}", ..., limiter.drainSuppressed())}.
+ *
+ * Design:
+ * - Lock-free: a CAS on the window start and one counter increment per call, no allocation
+ * - Calls over the budget are counted, so the next line that gets through reports how many were dropped
+ * - The window reset races benignly with concurrent callers; a window may let a few extra lines through
+ */
+public final class LogRateLimiter {
+    private final int permits;
+    private final long intervalNanos;
+    private final AtomicLong windowStart = new AtomicLong(System.nanoTime());
+    private final AtomicInteger used = new AtomicInteger();
+    private final LongAdder suppressed = new LongAdder();
+
+    public LogRateLimiter(int permits, Duration interval) {
+        this.permits = permits;
+        this.intervalNanos = interval.toNanos();
+    }
+
+    /**
+     * Returns true if the caller may log now; otherwise counts the call as suppressed.
+     */
+    public boolean tryAcquire() {
+        long now = System.nanoTime();
+        long start = windowStart.get();
+        if (now - start >= intervalNanos && windowStart.compareAndSet(start, now)) {
+            used.set(0);
+        }
+        if (used.incrementAndGet() <= permits) {
+            return true;
+        }
+        suppressed.increment();
+        return false;
+    }
+
+    /**
+     * Returns the number of calls suppressed since the last drain, and resets it.
+     */
+    public long drainSuppressed() {
+        return suppressed.sumThenReset();
+    }
+}
@@ -0,0 +1,40 @@
+package com.masterwayne.whiteboard_app.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One transaction on the persistence worker thread: a batch of live tasks or a replayed fallback chunk.
+ */
+@Name("whiteboard.PersistenceBatch")
+@Label("Persistence Batch")
+@Category({"Whiteboard", "Persistence"})
+@Description("A batch of queued events applied to the database in one transaction")
+@StackTrace(false)
+public class PersistenceBatchEvent extends Event {
+    @Label("Kind")
+    @Description("live or replay")
+    public String kind;
+
+    @Label("Tasks")
+    public int tasks;
+
+    @Label("Events")
+    @Description("Draw and chat events in the batch; a draw batch task carries several")
+    public int events;
+
+    @Label("Sessions")
+    public int sessions;
+
+    @Label("Outcome")
+    @Description("committed, fallback (live batch written to the fallback log) or failed (replay chunk)")
+    public String outcome;
+
+    @Label("Queue Size")
+    @Description("Tasks left in the queue when the batch finished")
+    public int queueSize;
+}
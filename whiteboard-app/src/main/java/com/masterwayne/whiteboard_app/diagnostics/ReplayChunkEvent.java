@@ -0,0 +1,35 @@
+package com.masterwayne.whiteboard_app.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One chunk of the fallback log replayed by FallbackReplayer, from the replayer's side: includes
+ * the wait for the worker and any event-by-event retry.
+ */
+@Name("whiteboard.ReplayChunk")
+@Label("Replay Chunk")
+@Category({"Whiteboard", "Persistence"})
+@Description("A chunk of fallback events replayed into the database")
+@StackTrace(false)
+public class ReplayChunkEvent extends Event {
+    @Label("Lines")
+    public long lines;
+
+    @Label("Replayed")
+    public long replayed;
+
+    @Label("Dead-lettered")
+    public long deadLettered;
+
+    @Label("Outcome")
+    @Description("committed, or aborted with the checkpoint left at the last committed event")
+    public String outcome;
+
+    @Label("Abort Reason")
+    public String abortReason;
+}
@@ -13,4 +13,6 @@ public class ChatPayload {
     private String attachmentName;
     private String attachmentContentType;
     private Long attachmentSize;
+    private String attachmentThumbnailUrl;
+    private String attachmentPreviewUrl;
 }
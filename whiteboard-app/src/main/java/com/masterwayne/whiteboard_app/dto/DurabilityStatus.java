@@ -0,0 +1,24 @@
+package com.masterwayne.whiteboard_app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * How far a channel's draw and chat streams have reached the database, against what has been
+ * sequenced. The lag is sequencedSeq - durableSeq; fallbackPendingEvents is the server-wide backlog
+ * waiting for replay.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DurabilityStatus {
+    private String sessionName;
+    private String channelName;
+    private long drawDurableSeq;
+    private long drawSequencedSeq;
+    private long chatDurableSeq;
+    private long chatSequencedSeq;
+    private boolean heldByFallback;
+    private long fallbackPendingEvents;
+}
@@ -0,0 +1,20 @@
+package com.masterwayne.whiteboard_app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Durability watermark of one channel stream: every event with seq &lt;= durableSeq is in the database.
+ * Sent on /topic/durability/{sessionName} when notifications are enabled.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class DurabilityUpdate {
+    private String sessionName;
+    private String channelName;
+    private String stream; // "draw" or "chat"
+    private long durableSeq;
+    private boolean heldByFallback;
+}
@@ -0,0 +1,20 @@
+package com.masterwayne.whiteboard_app.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One presence tick for a session: clients whose state changed since the previous tick and
+ * clients that disconnected.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PresenceSnapshot {
+    private String sessionName;
+    private List<PresenceUpdate> updates;
+    private List<String> departed;
+}
@@ -0,0 +1,22 @@
+package com.masterwayne.whiteboard_app.dto;
+
+import lombok.Data;
+
+/**
+ * Latest cursor/presence state of one connected client. Never persisted; only the most recent
+ * value per client is kept and fanned out on the next presence tick.
+ */
+@Data
+public class PresenceUpdate {
+    /** Stamped by the server from the STOMP session id */
+    private String clientId;
+    private String userName;
+    private String channelName;
+    private Double x;
+    private Double y;
+    private String color;
+    /** Optional: 'active' | 'idle' */
+    private String status;
+    /** Stamped by the server when the update is accepted */
+    private Long updatedAt;
+}
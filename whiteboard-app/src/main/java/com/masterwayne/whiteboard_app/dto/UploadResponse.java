@@ -11,4 +11,7 @@ public class UploadResponse {
     private String storedName;
     private String contentType;
     private long size;
+    /** Downscaled image renditions; null for non-images. May 404 briefly while being generated. */
+    private String thumbnailUrl;
+    private String previewUrl;
 }
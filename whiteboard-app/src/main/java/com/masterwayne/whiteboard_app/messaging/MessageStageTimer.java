@@ -0,0 +1,171 @@
+package com.masterwayne.whiteboard_app.messaging;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.ExecutorChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHeaderAccessor;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times sampled draw and chat messages through the STOMP pipeline with channel interceptors and
+ * publishes one Micrometer timer (whiteboard.stomp.stage) per stage and message type:
+ * - inbound-to-handler: from the frame reaching clientInboundChannel to a lane worker picking it up
+ * - handler: the @MessageMapping method, including sequencing, the persistence hand-off and the
+ *   synchronous broker dispatch
+ * - handler-to-write: from the broadcast reaching the broker to the frame being written to each
+ *   subscriber's session (recorded once per subscriber)
+ *
+ * Design:
+ * - The sampling decision is made once, on inbound receipt; only sampled messages carry a timestamp
+ *   header, so unsampled traffic pays for one random draw and a destination prefix check
+ * - The handler runs on one thread and the broker channel is synchronous, so the broadcast it sends is
+ *   matched to its inbound message through a thread-local and stamped on the way into the broker;
+ *   the simple broker copies the header onto every subscriber's copy
+ * - Broadcasts that do not originate from a STOMP frame (REST chat, presence ticks) are not timed
+ */
+@Component
+public class MessageStageTimer {
+    static final String RECEIVED_HEADER = "whiteboardReceivedNanos";
+    static final String DISPATCHED_HEADER = "whiteboardDispatchedNanos";
+
+    private enum Type { DRAW, CHAT }
+
+    private final double sampleRate;
+    private final Timer[] inboundToHandler = new Timer[Type.values().length];
+    private final Timer[] handler = new Timer[Type.values().length];
+    private final Timer[] handlerToWrite = new Timer[Type.values().length];
+    private final ThreadLocal<Long> handling = new ThreadLocal<>();
+
+    private final ChannelInterceptor inbound = new InboundInterceptor();
+    private final ChannelInterceptor broker = new BrokerInterceptor();
+    private final ChannelInterceptor outbound = new OutboundInterceptor();
+
+    public MessageStageTimer(MeterRegistry registry,
+                             @Value("${whiteboard.stomp-timing.sample-rate:0.05}") double sampleRate) {
+        this.sampleRate = sampleRate;
+        for (Type type : Type.values()) {
+            inboundToHandler[type.ordinal()] = timer(registry, "inbound-to-handler", type);
+            handler[type.ordinal()] = timer(registry, "handler", type);
+            handlerToWrite[type.ordinal()] = timer(registry, "handler-to-write", type);
+        }
+    }
+
+    private static Timer timer(MeterRegistry registry, String stage, Type type) {
+        return Timer.builder("whiteboard.stomp.stage")
+                .description("Time a sampled STOMP message spends in one stage of the pipeline")
+                .tag("stage", stage)
+                .tag("type", type.name().toLowerCase())
+                .publishPercentileHistogram()
+                .minimumExpectedValue(Duration.ofNanos(50_000))
+                .maximumExpectedValue(Duration.ofSeconds(10))
+                .register(registry);
+    }
+
+    public boolean isEnabled() {
+        return sampleRate > 0;
+    }
+
+    /** For clientInboundChannel: stamps sampled frames on receipt and times the handler. */
+    public ChannelInterceptor inbound() {
+        return inbound;
+    }
+
+    /** For brokerChannel: carries the stamp of the frame being handled over to its broadcast. */
+    public ChannelInterceptor broker() {
+        return broker;
+    }
+
+    /** For clientOutboundChannel: records the time until the broadcast was written to the session. */
+    public ChannelInterceptor outbound() {
+        return outbound;
+    }
+
+    private static Type typeOf(String destination) {
+        if (destination == null) {
+            return null;
+        }
+        if (destination.startsWith("/app/draw") || destination.startsWith("/topic/whiteboard/")) {
+            return Type.DRAW;
+        }
+        if (destination.startsWith("/app/chat/") || destination.startsWith("/topic/chat/")) {
+            return Type.CHAT;
+        }
+        return null;
+    }
+
+    private static Message<?> withHeader(Message<?> message, String name, long value) {
+        MessageHeaderAccessor accessor = MessageHeaderAccessor.getMutableAccessor(message);
+        accessor.setHeader(name, value);
+        return MessageBuilder.createMessage(message.getPayload(), accessor.getMessageHeaders());
+    }
+
+    private final class InboundInterceptor implements ExecutorChannelInterceptor {
+        @Override
+        public Message<?> preSend(Message<?> message, MessageChannel channel) {
+            if (typeOf(SimpMessageHeaderAccessor.getDestination(message.getHeaders())) == null
+                    || ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+                return message;
+            }
+            return withHeader(message, RECEIVED_HEADER, System.nanoTime());
+        }
+
+        @Override
+        public Message<?> beforeHandle(Message<?> message, MessageChannel channel, MessageHandler messageHandler) {
+            Long received = message.getHeaders().get(RECEIVED_HEADER, Long.class);
+            if (received != null) {
+                long now = System.nanoTime();
+                Type type = typeOf(SimpMessageHeaderAccessor.getDestination(message.getHeaders()));
+                inboundToHandler[type.ordinal()].record(now - received, TimeUnit.NANOSECONDS);
+                handling.set(now);
+            }
+            return message;
+        }
+
+        @Override
+        public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler messageHandler,
+                                        Exception ex) {
+            Long started = handling.get();
+            if (started != null) {
+                handling.remove();
+                Type type = typeOf(SimpMessageHeaderAccessor.getDestination(message.getHeaders()));
+                handler[type.ordinal()].record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+
+    private final class BrokerInterceptor implements ChannelInterceptor {
+        @Override
+        public Message<?> preSend(Message<?> message, MessageChannel channel) {
+            if (handling.get() == null || typeOf(SimpMessageHeaderAccessor.getDestination(message.getHeaders())) == null) {
+                return message;
+            }
+            return withHeader(message, DISPATCHED_HEADER, System.nanoTime());
+        }
+    }
+
+    private final class OutboundInterceptor implements ExecutorChannelInterceptor {
+        @Override
+        public void afterMessageHandled(Message<?> message, MessageChannel channel, MessageHandler messageHandler,
+                                        Exception ex) {
+            Long dispatched = message.getHeaders().get(DISPATCHED_HEADER, Long.class);
+            if (dispatched == null) {
+                return;
+            }
+            Type type = typeOf(SimpMessageHeaderAccessor.getDestination(message.getHeaders()));
+            if (type != null) {
+                handlerToWrite[type.ordinal()].record(System.nanoTime() - dispatched, TimeUnit.NANOSECONDS);
+            }
+        }
+    }
+}
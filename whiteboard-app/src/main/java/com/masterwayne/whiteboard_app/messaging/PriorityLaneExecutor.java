@@ -0,0 +1,236 @@
+package com.masterwayne.whiteboard_app.messaging;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageHandlingRunnable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executor for the STOMP client inbound/outbound channels that keeps chat, control and draw traffic
+ * in separate lanes and serves them by weighted round robin.
+ *
+ * Design:
+ * - Each message task is classified by its destination (chat, draw/whiteboard/presence) or, for frames
+ *   without a destination (CONNECT, SUBSCRIBE, heartbeats...), put in the control lane
+ * - Worker threads pick lanes following a smooth weighted schedule, so under saturation chat still gets
+ *   its share of dispatches however deep the draw backlog is; idle lanes never hold a worker
+ * - Tasks of one client session in one lane run one at a time, in submission order, so each client
+ *   sees its chat, its draw and its control frames in order while a draw backlog for that client no
+ *   longer delays its chat. A session's next task joins the back of its lane when the previous one
+ *   finishes, so one busy client cannot monopolize a lane either. Order across lanes is not kept:
+ *   draw frames carry seqs and clients fetch gaps, chat is independent of drawing
+ * - The outbound channel relies on that ordering instead of Spring's publish-order decorator, which
+ *   releases one task per client at a time whatever its lane. The inbound channel keeps Spring's
+ *   receive order, since a client's frames must be sequenced in the order it sent them
+ * - Tasks without a session id (broker-internal) are not ordered
+ */
+public class PriorityLaneExecutor implements TaskExecutor {
+    private static final Logger logger = LoggerFactory.getLogger(PriorityLaneExecutor.class);
+
+    public enum Lane { CHAT, CONTROL, DRAW }
+
+    private final String name;
+    private final Map<Lane, Queue<LaneTask>> queues = new EnumMap<>(Lane.class);
+    // Per session and lane with a task queued or running: the tasks waiting behind it
+    private final ConcurrentMap<String, ArrayDeque<LaneTask>> ordered = new ConcurrentHashMap<>();
+    private final Map<Lane, AtomicInteger> depths = new EnumMap<>(Lane.class);
+    private final Lane[] schedule;
+    private final AtomicInteger cursor = new AtomicInteger();
+    private final Semaphore available = new Semaphore(0);
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running = true;
+
+    public PriorityLaneExecutor(String name, int threads, Map<Lane, Integer> weights) {
+        this.name = name;
+        for (Lane lane : Lane.values()) {
+            queues.put(lane, new ConcurrentLinkedQueue<>());
+            depths.put(lane, new AtomicInteger());
+        }
+        this.schedule = buildSchedule(weights);
+        for (int i = 0; i < threads; i++) {
+            Thread worker = new Thread(this::workerLoop, name + "-" + (i + 1));
+            worker.setDaemon(true);
+            workers.add(worker);
+            worker.start();
+        }
+        logger.info("PriorityLaneExecutor '{}' started: threads={}, weights={}", name, threads, weights);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (!running) {
+            throw new RejectedExecutionException("PriorityLaneExecutor '" + name + "' is shut down");
+        }
+        Lane lane = classify(task);
+        depths.get(lane).incrementAndGet();
+        LaneTask laneTask = new LaneTask(task, lane, orderKey(task, lane));
+        if (laneTask.orderKey() != null) {
+            boolean[] waiting = {false};
+            ordered.compute(laneTask.orderKey(), (key, behind) -> {
+                if (behind == null) {
+                    return new ArrayDeque<>();
+                }
+                behind.add(laneTask);
+                waiting[0] = true;
+                return behind;
+            });
+            if (waiting[0]) {
+                return;
+            }
+        }
+        offer(laneTask);
+    }
+
+    private void offer(LaneTask task) {
+        queues.get(task.lane()).offer(task);
+        available.release();
+    }
+
+    // Hands the session's next task in this lane to the back of the lane, or ends its turn
+    private void finished(LaneTask task) {
+        LaneTask[] next = {null};
+        ordered.computeIfPresent(task.orderKey(), (key, behind) -> {
+            next[0] = behind.poll();
+            return next[0] != null ? behind : null;
+        });
+        if (next[0] != null) {
+            offer(next[0]);
+        }
+    }
+
+    private static String orderKey(Runnable task, Lane lane) {
+        if (!(task instanceof MessageHandlingRunnable handlingRunnable)) {
+            return null;
+        }
+        String sessionId = SimpMessageHeaderAccessor.getSessionId(handlingRunnable.getMessage().getHeaders());
+        return sessionId != null ? sessionId + '\u0000' + lane.name() : null;
+    }
+
+    /**
+     * Maps a channel task to its lane using the STOMP destination of the message it carries.
+     */
+    public static Lane classify(Runnable task) {
+        if (!(task instanceof MessageHandlingRunnable handlingRunnable)) {
+            return Lane.CONTROL;
+        }
+        Message<?> message = handlingRunnable.getMessage();
+        SimpMessageType type = SimpMessageHeaderAccessor.getMessageType(message.getHeaders());
+        if (type != SimpMessageType.MESSAGE) {
+            return Lane.CONTROL;
+        }
+        String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+        if (destination == null) {
+            return Lane.CONTROL;
+        }
+        if (destination.startsWith("/app/chat/") || destination.startsWith("/topic/chat/")) {
+            return Lane.CHAT;
+        }
+        if (destination.startsWith("/app/draw") || destination.startsWith("/topic/whiteboard/")
+                || destination.startsWith("/app/presence/") || destination.startsWith("/topic/presence/")) {
+            return Lane.DRAW;
+        }
+        return Lane.CONTROL;
+    }
+
+    public int getQueueDepth(Lane lane) {
+        return depths.get(lane).get();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void shutdown() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        workers.forEach(Thread::interrupt);
+        logger.info("PriorityLaneExecutor '{}' shut down", name);
+    }
+
+    private void workerLoop() {
+        while (running) {
+            try {
+                available.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            LaneTask task = nextTask();
+            try {
+                task.task().run();
+            } catch (Throwable t) {
+                logger.error("Task failed on PriorityLaneExecutor '{}'", name, t);
+            } finally {
+                if (task.orderKey() != null) {
+                    finished(task);
+                }
+            }
+        }
+    }
+
+    // A permit guarantees one queued task; start from this worker's slot in the weighted schedule
+    private LaneTask nextTask() {
+        while (true) {
+            int start = Math.floorMod(cursor.getAndIncrement(), schedule.length);
+            for (int i = 0; i < schedule.length; i++) {
+                Lane lane = schedule[(start + i) % schedule.length];
+                LaneTask task = queues.get(lane).poll();
+                if (task != null) {
+                    depths.get(lane).decrementAndGet();
+                    return task;
+                }
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    private record LaneTask(Runnable task, Lane lane, String orderKey) {
+    }
+
+    /**
+     * Smooth weighted round robin: interleaves lanes in proportion to their weights, e.g.
+     * CHAT=4, CONTROL=2, DRAW=1 gives CHAT, CONTROL, CHAT, DRAW, CHAT, CONTROL, CHAT.
+     */
+    private static Lane[] buildSchedule(Map<Lane, Integer> weights) {
+        Map<Lane, Integer> effective = new EnumMap<>(Lane.class);
+        int total = 0;
+        for (Lane lane : Lane.values()) {
+            int weight = Math.max(1, weights.getOrDefault(lane, 1));
+            effective.put(lane, weight);
+            total += weight;
+        }
+        Map<Lane, Integer> current = new EnumMap<>(Lane.class);
+        Lane[] result = new Lane[total];
+        for (int slot = 0; slot < total; slot++) {
+            Lane best = null;
+            for (Lane lane : Lane.values()) {
+                int value = current.getOrDefault(lane, 0) + effective.get(lane);
+                current.put(lane, value);
+                if (best == null || value > current.get(best)) {
+                    best = lane;
+                }
+            }
+            current.put(best, current.get(best) - total);
+            result[slot] = best;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,63 @@
+package com.masterwayne.whiteboard_app.messaging;
+
+import com.masterwayne.whiteboard_app.messaging.PriorityLaneExecutor.Lane;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Owns the lane executors used by the STOMP client inbound and outbound channels.
+ * Kept as a plain component (not Executor beans) so Boot's default task executor is left alone.
+ */
+@Component
+public class PriorityLanes {
+    private final boolean enabled;
+    private final PriorityLaneExecutor inbound;
+    private final PriorityLaneExecutor outbound;
+
+    public PriorityLanes(@Value("${whiteboard.lanes.enabled:true}") boolean enabled,
+                         @Value("${whiteboard.lanes.threads:0}") int threads,
+                         @Value("${whiteboard.lanes.chat-weight:4}") int chatWeight,
+                         @Value("${whiteboard.lanes.control-weight:2}") int controlWeight,
+                         @Value("${whiteboard.lanes.draw-weight:1}") int drawWeight) {
+        this.enabled = enabled;
+        if (!enabled) {
+            this.inbound = null;
+            this.outbound = null;
+            return;
+        }
+        // Same default pool size Spring uses for the client channels
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors() * 2;
+        Map<Lane, Integer> weights = new EnumMap<>(Lane.class);
+        weights.put(Lane.CHAT, chatWeight);
+        weights.put(Lane.CONTROL, controlWeight);
+        weights.put(Lane.DRAW, drawWeight);
+        this.inbound = new PriorityLaneExecutor("clientInboundLane", poolSize, weights);
+        this.outbound = new PriorityLaneExecutor("clientOutboundLane", poolSize, weights);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public PriorityLaneExecutor getInbound() {
+        return inbound;
+    }
+
+    public PriorityLaneExecutor getOutbound() {
+        return outbound;
+    }
+
+    public List<PriorityLaneExecutor> getExecutors() {
+        return enabled ? List.of(inbound, outbound) : List.of();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        getExecutors().forEach(PriorityLaneExecutor::shutdown);
+    }
+}
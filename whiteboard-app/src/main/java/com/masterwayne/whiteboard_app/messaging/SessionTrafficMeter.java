@@ -0,0 +1,288 @@
+package com.masterwayne.whiteboard_app.messaging;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.MultiGauge;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-board (whiteboard session) traffic accounting on the STOMP client channels: inbound and
+ * outbound message and byte rates, and live topic subscriptions. Only the top-K boards by message
+ * rate are exported with a session tag; the rest are summed into one session="_other" row.
+ *
+ * Design:
+ * - Counting is LongAdder increments on the channel threads; a board's counters are created on its
+ *   first message, after which the map lookup is lock-free
+ * - Rates are computed on a fixed tick from counter deltas, which is also when the ranking is taken
+ *   and the MultiGauge rows replaced, so Prometheus sees at most K + 1 series per meter
+ * - Subscriptions are tracked per STOMP session from SUBSCRIBE, UNSUBSCRIBE and DISCONNECT frames
+ *   (Spring sends a DISCONNECT into the inbound channel when a connection drops)
+ * - Boards with no subscriptions and no traffic in the last tick are forgotten; subscription counts
+ *   change under compute() on the board's entry and the removal re-checks the count there, so a
+ *   SUBSCRIBE racing the removal lands on the entry that stays in the map
+ */
+@Component
+public class SessionTrafficMeter {
+    static final String OTHER = "_other";
+
+    private final boolean enabled;
+    private final int topK;
+    private final ConcurrentMap<String, BoardTraffic> boards = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ConcurrentMap<String, String>> subscriptionsByClient = new ConcurrentHashMap<>();
+    private final MultiGauge messageRates;
+    private final MultiGauge byteRates;
+    private final MultiGauge subscriptions;
+    private final ChannelInterceptor inbound = new InboundInterceptor();
+    private final ChannelInterceptor outbound = new OutboundInterceptor();
+    private long lastPublishNanos = System.nanoTime();
+
+    public SessionTrafficMeter(MeterRegistry registry,
+                               @Value("${whiteboard.traffic.enabled:true}") boolean enabled,
+                               @Value("${whiteboard.traffic.top-k:10}") int topK) {
+        this.enabled = enabled;
+        this.topK = topK;
+        this.messageRates = MultiGauge.builder("whiteboard.traffic.messages")
+                .description("STOMP messages per second for the busiest boards, by direction")
+                .baseUnit("messages/s")
+                .register(registry);
+        this.byteRates = MultiGauge.builder("whiteboard.traffic.bytes")
+                .description("STOMP payload bytes per second for the busiest boards, by direction")
+                .baseUnit("bytes/s")
+                .register(registry);
+        this.subscriptions = MultiGauge.builder("whiteboard.traffic.subscriptions")
+                .description("Live topic subscriptions for the busiest boards")
+                .register(registry);
+        Gauge.builder("whiteboard.traffic.sessions", boards, Map::size)
+                .description("Boards currently tracked by traffic accounting")
+                .register(registry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /** For clientInboundChannel: counts frames sent by clients and tracks subscriptions. */
+    public ChannelInterceptor inbound() {
+        return inbound;
+    }
+
+    /** For clientOutboundChannel: counts frames delivered to each subscriber. */
+    public ChannelInterceptor outbound() {
+        return outbound;
+    }
+
+    /**
+     * Computes rates since the previous tick, re-ranks the boards and replaces the exported rows.
+     */
+    @Scheduled(fixedRateString = "${whiteboard.traffic.publish-ms:10000}")
+    public synchronized void publish() {
+        if (!enabled) {
+            return;
+        }
+        long now = System.nanoTime();
+        double seconds = Math.max((now - lastPublishNanos) / 1e9, 1e-3);
+        lastPublishNanos = now;
+
+        List<Rates> ranked = new ArrayList<>(boards.size());
+        for (Map.Entry<String, BoardTraffic> entry : boards.entrySet()) {
+            Rates rates = entry.getValue().sample(entry.getKey(), seconds);
+            if (rates.idle() && entry.getValue().subscriptions.get() <= 0) {
+                boards.computeIfPresent(entry.getKey(),
+                        (board, traffic) -> traffic.subscriptions.get() <= 0 ? null : traffic);
+            } else {
+                ranked.add(rates);
+            }
+        }
+        ranked.sort(Comparator.comparingDouble(Rates::totalMessages).reversed());
+
+        List<Rates> exported = new ArrayList<>(Math.min(ranked.size(), topK) + 1);
+        Rates other = new Rates(OTHER, 0, 0, 0, 0, 0);
+        for (int i = 0; i < ranked.size(); i++) {
+            if (i < topK) {
+                exported.add(ranked.get(i));
+            } else {
+                other = other.plus(ranked.get(i));
+            }
+        }
+        exported.add(other);
+
+        List<MultiGauge.Row<?>> messageRows = new ArrayList<>(exported.size() * 2);
+        List<MultiGauge.Row<?>> byteRows = new ArrayList<>(exported.size() * 2);
+        List<MultiGauge.Row<?>> subscriptionRows = new ArrayList<>(exported.size());
+        for (Rates rates : exported) {
+            messageRows.add(MultiGauge.Row.of(Tags.of("session", rates.board, "direction", "in"), rates.inMessages));
+            messageRows.add(MultiGauge.Row.of(Tags.of("session", rates.board, "direction", "out"), rates.outMessages));
+            byteRows.add(MultiGauge.Row.of(Tags.of("session", rates.board, "direction", "in"), rates.inBytes));
+            byteRows.add(MultiGauge.Row.of(Tags.of("session", rates.board, "direction", "out"), rates.outBytes));
+            subscriptionRows.add(MultiGauge.Row.of(Tags.of("session", rates.board), rates.subscriptions));
+        }
+        messageRates.register(messageRows, true);
+        byteRates.register(byteRows, true);
+        subscriptions.register(subscriptionRows, true);
+    }
+
+    /**
+     * Board name from /app/{kind}/{board}/... or /topic/{kind}/{board}/..., or null for anything else.
+     */
+    static String boardOf(String destination) {
+        if (destination == null || !(destination.startsWith("/app/") || destination.startsWith("/topic/"))) {
+            return null;
+        }
+        int kindStart = destination.indexOf('/', 1) + 1;
+        int boardStart = destination.indexOf('/', kindStart) + 1;
+        if (boardStart == 0 || boardStart == destination.length()) {
+            return null;
+        }
+        int boardEnd = destination.indexOf('/', boardStart);
+        return destination.substring(boardStart, boardEnd < 0 ? destination.length() : boardEnd);
+    }
+
+    private BoardTraffic traffic(String board) {
+        BoardTraffic traffic = boards.get(board);
+        return traffic != null ? traffic : boards.computeIfAbsent(board, k -> new BoardTraffic());
+    }
+
+    private void addSubscriptions(String board, int delta) {
+        boards.compute(board, (k, traffic) -> {
+            BoardTraffic target = traffic != null ? traffic : new BoardTraffic();
+            target.subscriptions.addAndGet(delta);
+            return target;
+        });
+    }
+
+    private static int payloadBytes(Message<?> message) {
+        return message.getPayload() instanceof byte[] bytes ? bytes.length : 0;
+    }
+
+    private void subscribe(String clientId, String subscriptionId, String board) {
+        if (clientId == null || subscriptionId == null) {
+            return;
+        }
+        String previous = subscriptionsByClient.computeIfAbsent(clientId, k -> new ConcurrentHashMap<>())
+                .put(subscriptionId, board);
+        if (previous == null) {
+            addSubscriptions(board, 1);
+        } else if (!previous.equals(board)) {
+            addSubscriptions(previous, -1);
+            addSubscriptions(board, 1);
+        }
+    }
+
+    private void unsubscribe(String clientId, String subscriptionId) {
+        Map<String, String> subscribed = clientId != null ? subscriptionsByClient.get(clientId) : null;
+        String board = subscribed != null && subscriptionId != null ? subscribed.remove(subscriptionId) : null;
+        if (board != null) {
+            addSubscriptions(board, -1);
+        }
+    }
+
+    private void disconnect(String clientId) {
+        Map<String, String> subscribed = clientId != null ? subscriptionsByClient.remove(clientId) : null;
+        if (subscribed != null) {
+            subscribed.values().forEach(board -> addSubscriptions(board, -1));
+        }
+    }
+
+    private final class InboundInterceptor implements ChannelInterceptor {
+        @Override
+        public Message<?> preSend(Message<?> message, MessageChannel channel) {
+            SimpMessageType type = SimpMessageHeaderAccessor.getMessageType(message.getHeaders());
+            String clientId = SimpMessageHeaderAccessor.getSessionId(message.getHeaders());
+            if (type == SimpMessageType.MESSAGE) {
+                String board = boardOf(SimpMessageHeaderAccessor.getDestination(message.getHeaders()));
+                if (board != null) {
+                    BoardTraffic traffic = traffic(board);
+                    traffic.inMessages.increment();
+                    traffic.inBytes.add(payloadBytes(message));
+                }
+            } else if (type == SimpMessageType.SUBSCRIBE) {
+                String board = boardOf(SimpMessageHeaderAccessor.getDestination(message.getHeaders()));
+                if (board != null) {
+                    subscribe(clientId, SimpMessageHeaderAccessor.getSubscriptionId(message.getHeaders()), board);
+                }
+            } else if (type == SimpMessageType.UNSUBSCRIBE) {
+                unsubscribe(clientId, SimpMessageHeaderAccessor.getSubscriptionId(message.getHeaders()));
+            } else if (type == SimpMessageType.DISCONNECT) {
+                disconnect(clientId);
+            }
+            return message;
+        }
+    }
+
+    private final class OutboundInterceptor implements ChannelInterceptor {
+        @Override
+        public Message<?> preSend(Message<?> message, MessageChannel channel) {
+            if (SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) == SimpMessageType.MESSAGE) {
+                String board = boardOf(SimpMessageHeaderAccessor.getDestination(message.getHeaders()));
+                if (board != null) {
+                    BoardTraffic traffic = traffic(board);
+                    traffic.outMessages.increment();
+                    traffic.outBytes.add(payloadBytes(message));
+                }
+            }
+            return message;
+        }
+    }
+
+    private static final class BoardTraffic {
+        final LongAdder inMessages = new LongAdder();
+        final LongAdder inBytes = new LongAdder();
+        final LongAdder outMessages = new LongAdder();
+        final LongAdder outBytes = new LongAdder();
+        final AtomicInteger subscriptions = new AtomicInteger();
+        // Totals at the previous tick; only touched by publish()
+        long lastInMessages;
+        long lastInBytes;
+        long lastOutMessages;
+        long lastOutBytes;
+
+        Rates sample(String board, double seconds) {
+            long inM = inMessages.sum();
+            long inB = inBytes.sum();
+            long outM = outMessages.sum();
+            long outB = outBytes.sum();
+            Rates rates = new Rates(board,
+                    (inM - lastInMessages) / seconds, (inB - lastInBytes) / seconds,
+                    (outM - lastOutMessages) / seconds, (outB - lastOutBytes) / seconds,
+                    Math.max(subscriptions.get(), 0));
+            lastInMessages = inM;
+            lastInBytes = inB;
+            lastOutMessages = outM;
+            lastOutBytes = outB;
+            return rates;
+        }
+    }
+
+    private record Rates(String board, double inMessages, double inBytes, double outMessages, double outBytes,
+                         int subscriptions) {
+        double totalMessages() {
+            return inMessages + outMessages;
+        }
+
+        boolean idle() {
+            return inMessages == 0 && outMessages == 0;
+        }
+
+        Rates plus(Rates other) {
+            return new Rates(board, inMessages + other.inMessages, inBytes + other.inBytes,
+                    outMessages + other.outMessages, outBytes + other.outBytes, subscriptions + other.subscriptions);
+        }
+    }
+}
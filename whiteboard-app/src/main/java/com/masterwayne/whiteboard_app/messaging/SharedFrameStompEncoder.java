@@ -0,0 +1,171 @@
+package com.masterwayne.whiteboard_app.messaging;
+
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompEncoder;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.messaging.support.NativeMessageHeaderAccessor;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * STOMP encoder that encodes the subscriber-independent part of a broadcast MESSAGE frame once and
+ * shares those bytes across every subscriber of the destination.
+ *
+ * Design:
+ * - The simple broker hands the same payload byte[] to every subscriber; only the 'subscription'
+ *   and 'message-id' headers differ between their frames
+ * - The shared tail (remaining headers, content-length, body, NUL) is cached in a small lock-free
+ *   table keyed by payload identity, so per subscriber only two headers are encoded plus one copy
+ * - Anything that is not a broadcast MESSAGE frame is delegated to the standard encoder
+ */
+public class SharedFrameStompEncoder extends StompEncoder {
+    private static final int CACHE_SLOTS = 64;
+    private static final int MAX_SHARED_PAYLOAD_BYTES = 64 * 1024;
+    private static final byte[] MESSAGE_LINE = "MESSAGE\n".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] SUBSCRIPTION_KEY = "subscription:".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] MESSAGE_ID_KEY = "message-id:".getBytes(StandardCharsets.UTF_8);
+
+    private final AtomicReferenceArray<SharedTail> cache = new AtomicReferenceArray<>(CACHE_SLOTS);
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public byte[] encode(Map<String, Object> headers, byte[] payload) {
+        if (payload.length > MAX_SHARED_PAYLOAD_BYTES || StompHeaderAccessor.getCommand(headers) != StompCommand.MESSAGE) {
+            return super.encode(headers, payload);
+        }
+        Object raw = headers.get(NativeMessageHeaderAccessor.NATIVE_HEADERS);
+        if (!(raw instanceof Map)) {
+            return super.encode(headers, payload);
+        }
+        Map<String, List<String>> nativeHeaders = (Map<String, List<String>>) raw;
+        String subscription = firstValue(nativeHeaders, StompHeaderAccessor.STOMP_SUBSCRIPTION_HEADER);
+        String messageId = firstValue(nativeHeaders, StompHeaderAccessor.STOMP_MESSAGE_ID_HEADER);
+        if (subscription == null || messageId == null) {
+            return super.encode(headers, payload);
+        }
+
+        SharedTail tail = sharedTailFor(nativeHeaders, payload);
+
+        byte[] subscriptionValue = escape(subscription);
+        byte[] messageIdValue = escape(messageId);
+        int length = MESSAGE_LINE.length
+                + SUBSCRIPTION_KEY.length + subscriptionValue.length + 1
+                + MESSAGE_ID_KEY.length + messageIdValue.length + 1
+                + tail.bytes.length;
+
+        byte[] frame = new byte[length];
+        int pos = put(frame, 0, MESSAGE_LINE);
+        pos = put(frame, pos, SUBSCRIPTION_KEY);
+        pos = put(frame, pos, subscriptionValue);
+        frame[pos++] = '\n';
+        pos = put(frame, pos, MESSAGE_ID_KEY);
+        pos = put(frame, pos, messageIdValue);
+        frame[pos++] = '\n';
+        put(frame, pos, tail.bytes);
+        return frame;
+    }
+
+    private SharedTail sharedTailFor(Map<String, List<String>> nativeHeaders, byte[] payload) {
+        int slot = System.identityHashCode(payload) & (CACHE_SLOTS - 1);
+        SharedTail cached = cache.get(slot);
+        if (cached != null && cached.payload == payload && sameSharedHeaders(cached.headers, nativeHeaders)) {
+            return cached;
+        }
+
+        Map<String, List<String>> sharedHeaders = new LinkedHashMap<>();
+        for (Map.Entry<String, List<String>> entry : nativeHeaders.entrySet()) {
+            if (!isPerFrameHeader(entry.getKey())) {
+                sharedHeaders.put(entry.getKey(), List.copyOf(entry.getValue()));
+            }
+        }
+        SharedTail created = new SharedTail(payload, sharedHeaders, encodeTail(sharedHeaders, payload));
+        cache.set(slot, created);
+        return created;
+    }
+
+    // Compares without copying so that a cache hit allocates nothing beyond the frame itself
+    private static boolean sameSharedHeaders(Map<String, List<String>> shared, Map<String, List<String>> nativeHeaders) {
+        int count = 0;
+        for (Map.Entry<String, List<String>> entry : nativeHeaders.entrySet()) {
+            if (isPerFrameHeader(entry.getKey())) {
+                continue;
+            }
+            if (!entry.getValue().equals(shared.get(entry.getKey()))) {
+                return false;
+            }
+            count++;
+        }
+        return count == shared.size();
+    }
+
+    private static boolean isPerFrameHeader(String name) {
+        return StompHeaderAccessor.STOMP_SUBSCRIPTION_HEADER.equals(name)
+                || StompHeaderAccessor.STOMP_MESSAGE_ID_HEADER.equals(name)
+                || StompHeaderAccessor.STOMP_CONTENT_LENGTH_HEADER.equals(name);
+    }
+
+    private static byte[] encodeTail(Map<String, List<String>> sharedHeaders, byte[] payload) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(payload.length + 256);
+        for (Map.Entry<String, List<String>> entry : sharedHeaders.entrySet()) {
+            byte[] key = escape(entry.getKey());
+            for (String value : entry.getValue()) {
+                out.writeBytes(key);
+                out.write(':');
+                out.writeBytes(escape(value));
+                out.write('\n');
+            }
+        }
+        out.writeBytes(("content-length:" + payload.length + "\n").getBytes(StandardCharsets.UTF_8));
+        out.write('\n');
+        out.writeBytes(payload);
+        out.write(0);
+        return out.toByteArray();
+    }
+
+    private static String firstValue(Map<String, List<String>> nativeHeaders, String name) {
+        List<String> values = nativeHeaders.get(name);
+        return values != null && !values.isEmpty() ? values.get(0) : null;
+    }
+
+    /**
+     * STOMP 1.2 header escaping for frames other than CONNECT/CONNECTED.
+     */
+    private static byte[] escape(String value) {
+        if (value == null) {
+            return new byte[0];
+        }
+        StringBuilder sb = null;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            String replacement = switch (c) {
+                case '\\' -> "\\\\";
+                case ':' -> "\\c";
+                case '\n' -> "\\n";
+                case '\r' -> "\\r";
+                default -> null;
+            };
+            if (replacement != null) {
+                if (sb == null) {
+                    sb = new StringBuilder(value.length() + 8).append(value, 0, i);
+                }
+                sb.append(replacement);
+            } else if (sb != null) {
+                sb.append(c);
+            }
+        }
+        return (sb != null ? sb.toString() : value).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static int put(byte[] target, int pos, byte[] source) {
+        System.arraycopy(source, 0, target, pos, source.length);
+        return pos + source.length;
+    }
+
+    private record SharedTail(byte[] payload, Map<String, List<String>> headers, byte[] bytes) {
+    }
+}
@@ -38,6 +38,7 @@ public class Channel {
         joinColumns = @JoinColumn(name = "channel_id"),
         indexes = {
             @Index(name = "idx_channel_shapes_channel", columnList = "channel_id"),
+            @Index(name = "idx_channel_shapes_channel_seq", columnList = "channel_id,seq"),
             @Index(name = "idx_channel_shapes_type", columnList = "type")
         }
     )
@@ -51,6 +52,7 @@ public class Channel {
         joinColumns = @JoinColumn(name = "channel_id"),
         indexes = {
             @Index(name = "idx_channel_chat_channel", columnList = "channel_id"),
+            @Index(name = "idx_channel_chat_channel_seq", columnList = "channel_id,seq"),
             @Index(name = "idx_channel_chat_timestamp", columnList = "timestamp")
         }
     )
@@ -58,6 +60,10 @@ public class Channel {
     @JsonIgnore
     private List<ChatMessage> chatMessages;
 
+    // Seq of the latest clear applied to the draw stream: shapes at or below it are deleted, and
+    // shapes at or below it that arrive later (fallback replay) are never stored
+    private Long clearedThroughSeq;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "session_id")
     @JsonIgnore
@@ -17,5 +17,10 @@ public class ChatMessage {
     private String attachmentName;
     private String attachmentContentType;
     private Long attachmentSize;
+    // Downscaled renditions of an image attachment (see ThumbnailService); null for other files
+    private String attachmentThumbnailUrl;
+    private String attachmentPreviewUrl;
     private Instant timestamp;
+    // Per-channel sequence number stamped by the server before broadcast and persistence
+    private Long seq;
 }
@@ -25,4 +25,6 @@ public class DrawPayload {
     private Double dy;
     // This MUST be Integer to match the 'parseInt' from the frontend
     private Integer lineWidth; 
+    // Per-channel sequence number stamped by the server before broadcast and persistence
+    private Long seq;
 }
\ No newline at end of file
@@ -0,0 +1,297 @@
+package com.masterwayne.whiteboard_app.persistence;
+
+import com.masterwayne.whiteboard_app.dto.DurabilityUpdate;
+import com.masterwayne.whiteboard_app.model.ChatMessage;
+import com.masterwayne.whiteboard_app.model.DrawPayload;
+import com.masterwayne.whiteboard_app.persistence.PersistenceWorker.PersistenceTask;
+import com.masterwayne.whiteboard_app.storage.ChannelEventStore;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.LongConsumer;
+
+/**
+ * Per channel stream (draw or chat) "durable up to sequence N": every event of that stream with
+ * seq &lt;= N is committed to the database.
+ *
+ * Design:
+ * - Advanced by PersistenceWorker after each commit; the worker applies a channel's events in
+ *   sequence order, so the highest committed seq is the watermark as long as nothing is held back
+ * - Events of a failed batch go to the fallback log and hold the watermark just below the lowest of
+ *   them until replay has committed each of them, by seq, even while later batches commit; replayed
+ *   events that were never held (left by a previous run) release nothing. Held seqs are kept as
+ *   ranges, so an outage of contiguous events costs one entry per channel stream
+ * - Seeded from the highest persisted seq the first time a channel is seen, as ChannelSequencer is;
+ *   events left in the fallback log by a previous run are not known to be held, so the REST view
+ *   also reports the fallback log's backlog
+ * - Events refused by a full queue or by the fallback log never reach the database, and
+ *   dead-lettered events never will; none of them holds the watermark back. With the INTERVAL and OS
+ *   fsync policies the fallback write completes after the batch is held, and a failed one releases
+ *   its hold then. Clearing the fallback log releases every hold
+ * - Optional STOMP notification on /topic/durability/{sessionName}, one message per channel stream
+ *   that advanced in a batch, sent from the worker thread
+ */
+@Component
+public class DurabilityWatermarks {
+    private static final Logger logger = LoggerFactory.getLogger(DurabilityWatermarks.class);
+
+    private final ChannelEventStore eventStore;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final boolean notify;
+    private final ConcurrentMap<String, Watermark> watermarks = new ConcurrentHashMap<>();
+
+    public DurabilityWatermarks(ChannelEventStore eventStore,
+                                SimpMessagingTemplate messagingTemplate,
+                                @Value("${whiteboard.durability.notify:false}") boolean notify) {
+        this.eventStore = eventStore;
+        this.messagingTemplate = messagingTemplate;
+        this.notify = notify;
+    }
+
+    /**
+     * Returns the durable seq for a channel stream. A stream the worker has not touched since startup
+     * is read from the store without being tracked, so lookups of unknown names cannot grow the map.
+     */
+    public long durableSeq(String sessionName, String channelName, boolean chat) {
+        Watermark watermark = watermarks.get(key(sessionName, channelName, chat));
+        return watermark != null ? watermark.durable : loadHighestPersistedSeq(sessionName, channelName, chat);
+    }
+
+    /**
+     * True while events of the channel stream written to the fallback log are still waiting for replay.
+     */
+    public boolean isHeld(String sessionName, String channelName, boolean chat) {
+        Watermark watermark = watermarks.get(key(sessionName, channelName, chat));
+        return watermark != null && watermark.isHeld();
+    }
+
+    /**
+     * Channel streams seen since startup, for operator views.
+     */
+    public List<DurabilityUpdate> snapshot() {
+        List<DurabilityUpdate> snapshot = new ArrayList<>(watermarks.size());
+        watermarks.values().forEach(w -> snapshot.add(w.toUpdate()));
+        return snapshot;
+    }
+
+    /** A live batch committed. Worker thread only. */
+    void committed(List<PersistenceTask> tasks) {
+        advance(tasks, false);
+    }
+
+    /** A replayed fallback chunk committed. Worker thread only. */
+    void replayed(List<PersistenceTask> tasks) {
+        advance(tasks, true);
+    }
+
+    /** A failed live batch was written to the fallback log. Worker thread only. */
+    void heldInFallback(List<PersistenceTask> tasks) {
+        for (PersistenceTask task : tasks) {
+            if (task.getMaxSeq() > 0) {
+                watermark(task.getSessionName(), task.getChannelName(), task.isChat()).hold(task);
+            }
+        }
+    }
+
+    /** A held event was dead-lettered by replay and will never be committed. */
+    void deadLettered(PersistenceTask task) {
+        release(task);
+    }
+
+    /** The fallback log failed to write a held task after it was queued; replay will never see it. */
+    void notWritten(PersistenceTask task) {
+        release(task);
+    }
+
+    /** The fallback log was cleared: nothing it held will be replayed. Worker thread only. */
+    void fallbackCleared() {
+        watermarks.values().forEach(Watermark::releaseAll);
+    }
+
+    private void release(PersistenceTask task) {
+        if (task.getMaxSeq() > 0) {
+            Watermark watermark = watermark(task.getSessionName(), task.getChannelName(), task.isChat());
+            watermark.release(task);
+            watermark.commit(0);
+        }
+    }
+
+    private void advance(List<PersistenceTask> tasks, boolean replay) {
+        // Per watermark: highest seq committed, and the durable seq before this batch
+        Map<Watermark, long[]> committed = new LinkedHashMap<>();
+        for (PersistenceTask task : tasks) {
+            long maxSeq = task.getMaxSeq();
+            if (maxSeq <= 0) {
+                continue;
+            }
+            Watermark watermark = watermark(task.getSessionName(), task.getChannelName(), task.isChat());
+            long[] totals = committed.computeIfAbsent(watermark, w -> new long[]{0, w.durable});
+            totals[0] = Math.max(totals[0], maxSeq);
+            if (replay) {
+                watermark.release(task);
+            }
+        }
+        for (Map.Entry<Watermark, long[]> entry : committed.entrySet()) {
+            Watermark watermark = entry.getKey();
+            watermark.commit(entry.getValue()[0]);
+            if (notify && watermark.durable != entry.getValue()[1]) {
+                publish(watermark);
+            }
+        }
+    }
+
+    private void publish(Watermark watermark) {
+        try {
+            messagingTemplate.convertAndSend("/topic/durability/" + watermark.sessionName, watermark.toUpdate());
+        } catch (MessagingException e) {
+            logger.warn("Failed to publish durability watermark for session '{}'", watermark.sessionName, e);
+        }
+    }
+
+    private Watermark watermark(String sessionName, String channelName, boolean chat) {
+        String key = key(sessionName, channelName, chat);
+        Watermark watermark = watermarks.get(key);
+        if (watermark != null) {
+            return watermark;
+        }
+        // Seed outside computeIfAbsent so the map is not locked during the store round trip
+        Watermark seeded = new Watermark(sessionName, channelName, chat, loadHighestPersistedSeq(sessionName, channelName, chat));
+        Watermark existing = watermarks.putIfAbsent(key, seeded);
+        return existing != null ? existing : seeded;
+    }
+
+    private long loadHighestPersistedSeq(String sessionName, String channelName, boolean chat) {
+        try {
+            return chat
+                    ? eventStore.maxChatSeq(sessionName, channelName)
+                    : eventStore.maxShapeSeq(sessionName, channelName);
+        } catch (Exception e) {
+            logger.warn("Failed to seed durability watermark for session='{}', channel='{}', chat={}; starting at 0",
+                    sessionName, channelName, chat, e);
+            return 0L;
+        }
+    }
+
+    private static String key(String sessionName, String channelName, boolean chat) {
+        return sessionName + '\u0000' + channelName + '\u0000' + (chat ? "chat" : "draw");
+    }
+
+    private static final class Watermark {
+        final String sessionName;
+        final String channelName;
+        final boolean chat;
+        volatile long durable;
+        private long maxCommitted;
+        private final SeqRanges held = new SeqRanges();
+
+        Watermark(String sessionName, String channelName, boolean chat, long persisted) {
+            this.sessionName = sessionName;
+            this.channelName = channelName;
+            this.chat = chat;
+            this.maxCommitted = persisted;
+            this.durable = persisted;
+        }
+
+        synchronized void commit(long maxSeq) {
+            maxCommitted = Math.max(maxCommitted, maxSeq);
+            update();
+        }
+
+        synchronized void hold(PersistenceTask task) {
+            forEachSeq(task, held::add);
+            update();
+        }
+
+        /** Takes the task's seqs out of the hold; the next commit moves the watermark. */
+        synchronized void release(PersistenceTask task) {
+            forEachSeq(task, held::remove);
+        }
+
+        synchronized void releaseAll() {
+            held.clear();
+            update();
+        }
+
+        synchronized boolean isHeld() {
+            return !held.isEmpty();
+        }
+
+        // Never moves backwards: a hold only stops it advancing past the first held event
+        private void update() {
+            long candidate = held.isEmpty() ? maxCommitted : Math.min(maxCommitted, held.first() - 1);
+            if (candidate > durable) {
+                durable = candidate;
+            }
+        }
+
+        DurabilityUpdate toUpdate() {
+            return new DurabilityUpdate(sessionName, channelName, chat ? "chat" : "draw", durable, isHeld());
+        }
+    }
+
+    private static void forEachSeq(PersistenceTask task, LongConsumer action) {
+        for (DrawPayload payload : task.getDrawPayloads()) {
+            if (payload.getSeq() != null && payload.getSeq() > 0) {
+                action.accept(payload.getSeq());
+            }
+        }
+        ChatMessage message = task.getChatMessage();
+        if (message != null && message.getSeq() != null && message.getSeq() > 0) {
+            action.accept(message.getSeq());
+        }
+    }
+
+    /**
+     * Set of seqs as disjoint, non-adjacent closed ranges keyed by their first seq.
+     */
+    private static final class SeqRanges {
+        private final TreeMap<Long, Long> ranges = new TreeMap<>();
+
+        void add(long seq) {
+            Map.Entry<Long, Long> below = ranges.floorEntry(seq);
+            if (below != null && below.getValue() >= seq) {
+                return;
+            }
+            long from = below != null && below.getValue() == seq - 1 ? below.getKey() : seq;
+            Long aboveTo = ranges.remove(seq + 1);
+            ranges.put(from, aboveTo != null ? aboveTo : seq);
+        }
+
+        void remove(long seq) {
+            Map.Entry<Long, Long> range = ranges.floorEntry(seq);
+            if (range == null || range.getValue() < seq) {
+                return;
+            }
+            ranges.remove(range.getKey());
+            if (range.getKey() < seq) {
+                ranges.put(range.getKey(), seq - 1);
+            }
+            if (range.getValue() > seq) {
+                ranges.put(seq + 1, range.getValue());
+            }
+        }
+
+        void clear() {
+            ranges.clear();
+        }
+
+        boolean isEmpty() {
+            return ranges.isEmpty();
+        }
+
+        long first() {
+            return ranges.firstKey();
+        }
+    }
+}
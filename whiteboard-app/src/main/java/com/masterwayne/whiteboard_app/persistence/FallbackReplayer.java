@@ -0,0 +1,379 @@
+package com.masterwayne.whiteboard_app.persistence;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.masterwayne.whiteboard_app.diagnostics.ReplayChunkEvent;
+import com.masterwayne.whiteboard_app.model.ChatMessage;
+import com.masterwayne.whiteboard_app.model.DrawPayload;
+import com.masterwayne.whiteboard_app.persistence.PersistenceWorker.PersistenceTask;
+import com.masterwayne.whiteboard_app.storage.FallbackPosition;
+import com.masterwayne.whiteboard_app.storage.FallbackStorage;
+import com.masterwayne.whiteboard_app.storage.FallbackStorage.FallbackEvent;
+import com.masterwayne.whiteboard_app.storage.FallbackStorage.PendingEvents;
+import com.masterwayne.whiteboard_app.storage.FallbackStorage.ReplayEntry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.io.IOException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Streams fallback events back into the database after an outage.
+ *
+ * Design:
+ * - Reads the fallback log lazily from the replay checkpoint, one chunk at a time; the whole log is
+ *   never held in memory
+ * - Each chunk becomes persistence tasks applied through the worker's batch path (grouped by
+ *   session and channel, one session load per group) in a single transaction per chunk
+ * - The checkpoint advances only after a chunk's transaction commits, so an interrupted replay
+ *   resumes where it stopped. A chunk that outlasts the timeout is cancelled if the worker has not
+ *   taken it yet, or else waited for, so it cannot commit behind the replayer's back; a commit whose
+ *   outcome is lost anyway is absorbed by the store skipping seqs it already holds
+ * - A failing chunk is retried event by event: events that fail on their own go to the dead-letter
+ *   segments; an outage (connection, transaction or worker unavailable) stops the run instead
+ * - Throughput is capped at a configurable events-per-second rate, and replay pauses while the
+ *   worker's live queue is deeper than a threshold, to leave the worker and pool to live traffic
+ */
+@Component
+public class FallbackReplayer {
+    private static final Logger logger = LoggerFactory.getLogger(FallbackReplayer.class);
+    private static final long CHUNK_TIMEOUT_SECONDS = 300;
+    private static final long PAUSE_POLL_MILLIS = 250;
+
+    private final FallbackStorage fallbackStorage;
+    private final PersistenceWorker persistenceWorker;
+    private final DurabilityWatermarks watermarks;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+    private final int maxEventsPerSecond;
+    private final int pauseQueueDepth;
+    private final AtomicBoolean replaying = new AtomicBoolean();
+
+    @Autowired
+    public FallbackReplayer(FallbackStorage fallbackStorage,
+                            PersistenceWorker persistenceWorker,
+                            DurabilityWatermarks watermarks,
+                            ObjectMapper objectMapper,
+                            @Value("${whiteboard.replay.chunk-size:500}") int chunkSize,
+                            @Value("${whiteboard.replay.max-events-per-second:5000}") int maxEventsPerSecond,
+                            @Value("${whiteboard.replay.pause-queue-depth:2000}") int pauseQueueDepth) {
+        this.fallbackStorage = fallbackStorage;
+        this.persistenceWorker = persistenceWorker;
+        this.watermarks = watermarks;
+        this.objectMapper = objectMapper;
+        this.chunkSize = Math.max(1, chunkSize);
+        this.maxEventsPerSecond = maxEventsPerSecond;
+        this.pauseQueueDepth = pauseQueueDepth;
+    }
+
+    /**
+     * Replays everything after the checkpoint. Only one replay runs at a time; a concurrent call
+     * returns immediately with nothing replayed.
+     */
+    public ReplayReport replay() {
+        return replay(null);
+    }
+
+    /**
+     * Replays everything after the checkpoint, reporting progress to job (may be null) and honouring
+     * its rate cap and cancellation between chunks.
+     */
+    public ReplayReport replay(ReplayJob job) {
+        if (!replaying.compareAndSet(false, true)) {
+            logger.info("Fallback replay already in progress, skipping");
+            return new ReplayReport(0, 0, 0, false, "Replay already in progress");
+        }
+        try {
+            return runReplay(job);
+        } finally {
+            replaying.set(false);
+        }
+    }
+
+    public boolean isReplaying() {
+        return replaying.get();
+    }
+
+    private ReplayReport runReplay(ReplayJob job) {
+        int rate = job != null && job.getMaxEventsPerSecond() > 0 ? job.getMaxEventsPerSecond() : maxEventsPerSecond;
+        long replayed = 0;
+        long deadLettered = 0;
+        long chunks = 0;
+        long startNanos = System.nanoTime();
+        // Hard links for sealed segments, so a backup per run costs almost nothing
+        fallbackStorage.backupFallbackFile();
+        FallbackPosition position = fallbackStorage.getReplayCheckpoint();
+        logger.info("Starting streaming fallback replay from {} ({} pending events)",
+                position, fallbackStorage.getFallbackEventCount());
+
+        while (true) {
+            if (job != null && job.isCancelRequested()) {
+                return new ReplayReport(replayed, deadLettered, chunks, true, "Cancelled");
+            }
+            if (!awaitWorkerCapacity(job)) {
+                return new ReplayReport(replayed, deadLettered, chunks, true, "Interrupted while paused");
+            }
+            PendingEvents chunk;
+            try {
+                chunk = fallbackStorage.readPendingEvents(position, chunkSize);
+            } catch (IOException e) {
+                logger.error("Failed to read fallback log at {}", position, e);
+                return new ReplayReport(replayed, deadLettered, chunks, true, "Read failed: " + e.getMessage());
+            }
+            if (chunk.getLineCount() == 0) {
+                break;
+            }
+
+            ReplayChunkEvent event = new ReplayChunkEvent();
+            event.begin();
+            ChunkOutcome outcome = replayChunk(chunk);
+            commit(event, chunk, outcome);
+            replayed += outcome.replayed;
+            deadLettered += outcome.deadLettered;
+            chunks++;
+            if (job != null) {
+                job.recordChunk(outcome.replayed, outcome.deadLettered);
+            }
+            if (outcome.abortReason != null) {
+                logger.warn("Fallback replay stopped after {} events: {}", replayed, outcome.abortReason);
+                return new ReplayReport(replayed, deadLettered, chunks, true, outcome.abortReason);
+            }
+            position = chunk.getEnd();
+            throttle(replayed + deadLettered, startNanos, rate);
+        }
+
+        logger.info("Fallback replay completed: {} replayed, {} dead-lettered, {} chunks in {} ms",
+                replayed, deadLettered, chunks, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+        return new ReplayReport(replayed, deadLettered, chunks, false, null);
+    }
+
+    private ChunkOutcome replayChunk(PendingEvents chunk) {
+        List<PersistenceTask> tasks = new ArrayList<>(chunk.getEntries().size());
+        List<ReplayEntry> rejected = new ArrayList<>();
+        for (ReplayEntry entry : chunk.getEntries()) {
+            PersistenceTask task = toTask(entry);
+            if (task == null) {
+                rejected.add(entry);
+            } else {
+                tasks.add(task);
+            }
+        }
+
+        try {
+            if (!tasks.isEmpty()) {
+                apply(tasks);
+            }
+            for (ReplayEntry entry : rejected) {
+                fallbackStorage.writeDeadLetter(entry, rejectionReason(entry));
+            }
+            fallbackStorage.commitReplay(chunk.getEnd(), chunk.getLineCount());
+            return new ChunkOutcome(tasks.size(), rejected.size(), null);
+        } catch (Exception e) {
+            if (isOutage(e)) {
+                return new ChunkOutcome(0, 0, describe(e));
+            }
+            logger.warn("Replay chunk of {} events failed ({}), retrying event by event", tasks.size(), describe(e));
+            return replayIndividually(chunk);
+        }
+    }
+
+    private static void commit(ReplayChunkEvent event, PendingEvents chunk, ChunkOutcome outcome) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.lines = chunk.getLineCount();
+            event.replayed = outcome.replayed;
+            event.deadLettered = outcome.deadLettered;
+            event.outcome = outcome.abortReason == null ? "committed" : "aborted";
+            event.abortReason = outcome.abortReason;
+            event.commit();
+        }
+    }
+
+    private ChunkOutcome replayIndividually(PendingEvents chunk) {
+        int replayed = 0;
+        int deadLettered = 0;
+        ReplayEntry lastDone = null;
+        for (ReplayEntry entry : chunk.getEntries()) {
+            PersistenceTask task = toTask(entry);
+            if (task == null) {
+                fallbackStorage.writeDeadLetter(entry, rejectionReason(entry));
+                deadLettered++;
+            } else {
+                try {
+                    apply(List.of(task));
+                    replayed++;
+                } catch (Exception e) {
+                    if (isOutage(e)) {
+                        if (lastDone != null) {
+                            fallbackStorage.commitReplay(lastDone.getPosition(), lastDone.getLinesThrough());
+                        }
+                        return new ChunkOutcome(replayed, deadLettered, describe(e));
+                    }
+                    fallbackStorage.writeDeadLetter(entry, describe(e));
+                    // Will never be committed; stop it holding the channel's watermark back or showing in reads
+                    watermarks.deadLettered(task);
+                    persistenceWorker.deadLettered(task);
+                    deadLettered++;
+                }
+            }
+            lastDone = entry;
+        }
+        fallbackStorage.commitReplay(chunk.getEnd(), chunk.getLineCount());
+        return new ChunkOutcome(replayed, deadLettered, null);
+    }
+
+    private void apply(List<PersistenceTask> tasks) throws Exception {
+        CompletableFuture<Void> applied = persistenceWorker.submitReplayChunk(tasks);
+        try {
+            applied.get(CHUNK_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            if (applied.cancel(false)) {
+                // Still queued and now never applied: safe to replay from the checkpoint later
+                throw e;
+            }
+            // The worker is applying it: its outcome decides whether the checkpoint may move, or the
+            // next pass would replay events that did commit
+            logger.warn("Replay chunk of {} events still running after {}s, waiting for it", tasks.size(),
+                    CHUNK_TIMEOUT_SECONDS);
+            awaitStarted(applied);
+        } catch (ExecutionException e) {
+            throw unwrap(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (applied.cancel(false)) {
+                throw new RejectedExecutionException("Interrupted while waiting for replay chunk", e);
+            }
+            awaitStarted(applied);
+        }
+    }
+
+    // Waits out a chunk the worker has taken, however long its append runs
+    private static void awaitStarted(CompletableFuture<Void> applied) throws Exception {
+        try {
+            applied.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            throw cause instanceof Exception exception ? exception : e;
+        }
+    }
+
+    private static Exception unwrap(ExecutionException e) {
+        Throwable cause = e.getCause();
+        return cause instanceof Exception exception ? exception : e;
+    }
+
+    private PersistenceTask toTask(ReplayEntry entry) {
+        FallbackEvent event = entry.getEvent();
+        if (event == null || event.getSessionName() == null || event.getChannelName() == null) {
+            return null;
+        }
+        try {
+            if ("DRAW".equals(event.getEventType())) {
+                DrawPayload payload = objectMapper.convertValue(event.getData(), DrawPayload.class);
+                return "clear".equals(payload.getType())
+                        ? PersistenceTask.clearTask(event.getSessionName(), event.getChannelName(), payload)
+                        : PersistenceTask.drawTask(event.getSessionName(), event.getChannelName(), payload);
+            }
+            if ("CHAT".equals(event.getEventType())) {
+                ChatMessage message = objectMapper.convertValue(event.getData(), ChatMessage.class);
+                return PersistenceTask.chatTask(event.getSessionName(), event.getChannelName(), message);
+            }
+        } catch (IllegalArgumentException e) {
+            logger.warn("Fallback event at {} has an unreadable payload: {}", entry.getPosition(), e.getMessage());
+        }
+        return null;
+    }
+
+    private static String rejectionReason(ReplayEntry entry) {
+        if (entry.getEvent() == null) {
+            return "Unparseable fallback line";
+        }
+        return "Unsupported or incomplete fallback event (type=" + entry.getEvent().getEventType() + ")";
+    }
+
+    // Waits while live persistence is backed up; returns false if interrupted
+    private boolean awaitWorkerCapacity(ReplayJob job) {
+        if (pauseQueueDepth <= 0 || persistenceWorker.getQueueSize() <= pauseQueueDepth) {
+            return true;
+        }
+        logger.info("Pausing fallback replay: persistence queue depth {} > {}", persistenceWorker.getQueueSize(), pauseQueueDepth);
+        if (job != null) {
+            job.markPaused(true);
+        }
+        try {
+            while (persistenceWorker.getQueueSize() > pauseQueueDepth && (job == null || !job.isCancelRequested())) {
+                TimeUnit.MILLISECONDS.sleep(PAUSE_POLL_MILLIS);
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            if (job != null) {
+                job.markPaused(false);
+            }
+            logger.info("Resuming fallback replay");
+        }
+    }
+
+    private void throttle(long processed, long startNanos, int rate) {
+        if (rate <= 0) {
+            return;
+        }
+        long expectedNanos = processed * TimeUnit.SECONDS.toNanos(1) / rate;
+        long aheadNanos = expectedNanos - (System.nanoTime() - startNanos);
+        if (aheadNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(aheadNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // Failures that say the store (or the worker) is unavailable, not that the event is bad; the log
+    // engine reports disk errors as IOException
+    private static boolean isOutage(Throwable failure) {
+        for (Throwable t = failure; t != null; t = t.getCause()) {
+            if (t instanceof TransientDataAccessException
+                    || t instanceof DataAccessResourceFailureException
+                    || t instanceof CannotCreateTransactionException
+                    || t instanceof SQLTransientException
+                    || t instanceof SQLRecoverableException
+                    || t instanceof RejectedExecutionException
+                    || t instanceof TimeoutException
+                    || t instanceof IOException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String describe(Throwable failure) {
+        return failure.getClass().getSimpleName() + ": " + failure.getMessage();
+    }
+
+    private record ChunkOutcome(long replayed, long deadLettered, String abortReason) {
+    }
+
+    /**
+     * Result of one replay run.
+     */
+    public record ReplayReport(long replayed, long deadLettered, long chunks, boolean aborted, String abortReason) {
+    }
+}
@@ -0,0 +1,143 @@
+package com.masterwayne.whiteboard_app.persistence;
+
+import com.masterwayne.whiteboard_app.model.ChatMessage;
+import com.masterwayne.whiteboard_app.model.DrawPayload;
+import com.masterwayne.whiteboard_app.persistence.PersistenceWorker.PersistenceTask;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Index of accepted events the store does not have yet, by channel and sequence number, so history
+ * reads can include writes that have not been committed. PersistenceWorker keeps two: one for its
+ * queue and the batch it is applying, one for events a failed batch left in the fallback log.
+ *
+ * Design:
+ * - Producers index a task before offering it, and take it out again if the offer fails; the worker
+ *   takes a batch out once it has committed, or moves it to the fallback index once it has been
+ *   written to the fallback log. Indexing before the offer means the worker can never remove a task
+ *   that is not yet indexed
+ * - Fallback events leave by seq once replayed or dead-lettered: replay works on copies decoded
+ *   from the log, not the indexed objects. That index grows with an outage, like the log itself
+ * - Per channel, draw events (clears included) and chat messages are kept in sequence order in skip
+ *   lists, so a read copies only its channel's pending events and never blocks the worker
+ * - A channel's entry is created and dropped under ConcurrentHashMap.compute, so an add cannot land in
+ *   an entry that is being dropped; memory is bounded by the queue capacity
+ * - Events without a sequence number cannot be merged by seq and are not indexed
+ */
+final class InFlightEvents {
+    private final ConcurrentMap<String, ChannelEvents> channels = new ConcurrentHashMap<>();
+
+    void add(PersistenceTask task) {
+        if (task.getMaxSeq() <= 0) {
+            return;
+        }
+        channels.compute(key(task.getSessionName(), task.getChannelName()), (k, events) -> {
+            ChannelEvents indexed = events != null ? events : new ChannelEvents();
+            indexed.add(task);
+            return indexed;
+        });
+    }
+
+    void remove(PersistenceTask task) {
+        remove(task, true);
+    }
+
+    void removeAll(List<PersistenceTask> tasks) {
+        for (PersistenceTask task : tasks) {
+            remove(task, true);
+        }
+    }
+
+    /**
+     * Removes whatever is indexed at the tasks' sequence numbers, for tasks that are copies of the
+     * indexed ones.
+     */
+    void removeSeqs(List<PersistenceTask> tasks) {
+        for (PersistenceTask task : tasks) {
+            remove(task, false);
+        }
+    }
+
+    private void remove(PersistenceTask task, boolean sameEvent) {
+        if (task.getMaxSeq() <= 0) {
+            return;
+        }
+        channels.computeIfPresent(key(task.getSessionName(), task.getChannelName()), (k, events) -> {
+            events.remove(task, sameEvent);
+            return events.isEmpty() ? null : events;
+        });
+    }
+
+    /**
+     * Drops every indexed event, for the fallback index once the fallback log is cleared.
+     */
+    void clear() {
+        channels.clear();
+    }
+
+    /**
+     * Pending draw events of a channel in sequence order, clears included.
+     */
+    List<DrawPayload> draws(String sessionName, String channelName) {
+        ChannelEvents events = channels.get(key(sessionName, channelName));
+        return events != null ? new ArrayList<>(events.draws.values()) : List.of();
+    }
+
+    /**
+     * Pending chat messages of a channel in sequence order.
+     */
+    List<ChatMessage> chats(String sessionName, String channelName) {
+        ChannelEvents events = channels.get(key(sessionName, channelName));
+        return events != null ? new ArrayList<>(events.chats.values()) : List.of();
+    }
+
+    private static String key(String sessionName, String channelName) {
+        return sessionName + '\u0000' + channelName;
+    }
+
+    private static final class ChannelEvents {
+        final ConcurrentSkipListMap<Long, DrawPayload> draws = new ConcurrentSkipListMap<>();
+        final ConcurrentSkipListMap<Long, ChatMessage> chats = new ConcurrentSkipListMap<>();
+
+        void add(PersistenceTask task) {
+            for (DrawPayload payload : task.getDrawPayloads()) {
+                if (payload.getSeq() != null) {
+                    draws.put(payload.getSeq(), payload);
+                }
+            }
+            ChatMessage message = task.getChatMessage();
+            if (message != null && message.getSeq() != null) {
+                chats.put(message.getSeq(), message);
+            }
+        }
+
+        void remove(PersistenceTask task, boolean sameEvent) {
+            for (DrawPayload payload : task.getDrawPayloads()) {
+                if (payload.getSeq() == null) {
+                    continue;
+                }
+                if (sameEvent) {
+                    draws.remove(payload.getSeq(), payload);
+                } else {
+                    draws.remove(payload.getSeq());
+                }
+            }
+            ChatMessage message = task.getChatMessage();
+            if (message != null && message.getSeq() != null) {
+                if (sameEvent) {
+                    chats.remove(message.getSeq(), message);
+                } else {
+                    chats.remove(message.getSeq());
+                }
+            }
+        }
+
+        boolean isEmpty() {
+            return draws.isEmpty() && chats.isEmpty();
+        }
+    }
+}
@@ -1,23 +1,29 @@
 package com.masterwayne.whiteboard_app.persistence;
 
-import com.masterwayne.whiteboard_app.exception.PersistenceException;
-import com.masterwayne.whiteboard_app.model.Channel;
+import com.masterwayne.whiteboard_app.diagnostics.LogRateLimiter;
+import com.masterwayne.whiteboard_app.diagnostics.PersistenceBatchEvent;
 import com.masterwayne.whiteboard_app.model.ChatMessage;
 import com.masterwayne.whiteboard_app.model.DrawPayload;
-import com.masterwayne.whiteboard_app.repository.WhiteboardSessionRepository;
+import com.masterwayne.whiteboard_app.storage.ChannelEventStore;
+import com.masterwayne.whiteboard_app.storage.ChannelEventStore.ChannelAppend;
 import com.masterwayne.whiteboard_app.storage.FallbackStorage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.transaction.PlatformTransactionManager;
-import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
 
 /**
  * PersistenceWorker manages asynchronous persistence of drawing and chat events using a background thread.
@@ -25,12 +31,23 @@ import java.util.concurrent.*;
  * Design:
  * - Uses a BlockingQueue to decouple WebSocket event handlers from persistence logic
  * - Single-threaded executor ensures serialized DB writes (no race conditions)
+ * - Batches are written through the configured ChannelEventStore as one append per channel, so the
+ *   worker does not care whether history lives in JPA or the log-structured engine
  * - On DB write failure, automatically falls back to file-based storage
  * - Graceful shutdown with queue draining on application termination
+ * - Fallback replay chunks run on the same thread, so replayed and live writes never race on a
+ *   channel's history; each chunk is its own append and never falls back to file
+ * - Every commit, fallback write and replay is reported to DurabilityWatermarks from this thread;
+ *   only a fallback write that the appender fails after the batch was handled is reported later,
+ *   from the appender thread, and releases what the batch held
+ * - Queued and in-progress events are indexed in InFlightEvents until their batch commits, and
+ *   events a failed batch wrote to the fallback log stay indexed until replay commits or dead-letters
+ *   them, so history reads can overlay writes the database does not have yet (read-your-writes).
+ *   Only events the fallback log accepted are indexed, and clearing the log drops them all
  * 
  * Thread safety:
  * - BlockingQueue is thread-safe for producer/consumer coordination
- * - All repository operations executed on single background thread (no concurrent DB access from this worker)
+ * - All store writes executed on single background thread (no concurrent appends from this worker)
  */
 @Component
 public class PersistenceWorker {
@@ -38,21 +55,27 @@ public class PersistenceWorker {
     private static final int QUEUE_CAPACITY = 10000;
     private static final int MAX_BATCH_SIZE = 100;
     private static final int SHUTDOWN_TIMEOUT_SECONDS = 10;
+    private static final int REPLAY_SUBMIT_TIMEOUT_SECONDS = 30;
+    private static final int FALLBACK_CLEAR_TIMEOUT_SECONDS = 60;
 
     private final BlockingQueue<PersistenceTask> taskQueue;
     private final ExecutorService executorService;
-    private final WhiteboardSessionRepository sessionRepository;
+    private final ChannelEventStore eventStore;
     private final FallbackStorage fallbackStorage;
-    private final TransactionTemplate transactionTemplate;
+    private final DurabilityWatermarks watermarks;
+    private final InFlightEvents inFlight = new InFlightEvents();
+    private final InFlightEvents inFallback = new InFlightEvents();
+    // Discard/fallback lines fire per event while the queue is full or the database is down
+    private final LogRateLimiter rejectedLog = new LogRateLimiter(5, Duration.ofSeconds(1));
     private volatile boolean running = false;
 
     @Autowired
-    public PersistenceWorker(WhiteboardSessionRepository sessionRepository,
+    public PersistenceWorker(ChannelEventStore eventStore,
                              FallbackStorage fallbackStorage,
-                             PlatformTransactionManager transactionManager) {
-        this.sessionRepository = sessionRepository;
+                             DurabilityWatermarks watermarks) {
+        this.eventStore = eventStore;
         this.fallbackStorage = fallbackStorage;
-        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.watermarks = watermarks;
         this.taskQueue = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
         this.executorService = Executors.newSingleThreadExecutor(r -> {
             Thread t = new Thread(r, "WhiteboardPersistenceWorker");
@@ -89,7 +112,7 @@ public class PersistenceWorker {
                 List<PersistenceTask> batch = new ArrayList<>(MAX_BATCH_SIZE);
                 batch.add(task);
                 taskQueue.drainTo(batch, MAX_BATCH_SIZE - batch.size());
-                executeBatch(batch);
+                processBatch(batch);
             } catch (InterruptedException e) {
                 if (running) {
                     // Unexpected interruption; log and continue
@@ -109,6 +132,83 @@ public class PersistenceWorker {
         logger.info("PersistenceWorker consumer loop exiting");
     }
 
+    /**
+     * Runs live tasks as one batch, then any replay chunks drained with them, each on its own, then
+     * any fallback clears.
+     */
+    private void processBatch(List<PersistenceTask> tasks) {
+        List<PersistenceTask> live = new ArrayList<>(tasks.size());
+        List<ReplayChunkTask> replayChunks = new ArrayList<>();
+        List<FallbackClearTask> fallbackClears = new ArrayList<>();
+        for (PersistenceTask task : tasks) {
+            if (task instanceof ReplayChunkTask replayChunk) {
+                replayChunks.add(replayChunk);
+            } else if (task instanceof FallbackClearTask fallbackClear) {
+                fallbackClears.add(fallbackClear);
+            } else {
+                live.add(task);
+            }
+        }
+        executeBatch(live);
+        for (ReplayChunkTask replayChunk : replayChunks) {
+            executeReplayChunk(replayChunk);
+        }
+        for (FallbackClearTask fallbackClear : fallbackClears) {
+            executeFallbackClear(fallbackClear.done);
+        }
+    }
+
+    private void executeFallbackClear(CompletableFuture<Void> done) {
+        try {
+            fallbackStorage.clearFallbackFile();
+            inFallback.clear();
+            watermarks.fallbackCleared();
+            done.complete(null);
+        } catch (Exception e) {
+            done.completeExceptionally(e);
+        }
+    }
+
+    private void executeReplayChunk(ReplayChunkTask chunk) {
+        if (!chunk.done.take()) {
+            // Cancelled by the replayer while queued
+            return;
+        }
+        PersistenceBatchEvent event = new PersistenceBatchEvent();
+        event.begin();
+        try {
+            applyBatch(chunk.tasks);
+            commit(event, "replay", chunk.tasks, "committed");
+            watermarks.replayed(chunk.tasks);
+            inFallback.removeSeqs(chunk.tasks);
+            chunk.done.complete(null);
+        } catch (Exception e) {
+            commit(event, "replay", chunk.tasks, "failed");
+            // Keep the original exception type so the replayer can tell poison events from outages
+            chunk.done.completeExceptionally(e);
+        }
+    }
+
+    private void commit(PersistenceBatchEvent event, String kind, List<PersistenceTask> tasks, String outcome) {
+        event.end();
+        if (!event.shouldCommit()) {
+            return;
+        }
+        Set<String> sessions = new HashSet<>();
+        int events = 0;
+        for (PersistenceTask task : tasks) {
+            sessions.add(task.getSessionName());
+            events += task.getEventCount();
+        }
+        event.kind = kind;
+        event.tasks = tasks.size();
+        event.events = events;
+        event.sessions = sessions.size();
+        event.outcome = outcome;
+        event.queueSize = taskQueue.size();
+        event.commit();
+    }
+
     /**
      * Executes a single persistence task with retry logic and fallback.
      */
@@ -117,98 +217,161 @@ public class PersistenceWorker {
             return;
         }
 
+        PersistenceBatchEvent event = new PersistenceBatchEvent();
+        event.begin();
         try {
-            transactionTemplate.execute(status -> {
-                try {
-                    applyBatch(tasks);
-                    return null;
-                } catch (Exception e) {
-                    throw new RuntimeException(e);
-                }
-            });
+            applyBatch(tasks);
 
+            commit(event, "live", tasks, "committed");
+            watermarks.committed(tasks);
+            inFlight.removeAll(tasks);
             if (logger.isDebugEnabled()) {
                 logger.debug("Persistence batch completed: {} tasks", tasks.size());
             }
-        } catch (RuntimeException e) {
-            Throwable cause = e.getCause() != null ? e.getCause() : e;
-            logger.error("Persistence batch failed ({} tasks). Attempting fallback storage.", tasks.size(), cause);
+        } catch (Exception e) {
+            logger.error("Persistence batch failed ({} tasks). Attempting fallback storage.", tasks.size(), e);
+            int failed = 0;
+            List<PersistenceTask> held = new ArrayList<>(tasks.size());
+            List<CompletableFuture<Void>> writes = new ArrayList<>(tasks.size());
             for (PersistenceTask task : tasks) {
                 try {
-                    task.writeFallback(fallbackStorage);
-                    logger.warn("Event written to fallback storage: {}", task.getDescription());
+                    writes.add(task.writeFallback(fallbackStorage));
+                    held.add(task);
                 } catch (Exception fallbackEx) {
-                    logger.error("Fallback storage failed for task: {}", task.getDescription(), fallbackEx);
+                    // Whatever part of the task did reach the log is replayed like events left by an
+                    // earlier run; it is not held
+                    failed++;
+                    fallbackFailed(task, fallbackEx);
                 }
             }
-        } catch (Exception e) {
-            logger.error("Unexpected error executing persistence batch", e);
+            // One line per batch rather than per event; an outage fails every batch
+            logger.warn("Persistence batch of {} tasks written to fallback storage ({} failed)", tasks.size(), failed);
+            watermarks.heldInFallback(held);
+            // Indexed as held before leaving the queue index, so a read taking both in that order
+            // never misses them. Only tasks the fallback log accepted are indexed; the rest are lost
+            // and drop out of reads
+            for (PersistenceTask task : held) {
+                inFallback.add(task);
+            }
+            inFlight.removeAll(tasks);
+            // Registered once held and indexed: a write the appender fails later, even before this
+            // runs, releases the hold and drops the events from reads, as a refused one does
+            for (int i = 0; i < held.size(); i++) {
+                PersistenceTask task = held.get(i);
+                writes.get(i).whenComplete((written, writeEx) -> {
+                    if (writeEx != null) {
+                        fallbackFailed(task, writeEx);
+                        inFallback.remove(task);
+                        watermarks.notWritten(task);
+                    }
+                });
+            }
+            commit(event, "live", tasks, "fallback");
+        }
+    }
+
+    private void fallbackFailed(PersistenceTask task, Throwable e) {
+        if (rejectedLog.tryAcquire()) {
+            logger.error("Fallback storage failed for task: {}, suppressed={}",
+                    task.getDescription(), rejectedLog.drainSuppressed(), e);
         }
     }
 
     private void applyBatch(List<PersistenceTask> tasks) throws Exception {
-        Map<String, List<PersistenceTask>> tasksBySession = new LinkedHashMap<>();
+        Map<String, ChannelBatch> batchesByChannel = new LinkedHashMap<>();
         for (PersistenceTask task : tasks) {
-            tasksBySession.computeIfAbsent(task.getSessionName(), k -> new ArrayList<>())
-                    .add(task);
-        }
-
-        for (Map.Entry<String, List<PersistenceTask>> entry : tasksBySession.entrySet()) {
-            String sessionName = entry.getKey();
-            var session = sessionRepository.findBySessionName(sessionName)
-                    .orElseThrow(() -> new PersistenceException("Session '" + sessionName + "' not found for persisting batch"));
-
-            Map<String, Channel> channelCache = buildChannelCache(session);
-            Map<String, List<DrawPayload>> drawEventsByChannel = new LinkedHashMap<>();
-            Map<String, List<ChatMessage>> chatEventsByChannel = new LinkedHashMap<>();
-
-            for (PersistenceTask task : entry.getValue()) {
-                if (task instanceof DrawPersistenceTask drawTask) {
-                    drawEventsByChannel
-                            .computeIfAbsent(task.getChannelName(), k -> new ArrayList<>())
-                            .add(drawTask.payload);
-                } else if (task instanceof ChatPersistenceTask chatTask) {
-                    chatEventsByChannel
-                            .computeIfAbsent(task.getChannelName(), k -> new ArrayList<>())
-                            .add(chatTask.message);
+            ChannelBatch batch = batchesByChannel.computeIfAbsent(task.getSessionName() + '\u0000' + task.getChannelName(),
+                    k -> new ChannelBatch(task.getSessionName(), task.getChannelName()));
+            if (task instanceof ClearPersistenceTask clearTask) {
+                // Shapes the clear covers never need to reach storage; a replayed batch can also hold
+                // shapes drawn after the clear, which must survive it
+                DrawPayload clear = clearTask.clearPayload;
+                if (clear.getSeq() == null) {
+                    batch.shapes.clear();
                 } else {
-                    // Fallback for future task types
-                    task.apply(session);
+                    batch.shapes.removeIf(shape -> shape.getSeq() == null || shape.getSeq() <= clear.getSeq());
                 }
+                if (batch.clear == null || PersistenceTask.seqOf(clear.getSeq()) >= PersistenceTask.seqOf(batch.clear.getSeq())) {
+                    batch.clear = clear;
+                }
+            } else if (task.isChat()) {
+                batch.chatMessages.add(task.getChatMessage());
+            } else {
+                batch.shapes.addAll(task.getDrawPayloads());
             }
+        }
 
-            for (Map.Entry<String, List<DrawPayload>> drawEntry : drawEventsByChannel.entrySet()) {
-                Channel channel = resolveChannel(drawEntry.getKey(), channelCache, session);
-                channel.getShapes().addAll(drawEntry.getValue());
-            }
+        List<ChannelAppend> appends = new ArrayList<>(batchesByChannel.size());
+        for (ChannelBatch batch : batchesByChannel.values()) {
+            appends.add(new ChannelAppend(batch.sessionName, batch.channelName, batch.clear, batch.shapes, batch.chatMessages));
+        }
+        eventStore.append(appends);
+    }
 
-            for (Map.Entry<String, List<ChatMessage>> chatEntry : chatEventsByChannel.entrySet()) {
-                Channel channel = resolveChannel(chatEntry.getKey(), channelCache, session);
-                channel.getChatMessages().addAll(chatEntry.getValue());
-            }
+    private static final class ChannelBatch {
+        final String sessionName;
+        final String channelName;
+        final List<DrawPayload> shapes = new ArrayList<>();
+        final List<ChatMessage> chatMessages = new ArrayList<>();
+        DrawPayload clear;
 
-            sessionRepository.save(session);
+        ChannelBatch(String sessionName, String channelName) {
+            this.sessionName = sessionName;
+            this.channelName = channelName;
         }
     }
 
-    private Map<String, Channel> buildChannelCache(com.masterwayne.whiteboard_app.model.WhiteboardSession session) {
-        Map<String, Channel> cache = new LinkedHashMap<>();
-        if (session.getChannels() != null) {
-            for (Channel channel : session.getChannels()) {
-                cache.put(channel.getChannelName(), channel);
-            }
+    /**
+     * Indexes the task before queueing it, so the worker never removes a task that is not yet indexed.
+     */
+    private boolean enqueue(PersistenceTask task) {
+        inFlight.add(task);
+        if (taskQueue.offer(task)) {
+            return true;
         }
-        return cache;
+        inFlight.remove(task);
+        return false;
     }
 
-    private Channel resolveChannel(String channelName,
-                                   Map<String, Channel> channelCache,
-                                   com.masterwayne.whiteboard_app.model.WhiteboardSession session) throws PersistenceException {
-        Channel channel = channelCache.get(channelName);
-        if (channel == null) {
-            throw new PersistenceException("Channel '" + channelName + "' not found in session");
+    /**
+     * Draw events of a channel accepted but not yet committed, queued or waiting in the fallback log,
+     * in sequence order and including clears. Take this before reading the database: an event that
+     * commits in between then shows up in both, never in neither.
+     */
+    public List<DrawPayload> pendingShapes(String sessionName, String channelName) {
+        return merge(inFlight.draws(sessionName, channelName), inFallback.draws(sessionName, channelName),
+                DrawPayload::getSeq);
+    }
+
+    /**
+     * Chat messages of a channel accepted but not yet committed; see {@link #pendingShapes}.
+     */
+    public List<ChatMessage> pendingChatMessages(String sessionName, String channelName) {
+        return merge(inFlight.chats(sessionName, channelName), inFallback.chats(sessionName, channelName),
+                ChatMessage::getSeq);
+    }
+
+    /**
+     * Releases a fallback event that replay gave up on: it will never be committed, so reads stop
+     * showing it.
+     */
+    public void deadLettered(PersistenceTask task) {
+        inFallback.removeSeqs(List.of(task));
+    }
+
+    // Callers read the queue index first: a failed batch enters the fallback index before it leaves
+    // the queue index, so it is in at least one of the two lists
+    private static <T> List<T> merge(List<T> queued, List<T> held, Function<T, Long> seqOf) {
+        if (held.isEmpty()) {
+            return queued;
         }
-        return channel;
+        if (queued.isEmpty()) {
+            return held;
+        }
+        TreeMap<Long, T> bySeq = new TreeMap<>();
+        held.forEach(event -> bySeq.put(seqOf.apply(event), event));
+        queued.forEach(event -> bySeq.put(seqOf.apply(event), event));
+        return new ArrayList<>(bySeq.values());
     }
 
     /**
@@ -217,15 +380,68 @@ public class PersistenceWorker {
      */
     public boolean submitDrawEvent(String sessionName, String channelName, DrawPayload payload) {
         if (!running) {
-            logger.warn("PersistenceWorker is not running. Event discarded: session={}, channel={}", sessionName, channelName);
+            if (rejectedLog.tryAcquire()) {
+                logger.warn("PersistenceWorker is not running. Event discarded: session={}, channel={}, suppressed={}",
+                        sessionName, channelName, rejectedLog.drainSuppressed());
+            }
             return false;
         }
 
         PersistenceTask task = PersistenceTask.drawTask(sessionName, channelName, payload);
-        boolean submitted = taskQueue.offer(task);
+        boolean submitted = enqueue(task);
 
-        if (!submitted) {
-            logger.error("PersistenceWorker queue full. Event discarded: session={}, channel={}", sessionName, channelName);
+        if (!submitted && rejectedLog.tryAcquire()) {
+            logger.error("PersistenceWorker queue full. Event discarded: session={}, channel={}, suppressed={}",
+                    sessionName, channelName, rejectedLog.drainSuppressed());
+        }
+
+        return submitted;
+    }
+
+    /**
+     * Submits a batch of draw events for one channel as a single queue entry.
+     * Returns false if queue is full (backpressure).
+     */
+    public boolean submitDrawBatch(String sessionName, String channelName, List<DrawPayload> payloads) {
+        if (!running) {
+            if (rejectedLog.tryAcquire()) {
+                logger.warn("PersistenceWorker is not running. Batch of {} events discarded: session={}, channel={}, suppressed={}",
+                        payloads.size(), sessionName, channelName, rejectedLog.drainSuppressed());
+            }
+            return false;
+        }
+
+        PersistenceTask task = PersistenceTask.drawBatchTask(sessionName, channelName, payloads);
+        boolean submitted = enqueue(task);
+
+        if (!submitted && rejectedLog.tryAcquire()) {
+            logger.error("PersistenceWorker queue full. Batch of {} events discarded: session={}, channel={}, suppressed={}",
+                    payloads.size(), sessionName, channelName, rejectedLog.drainSuppressed());
+        }
+
+        return submitted;
+    }
+
+    /**
+     * Submits a channel clear. Queued behind earlier draw events so that persisted state follows
+     * the order in which events were sequenced.
+     * Returns false if queue is full (backpressure).
+     */
+    public boolean submitClear(String sessionName, String channelName, DrawPayload clearPayload) {
+        if (!running) {
+            if (rejectedLog.tryAcquire()) {
+                logger.warn("PersistenceWorker is not running. Clear discarded: session={}, channel={}, suppressed={}",
+                        sessionName, channelName, rejectedLog.drainSuppressed());
+            }
+            return false;
+        }
+
+        PersistenceTask task = PersistenceTask.clearTask(sessionName, channelName, clearPayload);
+        boolean submitted = enqueue(task);
+
+        if (!submitted && rejectedLog.tryAcquire()) {
+            logger.error("PersistenceWorker queue full. Clear discarded: session={}, channel={}, suppressed={}",
+                    sessionName, channelName, rejectedLog.drainSuppressed());
         }
 
         return submitted;
@@ -237,20 +453,79 @@ public class PersistenceWorker {
      */
     public boolean submitChatMessage(String sessionName, String channelName, ChatMessage message) {
         if (!running) {
-            logger.warn("PersistenceWorker is not running. Message discarded: session={}, channel={}", sessionName, channelName);
+            if (rejectedLog.tryAcquire()) {
+                logger.warn("PersistenceWorker is not running. Message discarded: session={}, channel={}, suppressed={}",
+                        sessionName, channelName, rejectedLog.drainSuppressed());
+            }
             return false;
         }
 
         PersistenceTask task = PersistenceTask.chatTask(sessionName, channelName, message);
-        boolean submitted = taskQueue.offer(task);
+        boolean submitted = enqueue(task);
 
-        if (!submitted) {
-            logger.error("PersistenceWorker queue full. Message discarded: session={}, channel={}", sessionName, channelName);
+        if (!submitted && rejectedLog.tryAcquire()) {
+            logger.error("PersistenceWorker queue full. Message discarded: session={}, channel={}, suppressed={}",
+                    sessionName, channelName, rejectedLog.drainSuppressed());
         }
 
         return submitted;
     }
 
+    /**
+     * Queues a chunk of replayed fallback events to be applied as one store append on the worker
+     * thread. The future completes once that append is durable, or exceptionally with the failure;
+     * failed chunks are not written back to fallback storage. Cancelling the future succeeds only
+     * while the chunk is still queued, and then it is never applied.
+     */
+    public CompletableFuture<Void> submitReplayChunk(List<PersistenceTask> tasks) {
+        ReplayChunkTask chunk = new ReplayChunkTask(tasks);
+        if (!running) {
+            chunk.done.completeExceptionally(new RejectedExecutionException("PersistenceWorker is not running"));
+            return chunk.done;
+        }
+        try {
+            if (!taskQueue.offer(chunk, REPLAY_SUBMIT_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                chunk.done.completeExceptionally(new RejectedExecutionException("PersistenceWorker queue full; replay chunk not queued"));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            chunk.done.completeExceptionally(e);
+        }
+        return chunk.done;
+    }
+
+    /**
+     * Deletes the fallback log and forgets the events it held: reads stop showing them and durability
+     * watermarks stop waiting for their replay. Runs on the worker thread between batches, so a batch
+     * failing meanwhile is either cleared with the log or written after it and still held.
+     * Admin operation.
+     */
+    public void clearFallback() throws IOException {
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        if (!running) {
+            executeFallbackClear(done);
+        } else {
+            try {
+                if (!taskQueue.offer(new FallbackClearTask(done), FALLBACK_CLEAR_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    throw new IOException("PersistenceWorker queue full; fallback clear not queued");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while queueing fallback clear", e);
+            }
+        }
+        try {
+            done.get(FALLBACK_CLEAR_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while clearing fallback log", e);
+        } catch (TimeoutException e) {
+            throw new IOException("Timed out waiting for the fallback log to be cleared", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException io ? io : new IOException("Failed to clear fallback log", e.getCause());
+        }
+    }
+
     /**
      * Gracefully shuts down the worker thread, draining remaining tasks before terminating.
      * Called via @PreDestroy.
@@ -287,7 +562,7 @@ public class PersistenceWorker {
             try {
                 List<PersistenceTask> single = new ArrayList<>(1);
                 single.add(remainingTask);
-                executeBatch(single);
+                processBatch(single);
                 drained++;
             } catch (Exception e) {
                 logger.error("Error processing remaining task during shutdown", e);
@@ -327,14 +602,10 @@ public class PersistenceWorker {
         }
 
         /**
-         * Executes the persistence operation (DB write).
+         * Writes the event to fallback storage if DB write failed. Throws if it could not be queued for
+         * writing; the future completes once the appender has written every event of the task.
          */
-    public abstract void apply(com.masterwayne.whiteboard_app.model.WhiteboardSession session) throws Exception;
-
-        /**
-         * Writes the event to fallback storage if DB write failed.
-         */
-        public abstract void writeFallback(FallbackStorage storage);
+        public abstract CompletableFuture<Void> writeFallback(FallbackStorage storage) throws IOException;
 
         /**
          * Returns a human-readable description of the task.
@@ -348,6 +619,20 @@ public class PersistenceWorker {
             return new DrawPersistenceTask(sessionName, channelName, payload);
         }
 
+        /**
+         * Factory method for batched draw event tasks (one channel, many payloads).
+         */
+        public static PersistenceTask drawBatchTask(String sessionName, String channelName, List<DrawPayload> payloads) {
+            return new DrawBatchPersistenceTask(sessionName, channelName, payloads);
+        }
+
+        /**
+         * Factory method for channel clear tasks.
+         */
+        public static PersistenceTask clearTask(String sessionName, String channelName, DrawPayload clearPayload) {
+            return new ClearPersistenceTask(sessionName, channelName, clearPayload);
+        }
+
         /**
          * Factory method for chat message tasks.
          */
@@ -362,6 +647,50 @@ public class PersistenceWorker {
         public String getChannelName() {
             return channelName;
         }
+
+        /**
+         * Returns the number of draw or chat events the task carries.
+         */
+        public int getEventCount() {
+            return 1;
+        }
+
+        /**
+         * True if the task carries chat messages, whose sequence is separate from the draw sequence.
+         */
+        public boolean isChat() {
+            return false;
+        }
+
+        /**
+         * Returns the highest sequence number the task carries, or 0 if its events are unsequenced.
+         */
+        public abstract long getMaxSeq();
+
+        /**
+         * Returns the lowest sequence number the task carries, or 0 if its events are unsequenced.
+         */
+        public long getMinSeq() {
+            return getMaxSeq();
+        }
+
+        /**
+         * Draw events the task carries, clears included; empty for other tasks.
+         */
+        public List<DrawPayload> getDrawPayloads() {
+            return List.of();
+        }
+
+        /**
+         * The chat message the task carries, or null.
+         */
+        public ChatMessage getChatMessage() {
+            return null;
+        }
+
+        protected static long seqOf(Long seq) {
+            return seq != null ? seq : 0L;
+        }
     }
 
     /**
@@ -376,23 +705,187 @@ public class PersistenceWorker {
         }
 
         @Override
-    public void apply(com.masterwayne.whiteboard_app.model.WhiteboardSession session) throws Exception {
-        var channel = session.getChannels().stream()
-            .filter(c -> c.getChannelName().equals(channelName))
-            .findFirst()
-            .orElseThrow(() -> new PersistenceException("Channel '" + channelName + "' not found in session"));
+        public CompletableFuture<Void> writeFallback(FallbackStorage storage) throws IOException {
+            return storage.writeDrawPayload(sessionName, channelName, payload);
+        }
 
-        channel.getShapes().add(payload);
+        @Override
+        public String getDescription() {
+            return String.format("DrawEvent{session='%s', channel='%s', type='%s'}", sessionName, channelName, payload.getType());
         }
 
         @Override
-        public void writeFallback(FallbackStorage storage) {
-            storage.writeDrawPayload(sessionName, channelName, payload);
+        public long getMaxSeq() {
+            return seqOf(payload.getSeq());
+        }
+
+        @Override
+        public List<DrawPayload> getDrawPayloads() {
+            return List.of(payload);
+        }
+    }
+
+    /**
+     * Task for persisting a batch of draw events for a single channel.
+     */
+    private static class DrawBatchPersistenceTask extends PersistenceTask {
+        private final List<DrawPayload> payloads;
+
+        public DrawBatchPersistenceTask(String sessionName, String channelName, List<DrawPayload> payloads) {
+            super(sessionName, channelName);
+            this.payloads = payloads;
+        }
+
+        @Override
+        public CompletableFuture<Void> writeFallback(FallbackStorage storage) throws IOException {
+            CompletableFuture<?>[] written = new CompletableFuture<?>[payloads.size()];
+            for (int i = 0; i < written.length; i++) {
+                written[i] = storage.writeDrawPayload(sessionName, channelName, payloads.get(i));
+            }
+            return CompletableFuture.allOf(written);
         }
 
         @Override
         public String getDescription() {
-            return String.format("DrawEvent{session='%s', channel='%s', type='%s'}", sessionName, channelName, payload.getType());
+            return String.format("DrawBatch{session='%s', channel='%s', size=%d}", sessionName, channelName, payloads.size());
+        }
+
+        @Override
+        public int getEventCount() {
+            return payloads.size();
+        }
+
+        @Override
+        public long getMaxSeq() {
+            long max = 0;
+            for (DrawPayload payload : payloads) {
+                max = Math.max(max, seqOf(payload.getSeq()));
+            }
+            return max;
+        }
+
+        @Override
+        public long getMinSeq() {
+            long min = Long.MAX_VALUE;
+            for (DrawPayload payload : payloads) {
+                long seq = seqOf(payload.getSeq());
+                if (seq > 0) {
+                    min = Math.min(min, seq);
+                }
+            }
+            return min == Long.MAX_VALUE ? 0 : min;
+        }
+
+        @Override
+        public List<DrawPayload> getDrawPayloads() {
+            return payloads;
+        }
+    }
+
+    /**
+     * Task for clearing all shapes of a channel.
+     */
+    private static class ClearPersistenceTask extends PersistenceTask {
+        private final DrawPayload clearPayload;
+
+        public ClearPersistenceTask(String sessionName, String channelName, DrawPayload clearPayload) {
+            super(sessionName, channelName);
+            this.clearPayload = clearPayload;
+        }
+
+        @Override
+        public CompletableFuture<Void> writeFallback(FallbackStorage storage) throws IOException {
+            // Replay treats a DRAW event of type 'clear' as a channel clear
+            return storage.writeDrawPayload(sessionName, channelName, clearPayload);
+        }
+
+        @Override
+        public String getDescription() {
+            return String.format("Clear{session='%s', channel='%s', seq=%s}", sessionName, channelName, clearPayload.getSeq());
+        }
+
+        @Override
+        public long getMaxSeq() {
+            return seqOf(clearPayload.getSeq());
+        }
+
+        @Override
+        public List<DrawPayload> getDrawPayloads() {
+            return List.of(clearPayload);
+        }
+    }
+
+    /**
+     * A chunk of replayed fallback events. Only ever handled by processBatch; the events are still in
+     * the fallback log, so there is nothing to fall back to.
+     */
+    private static class ReplayChunkTask extends PersistenceTask {
+        private final List<PersistenceTask> tasks;
+        private final ChunkFuture done = new ChunkFuture();
+
+        public ReplayChunkTask(List<PersistenceTask> tasks) {
+            super(null, null);
+            this.tasks = tasks;
+        }
+
+        @Override
+        public CompletableFuture<Void> writeFallback(FallbackStorage storage) {
+            // Events are still in the fallback log
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public String getDescription() {
+            return String.format("ReplayChunk{size=%d}", tasks.size());
+        }
+
+        @Override
+        public long getMaxSeq() {
+            return 0;
+        }
+    }
+
+    /**
+     * Completion of a replay chunk that can only be cancelled before the worker takes the chunk.
+     */
+    private static final class ChunkFuture extends CompletableFuture<Void> {
+        private final AtomicBoolean taken = new AtomicBoolean();
+
+        /** Claims the chunk for the worker; false if it was cancelled first. */
+        boolean take() {
+            return taken.compareAndSet(false, true);
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            return taken.compareAndSet(false, true) && super.cancel(mayInterruptIfRunning);
+        }
+    }
+
+    /**
+     * Clears the fallback log on the worker thread; only ever handled by processBatch.
+     */
+    private static class FallbackClearTask extends PersistenceTask {
+        private final CompletableFuture<Void> done;
+
+        public FallbackClearTask(CompletableFuture<Void> done) {
+            super(null, null);
+            this.done = done;
+        }
+
+        @Override
+        public CompletableFuture<Void> writeFallback(FallbackStorage storage) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        @Override
+        public String getDescription() {
+            return "FallbackClear";
+        }
+
+        @Override
+        public long getMaxSeq() {
+            return 0;
         }
     }
 
@@ -408,23 +901,28 @@ public class PersistenceWorker {
         }
 
         @Override
-    public void apply(com.masterwayne.whiteboard_app.model.WhiteboardSession session) throws Exception {
-        var channel = session.getChannels().stream()
-            .filter(c -> c.getChannelName().equals(channelName))
-            .findFirst()
-            .orElseThrow(() -> new PersistenceException("Channel '" + channelName + "' not found in session"));
+        public CompletableFuture<Void> writeFallback(FallbackStorage storage) throws IOException {
+            return storage.writeChatMessage(sessionName, channelName, message);
+        }
+
+        @Override
+        public String getDescription() {
+            return String.format("ChatMessage{session='%s', channel='%s', sender='%s'}", sessionName, channelName, message.getSenderName());
+        }
 
-        channel.getChatMessages().add(message);
+        @Override
+        public boolean isChat() {
+            return true;
         }
 
         @Override
-        public void writeFallback(FallbackStorage storage) {
-            storage.writeChatMessage(sessionName, channelName, message);
+        public long getMaxSeq() {
+            return seqOf(message.getSeq());
         }
 
         @Override
-        public String getDescription() {
-            return String.format("ChatMessage{session='%s', channel='%s', sender='%s'}", sessionName, channelName, message.getSenderName());
+        public ChatMessage getChatMessage() {
+            return message;
         }
     }
 }
@@ -0,0 +1,97 @@
+package com.masterwayne.whiteboard_app.persistence;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of one background fallback replay, updated by {@link FallbackReplayer} after every chunk.
+ */
+public class ReplayJob {
+
+    public enum State { QUEUED, RUNNING, PAUSED, COMPLETED, ABORTED, CANCELLED }
+
+    private final String id;
+    private final int maxEventsPerSecond;
+    private final Instant createdAt = Instant.now();
+    private final AtomicLong replayed = new AtomicLong();
+    private final AtomicLong deadLettered = new AtomicLong();
+    private final AtomicLong chunks = new AtomicLong();
+    private volatile State state = State.QUEUED;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile String message;
+    private volatile boolean cancelRequested;
+
+    public ReplayJob(String id, int maxEventsPerSecond) {
+        this.id = id;
+        this.maxEventsPerSecond = maxEventsPerSecond;
+    }
+
+    void markStarted() {
+        startedAt = Instant.now();
+        state = State.RUNNING;
+    }
+
+    void markPaused(boolean paused) {
+        if (state == State.RUNNING || state == State.PAUSED) {
+            state = paused ? State.PAUSED : State.RUNNING;
+        }
+    }
+
+    void recordChunk(long replayedEvents, long deadLetteredEvents) {
+        replayed.addAndGet(replayedEvents);
+        deadLettered.addAndGet(deadLetteredEvents);
+        chunks.incrementAndGet();
+    }
+
+    void markFinished(FallbackReplayer.ReplayReport report) {
+        finishedAt = Instant.now();
+        message = report.abortReason();
+        if (cancelRequested) {
+            state = State.CANCELLED;
+        } else {
+            state = report.aborted() ? State.ABORTED : State.COMPLETED;
+        }
+    }
+
+    public void requestCancel() {
+        cancelRequested = true;
+    }
+
+    public boolean isCancelRequested() {
+        return cancelRequested;
+    }
+
+    public boolean isFinished() {
+        return state == State.COMPLETED || state == State.ABORTED || state == State.CANCELLED;
+    }
+
+    /**
+     * Events handled so far (replayed or dead-lettered) per second of running time.
+     */
+    public double getEventsPerSecond() {
+        Instant start = startedAt;
+        if (start == null) {
+            return 0;
+        }
+        Instant end = finishedAt != null ? finishedAt : Instant.now();
+        long millis = Math.max(1, Duration.between(start, end).toMillis());
+        return getProcessed() * 1000.0 / millis;
+    }
+
+    public long getProcessed() {
+        return replayed.get() + deadLettered.get();
+    }
+
+    public String getId() { return id; }
+    public int getMaxEventsPerSecond() { return maxEventsPerSecond; }
+    public Instant getCreatedAt() { return createdAt; }
+    public Instant getStartedAt() { return startedAt; }
+    public Instant getFinishedAt() { return finishedAt; }
+    public State getState() { return state; }
+    public String getMessage() { return message; }
+    public long getReplayed() { return replayed.get(); }
+    public long getDeadLettered() { return deadLettered.get(); }
+    public long getChunks() { return chunks.get(); }
+}
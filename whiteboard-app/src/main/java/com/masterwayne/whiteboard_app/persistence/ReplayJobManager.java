@@ -0,0 +1,110 @@
+package com.masterwayne.whiteboard_app.persistence;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs fallback replays as background jobs so callers (REST, scheduler) never block on them.
+ *
+ * Design:
+ * - One dedicated replay thread; at most one job runs at a time and submitting while one is active
+ *   returns the active job
+ * - The most recent jobs are kept in memory for status queries
+ * - On shutdown the active job is cancelled between chunks; its checkpoint is already persisted
+ */
+@Component
+public class ReplayJobManager {
+    private static final Logger logger = LoggerFactory.getLogger(ReplayJobManager.class);
+    private static final int MAX_RETAINED_JOBS = 20;
+    private static final int SHUTDOWN_TIMEOUT_SECONDS = 10;
+
+    private final FallbackReplayer fallbackReplayer;
+    private final ExecutorService executor;
+    private final Map<String, ReplayJob> jobs = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ReplayJob> eldest) {
+            return size() > MAX_RETAINED_JOBS;
+        }
+    };
+    private ReplayJob activeJob;
+
+    @Autowired
+    public ReplayJobManager(FallbackReplayer fallbackReplayer) {
+        this.fallbackReplayer = fallbackReplayer;
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "FallbackReplayJob");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Starts a replay job, or returns the one already queued or running.
+     *
+     * @param maxEventsPerSecond rate cap for this job; 0 or less uses the configured default
+     */
+    public synchronized ReplayJob submit(int maxEventsPerSecond) {
+        if (activeJob != null && !activeJob.isFinished()) {
+            return activeJob;
+        }
+        ReplayJob job = new ReplayJob(UUID.randomUUID().toString(), maxEventsPerSecond);
+        jobs.put(job.getId(), job);
+        activeJob = job;
+        executor.submit(() -> run(job));
+        logger.info("Fallback replay job {} queued (maxEventsPerSecond={})", job.getId(), maxEventsPerSecond);
+        return job;
+    }
+
+    public synchronized Optional<ReplayJob> find(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId));
+    }
+
+    public synchronized List<ReplayJob> recentJobs() {
+        return new ArrayList<>(jobs.values());
+    }
+
+    public synchronized Optional<ReplayJob> activeJob() {
+        return Optional.ofNullable(activeJob).filter(job -> !job.isFinished());
+    }
+
+    private void run(ReplayJob job) {
+        job.markStarted();
+        try {
+            FallbackReplayer.ReplayReport report = fallbackReplayer.replay(job);
+            job.markFinished(report);
+            logger.info("Fallback replay job {} finished: state={}, replayed={}, deadLettered={}",
+                    job.getId(), job.getState(), job.getReplayed(), job.getDeadLettered());
+        } catch (RuntimeException e) {
+            logger.error("Fallback replay job {} failed", job.getId(), e);
+            job.markFinished(new FallbackReplayer.ReplayReport(job.getReplayed(), job.getDeadLettered(),
+                    job.getChunks(), true, e.getMessage()));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        activeJob().ifPresent(ReplayJob::requestCancel);
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.masterwayne.whiteboard_app.repository;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Answers "does this session have this channel" for the history read path and for event stores
+ * that keep history outside the database.
+ *
+ * Design:
+ * - Channels are never renamed or deleted, so a positive answer is cached for the life of the
+ *   process; misses always go to the database, so unknown names cannot grow the cache
+ */
+@Component
+public class ChannelDirectory {
+    private final ChannelRepository channelRepository;
+    private final WhiteboardSessionRepository sessionRepository;
+    private final Set<String> knownChannels = ConcurrentHashMap.newKeySet();
+
+    public ChannelDirectory(ChannelRepository channelRepository, WhiteboardSessionRepository sessionRepository) {
+        this.channelRepository = channelRepository;
+        this.sessionRepository = sessionRepository;
+    }
+
+    public boolean channelExists(String sessionName, String channelName) {
+        String key = sessionName + '\u0000' + channelName;
+        if (knownChannels.contains(key)) {
+            return true;
+        }
+        if (!channelRepository.existsBySession_SessionNameAndChannelName(sessionName, channelName)) {
+            return false;
+        }
+        knownChannels.add(key);
+        return true;
+    }
+
+    public boolean sessionExists(String sessionName) {
+        return sessionRepository.existsBySessionName(sessionName);
+    }
+}
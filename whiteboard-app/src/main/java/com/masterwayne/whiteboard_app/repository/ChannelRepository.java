@@ -0,0 +1,90 @@
+package com.masterwayne.whiteboard_app.repository;
+
+import com.masterwayne.whiteboard_app.model.Channel;
+import com.masterwayne.whiteboard_app.model.ChatMessage;
+import com.masterwayne.whiteboard_app.model.DrawPayload;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Channel-scoped queries that read single element collections without loading the whole session graph.
+ */
+public interface ChannelRepository extends JpaRepository<Channel, Long> {
+
+    boolean existsBySession_SessionNameAndChannelName(String sessionName, String channelName);
+
+    @Query("select max(s.seq) from Channel c join c.shapes s " +
+            "where c.session.sessionName = :sessionName and c.channelName = :channelName")
+    Long findMaxShapeSeq(@Param("sessionName") String sessionName, @Param("channelName") String channelName);
+
+    @Query("select c.clearedThroughSeq from Channel c " +
+            "where c.session.sessionName = :sessionName and c.channelName = :channelName")
+    Long findClearedThroughSeq(@Param("sessionName") String sessionName, @Param("channelName") String channelName);
+
+    @Query("select max(m.seq) from Channel c join c.chatMessages m " +
+            "where c.session.sessionName = :sessionName and c.channelName = :channelName")
+    Long findMaxChatSeq(@Param("sessionName") String sessionName, @Param("channelName") String channelName);
+
+    @Query("select s from Channel c join c.shapes s " +
+            "where c.session.sessionName = :sessionName and c.channelName = :channelName")
+    List<DrawPayload> findShapes(@Param("sessionName") String sessionName, @Param("channelName") String channelName);
+
+    @Query("select m from Channel c join c.chatMessages m " +
+            "where c.session.sessionName = :sessionName and c.channelName = :channelName")
+    List<ChatMessage> findChatMessages(@Param("sessionName") String sessionName, @Param("channelName") String channelName);
+
+    @Query("select count(s) from Channel c join c.shapes s " +
+            "where c.session.sessionName = :sessionName and c.channelName = :channelName")
+    long countShapes(@Param("sessionName") String sessionName, @Param("channelName") String channelName);
+
+    @Query("select count(m) from Channel c join c.chatMessages m " +
+            "where c.session.sessionName = :sessionName and c.channelName = :channelName")
+    long countChatMessages(@Param("sessionName") String sessionName, @Param("channelName") String channelName);
+
+    @Query("select s.seq from Channel c join c.shapes s " +
+            "where c.session.sessionName = :sessionName and c.channelName = :channelName " +
+            "and s.seq between :fromSeq and :toSeq")
+    List<Long> findShapeSeqsBetween(@Param("sessionName") String sessionName,
+                                    @Param("channelName") String channelName,
+                                    @Param("fromSeq") long fromSeq,
+                                    @Param("toSeq") long toSeq);
+
+    @Query("select m.seq from Channel c join c.chatMessages m " +
+            "where c.session.sessionName = :sessionName and c.channelName = :channelName " +
+            "and m.seq between :fromSeq and :toSeq")
+    List<Long> findChatSeqsBetween(@Param("sessionName") String sessionName,
+                                   @Param("channelName") String channelName,
+                                   @Param("fromSeq") long fromSeq,
+                                   @Param("toSeq") long toSeq);
+
+    @Query("select s from Channel c join c.shapes s " +
+            "where c.session.sessionName = :sessionName and c.channelName = :channelName " +
+            "and s.seq > :afterSeq and s.seq <= :toSeq order by s.seq")
+    List<DrawPayload> findShapesInRange(@Param("sessionName") String sessionName,
+                                        @Param("channelName") String channelName,
+                                        @Param("afterSeq") long afterSeq,
+                                        @Param("toSeq") long toSeq);
+
+    @Query("select m from Channel c join c.chatMessages m " +
+            "where c.session.sessionName = :sessionName and c.channelName = :channelName " +
+            "and m.seq > :afterSeq and m.seq <= :toSeq order by m.seq")
+    List<ChatMessage> findChatMessagesInRange(@Param("sessionName") String sessionName,
+                                              @Param("channelName") String channelName,
+                                              @Param("afterSeq") long afterSeq,
+                                              @Param("toSeq") long toSeq);
+
+    /**
+     * Every attachment URL in chat history, streamed in fetch-size batches (call inside a transaction
+     * and close the stream); only the URL column is read, never the messages.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select m.attachmentUrl from Channel c join c.chatMessages m where m.attachmentUrl is not null")
+    Stream<String> streamAttachmentUrls();
+}
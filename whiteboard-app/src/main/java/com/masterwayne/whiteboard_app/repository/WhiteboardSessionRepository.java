@@ -9,6 +9,8 @@ import java.util.Optional;
 public interface WhiteboardSessionRepository extends JpaRepository<WhiteboardSession, Long> {
     Optional<WhiteboardSession> findBySessionName(String sessionName);
 
+    boolean existsBySessionName(String sessionName);
+
     @EntityGraph(attributePaths = {"manager"})
     Optional<WhiteboardSession> findWithManagerBySessionName(String sessionName);
 
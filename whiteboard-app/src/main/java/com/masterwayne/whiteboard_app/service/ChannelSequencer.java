@@ -0,0 +1,108 @@
+package com.masterwayne.whiteboard_app.service;
+
+import com.masterwayne.whiteboard_app.repository.ChannelDirectory;
+import com.masterwayne.whiteboard_app.storage.ChannelEventStore;
+import com.masterwayne.whiteboard_app.storage.FallbackStorage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiPredicate;
+
+/**
+ * Hands out monotonic per-channel sequence numbers for draw and chat events.
+ *
+ * Design:
+ * - One {@link Sequence} per session/channel/stream, lazily seeded from the highest seq the store
+ *   has seen (a clear does not lower it) and the highest seq still waiting in the fallback log
+ * - Only channels that exist are seeded, so names made up by a client cannot grow the map; channels
+ *   are never deleted (see {@link ChannelDirectory}), so entries are bounded by the real channels
+ * - A failed seed is not cached: the event that needed it is rejected and the next one retries,
+ *   since starting over at 0 would hand out seqs that are already taken
+ * - Callers hold the sequence monitor while stamping, enqueueing for persistence and broadcasting,
+ *   so queue order and broker order both follow sequence order
+ * - Clients detect a missed frame as a gap in seq and fetch only the missing range
+ */
+@Component
+public class ChannelSequencer {
+    public enum Stream { DRAW, CHAT }
+
+    private final ChannelEventStore eventStore;
+    private final FallbackStorage fallbackStorage;
+    private final BiPredicate<String, String> channelExists;
+    private final ConcurrentMap<String, Sequence> sequences = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ChannelSequencer(ChannelEventStore eventStore, FallbackStorage fallbackStorage,
+                            ChannelDirectory channelDirectory) {
+        this(eventStore, fallbackStorage, channelDirectory::channelExists);
+    }
+
+    public ChannelSequencer(ChannelEventStore eventStore, FallbackStorage fallbackStorage,
+                            BiPredicate<String, String> channelExists) {
+        this.eventStore = eventStore;
+        this.fallbackStorage = fallbackStorage;
+        this.channelExists = channelExists;
+    }
+
+    /**
+     * Returns the sequence for a channel stream. Synchronize on the returned object while stamping
+     * and publishing so that ordering is preserved end to end.
+     *
+     * @throws IllegalArgumentException if the sequence is not seeded yet and the channel does not exist
+     * @throws IllegalStateException if the sequence is not seeded yet and the seed lookup fails
+     */
+    public Sequence sequenceFor(String sessionName, String channelName, Stream stream) {
+        String key = sessionName + '\u0000' + channelName + '\u0000' + stream;
+        Sequence sequence = sequences.get(key);
+        if (sequence != null) {
+            return sequence;
+        }
+        if (!channelExists.test(sessionName, channelName)) {
+            throw new IllegalArgumentException("Channel '" + channelName + "' not found in session '" + sessionName + "'");
+        }
+        // Seed outside computeIfAbsent so the map is not locked during the store round trip
+        Sequence seeded = new Sequence(loadHighestPersistedSeq(sessionName, channelName, stream));
+        Sequence existing = sequences.putIfAbsent(key, seeded);
+        return existing != null ? existing : seeded;
+    }
+
+    /**
+     * Returns the last sequence number handed out for a channel stream without allocating a new one.
+     */
+    public long currentSeq(String sessionName, String channelName, Stream stream) {
+        return sequenceFor(sessionName, channelName, stream).current();
+    }
+
+    private long loadHighestPersistedSeq(String sessionName, String channelName, Stream stream) {
+        try {
+            long stored = stream == Stream.DRAW
+                    ? eventStore.maxShapeSeq(sessionName, channelName)
+                    : eventStore.maxChatSeq(sessionName, channelName);
+            return Math.max(stored, fallbackStorage.highestPendingSeq(sessionName, channelName, stream == Stream.CHAT));
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to seed " + stream + " sequence for session='" + sessionName
+                    + "', channel='" + channelName + "'", e);
+        }
+    }
+
+    /**
+     * Monotonic counter for one channel stream.
+     */
+    public static final class Sequence {
+        private long last;
+
+        private Sequence(long last) {
+            this.last = last;
+        }
+
+        public synchronized long next() {
+            return ++last;
+        }
+
+        public synchronized long current() {
+            return last;
+        }
+    }
+}
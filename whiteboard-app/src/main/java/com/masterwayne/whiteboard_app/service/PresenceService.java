@@ -0,0 +1,162 @@
+package com.masterwayne.whiteboard_app.service;
+
+import com.masterwayne.whiteboard_app.dto.PresenceSnapshot;
+import com.masterwayne.whiteboard_app.dto.PresenceUpdate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Last-value-wins cursor/presence state, fanned out to /topic/presence/{sessionName} at a fixed tick.
+ *
+ * Design:
+ * - Each client's latest update overwrites the previous one (conflation), so memory is O(participants)
+ * - Only clients that changed since the last tick are sent, plus clients that disconnected
+ * - Nothing here touches the database or the persistence queue
+ * - Entries are evicted when the WebSocket connection closes (see WebSocketInterceptor); the client
+ *   is remembered as closed for a grace period, so a presence frame still queued behind the close
+ *   on the inbound channel cannot bring its cursor back
+ */
+@Service
+public class PresenceService {
+    private static final Logger log = LoggerFactory.getLogger(PresenceService.class);
+    // Far longer than a frame waits in the inbound queue; STOMP session ids are never reused
+    private static final long CLOSED_GRACE_MS = 60_000;
+
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ConcurrentMap<String, SessionPresence> sessions = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, String> sessionByClient = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Long> closedAt = new ConcurrentHashMap<>();
+
+    @Autowired
+    public PresenceService(SimpMessagingTemplate messagingTemplate) {
+        this.messagingTemplate = messagingTemplate;
+    }
+
+    /**
+     * Records the latest state for a client, replacing whatever was pending for it. Updates from a
+     * client whose connection has closed are ignored.
+     */
+    public void update(String sessionName, String clientId, PresenceUpdate update) {
+        if (sessionName == null || clientId == null || update == null || closedAt.containsKey(clientId)) {
+            return;
+        }
+        update.setClientId(clientId);
+        update.setUpdatedAt(System.currentTimeMillis());
+
+        String previousSession = sessionByClient.put(clientId, sessionName);
+        if (previousSession != null && !previousSession.equals(sessionName)) {
+            removeClient(previousSession, clientId);
+        }
+
+        // compute() keeps this atomic with the empty-session cleanup in flush()
+        sessions.compute(sessionName, (k, presence) -> {
+            SessionPresence target = presence != null ? presence : new SessionPresence();
+            target.latest.put(clientId, update);
+            target.dirty.add(clientId);
+            return target;
+        });
+
+        // evict() marks the client closed before removing it, so if the close landed after the check
+        // above and its removal ran before this update was recorded, this sees the mark and undoes it
+        if (closedAt.containsKey(clientId)) {
+            sessionByClient.remove(clientId, sessionName);
+            removeClient(sessionName, clientId);
+        }
+    }
+
+    /**
+     * Drops all state for a disconnected client; remaining clients are told on the next tick.
+     */
+    public void evict(String clientId) {
+        if (clientId == null) {
+            return;
+        }
+        closedAt.put(clientId, System.currentTimeMillis());
+        String sessionName = sessionByClient.remove(clientId);
+        if (sessionName != null) {
+            removeClient(sessionName, clientId);
+            log.debug("Presence evicted: session='{}', client='{}'", sessionName, clientId);
+        }
+    }
+
+    // Under computeIfPresent, like the idle cleanup in flush(): otherwise flush() could drop the entry
+    // between the client leaving latest and its departure being recorded, and the departure is lost
+    private void removeClient(String sessionName, String clientId) {
+        sessions.computeIfPresent(sessionName, (k, presence) -> {
+            if (presence.latest.remove(clientId) != null) {
+                presence.dirty.remove(clientId);
+                presence.departed.add(clientId);
+            }
+            return presence;
+        });
+    }
+
+    /**
+     * Returns the current state of every client in a session (e.g. for late joiners).
+     */
+    public List<PresenceUpdate> snapshot(String sessionName) {
+        SessionPresence presence = sessions.get(sessionName);
+        return presence != null ? new ArrayList<>(presence.latest.values()) : List.of();
+    }
+
+    @Scheduled(fixedRateString = "${whiteboard.presence.tick-ms:50}")
+    public void flush() {
+        for (Map.Entry<String, SessionPresence> entry : sessions.entrySet()) {
+            String sessionName = entry.getKey();
+            SessionPresence presence = entry.getValue();
+
+            List<PresenceUpdate> updates = new ArrayList<>();
+            for (String clientId : presence.dirty) {
+                presence.dirty.remove(clientId);
+                PresenceUpdate latest = presence.latest.get(clientId);
+                if (latest != null) {
+                    updates.add(latest);
+                }
+            }
+            List<String> departed = new ArrayList<>();
+            for (String clientId : presence.departed) {
+                presence.departed.remove(clientId);
+                departed.add(clientId);
+            }
+
+            if (!updates.isEmpty() || !departed.isEmpty()) {
+                try {
+                    messagingTemplate.convertAndSend("/topic/presence/" + sessionName,
+                            new PresenceSnapshot(sessionName, updates, departed));
+                } catch (MessagingException e) {
+                    log.warn("Failed to fan out presence for session='{}'", sessionName, e);
+                }
+            }
+
+            sessions.computeIfPresent(sessionName, (k, current) -> current.isIdle() ? null : current);
+        }
+
+        long expired = System.currentTimeMillis() - CLOSED_GRACE_MS;
+        closedAt.values().removeIf(closed -> closed < expired);
+    }
+
+    /**
+     * Per-session presence state; every structure is bounded by the number of connected clients.
+     */
+    private static final class SessionPresence {
+        private final ConcurrentMap<String, PresenceUpdate> latest = new ConcurrentHashMap<>();
+        private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+        private final Set<String> departed = ConcurrentHashMap.newKeySet();
+
+        private boolean isIdle() {
+            return latest.isEmpty() && dirty.isEmpty() && departed.isEmpty();
+        }
+    }
+}
@@ -1,6 +1,8 @@
 package com.masterwayne.whiteboard_app.service;
 
+import com.masterwayne.whiteboard_app.diagnostics.LogRateLimiter;
 import com.masterwayne.whiteboard_app.dto.ChatPayload;
+import com.masterwayne.whiteboard_app.dto.DurabilityStatus;
 import com.masterwayne.whiteboard_app.exception.SessionException;
 import com.masterwayne.whiteboard_app.model.DrawPayload;
 import com.masterwayne.whiteboard_app.model.Channel;
@@ -8,13 +10,20 @@ import com.masterwayne.whiteboard_app.model.ChatMessage;
 import com.masterwayne.whiteboard_app.model.Participant;
 import com.masterwayne.whiteboard_app.model.SessionManager;
 import com.masterwayne.whiteboard_app.model.WhiteboardSession;
+import com.masterwayne.whiteboard_app.persistence.DurabilityWatermarks;
+import com.masterwayne.whiteboard_app.persistence.FallbackReplayer;
 import com.masterwayne.whiteboard_app.persistence.PersistenceWorker;
+import com.masterwayne.whiteboard_app.persistence.ReplayJob;
+import com.masterwayne.whiteboard_app.persistence.ReplayJobManager;
+import com.masterwayne.whiteboard_app.repository.ChannelDirectory;
 import com.masterwayne.whiteboard_app.repository.WhiteboardSessionRepository;
+import com.masterwayne.whiteboard_app.storage.ChannelEventStore;
 import com.masterwayne.whiteboard_app.storage.FallbackStorage;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.lang.NonNull;
+import org.springframework.messaging.MessagingException;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -25,8 +34,11 @@ import jakarta.annotation.PostConstruct;
 import java.util.List;
 import java.util.ArrayList;
 import jakarta.annotation.PreDestroy;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
 import java.util.Optional;
 import java.util.Map;
 import java.util.Objects;
@@ -36,23 +48,46 @@ import java.util.stream.Collectors;
 @Service
 public class WhiteboardService {
     private final WhiteboardSessionRepository sessionRepository;
+    private final ChannelDirectory channelDirectory;
+    private final ChannelEventStore eventStore;
     private final PersistenceWorker persistenceWorker;
     private final FallbackStorage fallbackStorage;
-    private final ObjectMapper objectMapper;
+    private final FallbackReplayer fallbackReplayer;
+    private final ReplayJobManager replayJobManager;
+    private final ChannelSequencer sequencer;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final DurabilityWatermarks watermarks;
     @Value("${whiteboard.replay.enabled:true}")
     private boolean replayEnabled;
     private static final Logger log = LoggerFactory.getLogger(WhiteboardService.class);
+    private static final int MAX_DRAW_BATCH_SIZE = 500;
+
+    // Per-event log lines on the draw/chat path; a flood would otherwise cost more than the event itself
+    private final LogRateLimiter eventDebugLog = new LogRateLimiter(20, Duration.ofSeconds(1));
+    private final LogRateLimiter rejectedLog = new LogRateLimiter(5, Duration.ofSeconds(1));
 
     @Autowired
     public WhiteboardService(
             WhiteboardSessionRepository sessionRepository,
+            ChannelDirectory channelDirectory,
+            ChannelEventStore eventStore,
             PersistenceWorker persistenceWorker,
             FallbackStorage fallbackStorage,
-            ObjectMapper objectMapper) {
+            FallbackReplayer fallbackReplayer,
+            ReplayJobManager replayJobManager,
+            ChannelSequencer sequencer,
+            SimpMessagingTemplate messagingTemplate,
+            DurabilityWatermarks watermarks) {
         this.sessionRepository = sessionRepository;
+        this.channelDirectory = channelDirectory;
+        this.eventStore = eventStore;
         this.persistenceWorker = persistenceWorker;
         this.fallbackStorage = fallbackStorage;
-        this.objectMapper = objectMapper;
+        this.fallbackReplayer = fallbackReplayer;
+        this.replayJobManager = replayJobManager;
+        this.sequencer = sequencer;
+        this.messagingTemplate = messagingTemplate;
+        this.watermarks = watermarks;
     }
 
     @PostConstruct
@@ -146,35 +181,140 @@ public class WhiteboardService {
         }
     }
 
-    @Transactional
-    public void addShape(String sessionName, String channelName, DrawPayload payload) {
+    /**
+     * Stamps the event with the next draw sequence for the channel, enqueues it for persistence and
+     * broadcasts it, all while holding the channel sequence so that both orders match seq order.
+     * Previews are broadcast unsequenced, with any client-sent seq removed, and never persisted.
+     */
+    public void addShape(String sessionName, String channelName, DrawPayload payload) throws SessionException {
+        requireChannel(sessionName, channelName);
         String type = payload.getType();
 
-        if (type != null && (type.startsWith("shape-preview") || type.startsWith("line-segment-preview"))) {
-            log.trace("Skipping preview event: type={}", type);
+        if (isPreviewType(type)) {
+            log.trace("Skipping persistence for preview event: type={}", type);
+            // A client-sent seq would look like a real gap or duplicate to the other clients
+            payload.setSeq(null);
+            broadcast(drawTopic(sessionName, channelName), payload);
             return;
         }
 
-        if ("clear".equals(type)) {
-            log.debug("Clear event received for session='{}', channel='{}'", sessionName, channelName);
-            clearShapes(sessionName, channelName);
+        ChannelSequencer.Sequence sequence = sequencer.sequenceFor(sessionName, channelName, ChannelSequencer.Stream.DRAW);
+        synchronized (sequence) {
+            payload.setSeq(sequence.next());
+
+            if ("clear".equals(type)) {
+                log.debug("Clear event received for session='{}', channel='{}', seq={}", sessionName, channelName, payload.getSeq());
+                submitClear(sessionName, channelName, payload);
+            } else {
+                // Ensure older DB schemas (created when some fields were primitives) don't reject newer
+                // event types like 'text'/'text-move'/'text-delete' due to NOT NULL constraints.
+                normalizeDrawPayloadForPersistence(payload);
+
+                if (log.isDebugEnabled() && eventDebugLog.tryAcquire()) {
+                    log.debug("Submitting shape for async persistence: session='{}', channel='{}', type='{}', seq={}, suppressed={}",
+                            sessionName, channelName, payload.getType(), payload.getSeq(), eventDebugLog.drainSuppressed());
+                }
+
+                boolean submitted = persistenceWorker.submitDrawEvent(sessionName, channelName, payload);
+                if (!submitted && rejectedLog.tryAcquire()) {
+                    log.error("Failed to submit draw event to persistence queue - queue may be full: session='{}', channel='{}', suppressed={}",
+                            sessionName, channelName, rejectedLog.drainSuppressed());
+                }
+            }
+
+            broadcast(drawTopic(sessionName, channelName), payload);
+        }
+    }
+
+    /**
+     * Accepts a client-side buffered batch of draw events for one channel. The batch is validated once,
+     * stamped with a contiguous run of sequence numbers, handed to the persistence worker as a single
+     * queue entry instead of one entry per segment and broadcast as one frame.
+     * A 'clear' inside the batch splits it so that the events drawn after the clear survive.
+     */
+    public void addShapes(String sessionName, String channelName, List<DrawPayload> payloads) throws SessionException {
+        if (payloads == null || payloads.isEmpty()) {
+            throw new SessionException("Draw batch for channel '" + channelName + "' is empty");
+        }
+        if (payloads.size() > MAX_DRAW_BATCH_SIZE) {
+            throw new SessionException("Draw batch for channel '" + channelName + "' exceeds "
+                    + MAX_DRAW_BATCH_SIZE + " events (" + payloads.size() + ")");
+        }
+        for (DrawPayload payload : payloads) {
+            if (payload == null) {
+                throw new SessionException("Draw batch for channel '" + channelName + "' contains a null event");
+            }
+        }
+        requireChannel(sessionName, channelName);
+
+        ChannelSequencer.Sequence sequence = sequencer.sequenceFor(sessionName, channelName, ChannelSequencer.Stream.DRAW);
+        synchronized (sequence) {
+            List<DrawPayload> pending = new ArrayList<>(payloads.size());
+            for (DrawPayload payload : payloads) {
+                if (isPreviewType(payload.getType())) {
+                    payload.setSeq(null);
+                    continue;
+                }
+                payload.setSeq(sequence.next());
+                if ("clear".equals(payload.getType())) {
+                    submitDrawBatch(sessionName, channelName, pending);
+                    pending = new ArrayList<>();
+                    submitClear(sessionName, channelName, payload);
+                    continue;
+                }
+                normalizeDrawPayloadForPersistence(payload);
+                pending.add(payload);
+            }
+            submitDrawBatch(sessionName, channelName, pending);
+
+            broadcast(drawTopic(sessionName, channelName), payloads);
+        }
+    }
+
+    private void submitDrawBatch(String sessionName, String channelName, List<DrawPayload> batch) {
+        if (batch.isEmpty()) {
             return;
         }
+        if (log.isDebugEnabled() && eventDebugLog.tryAcquire()) {
+            log.debug("Submitting draw batch for async persistence: session='{}', channel='{}', size={}, suppressed={}",
+                    sessionName, channelName, batch.size(), eventDebugLog.drainSuppressed());
+        }
 
-        // Ensure older DB schemas (created when some fields were primitives) don't reject newer
-        // event types like 'text'/'text-move'/'text-delete' due to NOT NULL constraints.
-        normalizeDrawPayloadForPersistence(payload);
+        boolean submitted = persistenceWorker.submitDrawBatch(sessionName, channelName, batch);
+        if (!submitted && rejectedLog.tryAcquire()) {
+            log.error("Failed to submit draw batch to persistence queue - queue may be full: session='{}', channel='{}', size={}, suppressed={}",
+                    sessionName, channelName, batch.size(), rejectedLog.drainSuppressed());
+        }
+    }
 
-        log.debug("Submitting shape for async persistence: session='{}', channel='{}', type='{}'",
-                sessionName, channelName, payload.getType());
-        
-        boolean submitted = persistenceWorker.submitDrawEvent(sessionName, channelName, payload);
-        if (!submitted) {
-            log.error("Failed to submit draw event to persistence queue - queue may be full: session='{}', channel='{}'",
-                    sessionName, channelName);
+    private void submitClear(String sessionName, String channelName, DrawPayload clearPayload) {
+        boolean submitted = persistenceWorker.submitClear(sessionName, channelName, clearPayload);
+        if (!submitted && rejectedLog.tryAcquire()) {
+            log.error("Failed to submit clear to persistence queue - queue may be full: session='{}', channel='{}', suppressed={}",
+                    sessionName, channelName, rejectedLog.drainSuppressed());
         }
     }
 
+    private void broadcast(String destination, Object payload) {
+        try {
+            messagingTemplate.convertAndSend(destination, payload);
+        } catch (MessagingException e) {
+            log.error("Failed to broadcast to destination '{}'", destination, e);
+        }
+    }
+
+    private static String drawTopic(String sessionName, String channelName) {
+        return "/topic/whiteboard/" + sessionName + "/" + channelName;
+    }
+
+    private static String chatTopic(String sessionName, String channelName) {
+        return "/topic/chat/" + sessionName + "/" + channelName;
+    }
+
+    private static boolean isPreviewType(String type) {
+        return type != null && (type.startsWith("shape-preview") || type.startsWith("line-segment-preview"));
+    }
+
     private void normalizeDrawPayloadForPersistence(DrawPayload payload) {
         if (payload == null) return;
 
@@ -190,24 +330,6 @@ public class WhiteboardService {
         if (payload.getY2() == null) payload.setY2(0.0);
     }
 
-    private void clearShapes(String sessionName, String channelName) {
-        try {
-            WhiteboardSession session = loadSessionGraph(sessionName);
-            Map<String, Channel> channelMap = buildChannelMap(session);
-            Channel channel = channelMap.get(channelName);
-
-            if (channel != null) {
-                channel.getShapes().clear();
-                sessionRepository.save(session);
-                log.info("Shapes cleared successfully: session='{}', channel='{}'", sessionName, channelName);
-            } else {
-                log.warn("Channel not found for clear operation: session='{}', channel='{}'", sessionName, channelName);
-            }
-        } catch (Exception e) {
-            log.error("Error clearing shapes: session='{}', channel='{}'", sessionName, channelName, e);
-        }
-    }
-
     @Transactional
     public ChatMessage postChatMessage(String sessionName, String channelName, ChatPayload payload) throws SessionException {
         try {
@@ -226,15 +348,26 @@ public class WhiteboardService {
             newMessage.setAttachmentName(payload.getAttachmentName());
             newMessage.setAttachmentContentType(payload.getAttachmentContentType());
             newMessage.setAttachmentSize(payload.getAttachmentSize());
+            newMessage.setAttachmentThumbnailUrl(payload.getAttachmentThumbnailUrl());
+            newMessage.setAttachmentPreviewUrl(payload.getAttachmentPreviewUrl());
             newMessage.setTimestamp(Instant.now());
 
-            log.debug("Submitting chat message for async persistence: session='{}', channel='{}', sender='{}'",
-                    sessionName, channelName, payload.getSenderName());
-            
-            boolean submitted = persistenceWorker.submitChatMessage(sessionName, channelName, newMessage);
-            if (!submitted) {
-                log.error("Failed to submit chat message to persistence queue: session='{}', channel='{}'",
-                        sessionName, channelName);
+            ChannelSequencer.Sequence sequence = sequencer.sequenceFor(sessionName, channelName, ChannelSequencer.Stream.CHAT);
+            synchronized (sequence) {
+                newMessage.setSeq(sequence.next());
+
+                if (log.isDebugEnabled() && eventDebugLog.tryAcquire()) {
+                    log.debug("Submitting chat message for async persistence: session='{}', channel='{}', sender='{}', seq={}, suppressed={}",
+                            sessionName, channelName, payload.getSenderName(), newMessage.getSeq(), eventDebugLog.drainSuppressed());
+                }
+
+                boolean submitted = persistenceWorker.submitChatMessage(sessionName, channelName, newMessage);
+                if (!submitted && rejectedLog.tryAcquire()) {
+                    log.error("Failed to submit chat message to persistence queue: session='{}', channel='{}', suppressed={}",
+                            sessionName, channelName, rejectedLog.drainSuppressed());
+                }
+
+                broadcast(chatTopic(sessionName, channelName), newMessage);
             }
 
             log.info("Chat message posted: session='{}', channel='{}', sender='{}', timestamp={}",
@@ -278,25 +411,11 @@ public class WhiteboardService {
         return sessionOpt;
     }
 
-    @Transactional(readOnly = true)
     public java.util.List<ChatMessage> getChatMessages(String sessionName, String channelName) throws SessionException {
         try {
-            WhiteboardSession session = loadSessionGraph(sessionName);
-
-            List<Channel> channels = session.getChannels();
-            if (channels == null) {
-                throw new SessionException("Channel '" + channelName + "' not found in session '" + sessionName + "'");
-            }
-            
-            Map<String, Channel> channelMap = channels.stream()
-                    .collect(Collectors.toMap(Channel::getChannelName, Function.identity()));
-            Channel channel = channelMap.get(channelName);
-            if (channel == null) {
-                throw new SessionException("Channel '" + channelName + "' not found in session '" + sessionName + "'");
-            }
-            
-            List<ChatMessage> messages = channel.getChatMessages();
-            return messages != null ? messages : new ArrayList<>();
+            requireChannel(sessionName, channelName);
+            List<ChatMessage> pending = persistenceWorker.pendingChatMessages(sessionName, channelName);
+            return overlayPendingChat(eventStore.chatMessages(sessionName, channelName), pending);
         } catch (SessionException e) {
             throw e;
         } catch (Exception e) {
@@ -305,25 +424,11 @@ public class WhiteboardService {
         }
     }
 
-    @Transactional(readOnly = true)
     public java.util.List<DrawPayload> getShapes(String sessionName, String channelName) throws SessionException {
         try {
-            WhiteboardSession session = loadSessionGraph(sessionName);
-
-            List<Channel> channels = session.getChannels();
-            if (channels == null) {
-                throw new SessionException("Channel '" + channelName + "' not found in session '" + sessionName + "'");
-            }
-            
-            Map<String, Channel> channelMap = channels.stream()
-                    .collect(Collectors.toMap(Channel::getChannelName, Function.identity()));
-            Channel channel = channelMap.get(channelName);
-            if (channel == null) {
-                throw new SessionException("Channel '" + channelName + "' not found in session '" + sessionName + "'");
-            }
-            
-            List<DrawPayload> shapes = channel.getShapes();
-            return shapes != null ? shapes : new ArrayList<>();
+            requireChannel(sessionName, channelName);
+            List<DrawPayload> pending = persistenceWorker.pendingShapes(sessionName, channelName);
+            return overlayPendingShapes(eventStore.shapes(sessionName, channelName), pending);
         } catch (SessionException e) {
             throw e;
         } catch (Exception e) {
@@ -332,92 +437,156 @@ public class WhiteboardService {
         }
     }
 
-    @Transactional
-    public int replayFallbackEvents() {
-        int successCount = 0;
-        int failureCount = 0;
-
-        log.info("Starting replay of fallback events...");
-        fallbackStorage.backupFallbackFile();
-
-        java.util.List<FallbackStorage.FallbackEvent> events = fallbackStorage.readFallbackEvents();
-        log.info("Found {} fallback events to replay", events.size());
-
-        for (FallbackStorage.FallbackEvent event : events) {
-            try {
-                replayEvent(event);
-                successCount++;
-            } catch (Exception e) {
-                failureCount++;
-                log.error("Failed to replay event: {}", event, e);
+    /**
+     * Returns shapes with afterSeq &lt; seq &lt;= toSeq, including ones still queued for persistence. Used
+     * by clients that detected a gap in the broadcast sequence to fetch only the missing range instead
+     * of the full history.
+     */
+    public List<DrawPayload> getShapesInRange(String sessionName, String channelName, long afterSeq, long toSeq) {
+        List<DrawPayload> pending = inRange(persistenceWorker.pendingShapes(sessionName, channelName),
+                DrawPayload::getSeq, afterSeq, toSeq);
+        return overlayPendingShapes(eventStore.shapesInRange(sessionName, channelName, afterSeq, toSeq), pending);
+    }
+
+    /**
+     * Returns chat messages with afterSeq &lt; seq &lt;= toSeq, including ones still queued for persistence.
+     */
+    public List<ChatMessage> getChatMessagesInRange(String sessionName, String channelName, long afterSeq, long toSeq) {
+        List<ChatMessage> pending = inRange(persistenceWorker.pendingChatMessages(sessionName, channelName),
+                ChatMessage::getSeq, afterSeq, toSeq);
+        return overlayPendingChat(eventStore.chatMessagesInRange(sessionName, channelName, afterSeq, toSeq), pending);
+    }
+
+    /**
+     * Persisted shape count of a channel, without loading the shapes.
+     */
+    public long countShapes(String sessionName, String channelName) {
+        return eventStore.countShapes(sessionName, channelName);
+    }
+
+    /**
+     * Persisted chat message count of a channel, without loading the messages.
+     */
+    public long countChatMessages(String sessionName, String channelName) {
+        return eventStore.countChatMessages(sessionName, channelName);
+    }
+
+    private void requireChannel(String sessionName, String channelName) throws SessionException {
+        if (channelDirectory.channelExists(sessionName, channelName)) {
+            return;
+        }
+        if (!channelDirectory.sessionExists(sessionName)) {
+            throw SessionException.sessionNotFound(sessionName);
+        }
+        throw new SessionException("Channel '" + channelName + "' not found in session '" + sessionName + "'");
+    }
+
+    /**
+     * Read-your-writes: appends events still queued for persistence to what the store returned.
+     * The pending list is taken before the store read, so an event committed in between is in both
+     * and dropped here by seq. A pending clear hides every shape sequenced before it, persisted or not.
+     */
+    private static List<DrawPayload> overlayPendingShapes(List<DrawPayload> persisted, List<DrawPayload> pending) {
+        if (pending.isEmpty()) {
+            return persisted;
+        }
+        long clearSeq = 0;
+        for (DrawPayload payload : pending) {
+            if ("clear".equals(payload.getType())) {
+                clearSeq = payload.getSeq();
+            }
+        }
+        List<DrawPayload> merged = new ArrayList<>(persisted.size() + pending.size());
+        Set<Long> seen = new HashSet<>();
+        for (DrawPayload shape : persisted) {
+            if (clearSeq > 0 && (shape.getSeq() == null || shape.getSeq() < clearSeq)) {
+                continue;
+            }
+            merged.add(shape);
+            seen.add(shape.getSeq());
+        }
+        for (DrawPayload payload : pending) {
+            if (payload.getSeq() > clearSeq && seen.add(payload.getSeq())) {
+                merged.add(payload);
             }
         }
+        return merged;
+    }
 
-        if (successCount > 0) {
-            try {
-                fallbackStorage.clearFallbackFile();
-                log.info("Fallback file cleared after successful replay");
-            } catch (Exception e) {
-                log.warn("Failed to clear fallback file", e);
+    private static List<ChatMessage> overlayPendingChat(List<ChatMessage> persisted, List<ChatMessage> pending) {
+        if (pending.isEmpty()) {
+            return persisted;
+        }
+        List<ChatMessage> merged = new ArrayList<>(persisted.size() + pending.size());
+        Set<Long> seen = new HashSet<>();
+        for (ChatMessage message : persisted) {
+            merged.add(message);
+            seen.add(message.getSeq());
+        }
+        for (ChatMessage message : pending) {
+            if (seen.add(message.getSeq())) {
+                merged.add(message);
             }
         }
+        return merged;
+    }
 
-        log.info("Fallback event replay completed: {} succeeded, {} failed", successCount, failureCount);
-        return successCount;
+    private static <T> List<T> inRange(List<T> pending, Function<T, Long> seqOf, long afterSeq, long toSeq) {
+        if (pending.isEmpty()) {
+            return pending;
+        }
+        List<T> selected = new ArrayList<>();
+        for (T event : pending) {
+            long seq = seqOf.apply(event);
+            if (seq > afterSeq && seq <= toSeq) {
+                selected.add(event);
+            }
+        }
+        return selected;
     }
 
+    /**
+     * How far the channel's draw and chat streams are durable, against the last sequence handed out.
+     */
+    public DurabilityStatus getDurability(String sessionName, String channelName) throws SessionException {
+        // Checked first so lookups of unknown names do not seed sequencer entries
+        requireChannel(sessionName, channelName);
+        return new DurabilityStatus(
+                sessionName,
+                channelName,
+                watermarks.durableSeq(sessionName, channelName, false),
+                sequencer.currentSeq(sessionName, channelName, ChannelSequencer.Stream.DRAW),
+                watermarks.durableSeq(sessionName, channelName, true),
+                sequencer.currentSeq(sessionName, channelName, ChannelSequencer.Stream.CHAT),
+                watermarks.isHeld(sessionName, channelName, false) || watermarks.isHeld(sessionName, channelName, true),
+                fallbackStorage.getFallbackEventCount());
+    }
+
+    /**
+     * Streams fallback events back into the database; see {@link FallbackReplayer}.
+     * Returns the number of events replayed.
+     */
+    public int replayFallbackEvents() {
+        FallbackReplayer.ReplayReport report = fallbackReplayer.replay();
+        return (int) Math.min(Integer.MAX_VALUE, report.replayed());
+    }
+
+    /**
+     * Starts a background replay job when events are pending; the scheduler thread is shared with
+     * other periodic work (presence flushes), so it must not run the replay itself.
+     */
     @Scheduled(initialDelayString = "${whiteboard.replay.initial-delay:60000}",
             fixedDelayString = "${whiteboard.replay.interval:60000}")
-    @Transactional
     public void scheduledFallbackReplay() {
         if (!replayEnabled) {
             return;
         }
         long pendingEvents = fallbackStorage.getFallbackEventCount();
-        if (pendingEvents == 0) {
+        if (pendingEvents == 0 || replayJobManager.activeJob().isPresent()) {
             return;
         }
-        try {
-            int replayed = replayFallbackEvents();
-            log.info("Scheduled fallback replay processed {} events", replayed);
-        } catch (Exception e) {
-            log.warn("Scheduled fallback replay failed", e);
-        }
-    }
-
-    private void replayEvent(FallbackStorage.FallbackEvent event) throws Exception {
-        if ("DRAW".equals(event.getEventType())) {
-            DrawPayload payload = objectMapper.convertValue(event.getData(), DrawPayload.class);
-
-            WhiteboardSession session = loadSessionGraph(event.getSessionName());
-
-            Map<String, Channel> channelMap = buildChannelMap(session);
-            Channel channel = channelMap.get(event.getChannelName());
-            if (channel == null) {
-                throw new SessionException("Channel '" + event.getChannelName() + "' not found during replay");
-            }
-
-            channel.getShapes().add(payload);
-            sessionRepository.save(session);
-            log.debug("Replayed draw event: session='{}', channel='{}', type='{}'", 
-                    event.getSessionName(), event.getChannelName(), payload.getType());
-
-        } else if ("CHAT".equals(event.getEventType())) {
-            ChatMessage message = objectMapper.convertValue(event.getData(), ChatMessage.class);
-
-            WhiteboardSession session = loadSessionGraph(event.getSessionName());
-
-            Map<String, Channel> channelMap = buildChannelMap(session);
-            Channel channel = channelMap.get(event.getChannelName());
-            if (channel == null) {
-                throw new SessionException("Channel '" + event.getChannelName() + "' not found during replay");
-            }
-
-            channel.getChatMessages().add(message);
-            sessionRepository.save(session);
-            log.debug("Replayed chat message: session='{}', channel='{}', sender='{}'", 
-                    event.getSessionName(), event.getChannelName(), message.getSenderName());
-        }
+        ReplayJob job = replayJobManager.submit(0);
+        log.info("Scheduled fallback replay job {} started for {} pending events", job.getId(), pendingEvents);
     }
 
     @NonNull
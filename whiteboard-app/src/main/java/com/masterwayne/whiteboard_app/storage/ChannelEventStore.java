@@ -0,0 +1,92 @@
+package com.masterwayne.whiteboard_app.storage;
+
+import com.masterwayne.whiteboard_app.exception.PersistenceException;
+import com.masterwayne.whiteboard_app.model.ChatMessage;
+import com.masterwayne.whiteboard_app.model.DrawPayload;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Where a channel's draw and chat history lives. PersistenceWorker writes through it and the history
+ * read path (full, gap-repair ranges, sequence seeding, attachment sweeps) reads through it; sessions,
+ * channels and participants stay in JPA whatever the engine.
+ *
+ * Engines, selected by whiteboard.store.engine:
+ * - jpa (default): the channel_shapes / channel_chat_messages element collections
+ * - log: per-channel append-only segment files on local disk, see {@link LogStructuredChannelEventStore}
+ * - memory: heap only, for tests and benchmarks
+ *
+ * Contract:
+ * - append is only called from the persistence worker thread, in sequence order per channel except for
+ *   fallback replay, which may append events older than ones already stored
+ * - Reads may run on any thread, concurrently with append
+ * - Sequence numbers are per channel stream; 0 stands for "none"
+ * - Appending an event at a seq its channel stream already holds changes nothing, so a replay chunk
+ *   applied twice (a commit whose outcome was lost) is stored once; events without a seq are always
+ *   appended
+ *
+ * Clears (every engine, whatever order events arrive in):
+ * - A clear at seq C hides every shape with seq &lt;= C, stored before it or appended after it (a
+ *   fallback replay can deliver a clear after shapes drawn later, and shapes it covers after the clear);
+ *   shapes with seq &gt; C are never affected
+ * - Only the highest clear counts; an older clear changes nothing
+ * - Shapes without a seq are hidden by any clear
+ * - A clear without a seq counts as a clear at the highest draw seq stored so far
+ */
+public interface ChannelEventStore {
+
+    /**
+     * One channel's share of a worker batch. {@code clear} is the latest clear in the batch, or null;
+     * it is applied before {@code shapes}, under the clear rules above.
+     */
+    record ChannelAppend(String sessionName, String channelName, DrawPayload clear,
+                         List<DrawPayload> shapes, List<ChatMessage> chatMessages) {
+
+        boolean cleared() {
+            return clear != null;
+        }
+    }
+
+    /**
+     * Stores one worker batch: all of it is durable when this returns, and none of it is visible if
+     * it throws.
+     *
+     * @throws PersistenceException if a session or channel does not exist, so the events can never be stored
+     */
+    void append(List<ChannelAppend> appends) throws PersistenceException;
+
+    /**
+     * Shapes not hidden by a clear.
+     */
+    List<DrawPayload> shapes(String sessionName, String channelName);
+
+    /**
+     * Shapes with afterSeq &lt; seq &lt;= toSeq in sequence order.
+     */
+    List<DrawPayload> shapesInRange(String sessionName, String channelName, long afterSeq, long toSeq);
+
+    List<ChatMessage> chatMessages(String sessionName, String channelName);
+
+    /**
+     * Chat messages with afterSeq &lt; seq &lt;= toSeq in sequence order.
+     */
+    List<ChatMessage> chatMessagesInRange(String sessionName, String channelName, long afterSeq, long toSeq);
+
+    /**
+     * Highest draw seq ever stored, clears included, so a clear never lowers it; the sequencer seeds
+     * from it.
+     */
+    long maxShapeSeq(String sessionName, String channelName);
+
+    long maxChatSeq(String sessionName, String channelName);
+
+    long countShapes(String sessionName, String channelName);
+
+    long countChatMessages(String sessionName, String channelName);
+
+    /**
+     * Every attachment URL in chat history, one at a time, without holding the messages.
+     */
+    void forEachAttachmentUrl(Consumer<String> consumer);
+}
@@ -0,0 +1,371 @@
+package com.masterwayne.whiteboard_app.storage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Long-lived append-only writer for the fallback log.
+ *
+ * Design:
+ * - Callers serialize on their own thread and hand finished lines to a bounded queue; a full queue
+ *   blocks the caller (backpressure) rather than dropping events
+ * - One writer thread drains whatever is queued and writes it with a single FileChannel write
+ *   (group commit), keeping the channel open between batches
+ * - Fsync policy: EVENT forces after every batch and callers wait for it; INTERVAL forces at most
+ *   every fsync interval; OS leaves flushing to the page cache
+ * - Callers that need the file quiescent (read, clear, backup) use {@link #flush} and
+ *   {@link #withFileClosed}; the channel is reopened lazily on the next batch
+ * - Optional rollover: once the file passes maxFileBytes after a batch, it is closed and the
+ *   next file comes from the rollover supplier (segment boundaries always fall between lines)
+ */
+public class FallbackAppender implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(FallbackAppender.class);
+    private static final int MAX_BATCH = 1024;
+    private static final int INITIAL_BUFFER_BYTES = 256 * 1024;
+    private static final long FLUSH_TIMEOUT_SECONDS = 30;
+
+    public enum FsyncPolicy { EVENT, INTERVAL, OS }
+
+    @FunctionalInterface
+    public interface FileAction {
+        void run() throws IOException;
+    }
+
+    /**
+     * Notified on the writer thread after lines have been written (not necessarily forced).
+     */
+    @FunctionalInterface
+    public interface AppendListener {
+        void onAppended(int lines, long bytes);
+    }
+
+    private record Record(byte[] line, CompletableFuture<Void> done) {
+    }
+
+    private final long maxFileBytes;
+    private final Supplier<Path> rollover;
+    private final AppendListener listener;
+    private final FsyncPolicy fsyncPolicy;
+    private final long fsyncIntervalNanos;
+    private final BlockingQueue<Record> queue;
+    private final ReentrantLock fileLock = new ReentrantLock();
+    private final Thread writerThread;
+    private volatile Path file;
+    private FileChannel channel;
+    private ByteBuffer buffer = ByteBuffer.allocateDirect(INITIAL_BUFFER_BYTES);
+    private boolean unsynced;
+    private long lastForceNanos = System.nanoTime();
+    private volatile boolean running = true;
+
+    public FallbackAppender(Path file, FsyncPolicy fsyncPolicy, long fsyncIntervalMs, int queueCapacity) {
+        this(file, fsyncPolicy, fsyncIntervalMs, queueCapacity, Long.MAX_VALUE, null, null);
+    }
+
+    public FallbackAppender(Path file, FsyncPolicy fsyncPolicy, long fsyncIntervalMs, int queueCapacity,
+                            long maxFileBytes, Supplier<Path> rollover, AppendListener listener) {
+        this.file = file;
+        this.maxFileBytes = rollover != null ? maxFileBytes : Long.MAX_VALUE;
+        this.rollover = rollover;
+        this.listener = listener;
+        this.fsyncPolicy = fsyncPolicy;
+        this.fsyncIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1, fsyncIntervalMs));
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.writerThread = new Thread(this::writerLoop, "fallback-appender");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+        logger.info("Fallback appender started: file={}, fsync={}, intervalMs={}, queueCapacity={}",
+                file, fsyncPolicy, fsyncIntervalMs, queueCapacity);
+    }
+
+    /**
+     * Appends one already-serialized line (including its trailing newline). Blocks while the queue is
+     * full; with the EVENT policy also blocks until the batch holding the line has been forced.
+     * The returned future completes once the line is written (forced, with EVENT), or exceptionally
+     * if the writer thread fails to write it; with EVENT it is already complete.
+     */
+    public CompletableFuture<Void> append(byte[] line) throws IOException {
+        if (!running) {
+            writeDirect(line);
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        try {
+            queue.put(new Record(line, done));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while queueing fallback event", e);
+        }
+        if (fsyncPolicy == FsyncPolicy.EVENT) {
+            await(done);
+        }
+        return done;
+    }
+
+    /**
+     * Waits until everything queued so far is written and forced to disk.
+     */
+    public void flush() throws IOException {
+        if (!running) {
+            return;
+        }
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        try {
+            queue.put(new Record(null, done));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while flushing fallback appender", e);
+        }
+        await(done);
+    }
+
+    /**
+     * Flushes, closes the channel and runs the action while no batch can be written, e.g. to delete,
+     * copy or rotate the file. The next batch reopens the file.
+     */
+    public void withFileClosed(FileAction action) throws IOException {
+        flush();
+        fileLock.lock();
+        try {
+            closeChannel();
+            action.run();
+        } finally {
+            fileLock.unlock();
+        }
+    }
+
+    /**
+     * File currently being appended to.
+     */
+    public Path getCurrentFile() {
+        return file;
+    }
+
+    public int getPendingCount() {
+        return queue.size();
+    }
+
+    public FsyncPolicy getFsyncPolicy() {
+        return fsyncPolicy;
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        // Wakes the writer so it can drain and exit without waiting for its poll timeout
+        queue.offer(new Record(null, null));
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(FLUSH_TIMEOUT_SECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Records that raced with shutdown are written here rather than lost
+        List<Record> leftovers = new ArrayList<>();
+        queue.drainTo(leftovers);
+        if (!leftovers.isEmpty()) {
+            writeBatch(leftovers);
+        }
+        fileLock.lock();
+        try {
+            if (channel != null) {
+                channel.force(false);
+            }
+            closeChannel();
+        } catch (IOException e) {
+            logger.warn("Failed to force fallback log on close", e);
+        } finally {
+            fileLock.unlock();
+        }
+        logger.info("Fallback appender stopped");
+    }
+
+    private void writerLoop() {
+        List<Record> batch = new ArrayList<>(MAX_BATCH);
+        while (running || !queue.isEmpty()) {
+            try {
+                Record first = queue.poll(pollTimeoutNanos(), TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    forceIfDue();
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, MAX_BATCH - 1);
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void writeBatch(List<Record> batch) {
+        boolean syncRequested = fsyncPolicy == FsyncPolicy.EVENT;
+        int bytes = 0;
+        int lines = 0;
+        for (Record record : batch) {
+            if (record.line() == null) {
+                syncRequested = true;
+            } else {
+                bytes += record.line().length;
+                lines++;
+            }
+        }
+
+        IOException failure = null;
+        fileLock.lock();
+        try {
+            if (bytes > 0) {
+                ByteBuffer out = bufferFor(bytes);
+                for (Record record : batch) {
+                    if (record.line() != null) {
+                        out.put(record.line());
+                    }
+                }
+                out.flip();
+                FileChannel target = openChannel();
+                while (out.hasRemaining()) {
+                    target.write(out);
+                }
+                unsynced = true;
+                if (listener != null) {
+                    listener.onAppended(lines, bytes);
+                }
+            }
+            if (syncRequested || (fsyncPolicy == FsyncPolicy.INTERVAL && forceDue())) {
+                force();
+            }
+            if (channel != null && channel.position() >= maxFileBytes) {
+                closeChannel();
+                file = rollover.get();
+            }
+        } catch (IOException e) {
+            failure = e;
+            logger.error("Failed to append {} fallback records", batch.size(), e);
+            closeChannel();
+        } finally {
+            fileLock.unlock();
+        }
+
+        for (Record record : batch) {
+            if (record.done() != null) {
+                if (failure == null) {
+                    record.done().complete(null);
+                } else {
+                    record.done().completeExceptionally(failure);
+                }
+            }
+        }
+    }
+
+    private void forceIfDue() {
+        if (fsyncPolicy != FsyncPolicy.INTERVAL || !unsynced || !forceDue()) {
+            return;
+        }
+        fileLock.lock();
+        try {
+            force();
+        } catch (IOException e) {
+            logger.warn("Failed to force fallback log", e);
+        } finally {
+            fileLock.unlock();
+        }
+    }
+
+    private void force() throws IOException {
+        if (channel != null && unsynced) {
+            channel.force(false);
+        }
+        unsynced = false;
+        lastForceNanos = System.nanoTime();
+    }
+
+    private boolean forceDue() {
+        return System.nanoTime() - lastForceNanos >= fsyncIntervalNanos;
+    }
+
+    private long pollTimeoutNanos() {
+        if (fsyncPolicy == FsyncPolicy.INTERVAL && unsynced) {
+            return Math.max(0, fsyncIntervalNanos - (System.nanoTime() - lastForceNanos));
+        }
+        return TimeUnit.SECONDS.toNanos(1);
+    }
+
+    private ByteBuffer bufferFor(int bytes) {
+        if (buffer.capacity() < bytes) {
+            buffer = ByteBuffer.allocateDirect(Integer.highestOneBit(bytes - 1) << 1);
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    private FileChannel openChannel() throws IOException {
+        if (channel == null || !channel.isOpen()) {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+        }
+        return channel;
+    }
+
+    private void closeChannel() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            if (unsynced && fsyncPolicy != FsyncPolicy.OS) {
+                channel.force(false);
+            }
+            channel.close();
+        } catch (IOException e) {
+            logger.warn("Failed to close fallback log channel", e);
+        }
+        channel = null;
+        unsynced = false;
+    }
+
+    // Used once the writer thread is gone (shutdown ordering); keeps late events instead of dropping them
+    private void writeDirect(byte[] line) throws IOException {
+        fileLock.lock();
+        try {
+            FileChannel target = openChannel();
+            ByteBuffer out = ByteBuffer.wrap(line);
+            while (out.hasRemaining()) {
+                target.write(out);
+            }
+            target.force(false);
+            if (listener != null) {
+                listener.onAppended(1, line.length);
+            }
+        } finally {
+            fileLock.unlock();
+        }
+    }
+
+    private static void await(CompletableFuture<Void> done) throws IOException {
+        try {
+            done.get(FLUSH_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for fallback write", e);
+        } catch (TimeoutException e) {
+            throw new IOException("Timed out waiting for fallback write", e);
+        } catch (java.util.concurrent.ExecutionException e) {
+            throw new IOException("Fallback write failed", e.getCause());
+        }
+    }
+}
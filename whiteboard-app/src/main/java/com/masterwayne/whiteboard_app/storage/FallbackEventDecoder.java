@@ -0,0 +1,93 @@
+package com.masterwayne.whiteboard_app.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.masterwayne.whiteboard_app.storage.FallbackStorage.FallbackEvent;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Decodes fallback log lines into events on a fork-join pool.
+ *
+ * Design:
+ * - Lines are split into ranges of at least {@link #SPLIT_THRESHOLD}; each range decodes into its own
+ *   slots of a shared result array, so the merge is by index and keeps log order, and with it the
+ *   per-session and per-channel order replay depends on
+ * - Small chunks decode on the calling thread; forking costs more than it saves below the threshold
+ * - A line that cannot be parsed leaves a null slot for the caller to dead-letter
+ */
+public class FallbackEventDecoder implements AutoCloseable {
+    static final int SPLIT_THRESHOLD = 128;
+
+    private final ObjectReader reader;
+    private final ForkJoinPool pool;
+
+    /**
+     * @param parallelism decoding threads; 0 uses one per available processor, 1 decodes inline
+     */
+    public FallbackEventDecoder(ObjectMapper objectMapper, int parallelism) {
+        this.reader = objectMapper.readerFor(FallbackEvent.class);
+        int threads = parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.pool = threads > 1 ? new ForkJoinPool(threads) : null;
+    }
+
+    /**
+     * Returns one event per line, in line order; null where a line is blank or unparseable.
+     */
+    public FallbackEvent[] decode(List<byte[]> lines) {
+        FallbackEvent[] events = new FallbackEvent[lines.size()];
+        DecodeRange all = new DecodeRange(lines, events, 0, lines.size());
+        if (pool == null || lines.size() <= SPLIT_THRESHOLD) {
+            all.compute();
+        } else {
+            pool.invoke(all);
+        }
+        return events;
+    }
+
+    @Override
+    public void close() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    private FallbackEvent decodeLine(byte[] line) {
+        if (line.length == 0) {
+            return null;
+        }
+        try {
+            return reader.readValue(line);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private class DecodeRange extends RecursiveAction {
+        private final List<byte[]> lines;
+        private final FallbackEvent[] events;
+        private final int from;
+        private final int to;
+
+        DecodeRange(List<byte[]> lines, FallbackEvent[] events, int from, int to) {
+            this.lines = lines;
+            this.events = events;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SPLIT_THRESHOLD || pool == null) {
+                for (int i = from; i < to; i++) {
+                    events[i] = decodeLine(lines.get(i));
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new DecodeRange(lines, events, from, mid), new DecodeRange(lines, events, mid, to));
+        }
+    }
+}
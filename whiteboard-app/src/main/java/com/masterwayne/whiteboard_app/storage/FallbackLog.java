@@ -0,0 +1,557 @@
+package com.masterwayne.whiteboard_app.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Segmented, append-only fallback log with a persisted replay checkpoint.
+ *
+ * Design:
+ * - Lines are appended to numbered segment files (segment-00000000000000000001.jsonl, ...); the
+ *   appender rolls to a new segment once the active one passes the size limit
+ * - checkpoint.json records the position of the first line not yet replayed; segments wholly before
+ *   it are deleted, and a restart resumes from it instead of replaying from the top
+ * - Pending event count, live bytes and segment count are kept as counters (one scan at startup),
+ *   so stats and gauges are constant-time
+ * - A legacy single-file log is migrated into the first segment on startup
+ * - Reads go through {@link MappedSegmentScanner}, so record boundaries are found in mapped pages
+ *   rather than one stream read per byte
+ * - With a compression level set, each sealed segment is deflated in the background into
+ *   segment-N.jsonl.z (written to a temp file, synced, then swapped in). Positions stay
+ *   uncompressed offsets, so checkpoints are unaffected; a compressed segment is inflated whole
+ *   when replay reaches it, and kept until replay moves on
+ * - Backups hard-link sealed segments, which never change again, and copy only the active one
+ */
+public class FallbackLog implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(FallbackLog.class);
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".jsonl";
+    private static final String COMPRESSED_SUFFIX = ".jsonl.z";
+    private static final String TEMP_SUFFIX = ".tmp";
+    // Larger segments (only possible from a migrated legacy file) stay uncompressed and mapped
+    private static final long MAX_COMPRESSIBLE_BYTES = 256L * 1024 * 1024;
+    private static final int COPY_BUFFER_BYTES = 64 * 1024;
+    private static final String CHECKPOINT_FILE = "checkpoint.json";
+
+    /**
+     * Lines read from the log (without their trailing newline), the position just after each line,
+     * and the position to resume reading from.
+     */
+    public record ReadResult(List<byte[]> lines, List<FallbackPosition> lineEnds, FallbackPosition next) {
+    }
+
+    private final Path dir;
+    private final ObjectMapper objectMapper;
+    private final AtomicLong activeSegmentId;
+    private final AtomicLong pendingEvents = new AtomicLong();
+    private final AtomicLong liveBytes = new AtomicLong();
+    private final AtomicInteger segmentCount = new AtomicInteger();
+    private final FallbackAppender appender;
+    private final MappedSegmentScanner scanner = new MappedSegmentScanner();
+    private final int compressionLevel;
+    private final ExecutorService compressor;
+    private final AtomicInteger compressedSegmentCount = new AtomicInteger();
+    private volatile FallbackPosition checkpoint;
+    private long inflatedSegmentId = -1;
+    private byte[] inflatedSegment;
+
+    public FallbackLog(Path dir, Path legacyFile, ObjectMapper objectMapper,
+                       FallbackAppender.FsyncPolicy fsyncPolicy, long fsyncIntervalMs, int queueCapacity,
+                       long maxSegmentBytes) throws IOException {
+        this(dir, legacyFile, objectMapper, fsyncPolicy, fsyncIntervalMs, queueCapacity, maxSegmentBytes, 0);
+    }
+
+    /**
+     * @param compressionLevel Deflater level (1-9) for sealed segments; 0 leaves them uncompressed
+     */
+    public FallbackLog(Path dir, Path legacyFile, ObjectMapper objectMapper,
+                       FallbackAppender.FsyncPolicy fsyncPolicy, long fsyncIntervalMs, int queueCapacity,
+                       long maxSegmentBytes, int compressionLevel) throws IOException {
+        this.dir = dir;
+        this.objectMapper = objectMapper;
+        this.compressionLevel = compressionLevel;
+        Files.createDirectories(dir);
+        removeInterruptedCompressions();
+        FallbackPosition stored = loadCheckpoint();
+        long floorId = stored != null ? stored.segmentId() : 0;
+        migrateLegacyFile(legacyFile, floorId);
+
+        List<Long> ids = segmentIds();
+        long lastId = ids.isEmpty() ? 0 : ids.get(ids.size() - 1);
+        // Never append after a possibly torn last line from a previous run: always start a fresh segment
+        long activeId = Math.max(lastId, floorId) + 1;
+        this.activeSegmentId = new AtomicLong(activeId);
+
+        if (stored != null && ids.contains(stored.segmentId())) {
+            this.checkpoint = stored;
+        } else {
+            long firstId = ids.stream().filter(id -> id >= floorId).findFirst().orElse(activeId);
+            this.checkpoint = new FallbackPosition(firstId, 0);
+        }
+        recount(ids);
+
+        if (compressionLevel > 0) {
+            this.compressor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "fallback-compressor");
+                thread.setDaemon(true);
+                return thread;
+            });
+            // Sealed segments left uncompressed by an earlier run (or by a crash mid-compression)
+            for (long id : ids) {
+                if (!Files.exists(compressedPath(id))) {
+                    scheduleCompression(id);
+                }
+            }
+        } else {
+            this.compressor = null;
+        }
+
+        this.appender = new FallbackAppender(segmentPath(activeId), fsyncPolicy, fsyncIntervalMs, queueCapacity,
+                maxSegmentBytes, this::rollSegment, this::onAppended);
+        logger.info("Fallback log opened at {}: segments={}, pendingEvents={}, checkpoint={}",
+                dir.toAbsolutePath(), segmentCount.get(), pendingEvents.get(), checkpoint);
+    }
+
+    public CompletableFuture<Void> append(byte[] line) throws IOException {
+        return appender.append(line);
+    }
+
+    public void flush() throws IOException {
+        appender.flush();
+    }
+
+    public FallbackPosition getCheckpoint() {
+        return checkpoint;
+    }
+
+    /**
+     * Reads up to maxLines complete lines starting at from. Call {@link #flush} first to include
+     * everything queued so far. A torn line at the end of a sealed segment is skipped.
+     */
+    public synchronized ReadResult read(FallbackPosition from, int maxLines) throws IOException {
+        List<byte[]> lines = new ArrayList<>();
+        List<FallbackPosition> lineEnds = new ArrayList<>();
+        FallbackPosition position = from;
+        long activeId = activeSegmentId.get();
+
+        for (long id : segmentIds()) {
+            if (id < position.segmentId()) {
+                continue;
+            }
+            if (id > position.segmentId()) {
+                position = new FallbackPosition(id, 0);
+            }
+            MappedSegmentScanner.RecordConsumer collector = (line, end) -> {
+                lines.add(line);
+                lineEnds.add(new FallbackPosition(id, end));
+                return lines.size() < maxLines;
+            };
+            Path compressed = compressedPath(id);
+            ByteBuffer inflated = Files.exists(compressed) ? ByteBuffer.wrap(inflate(id, compressed)) : null;
+            long limit = inflated != null ? inflated.limit() : Files.size(segmentPath(id));
+            long offset = position.offset();
+            if (offset < limit) {
+                offset = inflated != null
+                        ? MappedSegmentScanner.scanBuffer(inflated, offset, collector)
+                        : scanner.scan(segmentPath(id), offset, limit, collector);
+            }
+            position = new FallbackPosition(id, offset);
+            if (lines.size() >= maxLines) {
+                return new ReadResult(lines, lineEnds, position);
+            }
+            if (id < activeId) {
+                if (offset < limit) {
+                    logger.warn("Skipping torn line at the end of sealed fallback segment {} ({} bytes)", id, limit - offset);
+                }
+                // Sealed and fully read: move past it so the next commit can delete it
+                position = new FallbackPosition(id + 1, 0);
+            }
+        }
+        return new ReadResult(lines, lineEnds, position);
+    }
+
+    /**
+     * Persists next as the replay checkpoint, deletes fully replayed segments and drops the pending
+     * counter by the number of events replayed.
+     */
+    public synchronized void commit(FallbackPosition next, long replayedEvents) throws IOException {
+        if (next.compareTo(checkpoint) < 0) {
+            return;
+        }
+        checkpoint = next;
+        storeCheckpoint(next);
+        pendingEvents.updateAndGet(value -> Math.max(0, value - replayedEvents));
+
+        long activeId = activeSegmentId.get();
+        for (long id : segmentIds()) {
+            if (id >= next.segmentId() || id >= activeId) {
+                break;
+            }
+            Path segment = segmentFile(id);
+            boolean compressed = segment.equals(compressedPath(id));
+            long size = Files.size(segment);
+            if (Files.deleteIfExists(segment)) {
+                liveBytes.addAndGet(-size);
+                segmentCount.decrementAndGet();
+                if (compressed) {
+                    compressedSegmentCount.decrementAndGet();
+                }
+            }
+            if (id == inflatedSegmentId) {
+                inflatedSegmentId = -1;
+                inflatedSegment = null;
+            }
+        }
+    }
+
+    /**
+     * Deletes every segment and moves the checkpoint to the (empty) active segment.
+     */
+    public synchronized void clear() throws IOException {
+        appender.withFileClosed(() -> {
+            for (long id : segmentIds()) {
+                Files.deleteIfExists(segmentPath(id));
+                Files.deleteIfExists(compressedPath(id));
+            }
+            pendingEvents.set(0);
+            liveBytes.set(0);
+            segmentCount.set(1);
+            compressedSegmentCount.set(0);
+        });
+        inflatedSegmentId = -1;
+        inflatedSegment = null;
+        // The active segment is recreated at the same path
+        scanner.invalidate();
+        checkpoint = new FallbackPosition(activeSegmentId.get(), 0);
+        storeCheckpoint(checkpoint);
+    }
+
+    /**
+     * Backs up the live segments and the checkpoint into target while no batch is being written.
+     * Sealed segments are hard-linked, so a backup costs no extra disk space until replay deletes
+     * the originals; the active segment is still appended to and is copied. Falls back to copying
+     * where the file system has no hard links.
+     */
+    public synchronized void backupTo(Path target) throws IOException {
+        Files.createDirectories(target);
+        appender.withFileClosed(() -> {
+            long activeId = activeSegmentId.get();
+            for (long id : segmentIds()) {
+                Path segment = segmentFile(id);
+                Path copy = target.resolve(segment.getFileName());
+                if (id < activeId) {
+                    linkOrCopy(segment, copy);
+                } else {
+                    Files.copy(segment, copy, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            Path checkpointFile = dir.resolve(CHECKPOINT_FILE);
+            if (Files.exists(checkpointFile)) {
+                Files.copy(checkpointFile, target.resolve(CHECKPOINT_FILE), StandardCopyOption.REPLACE_EXISTING);
+            }
+        });
+    }
+
+    public long getPendingEvents() {
+        return pendingEvents.get();
+    }
+
+    public long getLiveBytes() {
+        return liveBytes.get();
+    }
+
+    public int getSegmentCount() {
+        return segmentCount.get();
+    }
+
+    public int getCompressedSegmentCount() {
+        return compressedSegmentCount.get();
+    }
+
+    public long getActiveSegmentId() {
+        return activeSegmentId.get();
+    }
+
+    public Path getDirectory() {
+        return dir;
+    }
+
+    public FallbackAppender getAppender() {
+        return appender;
+    }
+
+    /**
+     * Waits until every sealed segment handed to the compressor so far has been compressed.
+     */
+    public boolean awaitCompression(long timeoutMs) throws InterruptedException {
+        if (compressor == null) {
+            return true;
+        }
+        try {
+            compressor.submit(() -> { }).get(timeoutMs, TimeUnit.MILLISECONDS);
+            return true;
+        } catch (ExecutionException | TimeoutException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void close() {
+        appender.close();
+        if (compressor != null) {
+            compressor.shutdown();
+            try {
+                if (!compressor.awaitTermination(10, TimeUnit.SECONDS)) {
+                    compressor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                compressor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // Writer thread, under the appender's file lock
+    private Path rollSegment() {
+        long id = activeSegmentId.incrementAndGet();
+        segmentCount.incrementAndGet();
+        logger.info("Fallback log rolled to segment {}", id);
+        scheduleCompression(id - 1);
+        return segmentPath(id);
+    }
+
+    private void scheduleCompression(long id) {
+        if (compressor != null) {
+            compressor.execute(() -> compress(id));
+        }
+    }
+
+    // Compressor thread: deflate outside the lock, swap the files under it
+    private void compress(long id) {
+        Path raw = segmentPath(id);
+        Path temp = dir.resolve(compressedPath(id).getFileName() + TEMP_SUFFIX);
+        try {
+            long rawBytes = Files.size(raw);
+            if (rawBytes == 0 || rawBytes > MAX_COMPRESSIBLE_BYTES) {
+                return;
+            }
+            Deflater deflater = new Deflater(compressionLevel);
+            try (InputStream in = Files.newInputStream(raw);
+                 OutputStream out = new DeflaterOutputStream(Files.newOutputStream(temp), deflater, COPY_BUFFER_BYTES)) {
+                in.transferTo(out);
+            } finally {
+                deflater.end();
+            }
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            long compressedBytes = Files.size(temp);
+            synchronized (this) {
+                if (!Files.exists(raw)) {
+                    // Replayed or cleared while compressing
+                    Files.deleteIfExists(temp);
+                    return;
+                }
+                Files.move(temp, compressedPath(id), StandardCopyOption.ATOMIC_MOVE);
+                Files.delete(raw);
+                liveBytes.addAndGet(compressedBytes - rawBytes);
+                compressedSegmentCount.incrementAndGet();
+            }
+            logger.debug("Compressed fallback segment {}: {} -> {} bytes", id, rawBytes, compressedBytes);
+        } catch (NoSuchFileException e) {
+            deleteQuietly(temp);
+        } catch (IOException e) {
+            logger.warn("Failed to compress fallback segment {}, leaving it uncompressed", id, e);
+            deleteQuietly(temp);
+        }
+    }
+
+    // Under the monitor; one segment is inflated at a time, replay reads it chunk by chunk
+    private byte[] inflate(long id, Path compressed) throws IOException {
+        if (id != inflatedSegmentId) {
+            try (InputStream in = new InflaterInputStream(new BufferedInputStream(Files.newInputStream(compressed), COPY_BUFFER_BYTES))) {
+                inflatedSegment = in.readAllBytes();
+            }
+            inflatedSegmentId = id;
+        }
+        return inflatedSegment;
+    }
+
+    private static void linkOrCopy(Path segment, Path copy) throws IOException {
+        Files.deleteIfExists(copy);
+        try {
+            Files.createLink(copy, segment);
+        } catch (UnsupportedOperationException | FileSystemException e) {
+            Files.copy(segment, copy, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void removeInterruptedCompressions() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : files.filter(path -> path.getFileName().toString().endsWith(COMPRESSED_SUFFIX + TEMP_SUFFIX)).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+        // A crash between the swap's move and delete leaves both forms; the raw segment is complete
+        for (long id : segmentIds()) {
+            if (Files.exists(segmentPath(id)) && Files.exists(compressedPath(id))) {
+                Files.delete(compressedPath(id));
+            }
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.debug("Failed to delete {}", file, e);
+        }
+    }
+
+    private void onAppended(int lines, long bytes) {
+        pendingEvents.addAndGet(lines);
+        liveBytes.addAndGet(bytes);
+    }
+
+    private void recount(List<Long> ids) throws IOException {
+        long bytes = 0;
+        long events = 0;
+        int compressed = 0;
+        for (long id : ids) {
+            Path segment = segmentFile(id);
+            bytes += Files.size(segment);
+            boolean isCompressed = segment.equals(compressedPath(id));
+            if (isCompressed) {
+                compressed++;
+            }
+            if (id >= checkpoint.segmentId()) {
+                long offset = id == checkpoint.segmentId() ? checkpoint.offset() : 0;
+                events += isCompressed ? countCompressedRecords(segment, offset) : MappedSegmentScanner.countRecords(segment, offset);
+            }
+        }
+        compressedSegmentCount.set(compressed);
+        liveBytes.set(bytes);
+        pendingEvents.set(events);
+        segmentCount.set(ids.contains(activeSegmentId.get()) ? ids.size() : ids.size() + 1);
+    }
+
+    private static long countCompressedRecords(Path segment, long offset) throws IOException {
+        long count = 0;
+        long position = 0;
+        byte[] buffer = new byte[COPY_BUFFER_BYTES];
+        try (InputStream in = new InflaterInputStream(new BufferedInputStream(Files.newInputStream(segment), COPY_BUFFER_BYTES))) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                for (int i = 0; i < read; i++, position++) {
+                    if (buffer[i] == '\n' && position >= offset) {
+                        count++;
+                    }
+                }
+            }
+        }
+        return count;
+    }
+
+    private void migrateLegacyFile(Path legacyFile, long floorId) throws IOException {
+        if (legacyFile == null || !Files.exists(legacyFile)) {
+            return;
+        }
+        if (Files.size(legacyFile) == 0) {
+            Files.delete(legacyFile);
+            return;
+        }
+        List<Long> ids = segmentIds();
+        long id = Math.max(ids.isEmpty() ? 0 : ids.get(ids.size() - 1), floorId) + 1;
+        if (!ids.isEmpty()) {
+            logger.warn("Legacy fallback file found next to existing segments; it will replay after them");
+        }
+        Files.move(legacyFile, segmentPath(id));
+        logger.info("Migrated legacy fallback file {} into segment {}", legacyFile, id);
+    }
+
+    private FallbackPosition loadCheckpoint() {
+        Path file = dir.resolve(CHECKPOINT_FILE);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try {
+            Map<?, ?> stored = objectMapper.readValue(file.toFile(), Map.class);
+            return new FallbackPosition(((Number) stored.get("segmentId")).longValue(),
+                    ((Number) stored.get("offset")).longValue());
+        } catch (Exception e) {
+            logger.warn("Unreadable fallback checkpoint {}, replaying from the first segment", file, e);
+            return null;
+        }
+    }
+
+    private void storeCheckpoint(FallbackPosition position) throws IOException {
+        Map<String, Object> value = new LinkedHashMap<>();
+        value.put("segmentId", position.segmentId());
+        value.put("offset", position.offset());
+        value.put("updatedAt", Instant.now().toString());
+        Path tmp = dir.resolve(CHECKPOINT_FILE + ".tmp");
+        Files.write(tmp, objectMapper.writeValueAsBytes(value));
+        Files.move(tmp, dir.resolve(CHECKPOINT_FILE), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private List<Long> segmentIds() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX))
+                    .map(name -> name.endsWith(SEGMENT_SUFFIX) ? name.substring(0, name.length() - SEGMENT_SUFFIX.length())
+                            : name.endsWith(COMPRESSED_SUFFIX) ? name.substring(0, name.length() - COMPRESSED_SUFFIX.length())
+                            : null)
+                    .filter(Objects::nonNull)
+                    .map(stem -> Long.parseLong(stem.substring(SEGMENT_PREFIX.length())))
+                    .distinct()
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private Path segmentPath(long id) {
+        return dir.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+    }
+
+    private Path compressedPath(long id) {
+        return dir.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, id, COMPRESSED_SUFFIX));
+    }
+
+    // Whichever form the segment is currently in
+    private Path segmentFile(long id) {
+        Path compressed = compressedPath(id);
+        return Files.exists(compressed) ? compressed : segmentPath(id);
+    }
+}
@@ -0,0 +1,13 @@
+package com.masterwayne.whiteboard_app.storage;
+
+/**
+ * Byte position in the segmented fallback log: the segment id and the offset of the next unread line.
+ */
+public record FallbackPosition(long segmentId, long offset) implements Comparable<FallbackPosition> {
+
+    @Override
+    public int compareTo(FallbackPosition other) {
+        int bySegment = Long.compare(segmentId, other.segmentId);
+        return bySegment != 0 ? bySegment : Long.compare(offset, other.offset);
+    }
+}
@@ -1,16 +1,27 @@
 package com.masterwayne.whiteboard_app.storage;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.masterwayne.whiteboard_app.diagnostics.FallbackWriteEvent;
+import com.masterwayne.whiteboard_app.diagnostics.LogRateLimiter;
 import com.masterwayne.whiteboard_app.model.DrawPayload;
 import com.masterwayne.whiteboard_app.model.ChatMessage;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import jakarta.annotation.PreDestroy;
+
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Stream;
 
 /**
  * FallbackStorage handles persistent storage of drawing and chat events to the local filesystem
@@ -20,202 +31,382 @@ import java.util.*;
  * - Write draw payloads and chat messages to fallback file on DB failure
  * - Replay events from fallback file back into database on recovery
  * - Clean up successfully replayed events from fallback file
+ *
+ * Events are kept in a {@link FallbackLog}: rolling segments under data/fallback (data being
+ * whiteboard.fallback.dir), written by a group-commit appender, with a persisted checkpoint marking
+ * how far replay has got.
  */
 @Component
 public class FallbackStorage {
     private static final Logger logger = LoggerFactory.getLogger(FallbackStorage.class);
-    private static final String FALLBACK_DIR = "data";
-    private static final String OFFLINE_PERSIST_FILE = "offline-persist.jsonl";
-    private static final String RECOVERY_BACKUP_FILE = "offline-persist.backup.jsonl";
+    private static final String SEGMENT_DIR = "fallback";
+    private static final String LEGACY_PERSIST_FILE = "offline-persist.jsonl";
+    private static final String BACKUP_DIR_PREFIX = "backup-";
+    private static final String DEAD_LETTER_DIR = "dead-letter";
+    private static final int DEAD_LETTER_QUEUE_CAPACITY = 1000;
+    private static final int PENDING_SCAN_CHUNK = 1000;
 
     private final ObjectMapper objectMapper;
-    private final Path fallbackFilePath;
     private final Path fallbackDirPath;
+    private final FallbackLog fallbackLog;
+    private final FallbackLog deadLetterLog;
+    private final FallbackEventDecoder eventDecoder;
+    private final int backupRetention;
+    // During an outage every event lands here; one line per event would swamp the log
+    private final LogRateLimiter writeLog = new LogRateLimiter(5, Duration.ofSeconds(1));
+    // Highest seq per channel stream written to the log, including events an earlier run left
+    // unreplayed (scanned once, on first use); see highestPendingSeq
+    private final ConcurrentMap<String, Long> pendingSeqs = new ConcurrentHashMap<>();
+    private final Object pendingSeqsScanLock = new Object();
+    private volatile boolean pendingSeqsScanned;
 
-    public FallbackStorage(ObjectMapper objectMapper) {
+    public FallbackStorage(ObjectMapper objectMapper,
+                           @Value("${whiteboard.fallback.fsync-policy:INTERVAL}") FallbackAppender.FsyncPolicy fsyncPolicy,
+                           @Value("${whiteboard.fallback.fsync-interval-ms:200}") long fsyncIntervalMs,
+                           @Value("${whiteboard.fallback.queue-capacity:10000}") int queueCapacity,
+                           @Value("${whiteboard.fallback.segment-max-bytes:16777216}") long segmentMaxBytes,
+                           @Value("${whiteboard.fallback.compression-level:1}") int compressionLevel,
+                           @Value("${whiteboard.replay.decode-parallelism:0}") int decodeParallelism,
+                           @Value("${whiteboard.fallback.backup-retention:5}") int backupRetention,
+                           @Value("${whiteboard.fallback.dir:data}") String fallbackDir) {
         this.objectMapper = objectMapper;
-        this.fallbackDirPath = Paths.get(FALLBACK_DIR);
-        this.fallbackFilePath = fallbackDirPath.resolve(OFFLINE_PERSIST_FILE);
-        initializeStorage();
-    }
-
-    /**
-     * Initializes the fallback storage directory.
-     */
-    private void initializeStorage() {
+        this.backupRetention = backupRetention;
+        this.eventDecoder = new FallbackEventDecoder(objectMapper, decodeParallelism);
+        this.fallbackDirPath = Paths.get(fallbackDir);
         try {
-            Files.createDirectories(fallbackDirPath);
-            logger.info("Fallback storage directory initialized at {}", fallbackDirPath.toAbsolutePath());
+            this.fallbackLog = new FallbackLog(fallbackDirPath.resolve(SEGMENT_DIR),
+                    fallbackDirPath.resolve(LEGACY_PERSIST_FILE), objectMapper,
+                    fsyncPolicy, fsyncIntervalMs, queueCapacity, segmentMaxBytes, compressionLevel);
+            this.deadLetterLog = new FallbackLog(fallbackDirPath.resolve(SEGMENT_DIR).resolve(DEAD_LETTER_DIR), null,
+                    objectMapper, FallbackAppender.FsyncPolicy.EVENT, fsyncIntervalMs, DEAD_LETTER_QUEUE_CAPACITY,
+                    segmentMaxBytes);
         } catch (IOException e) {
-            logger.error("Failed to initialize fallback storage directory", e);
+            throw new UncheckedIOException("Failed to open fallback log under " + fallbackDirPath.toAbsolutePath(), e);
         }
     }
 
+    @PreDestroy
+    public void shutdown() {
+        fallbackLog.close();
+        deadLetterLog.close();
+        eventDecoder.close();
+    }
+
     /**
      * Writes a draw event to the fallback file using JSON Lines format.
-     * Thread-safe via synchronized block to prevent concurrent writes from corrupting file.
+     * Thread-safe: lines are handed to the appender's queue, so callers do not contend on a lock.
+     * Throws if the event could not be queued (or, with the EVENT fsync policy, written); the returned
+     * future reports whether the appender then wrote it.
      */
-    public synchronized void writeDrawPayload(String sessionName, String channelName, DrawPayload payload) {
-        try {
-            FallbackEvent event = new FallbackEvent(
-                    "DRAW",
-                    sessionName,
-                    channelName,
-                    payload,
-                    Instant.now()
-            );
-            writeFallbackEvent(event);
-            logger.warn("Draw event persisted to fallback file: session={}, channel={}, type={}", 
-                    sessionName, channelName, payload.getType());
-        } catch (IOException e) {
-            logger.error("Failed to write draw payload to fallback file", e);
+    public CompletableFuture<Void> writeDrawPayload(String sessionName, String channelName, DrawPayload payload)
+            throws IOException {
+        FallbackEvent event = new FallbackEvent(
+                "DRAW",
+                sessionName,
+                channelName,
+                payload,
+                Instant.now()
+        );
+        CompletableFuture<Void> written = writeFallbackEvent(event);
+        if (writeLog.tryAcquire()) {
+            logger.warn("Draw event persisted to fallback file: session={}, channel={}, type={}, suppressed={}",
+                    sessionName, channelName, payload.getType(), writeLog.drainSuppressed());
         }
+        return written;
     }
 
     /**
      * Writes a chat message to the fallback file using JSON Lines format.
-     * Thread-safe via synchronized block.
+     * Thread-safe via the appender queue; failures are reported as for {@link #writeDrawPayload}.
      */
-    public synchronized void writeChatMessage(String sessionName, String channelName, ChatMessage message) {
-        try {
-            FallbackEvent event = new FallbackEvent(
-                    "CHAT",
-                    sessionName,
-                    channelName,
-                    message,
-                    Instant.now()
-            );
-            writeFallbackEvent(event);
-            logger.warn("Chat message persisted to fallback file: session={}, channel={}, sender={}", 
-                    sessionName, channelName, message.getSenderName());
-        } catch (IOException e) {
-            logger.error("Failed to write chat message to fallback file", e);
+    public CompletableFuture<Void> writeChatMessage(String sessionName, String channelName, ChatMessage message)
+            throws IOException {
+        FallbackEvent event = new FallbackEvent(
+                "CHAT",
+                sessionName,
+                channelName,
+                message,
+                Instant.now()
+        );
+        CompletableFuture<Void> written = writeFallbackEvent(event);
+        if (writeLog.tryAcquire()) {
+            logger.warn("Chat message persisted to fallback file: session={}, channel={}, sender={}, suppressed={}",
+                    sessionName, channelName, message.getSenderName(), writeLog.drainSuppressed());
         }
+        return written;
     }
 
     /**
      * Appends a single fallback event to the file (one JSON object per line).
+     * Serialization happens here, on the caller thread; the appender only copies bytes.
      */
-    private void writeFallbackEvent(FallbackEvent event) throws IOException {
-        try (BufferedWriter writer = Files.newBufferedWriter(
-                fallbackFilePath,
-                StandardOpenOption.CREATE,
-                StandardOpenOption.APPEND)) {
-            writer.write(objectMapper.writeValueAsString(event));
-            writer.newLine();
-            writer.flush();
+    private CompletableFuture<Void> writeFallbackEvent(FallbackEvent event) throws IOException {
+        FallbackWriteEvent jfrEvent = new FallbackWriteEvent();
+        jfrEvent.begin();
+        byte[] json = objectMapper.writeValueAsBytes(event);
+        byte[] line = Arrays.copyOf(json, json.length + 1);
+        line[json.length] = '\n';
+        CompletableFuture<Void> written = fallbackLog.append(line);
+        notePendingSeq(event);
+        jfrEvent.end();
+        if (jfrEvent.shouldCommit()) {
+            jfrEvent.eventType = event.getEventType();
+            jfrEvent.sessionName = event.getSessionName();
+            jfrEvent.channelName = event.getChannelName();
+            jfrEvent.bytes = line.length;
+            jfrEvent.commit();
         }
+        return written;
     }
 
     /**
-     * Reads all fallback events from the file and returns them as a list.
-     * Useful for recovery/replay operations.
+     * Highest draw (chat when chat is true) seq among the channel's events in the fallback log,
+     * 0 if there are none. The sequencer seeds above it, so events replayed after a restart never
+     * share a seq with new ones. Replayed events are not forgotten: they are in the store by then,
+     * at the same seq.
      */
-    public synchronized List<FallbackEvent> readFallbackEvents() {
-        List<FallbackEvent> events = new ArrayList<>();
-        if (!Files.exists(fallbackFilePath)) {
-            logger.info("No fallback file found at {}", fallbackFilePath);
-            return events;
+    public long highestPendingSeq(String sessionName, String channelName, boolean chat) throws IOException {
+        if (!pendingSeqsScanned) {
+            scanPendingSeqs();
         }
+        return pendingSeqs.getOrDefault(pendingSeqKey(sessionName, channelName, chat ? "CHAT" : "DRAW"), 0L);
+    }
 
-        try (BufferedReader reader = Files.newBufferedReader(fallbackFilePath)) {
-            String line;
-            int lineNumber = 0;
-            while ((line = reader.readLine()) != null) {
-                lineNumber++;
-                if (line.trim().isEmpty()) {
-                    continue;
-                }
-                try {
-                    FallbackEvent event = objectMapper.readValue(line, FallbackEvent.class);
-                    events.add(event);
-                } catch (Exception e) {
-                    logger.warn("Failed to parse fallback event at line {}: {}", lineNumber, e.getMessage());
-                }
+    private void scanPendingSeqs() throws IOException {
+        synchronized (pendingSeqsScanLock) {
+            if (pendingSeqsScanned) {
+                return;
             }
-            logger.info("Read {} fallback events from file", events.size());
+            FallbackPosition from = getReplayCheckpoint();
+            PendingEvents chunk;
+            do {
+                chunk = readPendingEvents(from, PENDING_SCAN_CHUNK);
+                for (ReplayEntry entry : chunk.getEntries()) {
+                    if (entry.getEvent() != null) {
+                        notePendingSeq(entry.getEvent());
+                    }
+                }
+                from = chunk.getEnd();
+            } while (chunk.getLineCount() >= PENDING_SCAN_CHUNK);
+            pendingSeqsScanned = true;
+        }
+    }
+
+    private void notePendingSeq(FallbackEvent event) {
+        // Written events carry the payload object; decoded ones a map
+        Object seq = switch (event.getData()) {
+            case DrawPayload payload -> payload.getSeq();
+            case ChatMessage message -> message.getSeq();
+            case Map<?, ?> fields -> fields.get("seq");
+            case null, default -> null;
+        };
+        if (seq instanceof Number number && number.longValue() > 0) {
+            pendingSeqs.merge(pendingSeqKey(event.getSessionName(), event.getChannelName(), event.getEventType()),
+                    number.longValue(), Math::max);
+        }
+    }
+
+    private static String pendingSeqKey(String sessionName, String channelName, String eventType) {
+        return sessionName + '\u0000' + channelName + '\u0000' + eventType;
+    }
+
+    private void flushAppender() {
+        try {
+            fallbackLog.flush();
         } catch (IOException e) {
-            logger.error("Failed to read fallback events from file", e);
+            logger.warn("Failed to flush pending fallback writes", e);
         }
+    }
+
+    /**
+     * Position of the first event not yet replayed.
+     */
+    public FallbackPosition getReplayCheckpoint() {
+        return fallbackLog.getCheckpoint();
+    }
 
-        return events;
+    /**
+     * Reads up to maxEvents lines starting at from, without loading the rest of the log, and decodes
+     * them in parallel in log order. Lines that cannot be parsed come back as entries without an
+     * event so they can be dead-lettered.
+     */
+    public PendingEvents readPendingEvents(FallbackPosition from, int maxEvents) throws IOException {
+        flushAppender();
+        FallbackLog.ReadResult result = fallbackLog.read(from, maxEvents);
+        FallbackEvent[] events = eventDecoder.decode(result.lines());
+        List<ReplayEntry> entries = new ArrayList<>(events.length);
+        for (int i = 0; i < events.length; i++) {
+            byte[] line = result.lines().get(i);
+            if (line.length == 0) {
+                continue;
+            }
+            FallbackEvent event = events[i];
+            if (event == null) {
+                logger.warn("Failed to parse fallback event ending at {}", result.lineEnds().get(i));
+            }
+            entries.add(new ReplayEntry(event, event == null ? line : null, result.lineEnds().get(i), i + 1));
+        }
+        return new PendingEvents(entries, result.lines().size(), result.next());
     }
 
     /**
-     * Clears the fallback file (called after successful replay to database).
+     * Advances the replay checkpoint to end; lines is how many log lines that consumes.
      */
-    public synchronized void clearFallbackFile() {
+    public synchronized void commitReplay(FallbackPosition end, long lines) {
         try {
-            Files.deleteIfExists(fallbackFilePath);
-            logger.info("Fallback file cleared after successful replay");
+            fallbackLog.commit(end, lines);
+            logger.debug("Fallback replay checkpoint advanced to {}", end);
         } catch (IOException e) {
-            logger.error("Failed to delete fallback file", e);
+            logger.error("Failed to persist fallback replay checkpoint", e);
         }
     }
 
     /**
-     * Creates a backup of the current fallback file before attempting replay.
-     * Useful for debugging and recovery if replay fails.
+     * Keeps an event that could not be replayed, with the reason, in the dead-letter segments
+     * under data/fallback/dead-letter instead of discarding it.
+     */
+    public void writeDeadLetter(ReplayEntry entry, String reason) {
+        try {
+            Map<String, Object> record = new LinkedHashMap<>();
+            record.put("reason", reason);
+            record.put("failedAt", Instant.now());
+            record.put("position", entry.getPosition());
+            if (entry.getEvent() != null) {
+                record.put("event", entry.getEvent());
+            } else {
+                record.put("raw", new String(entry.getRaw(), StandardCharsets.UTF_8));
+            }
+            byte[] json = objectMapper.writeValueAsBytes(record);
+            byte[] line = Arrays.copyOf(json, json.length + 1);
+            line[json.length] = '\n';
+            deadLetterLog.append(line);
+            logger.warn("Fallback event dead-lettered at {}: {}", entry.getPosition(), reason);
+        } catch (IOException e) {
+            logger.error("Failed to write dead-letter record for fallback event at {}", entry.getPosition(), e);
+        }
+    }
+
+    public long getDeadLetterCount() {
+        return deadLetterLog.getPendingEvents();
+    }
+
+    /**
+     * Deletes every fallback segment, replayed or not. Admin operation; callers go through
+     * PersistenceWorker.clearFallback, which also forgets what the segments held.
+     */
+    public synchronized void clearFallbackFile() throws IOException {
+        fallbackLog.clear();
+        logger.info("Fallback log cleared");
+    }
+
+    /**
+     * Creates a backup of the fallback segments and checkpoint before attempting replay.
+     * Useful for debugging and recovery if replay fails. Sealed segments are hard-linked, so this
+     * is cheap enough to run before every replay.
      */
     public synchronized void backupFallbackFile() {
-        if (!Files.exists(fallbackFilePath)) {
+        if (fallbackLog.getPendingEvents() == 0) {
             return;
         }
         try {
-            Files.copy(
-                    fallbackFilePath,
-                    fallbackDirPath.resolve(RECOVERY_BACKUP_FILE + "." + System.currentTimeMillis()),
-                    StandardCopyOption.REPLACE_EXISTING
-            );
-            logger.info("Fallback file backed up before recovery attempt");
+            fallbackLog.backupTo(fallbackDirPath.resolve(BACKUP_DIR_PREFIX + SEGMENT_DIR + "-" + System.currentTimeMillis()));
+            logger.info("Fallback log backed up before recovery attempt");
+            pruneBackups();
         } catch (IOException e) {
-            logger.error("Failed to backup fallback file", e);
+            logger.error("Failed to backup fallback log", e);
         }
     }
 
     /**
-     * Returns statistics about the fallback file.
+     * Keeps the newest backupRetention backup directories. Their hard links are what keep replayed
+     * segments on disk, so old backups would otherwise pin them forever.
      */
-    public synchronized Map<String, Object> getFallbackStats() {
-        Map<String, Object> stats = new LinkedHashMap<>();
-        stats.put("fallbackFilePath", fallbackFilePath.toAbsolutePath());
-        stats.put("exists", Files.exists(fallbackFilePath));
-
-        if (Files.exists(fallbackFilePath)) {
-            try {
-                stats.put("fileSizeBytes", Files.size(fallbackFilePath));
-                stats.put("eventCount", Files.lines(fallbackFilePath).count());
-            } catch (IOException e) {
-                logger.warn("Failed to compute fallback file statistics", e);
-                stats.put("error", e.getMessage());
+    private void pruneBackups() throws IOException {
+        List<Path> backups;
+        try (DirectoryStream<Path> dirs = Files.newDirectoryStream(fallbackDirPath, BACKUP_DIR_PREFIX + SEGMENT_DIR + "-*")) {
+            backups = new ArrayList<>();
+            dirs.forEach(backups::add);
+        }
+        // Names end in the creation time in millis, so they sort oldest first
+        backups.sort(Comparator.comparing(path -> path.getFileName().toString()));
+        for (int i = 0; i < backups.size() - Math.max(1, backupRetention); i++) {
+            try (Stream<Path> files = Files.walk(backups.get(i))) {
+                for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                    Files.deleteIfExists(file);
+                }
             }
+            logger.debug("Removed old fallback backup {}", backups.get(i));
         }
+    }
 
+    /**
+     * Returns statistics about the fallback log. Constant-time: everything comes from counters.
+     */
+    public Map<String, Object> getFallbackStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("fallbackDirPath", fallbackLog.getDirectory().toAbsolutePath());
+        stats.put("exists", fallbackLog.getPendingEvents() > 0);
+        stats.put("fsyncPolicy", fallbackLog.getAppender().getFsyncPolicy());
+        stats.put("pendingWrites", fallbackLog.getAppender().getPendingCount());
+        stats.put("segmentCount", fallbackLog.getSegmentCount());
+        stats.put("compressedSegmentCount", fallbackLog.getCompressedSegmentCount());
+        stats.put("activeSegmentId", fallbackLog.getActiveSegmentId());
+        stats.put("checkpoint", fallbackLog.getCheckpoint());
+        stats.put("fileSizeBytes", fallbackLog.getLiveBytes());
+        stats.put("eventCount", fallbackLog.getPendingEvents());
+        stats.put("deadLetterCount", deadLetterLog.getPendingEvents());
         return stats;
     }
 
-    public synchronized long getFallbackEventCount() {
-        if (!Files.exists(fallbackFilePath)) {
-            return 0L;
-        }
-        try {
-            return Files.lines(fallbackFilePath).count();
-        } catch (IOException e) {
-            logger.warn("Failed to count fallback events", e);
-            return 0L;
-        }
+    public long getFallbackEventCount() {
+        return fallbackLog.getPendingEvents();
     }
 
-    public synchronized long getFallbackFileSizeBytes() {
-        if (!Files.exists(fallbackFilePath)) {
-            return 0L;
+    public long getFallbackFileSizeBytes() {
+        return fallbackLog.getLiveBytes();
+    }
+
+    /**
+     * One chunk of events read after a log position, with the position to resume from.
+     * lineCount includes blank and unparseable lines, which are consumed as well.
+     */
+    public static class PendingEvents {
+        private final List<ReplayEntry> entries;
+        private final long lineCount;
+        private final FallbackPosition end;
+
+        public PendingEvents(List<ReplayEntry> entries, long lineCount, FallbackPosition end) {
+            this.entries = entries;
+            this.lineCount = lineCount;
+            this.end = end;
         }
-        try {
-            return Files.size(fallbackFilePath);
-        } catch (IOException e) {
-            logger.warn("Failed to read fallback file size", e);
-            return 0L;
+
+        public List<ReplayEntry> getEntries() { return entries; }
+        public long getLineCount() { return lineCount; }
+        public FallbackPosition getEnd() { return end; }
+    }
+
+    /**
+     * A fallback log line: the parsed event (or the raw bytes when it could not be parsed), the log
+     * position just after it and how many lines of its chunk end with it.
+     */
+    public static class ReplayEntry {
+        private final FallbackEvent event;
+        private final byte[] raw;
+        private final FallbackPosition position;
+        private final int linesThrough;
+
+        public ReplayEntry(FallbackEvent event, byte[] raw, FallbackPosition position, int linesThrough) {
+            this.event = event;
+            this.raw = raw;
+            this.position = position;
+            this.linesThrough = linesThrough;
         }
+
+        public FallbackEvent getEvent() { return event; }
+        public byte[] getRaw() { return raw; }
+        public FallbackPosition getPosition() { return position; }
+        public int getLinesThrough() { return linesThrough; }
     }
 
     /**
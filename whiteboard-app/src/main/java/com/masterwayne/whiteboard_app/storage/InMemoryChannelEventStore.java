@@ -0,0 +1,187 @@
+package com.masterwayne.whiteboard_app.storage;
+
+import com.masterwayne.whiteboard_app.exception.PersistenceException;
+import com.masterwayne.whiteboard_app.model.ChatMessage;
+import com.masterwayne.whiteboard_app.model.DrawPayload;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Channel history on the heap, for tests and benchmarks; nothing survives a restart. Clears follow
+ * the {@link ChannelEventStore} rules, with the clear mark kept per channel as the JPA store keeps it
+ * on the channel row.
+ * Channels are checked against {@code channelExists} before anything in a batch is applied, so a
+ * rejected batch leaves no trace.
+ */
+public class InMemoryChannelEventStore implements ChannelEventStore {
+    private final BiPredicate<String, String> channelExists;
+    private final ConcurrentMap<String, History> channels = new ConcurrentHashMap<>();
+
+    /**
+     * A store that accepts events for any channel.
+     */
+    public InMemoryChannelEventStore() {
+        this((sessionName, channelName) -> true);
+    }
+
+    public InMemoryChannelEventStore(BiPredicate<String, String> channelExists) {
+        this.channelExists = channelExists;
+    }
+
+    @Override
+    public void append(List<ChannelAppend> appends) throws PersistenceException {
+        for (ChannelAppend append : appends) {
+            if (!channelExists.test(append.sessionName(), append.channelName())) {
+                throw new PersistenceException("Channel '" + append.channelName() + "' not found in session '"
+                        + append.sessionName() + "'");
+            }
+        }
+        for (ChannelAppend append : appends) {
+            History history = channels.computeIfAbsent(key(append.sessionName(), append.channelName()), k -> new History());
+            synchronized (history) {
+                if (append.cleared()) {
+                    history.clear(append.clear().getSeq());
+                }
+                for (DrawPayload shape : append.shapes()) {
+                    if (!history.hidden(shape.getSeq()) && firstAt(history.shapeSeqs, shape.getSeq())) {
+                        history.shapes.add(shape);
+                    }
+                }
+                for (ChatMessage message : append.chatMessages()) {
+                    if (firstAt(history.chatSeqs, message.getSeq())) {
+                        history.chatMessages.add(message);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public List<DrawPayload> shapes(String sessionName, String channelName) {
+        return read(sessionName, channelName, history -> new ArrayList<>(history.shapes));
+    }
+
+    @Override
+    public List<DrawPayload> shapesInRange(String sessionName, String channelName, long afterSeq, long toSeq) {
+        return read(sessionName, channelName, history -> inRange(history.shapes, DrawPayload::getSeq, afterSeq, toSeq));
+    }
+
+    @Override
+    public List<ChatMessage> chatMessages(String sessionName, String channelName) {
+        return read(sessionName, channelName, history -> new ArrayList<>(history.chatMessages));
+    }
+
+    @Override
+    public List<ChatMessage> chatMessagesInRange(String sessionName, String channelName, long afterSeq, long toSeq) {
+        return read(sessionName, channelName, history -> inRange(history.chatMessages, ChatMessage::getSeq, afterSeq, toSeq));
+    }
+
+    @Override
+    public long maxShapeSeq(String sessionName, String channelName) {
+        return read(sessionName, channelName, history -> Math.max(history.clearedThrough, maxSeq(history.shapes, DrawPayload::getSeq)), 0L);
+    }
+
+    @Override
+    public long maxChatSeq(String sessionName, String channelName) {
+        return read(sessionName, channelName, history -> maxSeq(history.chatMessages, ChatMessage::getSeq), 0L);
+    }
+
+    @Override
+    public long countShapes(String sessionName, String channelName) {
+        return read(sessionName, channelName, history -> (long) history.shapes.size(), 0L);
+    }
+
+    @Override
+    public long countChatMessages(String sessionName, String channelName) {
+        return read(sessionName, channelName, history -> (long) history.chatMessages.size(), 0L);
+    }
+
+    @Override
+    public void forEachAttachmentUrl(Consumer<String> consumer) {
+        for (History history : channels.values()) {
+            List<String> urls = new ArrayList<>();
+            synchronized (history) {
+                for (ChatMessage message : history.chatMessages) {
+                    if (message.getAttachmentUrl() != null) {
+                        urls.add(message.getAttachmentUrl());
+                    }
+                }
+            }
+            urls.forEach(consumer);
+        }
+    }
+
+    private <T> List<T> read(String sessionName, String channelName, Function<History, List<T>> reader) {
+        return read(sessionName, channelName, reader, List.of());
+    }
+
+    private <T> T read(String sessionName, String channelName, Function<History, T> reader, T empty) {
+        History history = channels.get(key(sessionName, channelName));
+        if (history == null) {
+            return empty;
+        }
+        synchronized (history) {
+            return reader.apply(history);
+        }
+    }
+
+    private static <T> List<T> inRange(List<T> events, Function<T, Long> seqOf, long afterSeq, long toSeq) {
+        List<T> selected = new ArrayList<>();
+        for (T event : events) {
+            Long seq = seqOf.apply(event);
+            if (seq != null && seq > afterSeq && seq <= toSeq) {
+                selected.add(event);
+            }
+        }
+        selected.sort((a, b) -> Long.compare(seqOf.apply(a), seqOf.apply(b)));
+        return selected;
+    }
+
+    private static <T> long maxSeq(List<T> events, Function<T, Long> seqOf) {
+        long max = 0;
+        for (T event : events) {
+            Long seq = seqOf.apply(event);
+            if (seq != null) {
+                max = Math.max(max, seq);
+            }
+        }
+        return max;
+    }
+
+    private static String key(String sessionName, String channelName) {
+        return sessionName + '\u0000' + channelName;
+    }
+
+    private static boolean firstAt(Set<Long> seqs, Long seq) {
+        return seq == null || seq <= 0 || seqs.add(seq);
+    }
+
+    private static final class History {
+        final List<DrawPayload> shapes = new ArrayList<>();
+        final List<ChatMessage> chatMessages = new ArrayList<>();
+        // Every seq ever appended, hidden by a clear or not
+        final Set<Long> shapeSeqs = new HashSet<>();
+        final Set<Long> chatSeqs = new HashSet<>();
+        long clearedThrough;
+
+        void clear(Long seq) {
+            long through = seq != null ? seq : Math.max(clearedThrough, maxSeq(shapes, DrawPayload::getSeq));
+            if (through > clearedThrough) {
+                clearedThrough = through;
+                shapes.removeIf(shape -> hidden(shape.getSeq()));
+            }
+        }
+
+        boolean hidden(Long seq) {
+            return clearedThrough > 0 && (seq == null || seq <= clearedThrough);
+        }
+    }
+}
@@ -0,0 +1,212 @@
+package com.masterwayne.whiteboard_app.storage;
+
+import com.masterwayne.whiteboard_app.exception.PersistenceException;
+import com.masterwayne.whiteboard_app.model.Channel;
+import com.masterwayne.whiteboard_app.model.ChatMessage;
+import com.masterwayne.whiteboard_app.model.DrawPayload;
+import com.masterwayne.whiteboard_app.model.WhiteboardSession;
+import com.masterwayne.whiteboard_app.repository.ChannelRepository;
+import com.masterwayne.whiteboard_app.repository.WhiteboardSessionRepository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Channel history in the database, as the channel_shapes and channel_chat_messages element collections.
+ *
+ * Design:
+ * - A batch is one transaction: each session touched is loaded once, its channels' collections are
+ *   appended to, and the session is saved
+ * - A clear deletes the shapes with seq &lt;= its seq, not the whole collection, and is remembered on
+ *   the channel row (clearedThroughSeq), so a clear replayed after live writes resumed cannot delete
+ *   shapes drawn after it, and shapes it covers that are replayed later are not stored
+ * - Events at a seq the channel already holds are skipped, looked up with one indexed seq query per
+ *   channel and stream over the batch's seq range; a live batch is above everything stored and finds
+ *   nothing
+ * - Reads are channel-scoped queries that never load the session graph
+ */
+public class JpaChannelEventStore implements ChannelEventStore {
+    private final WhiteboardSessionRepository sessionRepository;
+    private final ChannelRepository channelRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+
+    public JpaChannelEventStore(WhiteboardSessionRepository sessionRepository,
+                                ChannelRepository channelRepository,
+                                PlatformTransactionManager transactionManager) {
+        this.sessionRepository = sessionRepository;
+        this.channelRepository = channelRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    @Override
+    public void append(List<ChannelAppend> appends) throws PersistenceException {
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                try {
+                    applyBatch(appends);
+                } catch (PersistenceException e) {
+                    throw new CompletionException(e);
+                }
+            });
+        } catch (CompletionException e) {
+            // Unknown session or channel: hand the checked exception back so replay can dead-letter it
+            throw (PersistenceException) e.getCause();
+        }
+    }
+
+    private void applyBatch(List<ChannelAppend> appends) throws PersistenceException {
+        Map<String, WhiteboardSession> sessions = new LinkedHashMap<>();
+        for (ChannelAppend append : appends) {
+            WhiteboardSession session = sessions.get(append.sessionName());
+            if (session == null) {
+                session = sessionRepository.findBySessionName(append.sessionName())
+                        .orElseThrow(() -> new PersistenceException("Session '" + append.sessionName() + "' not found for persisting batch"));
+                sessions.put(append.sessionName(), session);
+            }
+            Channel channel = resolveChannel(session, append.channelName());
+            // Looked up before this channel is changed, so the query's auto-flush has nothing of it to write
+            Set<Long> shapeSeqs = storedSeqs(append.shapes(), DrawPayload::getSeq, (from, to) ->
+                    channelRepository.findShapeSeqsBetween(append.sessionName(), append.channelName(), from, to));
+            Set<Long> chatSeqs = storedSeqs(append.chatMessages(), ChatMessage::getSeq, (from, to) ->
+                    channelRepository.findChatSeqsBetween(append.sessionName(), append.channelName(), from, to));
+            if (append.cleared()) {
+                applyClear(channel, append.clear().getSeq());
+            }
+            long clearedThrough = channel.getClearedThroughSeq() != null ? channel.getClearedThroughSeq() : 0L;
+            for (DrawPayload shape : append.shapes()) {
+                if (!hiddenByClear(shape.getSeq(), clearedThrough) && firstAt(shapeSeqs, shape.getSeq())) {
+                    channel.getShapes().add(shape);
+                }
+            }
+            for (ChatMessage message : append.chatMessages()) {
+                if (firstAt(chatSeqs, message.getSeq())) {
+                    channel.getChatMessages().add(message);
+                }
+            }
+        }
+        for (WhiteboardSession session : sessions.values()) {
+            sessionRepository.save(session);
+        }
+    }
+
+    // Seqs already stored in the seq range of events, which the events then add theirs to
+    private static <T> Set<Long> storedSeqs(List<T> events, Function<T, Long> seqOf,
+                                            BiFunction<Long, Long, List<Long>> storedBetween) {
+        long min = Long.MAX_VALUE;
+        long max = 0;
+        for (T event : events) {
+            Long seq = seqOf.apply(event);
+            if (seq != null && seq > 0) {
+                min = Math.min(min, seq);
+                max = Math.max(max, seq);
+            }
+        }
+        return max > 0 ? new HashSet<>(storedBetween.apply(min, max)) : new HashSet<>();
+    }
+
+    private static boolean firstAt(Set<Long> seqs, Long seq) {
+        return seq == null || seq <= 0 || seqs.add(seq);
+    }
+
+    // A clear without a seq (fallback lines from before sequencing) covers everything stored so far
+    private static void applyClear(Channel channel, Long clearSeq) {
+        long through = clearSeq != null ? clearSeq : maxSeq(channel.getShapes());
+        long clearedThrough = channel.getClearedThroughSeq() != null ? channel.getClearedThroughSeq() : 0L;
+        if (through <= clearedThrough) {
+            // Older than a clear already applied: everything it covers is gone already
+            return;
+        }
+        channel.setClearedThroughSeq(through);
+        channel.getShapes().removeIf(shape -> hiddenByClear(shape.getSeq(), through));
+    }
+
+    private static boolean hiddenByClear(Long seq, long clearedThrough) {
+        return clearedThrough > 0 && (seq == null || seq <= clearedThrough);
+    }
+
+    private static long maxSeq(List<DrawPayload> shapes) {
+        long max = 0;
+        for (DrawPayload shape : shapes) {
+            if (shape.getSeq() != null) {
+                max = Math.max(max, shape.getSeq());
+            }
+        }
+        return max;
+    }
+
+    private static Channel resolveChannel(WhiteboardSession session, String channelName) throws PersistenceException {
+        if (session.getChannels() != null) {
+            for (Channel channel : session.getChannels()) {
+                if (channelName.equals(channel.getChannelName())) {
+                    return channel;
+                }
+            }
+        }
+        throw new PersistenceException("Channel '" + channelName + "' not found in session");
+    }
+
+    @Override
+    public List<DrawPayload> shapes(String sessionName, String channelName) {
+        return channelRepository.findShapes(sessionName, channelName);
+    }
+
+    @Override
+    public List<DrawPayload> shapesInRange(String sessionName, String channelName, long afterSeq, long toSeq) {
+        return channelRepository.findShapesInRange(sessionName, channelName, afterSeq, toSeq);
+    }
+
+    @Override
+    public List<ChatMessage> chatMessages(String sessionName, String channelName) {
+        return channelRepository.findChatMessages(sessionName, channelName);
+    }
+
+    @Override
+    public List<ChatMessage> chatMessagesInRange(String sessionName, String channelName, long afterSeq, long toSeq) {
+        return channelRepository.findChatMessagesInRange(sessionName, channelName, afterSeq, toSeq);
+    }
+
+    @Override
+    public long maxShapeSeq(String sessionName, String channelName) {
+        Long max = channelRepository.findMaxShapeSeq(sessionName, channelName);
+        Long clearedThrough = channelRepository.findClearedThroughSeq(sessionName, channelName);
+        return Math.max(max != null ? max : 0L, clearedThrough != null ? clearedThrough : 0L);
+    }
+
+    @Override
+    public long maxChatSeq(String sessionName, String channelName) {
+        Long max = channelRepository.findMaxChatSeq(sessionName, channelName);
+        return max != null ? max : 0L;
+    }
+
+    @Override
+    public long countShapes(String sessionName, String channelName) {
+        return channelRepository.countShapes(sessionName, channelName);
+    }
+
+    @Override
+    public long countChatMessages(String sessionName, String channelName) {
+        return channelRepository.countChatMessages(sessionName, channelName);
+    }
+
+    @Override
+    public void forEachAttachmentUrl(Consumer<String> consumer) {
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<String> urls = channelRepository.streamAttachmentUrls()) {
+                urls.forEach(consumer);
+            }
+        });
+    }
+}
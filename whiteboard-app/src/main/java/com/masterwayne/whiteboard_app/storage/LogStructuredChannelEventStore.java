@@ -0,0 +1,311 @@
+package com.masterwayne.whiteboard_app.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.masterwayne.whiteboard_app.exception.PersistenceException;
+import com.masterwayne.whiteboard_app.model.ChatMessage;
+import com.masterwayne.whiteboard_app.model.DrawPayload;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Channel history as per-channel append-only logs on local disk, one {@link SegmentedEventLog} for
+ * the draw stream and one for the chat stream under {@code <dir>/<session>/<channel>/}, names
+ * base64url-encoded.
+ *
+ * Design:
+ * - A batch is written to every log it touches, forced to disk (whiteboard.store.log.fsync) and only
+ *   then published to readers; any I/O failure rolls every touched log back to where the batch
+ *   started and surfaces as UncheckedIOException, which the worker treats as an outage (fallback log)
+ * - Channels are checked against the database before anything in a batch is written, so an event
+ *   for a channel that does not exist is rejected as poison instead of creating files
+ * - Logs are opened lazily, under the write lock since opening may truncate a torn tail; reads of a
+ *   channel with nothing on disk return empty without creating directories
+ * - Compaction runs on the scheduler: the plan and the swap take the write lock, writing the
+ *   compacted segment does not, so appends only wait for the swap
+ */
+public class LogStructuredChannelEventStore implements ChannelEventStore, AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(LogStructuredChannelEventStore.class);
+    private static final Base64.Encoder NAME_ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder NAME_DECODER = Base64.getUrlDecoder();
+
+    private final Path root;
+    private final ObjectMapper objectMapper;
+    private final BiPredicate<String, String> channelExists;
+    private final long segmentMaxBytes;
+    private final int indexIntervalBytes;
+    private final boolean fsync;
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ConcurrentMap<String, ChannelLogs> channels = new ConcurrentHashMap<>();
+    private volatile boolean closed;
+
+    public LogStructuredChannelEventStore(Path root,
+                                          ObjectMapper objectMapper,
+                                          BiPredicate<String, String> channelExists,
+                                          long segmentMaxBytes,
+                                          int indexIntervalBytes,
+                                          boolean fsync) {
+        this.root = root;
+        this.objectMapper = objectMapper;
+        this.channelExists = channelExists;
+        this.segmentMaxBytes = segmentMaxBytes;
+        this.indexIntervalBytes = indexIntervalBytes;
+        this.fsync = fsync;
+        try {
+            Files.createDirectories(root);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create event store directory " + root, e);
+        }
+        logger.info("Log-structured event store at {} (segment {} bytes, index every {} bytes, fsync={})",
+                root.toAbsolutePath(), segmentMaxBytes, indexIntervalBytes, fsync);
+    }
+
+    private record ChannelLogs(SegmentedEventLog<DrawPayload> draws, SegmentedEventLog<ChatMessage> chats) {
+    }
+
+    @Override
+    public void append(List<ChannelAppend> appends) throws PersistenceException {
+        for (ChannelAppend append : appends) {
+            if (!channelExists.test(append.sessionName(), append.channelName())) {
+                throw new PersistenceException("Channel '" + append.channelName() + "' not found in session '"
+                        + append.sessionName() + "'");
+            }
+        }
+        writeLock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Event store is closed");
+            }
+            Map<SegmentedEventLog<?>, SegmentedEventLog.Mark> touched = new LinkedHashMap<>();
+            try {
+                for (ChannelAppend append : appends) {
+                    ChannelLogs logs = logsFor(append.sessionName(), append.channelName(), true);
+                    if (append.cleared() || !append.shapes().isEmpty()) {
+                        touched.putIfAbsent(logs.draws(), logs.draws().mark());
+                        if (append.cleared()) {
+                            logs.draws().appendClear(append.clear().getSeq());
+                        }
+                        for (DrawPayload shape : append.shapes()) {
+                            logs.draws().appendEvent(shape);
+                        }
+                    }
+                    if (!append.chatMessages().isEmpty()) {
+                        touched.putIfAbsent(logs.chats(), logs.chats().mark());
+                        for (ChatMessage message : append.chatMessages()) {
+                            logs.chats().appendEvent(message);
+                        }
+                    }
+                }
+                if (fsync) {
+                    for (Map.Entry<SegmentedEventLog<?>, SegmentedEventLog.Mark> entry : touched.entrySet()) {
+                        entry.getKey().sync(entry.getValue());
+                    }
+                }
+            } catch (IOException e) {
+                touched.forEach(SegmentedEventLog::rollback);
+                throw new UncheckedIOException("Failed to append batch to event store", e);
+            }
+            touched.keySet().forEach(SegmentedEventLog::publish);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public List<DrawPayload> shapes(String sessionName, String channelName) {
+        ChannelLogs logs = logsFor(sessionName, channelName, false);
+        return logs == null ? List.of() : read(() -> logs.draws().readAll());
+    }
+
+    @Override
+    public List<DrawPayload> shapesInRange(String sessionName, String channelName, long afterSeq, long toSeq) {
+        ChannelLogs logs = logsFor(sessionName, channelName, false);
+        return logs == null ? List.of() : read(() -> logs.draws().readRange(afterSeq, toSeq));
+    }
+
+    @Override
+    public List<ChatMessage> chatMessages(String sessionName, String channelName) {
+        ChannelLogs logs = logsFor(sessionName, channelName, false);
+        return logs == null ? List.of() : read(() -> logs.chats().readAll());
+    }
+
+    @Override
+    public List<ChatMessage> chatMessagesInRange(String sessionName, String channelName, long afterSeq, long toSeq) {
+        ChannelLogs logs = logsFor(sessionName, channelName, false);
+        return logs == null ? List.of() : read(() -> logs.chats().readRange(afterSeq, toSeq));
+    }
+
+    @Override
+    public long maxShapeSeq(String sessionName, String channelName) {
+        ChannelLogs logs = logsFor(sessionName, channelName, false);
+        return logs == null ? 0L : logs.draws().maxSeq();
+    }
+
+    @Override
+    public long maxChatSeq(String sessionName, String channelName) {
+        ChannelLogs logs = logsFor(sessionName, channelName, false);
+        return logs == null ? 0L : logs.chats().maxSeq();
+    }
+
+    @Override
+    public long countShapes(String sessionName, String channelName) {
+        ChannelLogs logs = logsFor(sessionName, channelName, false);
+        return logs == null ? 0L : read(() -> logs.draws().count());
+    }
+
+    @Override
+    public long countChatMessages(String sessionName, String channelName) {
+        ChannelLogs logs = logsFor(sessionName, channelName, false);
+        return logs == null ? 0L : read(() -> logs.chats().count());
+    }
+
+    @Override
+    public void forEachAttachmentUrl(Consumer<String> consumer) {
+        List<String[]> names = new ArrayList<>();
+        try (Stream<Path> sessionDirs = Files.list(root)) {
+            for (Path sessionDir : sessionDirs.filter(Files::isDirectory).toList()) {
+                try (Stream<Path> channelDirs = Files.list(sessionDir)) {
+                    for (Path channelDir : channelDirs.filter(Files::isDirectory).toList()) {
+                        names.add(new String[]{decode(sessionDir), decode(channelDir)});
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to list event store channels", e);
+        }
+        // One channel's messages in memory at a time
+        for (String[] name : names) {
+            for (ChatMessage message : chatMessages(name[0], name[1])) {
+                if (message.getAttachmentUrl() != null) {
+                    consumer.accept(message.getAttachmentUrl());
+                }
+            }
+        }
+    }
+
+    /**
+     * Drops segments hidden by a clear and rewrites out-of-order or partly dead ones, log by log.
+     */
+    @Scheduled(initialDelayString = "${whiteboard.store.log.compaction-interval-ms:60000}",
+            fixedDelayString = "${whiteboard.store.log.compaction-interval-ms:60000}")
+    public void compact() {
+        for (ChannelLogs logs : channels.values()) {
+            compact(logs.draws());
+            compact(logs.chats());
+        }
+    }
+
+    private void compact(SegmentedEventLog<?> log) {
+        SegmentedEventLog.CompactionPlan plan;
+        writeLock.lock();
+        try {
+            plan = closed ? null : log.planCompaction();
+        } finally {
+            writeLock.unlock();
+        }
+        if (plan == null) {
+            return;
+        }
+        try {
+            Path compacted = log.writeCompacted(plan);
+            writeLock.lock();
+            try {
+                if (!closed) {
+                    log.applyCompaction(plan, compacted);
+                }
+            } finally {
+                writeLock.unlock();
+            }
+            logger.debug("Compacted {} dead and {} rewritten segments", plan.dead().size(), plan.rewrite().size());
+        } catch (IOException e) {
+            // Inputs are untouched until the swap; the next run tries again
+            logger.warn("Event store compaction failed", e);
+        }
+    }
+
+    @PreDestroy
+    @Override
+    public void close() {
+        writeLock.lock();
+        try {
+            closed = true;
+            for (ChannelLogs logs : channels.values()) {
+                logs.draws().close();
+                logs.chats().close();
+            }
+            channels.clear();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private ChannelLogs logsFor(String sessionName, String channelName, boolean create) {
+        String key = sessionName + '\u0000' + channelName;
+        ChannelLogs logs = channels.get(key);
+        if (logs != null) {
+            return logs;
+        }
+        Path dir = root.resolve(encode(sessionName)).resolve(encode(channelName));
+        if (!create && !Files.isDirectory(dir)) {
+            return null;
+        }
+        writeLock.lock();
+        try {
+            if (closed) {
+                throw new IllegalStateException("Event store is closed");
+            }
+            logs = channels.get(key);
+            if (logs == null) {
+                logs = new ChannelLogs(
+                        new SegmentedEventLog<>(dir.resolve("draw"), objectMapper, DrawPayload.class,
+                                DrawPayload::getSeq, segmentMaxBytes, indexIntervalBytes),
+                        new SegmentedEventLog<>(dir.resolve("chat"), objectMapper, ChatMessage.class,
+                                ChatMessage::getSeq, segmentMaxBytes, indexIntervalBytes));
+                channels.put(key, logs);
+            }
+            return logs;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open event logs in " + dir, e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private interface LogRead<R> {
+        R read() throws IOException;
+    }
+
+    private static <R> R read(LogRead<R> read) {
+        try {
+            return read.read();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read event store", e);
+        }
+    }
+
+    private static String encode(String name) {
+        return NAME_ENCODER.encodeToString(name.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decode(Path dir) {
+        return new String(NAME_DECODER.decode(dir.getFileName().toString()), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,157 @@
+package com.masterwayne.whiteboard_app.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Finds newline-delimited records in a file through read-only memory-mapped windows.
+ *
+ * Design:
+ * - The file is mapped in windows of up to 64 MB, so files past the 2 GB MappedByteBuffer limit
+ *   are handled; a record crossing a window edge is picked up by remapping from its first byte
+ * - The last window is kept, so chunked reads walking through a segment map it (and fault its
+ *   pages in) once instead of once per chunk
+ * - Newlines are found eight bytes per load; each record is copied out once with a bulk get
+ * - Only complete records are reported; a torn tail is left for the caller to decide on
+ * - Mappings are released by the GC; on Linux a mapped file can still be deleted or renamed
+ */
+public final class MappedSegmentScanner {
+    private static final long WINDOW_BYTES = 64L * 1024 * 1024;
+    private static final long NEWLINES = 0x0A0A0A0A0A0A0A0AL;
+    private static final long LOW_BITS = 0x0101010101010101L;
+    private static final long HIGH_BITS = 0x8080808080808080L;
+
+    /**
+     * Receives each record without its newline and the file offset just after the newline.
+     * Returning false stops the scan after this record.
+     */
+    public interface RecordConsumer {
+        boolean accept(byte[] record, long endOffset);
+    }
+
+    private Path windowFile;
+    private long windowStart;
+    private MappedByteBuffer window;
+
+    /**
+     * Scans complete records in [from, limit) and returns the offset just after the last record
+     * handed to the consumer (from when there was none). limit must not exceed the file size.
+     */
+    public synchronized long scan(Path file, long from, long limit, RecordConsumer consumer) throws IOException {
+        long recordStart = from;
+        long windowBytes = WINDOW_BYTES;
+        while (recordStart < limit) {
+            if (!covers(file, recordStart, limit, windowBytes)) {
+                map(file, recordStart, Math.min(Math.min(windowBytes, limit - recordStart), Integer.MAX_VALUE));
+            }
+            int end = (int) Math.min(window.limit(), limit - windowStart);
+            int lineStart = (int) (recordStart - windowStart);
+            for (int i = nextNewline(window, lineStart, end); i >= 0; i = nextNewline(window, i + 1, end)) {
+                byte[] record = new byte[i - lineStart];
+                window.get(lineStart, record);
+                recordStart = windowStart + i + 1;
+                if (!consumer.accept(record, recordStart)) {
+                    return recordStart;
+                }
+                lineStart = i + 1;
+            }
+            if (windowStart + end >= limit) {
+                break;
+            }
+            // Remap from the start of the unfinished record; grow the window if one record fills it
+            windowBytes = recordStart == windowStart ? (long) window.limit() * 2 : WINDOW_BYTES;
+            window = null;
+        }
+        return recordStart;
+    }
+
+    /**
+     * Scans complete records in an in-memory copy of a file (an inflated segment) from offset
+     * from, with the same contract as {@link #scan}.
+     */
+    public static long scanBuffer(ByteBuffer records, long from, RecordConsumer consumer) {
+        ByteBuffer buffer = records.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int end = buffer.limit();
+        int lineStart = (int) from;
+        for (int i = nextNewline(buffer, lineStart, end); i >= 0; i = nextNewline(buffer, i + 1, end)) {
+            byte[] record = new byte[i - lineStart];
+            buffer.get(lineStart, record);
+            lineStart = i + 1;
+            if (!consumer.accept(record, lineStart)) {
+                break;
+            }
+        }
+        return lineStart;
+    }
+
+    /**
+     * Drops the kept window; call when a file may have been replaced at the same path.
+     */
+    public synchronized void invalidate() {
+        window = null;
+        windowFile = null;
+    }
+
+    /**
+     * Counts newline-terminated records from offset to the end of the file.
+     */
+    public static long countRecords(Path file, long from) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long count = 0;
+            for (long start = from; start < size; start += WINDOW_BYTES) {
+                int length = (int) Math.min(WINDOW_BYTES, size - start);
+                MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+                mapped.order(ByteOrder.LITTLE_ENDIAN);
+                for (int i = nextNewline(mapped, 0, length); i >= 0; i = nextNewline(mapped, i + 1, length)) {
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+
+    /**
+     * Index of the first newline in [from, to), or -1. Tests eight bytes per load with the
+     * has-zero-byte trick, which is what makes the mapped scan faster than a byte loop.
+     */
+    static int nextNewline(ByteBuffer buffer, int from, int to) {
+        int i = from;
+        for (; i + Long.BYTES <= to; i += Long.BYTES) {
+            long word = buffer.getLong(i) ^ NEWLINES;
+            long found = (word - LOW_BITS) & ~word & HIGH_BITS;
+            if (found != 0) {
+                return i + (Long.numberOfTrailingZeros(found) >>> 3);
+            }
+        }
+        for (; i < to; i++) {
+            if (buffer.get(i) == '\n') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // The kept window is reused when it holds position and either reaches limit or is a full window
+    private boolean covers(Path file, long position, long limit, long windowBytes) {
+        if (window == null || !file.equals(windowFile) || position < windowStart) {
+            return false;
+        }
+        long windowEnd = windowStart + window.limit();
+        return position < windowEnd && (windowEnd >= limit || window.limit() >= windowBytes);
+    }
+
+    private void map(Path file, long start, long length) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            window = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+            window.order(ByteOrder.LITTLE_ENDIAN);
+            windowFile = file;
+            windowStart = start;
+        }
+    }
+}
@@ -0,0 +1,743 @@
+package com.masterwayne.whiteboard_app.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * One channel stream (draw or chat) as append-only segment files of checksummed records:
+ * [int length][int crc32][byte type][long seq][json]. A record is an event or, for the draw stream,
+ * a clear, which hides every event with a lower seq.
+ *
+ * Design:
+ * - Appends go to the active segment, which rolls at the size limit. Nothing written is visible to
+ *   readers until {@link #publish}; {@link #rollback} truncates back to a {@link Mark}, so a batch
+ *   spanning several logs can be undone as a whole
+ * - Each segment keeps a sparse in-memory index, one (seq, offset) entry per indexInterval bytes,
+ *   rebuilt by the scan on open. While seqs are strictly increasing ("ordered", the normal case) range
+ *   and full reads seek to the floor entry of their lower bound instead of scanning from the start
+ * - Fallback replay can append events older than ones already stored; the log is then unordered and
+ *   reads scan everything, sort by seq and drop duplicates, until compaction restores the order.
+ *   Events without a seq (stored as 0) never break the order and are never indexed
+ * - Compaction ({@link #planCompaction}) drops sealed segments that a clear has made dead, and rewrites the rest when
+ *   they hold dead or out-of-order records into a single sorted segment, keeping the clear record
+ *   so the clear survives a restart. The output replaces the first input by rename, then the other
+ *   inputs are deleted; a crash in between leaves duplicates, which reads and the next compaction handle
+ * - Mutations (append, rollback, publish, compaction swap) are serialized by the owning store. Readers
+ *   take the published {@link View} and scan it under the read lock, so compaction cannot close a
+ *   segment under them
+ * - A torn record at the end of the last segment (a crash mid-append) is truncated on open
+ */
+final class SegmentedEventLog<T> implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(SegmentedEventLog.class);
+    static final byte EVENT = 1;
+    static final byte CLEAR = 2;
+    private static final int HEADER_BYTES = 8;
+    private static final int PREFIX_BYTES = 9;
+    private static final int MAX_RECORD_BYTES = 16 * 1024 * 1024;
+    private static final int READ_BUFFER_BYTES = 64 * 1024;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String COMPACTING_SUFFIX = ".compacting";
+
+    private final Path dir;
+    private final ObjectMapper objectMapper;
+    private final Class<T> type;
+    private final Function<T, Long> seqOf;
+    private final long maxSegmentBytes;
+    private final int indexIntervalBytes;
+    private final ReentrantReadWriteLock segmentLock = new ReentrantReadWriteLock();
+    // Writer state; only touched under the owning store's lock
+    private final List<Segment> segments = new ArrayList<>();
+    private long maxSeq;
+    private long clearSeq;
+    private long nextSegmentId = 1;
+    private boolean countKnown = true;
+    private long liveCount;
+    private volatile View view;
+
+    SegmentedEventLog(Path dir, ObjectMapper objectMapper, Class<T> type, Function<T, Long> seqOf,
+                      long maxSegmentBytes, int indexIntervalBytes) throws IOException {
+        this.dir = dir;
+        this.objectMapper = objectMapper;
+        this.type = type;
+        this.seqOf = seqOf;
+        this.maxSegmentBytes = maxSegmentBytes;
+        this.indexIntervalBytes = indexIntervalBytes;
+        open();
+        publish();
+    }
+
+    // ---------------------------------------------------------------- writes (store lock held)
+
+    /**
+     * Position to roll back to if the batch being written fails.
+     */
+    record Mark(int segmentCount, long activeSize, int activeIndexCount, long activeMinSeq, long activeMaxSeq,
+                boolean activeOrdered, long maxSeq, long clearSeq, long nextSegmentId, boolean countKnown,
+                long liveCount) {
+    }
+
+    Mark mark() {
+        Segment active = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        return new Mark(segments.size(),
+                active != null ? active.size : 0, active != null ? active.indexCount : 0,
+                active != null ? active.minSeq : Long.MAX_VALUE, active != null ? active.maxSeq : 0,
+                active == null || active.ordered,
+                maxSeq, clearSeq, nextSegmentId, countKnown, liveCount);
+    }
+
+    void appendEvent(T event) throws IOException {
+        Long seq = seqOf.apply(event);
+        long value = seq != null ? seq : 0L;
+        append(EVENT, value, objectMapper.writeValueAsBytes(event));
+        if (countKnown && (clearSeq == 0 || value > clearSeq)) {
+            liveCount++;
+        }
+    }
+
+    /**
+     * Appends a clear; a clear without a seq hides everything stored so far.
+     */
+    void appendClear(Long seq) throws IOException {
+        long value = seq != null && seq > 0 ? seq : maxSeq;
+        if (value == 0) {
+            // Nothing sequenced to hide yet
+            return;
+        }
+        boolean orderedBefore = isOrdered();
+        append(CLEAR, value, new byte[0]);
+        if (value >= clearSeq) {
+            clearSeq = value;
+            // In order, every stored event is below the clear; otherwise count on the next read
+            countKnown = orderedBefore && value >= maxSeq;
+            liveCount = 0;
+        }
+    }
+
+    private void append(byte recordType, long seq, byte[] json) throws IOException {
+        Segment active = activeForAppend();
+        ByteBuffer record = encode(recordType, seq, json);
+        long offset = active.size;
+        writeFully(active.channel, record, offset);
+        active.recordAppended(recordType, seq, offset, record.limit(), indexIntervalBytes);
+        if (recordType == EVENT && seq > 0 && seq <= maxSeq) {
+            // Replayed or duplicate event: the running count no longer holds
+            countKnown = false;
+        }
+        maxSeq = Math.max(maxSeq, seq);
+    }
+
+    private Segment activeForAppend() throws IOException {
+        Segment active = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        if (active == null || active.size >= maxSegmentBytes) {
+            if (active != null) {
+                active.channel.force(false);
+            }
+            Files.createDirectories(dir);
+            active = Segment.create(segmentPath(nextSegmentId), nextSegmentId);
+            nextSegmentId++;
+            segments.add(active);
+        }
+        return active;
+    }
+
+    /**
+     * Forces everything appended since the last publish to disk.
+     */
+    void sync(Mark since) throws IOException {
+        for (int i = Math.max(since.segmentCount() - 1, 0); i < segments.size(); i++) {
+            segments.get(i).channel.force(false);
+        }
+    }
+
+    /**
+     * Drops everything appended after the mark.
+     */
+    void rollback(Mark mark) {
+        while (segments.size() > mark.segmentCount()) {
+            Segment created = segments.remove(segments.size() - 1);
+            created.closeQuietly();
+            try {
+                Files.deleteIfExists(created.path);
+            } catch (IOException e) {
+                logger.warn("Failed to delete rolled back segment {}", created.path, e);
+            }
+        }
+        if (!segments.isEmpty()) {
+            Segment active = segments.get(segments.size() - 1);
+            try {
+                active.channel.truncate(mark.activeSize());
+            } catch (IOException e) {
+                // Unpublished bytes past the mark are never read; the next append overwrites them
+                logger.warn("Failed to truncate segment {} to {} bytes", active.path, mark.activeSize(), e);
+            }
+            active.size = mark.activeSize();
+            active.indexCount = mark.activeIndexCount();
+            active.minSeq = mark.activeMinSeq();
+            active.maxSeq = mark.activeMaxSeq();
+            active.ordered = mark.activeOrdered();
+        }
+        maxSeq = mark.maxSeq();
+        clearSeq = mark.clearSeq();
+        nextSegmentId = mark.nextSegmentId();
+        countKnown = mark.countKnown();
+        liveCount = mark.liveCount();
+    }
+
+    /**
+     * Makes everything appended so far visible to readers.
+     */
+    void publish() {
+        List<SegmentView> published = new ArrayList<>(segments.size());
+        for (Segment segment : segments) {
+            published.add(segment.snapshot());
+        }
+        view = new View(published, maxSeq, clearSeq, isOrdered(),
+                new AtomicLong(countKnown ? liveCount : -1));
+    }
+
+    private boolean isOrdered() {
+        long previousMax = 0;
+        for (Segment segment : segments) {
+            if (!segment.ordered || (segment.minSeq != Long.MAX_VALUE && segment.minSeq <= previousMax)) {
+                return false;
+            }
+            previousMax = Math.max(previousMax, segment.maxSeq);
+        }
+        return true;
+    }
+
+    // ---------------------------------------------------------------- reads (any thread)
+
+    /**
+     * Live events in sequence order (log order for events without a seq).
+     */
+    List<T> readAll() throws IOException {
+        return read(0, Long.MAX_VALUE, true);
+    }
+
+    /**
+     * Live events with afterSeq &lt; seq &lt;= toSeq in sequence order.
+     */
+    List<T> readRange(long afterSeq, long toSeq) throws IOException {
+        return read(afterSeq, toSeq, false);
+    }
+
+    long maxSeq() {
+        return view.maxSeq();
+    }
+
+    long count() throws IOException {
+        segmentLock.readLock().lock();
+        try {
+            View current = view;
+            long known = current.liveCount().get();
+            if (known >= 0) {
+                return known;
+            }
+            long counted = collect(current, 0, Long.MAX_VALUE, true, false).size();
+            current.liveCount().compareAndSet(-1, counted);
+            return counted;
+        } finally {
+            segmentLock.readLock().unlock();
+        }
+    }
+
+    private List<T> read(long afterSeq, long toSeq, boolean includeUnsequenced) throws IOException {
+        List<Entry> entries;
+        segmentLock.readLock().lock();
+        try {
+            entries = collect(view, afterSeq, toSeq, includeUnsequenced, true);
+        } finally {
+            segmentLock.readLock().unlock();
+        }
+        List<T> events = new ArrayList<>(entries.size());
+        for (Entry entry : entries) {
+            events.add(objectMapper.readValue(entry.json, type));
+        }
+        return events;
+    }
+
+    // Read lock held by the caller
+    private List<Entry> collect(View current, long afterSeq, long toSeq, boolean includeUnsequenced,
+                                boolean keepJson) throws IOException {
+        long clear = current.clearSeq();
+        long lowerBound = Math.max(afterSeq, clear);
+        // Unsequenced events can sit anywhere, so a full read without a clear cannot seek
+        boolean scanAll = !current.ordered() || (includeUnsequenced && clear == 0);
+        List<Entry> entries = new ArrayList<>();
+        for (SegmentView segment : current.segments()) {
+            long from = 0;
+            if (!scanAll) {
+                if (segment.maxSeq() <= lowerBound) {
+                    continue;
+                }
+                if (segment.minSeq() > toSeq) {
+                    break;
+                }
+                from = segment.floorOffset(lowerBound);
+            }
+            scan(segment.segment().channel, from, segment.size(), (recordType, seq, bytes, offset, length) -> {
+                if (recordType != EVENT) {
+                    return true;
+                }
+                boolean live = seq == 0
+                        ? includeUnsequenced && clear == 0
+                        : seq > lowerBound && seq <= toSeq;
+                if (live) {
+                    entries.add(new Entry(seq, keepJson ? Arrays.copyOfRange(bytes, offset, offset + length) : null));
+                }
+                return scanAll || seq <= toSeq;
+            });
+        }
+        if (!current.ordered()) {
+            return sortedDistinct(entries);
+        }
+        return entries;
+    }
+
+    private static List<Entry> sortedDistinct(List<Entry> entries) {
+        List<Entry> sorted = new ArrayList<>(entries);
+        sorted.sort(Comparator.comparingLong(Entry::seq));
+        List<Entry> distinct = new ArrayList<>(sorted.size());
+        long last = -1;
+        for (Entry entry : sorted) {
+            if (entry.seq() == 0 || entry.seq() != last) {
+                distinct.add(entry);
+            }
+            last = entry.seq();
+        }
+        return distinct;
+    }
+
+    // ---------------------------------------------------------------- compaction
+
+    /**
+     * Sealed segments to compact, or null if there is nothing to gain. Taken under the store lock.
+     */
+    CompactionPlan planCompaction() {
+        View current = view;
+        List<SegmentView> sealed = current.segments().size() > 1
+                ? current.segments().subList(0, current.segments().size() - 1)
+                : List.of();
+        if (sealed.isEmpty()) {
+            return null;
+        }
+        long clear = current.clearSeq();
+        List<SegmentView> dead = new ArrayList<>();
+        List<SegmentView> rewrite = new ArrayList<>();
+        boolean needsRewrite = false;
+        long previousMax = 0;
+        for (SegmentView segment : sealed) {
+            boolean empty = segment.minSeq() == Long.MAX_VALUE;
+            // Wholly below the clear, including segments of unsequenced events only
+            if (clear > 0 && segment.maxSeq() < clear) {
+                dead.add(segment);
+                continue;
+            }
+            rewrite.add(segment);
+            if ((clear > 0 && segment.minSeq() < clear) || !segment.ordered()
+                    || (!empty && segment.minSeq() <= previousMax)) {
+                needsRewrite = true;
+            }
+            previousMax = Math.max(previousMax, segment.maxSeq());
+        }
+        if (dead.isEmpty() && !needsRewrite) {
+            return null;
+        }
+        return new CompactionPlan(current, dead, needsRewrite ? rewrite : List.of());
+    }
+
+    record CompactionPlan(View view, List<SegmentView> dead, List<SegmentView> rewrite) {
+    }
+
+    /**
+     * Writes the compacted output of a plan to a side file. Runs without the store lock: sealed
+     * segments never change.
+     */
+    Path writeCompacted(CompactionPlan plan) throws IOException {
+        if (plan.rewrite().isEmpty()) {
+            return null;
+        }
+        long clear = plan.view().clearSeq();
+        List<Entry> entries = new ArrayList<>();
+        segmentLock.readLock().lock();
+        try {
+            for (SegmentView segment : plan.rewrite()) {
+                scan(segment.segment().channel, 0, segment.size(), (recordType, seq, bytes, offset, length) -> {
+                    if (recordType == CLEAR ? seq == clear : (clear == 0 ? true : seq > clear)) {
+                        entries.add(new Entry(seq, recordType, Arrays.copyOfRange(bytes, offset, offset + length)));
+                    }
+                    return true;
+                });
+            }
+        } finally {
+            segmentLock.readLock().unlock();
+        }
+        List<Entry> output = sortedDistinctRecords(entries);
+        Path target = compactingPath(plan.rewrite().get(0).segment().id);
+        try (FileChannel channel = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            long position = 0;
+            for (Entry entry : output) {
+                ByteBuffer record = encode(entry.recordType(), entry.seq(), entry.json());
+                position += writeFully(channel, record, position);
+            }
+            channel.force(true);
+        }
+        return target;
+    }
+
+    // Clear first at its seq, then events by seq; unsequenced events keep their log order up front
+    private static List<Entry> sortedDistinctRecords(List<Entry> entries) {
+        List<Entry> sorted = new ArrayList<>(entries);
+        sorted.sort(Comparator.comparingLong(Entry::seq).thenComparing(entry -> entry.recordType() == CLEAR ? 0 : 1));
+        List<Entry> distinct = new ArrayList<>(sorted.size());
+        Set<Long> clears = new HashSet<>();
+        long lastEvent = -1;
+        for (Entry entry : sorted) {
+            if (entry.recordType() == CLEAR) {
+                if (clears.add(entry.seq())) {
+                    distinct.add(entry);
+                }
+            } else if (entry.seq() == 0 || entry.seq() != lastEvent) {
+                distinct.add(entry);
+                lastEvent = entry.seq();
+            }
+        }
+        return distinct;
+    }
+
+    /**
+     * Swaps the compacted output in and deletes dead and rewritten segments. Runs under the store
+     * lock; takes the write lock so no reader is scanning a segment that is closed here.
+     */
+    void applyCompaction(CompactionPlan plan, Path compacted) throws IOException {
+        Set<Long> removed = new HashSet<>();
+        plan.dead().forEach(segment -> removed.add(segment.segment().id));
+        plan.rewrite().forEach(segment -> removed.add(segment.segment().id));
+        Segment replacement = null;
+        if (compacted != null) {
+            long id = plan.rewrite().get(0).segment().id;
+            Files.move(compacted, segmentPath(id), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            replacement = Segment.open(segmentPath(id), id);
+            replacement.recover(this, false);
+        }
+        segmentLock.writeLock().lock();
+        try {
+            List<Segment> kept = new ArrayList<>(segments.size());
+            boolean inserted = replacement == null;
+            for (Segment segment : segments) {
+                if (!removed.contains(segment.id)) {
+                    if (!inserted && segment.id > replacement.id) {
+                        kept.add(replacement);
+                        inserted = true;
+                    }
+                    kept.add(segment);
+                } else if (replacement == null || segment.id != replacement.id) {
+                    segment.closeQuietly();
+                    Files.deleteIfExists(segment.path);
+                } else {
+                    segment.closeQuietly();
+                }
+            }
+            if (!inserted) {
+                kept.add(replacement);
+            }
+            segments.clear();
+            segments.addAll(kept);
+            // Dropped records were dead or duplicates; the count of live events may still be stale
+            countKnown = false;
+            // Published before unlocking: a reader that locks next must not see the closed segments
+            publish();
+        } finally {
+            segmentLock.writeLock().unlock();
+        }
+    }
+
+    // ---------------------------------------------------------------- open and scan
+
+    private void open() throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>();
+        try (Stream<Path> files = Files.list(dir)) {
+            for (Path file : files.toList()) {
+                String name = file.getFileName().toString();
+                if (name.endsWith(COMPACTING_SUFFIX)) {
+                    // Compaction interrupted before its swap; the inputs are still in place
+                    Files.deleteIfExists(file);
+                } else if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+                    ids.add(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())));
+                }
+            }
+        }
+        ids.sort(Long::compare);
+        for (int i = 0; i < ids.size(); i++) {
+            Segment segment = Segment.open(segmentPath(ids.get(i)), ids.get(i));
+            segment.recover(this, i == ids.size() - 1);
+            segments.add(segment);
+            nextSegmentId = ids.get(i) + 1;
+        }
+        // Counters are rebuilt from the recovered segments
+        countKnown = false;
+        for (Segment segment : segments) {
+            maxSeq = Math.max(maxSeq, segment.maxSeq);
+            clearSeq = Math.max(clearSeq, segment.clearSeq);
+        }
+    }
+
+    private interface RecordVisitor {
+        boolean visit(byte recordType, long seq, byte[] bytes, int jsonOffset, int jsonLength);
+    }
+
+    /**
+     * Visits checksummed records from offset up to limit and returns the end of the last valid one.
+     */
+    private static long scan(FileChannel channel, long offset, long limit, RecordVisitor visitor) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(READ_BUFFER_BYTES);
+        long position = offset;
+        CRC32 crc = new CRC32();
+        while (position < limit) {
+            buffer.clear();
+            buffer.limit((int) Math.min(buffer.capacity(), limit - position));
+            if (readFully(channel, buffer, position) < buffer.limit()) {
+                // File shorter than expected: treat what is there as the whole segment
+                limit = position + buffer.position();
+            }
+            buffer.flip();
+            int consumed = 0;
+            while (buffer.remaining() >= HEADER_BYTES) {
+                int start = buffer.position();
+                int length = buffer.getInt(start);
+                if (length < PREFIX_BYTES || length > MAX_RECORD_BYTES) {
+                    return position + consumed;
+                }
+                if (buffer.remaining() < HEADER_BYTES + length) {
+                    break;
+                }
+                crc.reset();
+                crc.update(buffer.array(), start + HEADER_BYTES, length);
+                if ((int) crc.getValue() != buffer.getInt(start + 4)) {
+                    return position + consumed;
+                }
+                byte recordType = buffer.get(start + HEADER_BYTES);
+                long seq = buffer.getLong(start + HEADER_BYTES + 1);
+                buffer.position(start + HEADER_BYTES + length);
+                consumed = buffer.position();
+                if (!visitor.visit(recordType, seq, buffer.array(), start + HEADER_BYTES + PREFIX_BYTES, length - PREFIX_BYTES)) {
+                    return position + consumed;
+                }
+            }
+            if (consumed == 0) {
+                if (buffer.remaining() < HEADER_BYTES || position + buffer.remaining() >= limit) {
+                    // Torn record at the end
+                    return position;
+                }
+                // Record larger than the buffer
+                buffer = ByteBuffer.allocate(HEADER_BYTES + buffer.getInt(0));
+                continue;
+            }
+            position += consumed;
+        }
+        return position;
+    }
+
+    private static ByteBuffer encode(byte recordType, long seq, byte[] json) {
+        int length = PREFIX_BYTES + json.length;
+        ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + length);
+        record.putInt(length).putInt(0).put(recordType).putLong(seq).put(json);
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), HEADER_BYTES, length);
+        record.putInt(4, (int) crc.getValue());
+        record.flip();
+        return record;
+    }
+
+    private static int writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int written = 0;
+        while (buffer.hasRemaining()) {
+            written += channel.write(buffer, position + written);
+        }
+        return written;
+    }
+
+    private static int readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int read = 0;
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position + read);
+            if (n < 0) {
+                break;
+            }
+            read += n;
+        }
+        return read;
+    }
+
+    private Path segmentPath(long id) {
+        return dir.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX));
+    }
+
+    private Path compactingPath(long id) {
+        return dir.resolve(String.format("%s%020d%s%s", SEGMENT_PREFIX, id, SEGMENT_SUFFIX, COMPACTING_SUFFIX));
+    }
+
+    int getSegmentCount() {
+        return view.segments().size();
+    }
+
+    @Override
+    public void close() {
+        segmentLock.writeLock().lock();
+        try {
+            segments.forEach(Segment::closeQuietly);
+        } finally {
+            segmentLock.writeLock().unlock();
+        }
+    }
+
+    // ---------------------------------------------------------------- segment state
+
+    private record Entry(long seq, byte recordType, byte[] json) {
+        Entry(long seq, byte[] json) {
+            this(seq, EVENT, json);
+        }
+    }
+
+    /**
+     * What readers may see of a segment: its size and index as of the last publish.
+     */
+    record SegmentView(Segment segment, long size, int indexCount, long[] indexSeqs, long[] indexOffsets,
+                       long minSeq, long maxSeq, boolean ordered) {
+
+        /**
+         * Offset of the last indexed record with seq &lt;= bound, or 0.
+         */
+        long floorOffset(long bound) {
+            int low = 0;
+            int high = indexCount - 1;
+            long offset = 0;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (indexSeqs[mid] <= bound) {
+                    offset = indexOffsets[mid];
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return offset;
+        }
+    }
+
+    record View(List<SegmentView> segments, long maxSeq, long clearSeq, boolean ordered, AtomicLong liveCount) {
+    }
+
+    static final class Segment {
+        final long id;
+        final Path path;
+        final FileChannel channel;
+        long size;
+        long minSeq = Long.MAX_VALUE;
+        long maxSeq;
+        long clearSeq;
+        boolean ordered = true;
+        long[] indexSeqs = new long[16];
+        long[] indexOffsets = new long[16];
+        int indexCount;
+        private long lastIndexedOffset = -1;
+
+        private Segment(long id, Path path, FileChannel channel) {
+            this.id = id;
+            this.path = path;
+            this.channel = channel;
+        }
+
+        static Segment create(Path path, long id) throws IOException {
+            return new Segment(id, path, FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE));
+        }
+
+        static Segment open(Path path, long id) throws IOException {
+            return new Segment(id, path, FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE));
+        }
+
+        /**
+         * Rebuilds the index and seq bounds by scanning; a torn tail is truncated when last is set.
+         */
+        void recover(SegmentedEventLog<?> log, boolean last) throws IOException {
+            long fileSize = channel.size();
+            long end = scan(channel, 0, fileSize, (recordType, seq, bytes, offset, length) -> {
+                recordAppended(recordType, seq, size, HEADER_BYTES + PREFIX_BYTES + length, log.indexIntervalBytes);
+                if (recordType == CLEAR) {
+                    clearSeq = Math.max(clearSeq, seq);
+                }
+                return true;
+            });
+            if (end < fileSize) {
+                if (last) {
+                    logger.warn("Truncating torn tail of {} at {} ({} bytes)", path, end, fileSize - end);
+                    channel.truncate(end);
+                } else {
+                    logger.warn("Ignoring {} unreadable bytes at the end of sealed segment {}", fileSize - end, path);
+                }
+            }
+            size = end;
+        }
+
+        void recordAppended(byte recordType, long seq, long offset, int recordBytes, int indexIntervalBytes) {
+            if (seq > 0) {
+                // An unsequenced clear takes the seq of the last event before it
+                if (recordType == CLEAR ? seq < maxSeq : seq <= maxSeq) {
+                    ordered = false;
+                }
+                minSeq = Math.min(minSeq, seq);
+                maxSeq = Math.max(maxSeq, seq);
+                if (ordered && (lastIndexedOffset < 0 || offset - lastIndexedOffset >= indexIntervalBytes)) {
+                    if (indexCount == indexSeqs.length) {
+                        indexSeqs = Arrays.copyOf(indexSeqs, indexCount * 2);
+                        indexOffsets = Arrays.copyOf(indexOffsets, indexCount * 2);
+                    }
+                    indexSeqs[indexCount] = seq;
+                    indexOffsets[indexCount] = offset;
+                    indexCount++;
+                    lastIndexedOffset = offset;
+                }
+            }
+            size = offset + recordBytes;
+        }
+
+        SegmentView snapshot() {
+            return new SegmentView(this, size, indexCount, indexSeqs, indexOffsets, minSeq, maxSeq, ordered);
+        }
+
+        void closeQuietly() {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                logger.warn("Failed to close segment {}", path, e);
+            }
+        }
+    }
+}
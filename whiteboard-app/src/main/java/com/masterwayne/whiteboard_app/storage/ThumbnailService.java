@@ -0,0 +1,287 @@
+package com.masterwayne.whiteboard_app.storage;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates downscaled renditions of image attachments so chat history can show small previews
+ * instead of pulling every full-size photo.
+ *
+ * Design:
+ * - Two sizes (longest side in pixels): a thumbnail and a preview; each is stored next to the
+ *   blob as &lt;digest&gt;-&lt;size&gt;.jpg (.png for non-JPEG sources, to keep transparency) and served,
+ *   like the blob, as an immutable attachment
+ * - {@link #schedule} only reads the image header on the caller's thread, so the upload response can
+ *   carry the rendition URLs at once; a size the image already fits in points at the original
+ * - Decoding and encoding run on a small bounded pool; when its queue is full the job is dropped
+ *   (clients fall back to the original) rather than holding upload requests
+ * - Large sources are decoded with subsampling, so memory is bounded by the preview size rather than
+ *   the photo; images over max-pixels are not decoded at all
+ * - Counters: jobs by outcome; gauge: queued jobs
+ */
+@Component
+public class ThumbnailService {
+    private static final Logger logger = LoggerFactory.getLogger(ThumbnailService.class);
+    private static final float JPEG_QUALITY = 0.82f;
+    private static final int SHUTDOWN_TIMEOUT_SECONDS = 10;
+
+    /**
+     * URLs of an image's renditions; either may point at the original when it is already small.
+     */
+    public record ImageRenditions(String thumbnailUrl, String previewUrl) {
+    }
+
+    private final UploadStore uploadStore;
+    private final int thumbnailSize;
+    private final int previewSize;
+    private final long maxPixels;
+    private final ThreadPoolExecutor executor;
+    private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+    private final Map<String, Counter> outcomes = new ConcurrentHashMap<>();
+    private final MeterRegistry registry;
+
+    public ThumbnailService(UploadStore uploadStore,
+                            MeterRegistry registry,
+                            @Value("${whiteboard.thumbnails.threads:2}") int threads,
+                            @Value("${whiteboard.thumbnails.queue-capacity:64}") int queueCapacity,
+                            @Value("${whiteboard.thumbnails.thumbnail-size:160}") int thumbnailSize,
+                            @Value("${whiteboard.thumbnails.preview-size:640}") int previewSize,
+                            @Value("${whiteboard.thumbnails.max-pixels:50000000}") long maxPixels) {
+        this.uploadStore = uploadStore;
+        this.registry = registry;
+        this.thumbnailSize = thumbnailSize;
+        this.previewSize = previewSize;
+        this.maxPixels = maxPixels;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+            Thread t = new Thread(r, "thumbnail-" + threadCount.incrementAndGet());
+            t.setDaemon(true);
+            t.setPriority(Thread.NORM_PRIORITY - 1);
+            return t;
+        });
+        Gauge.builder("whiteboard.thumbnails.queue.size", executor, e -> e.getQueue().size())
+                .description("Thumbnail jobs waiting for a worker")
+                .register(registry);
+    }
+
+    /**
+     * Works out the renditions of a stored image and queues generation of the ones that are missing.
+     * Empty when the blob is not an image ImageIO can read, or is too large to decode.
+     */
+    public Optional<ImageRenditions> schedule(UploadStore.StoredUpload stored) {
+        Path file = uploadStore.resolve(stored.storedName()).orElse(null);
+        if (file == null) {
+            return Optional.empty();
+        }
+        ImageInfo info;
+        try {
+            info = probe(file);
+        } catch (IOException e) {
+            logger.debug("Could not read image header of {}: {}", stored.storedName(), e.getMessage());
+            return Optional.empty();
+        }
+        if (info == null || (long) info.width * info.height > maxPixels) {
+            return Optional.empty();
+        }
+
+        String extension = "jpeg".equalsIgnoreCase(info.format) ? ".jpg" : ".png";
+        Map<Integer, String> missing = new LinkedHashMap<>();
+        String thumbnail = renditionName(stored, info, thumbnailSize, extension, missing);
+        String preview = renditionName(stored, info, previewSize, extension, missing);
+        if (!missing.isEmpty() && inFlight.add(stored.digest())) {
+            try {
+                executor.execute(() -> generate(stored, file, missing));
+            } catch (RejectedExecutionException e) {
+                inFlight.remove(stored.digest());
+                count("rejected");
+                logger.warn("Thumbnail queue full; {} will be shown at full size", stored.storedName());
+            }
+        }
+        return Optional.of(new ImageRenditions("/uploads/" + thumbnail, "/uploads/" + preview));
+    }
+
+    public int getQueuedJobs() {
+        return executor.getQueue().size();
+    }
+
+    // The stored name when the image already fits; otherwise the rendition's, noted if not yet on disk
+    private String renditionName(UploadStore.StoredUpload stored, ImageInfo info, int size, String extension,
+                                 Map<Integer, String> missing) {
+        if (Math.max(info.width, info.height) <= size) {
+            return stored.storedName();
+        }
+        String name = stored.digest() + "-" + size + extension;
+        if (uploadStore.resolve(name).isEmpty()) {
+            missing.put(size, name);
+        }
+        return name;
+    }
+
+    private void generate(UploadStore.StoredUpload stored, Path file, Map<Integer, String> renditions) {
+        long start = System.nanoTime();
+        try {
+            int largest = renditions.keySet().stream().mapToInt(Integer::intValue).max().orElseThrow();
+            BufferedImage source = decode(file, largest);
+            for (Map.Entry<Integer, String> rendition : renditions.entrySet()) {
+                boolean jpeg = rendition.getValue().endsWith(".jpg");
+                BufferedImage scaled = scale(source, rendition.getKey(), !jpeg);
+                uploadStore.storeRendition(rendition.getValue(), encode(scaled, jpeg));
+            }
+            count("generated");
+            logger.debug("Generated {} renditions of {} in {} ms", renditions.size(), stored.storedName(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        } catch (IOException | RuntimeException e) {
+            count("failed");
+            logger.warn("Thumbnail generation failed for {}: {}", stored.storedName(), e.toString());
+        } finally {
+            inFlight.remove(stored.digest());
+        }
+    }
+
+    private record ImageInfo(int width, int height, String format) {
+    }
+
+    private static ImageInfo probe(Path file) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(file.toFile())) {
+            ImageReader reader = reader(in);
+            if (reader == null) {
+                return null;
+            }
+            try {
+                return new ImageInfo(reader.getWidth(0), reader.getHeight(0), reader.getFormatName());
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    // Subsamples while decoding so the decoded image is at most about twice the largest rendition
+    private static BufferedImage decode(Path file, int largest) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(file.toFile())) {
+            ImageReader reader = reader(in);
+            if (reader == null) {
+                throw new IOException("No image reader for " + file.getFileName());
+            }
+            try {
+                int longest = Math.max(reader.getWidth(0), reader.getHeight(0));
+                int step = Math.max(1, longest / (largest * 2));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceSubsampling(step, step, 0, 0);
+                return reader.read(0, param);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private static ImageReader reader(ImageInputStream in) {
+        if (in == null) {
+            return null;
+        }
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(in);
+        if (!readers.hasNext()) {
+            return null;
+        }
+        ImageReader reader = readers.next();
+        reader.setInput(in, true, true);
+        return reader;
+    }
+
+    // Halves with bilinear filtering until within 2x of the target, then one final bilinear step
+    private static BufferedImage scale(BufferedImage source, int size, boolean alpha) {
+        double factor = (double) size / Math.max(source.getWidth(), source.getHeight());
+        int targetWidth = Math.max(1, (int) Math.round(source.getWidth() * factor));
+        int targetHeight = Math.max(1, (int) Math.round(source.getHeight() * factor));
+        BufferedImage current = source;
+        int width = source.getWidth();
+        int height = source.getHeight();
+        do {
+            width = Math.max(targetWidth, width / 2);
+            height = Math.max(targetHeight, height / 2);
+            BufferedImage next = new BufferedImage(width, height,
+                    alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+            Graphics2D g = next.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(current, 0, 0, width, height, null);
+            } finally {
+                g.dispose();
+            }
+            current = next;
+        } while (width != targetWidth || height != targetHeight);
+        return current;
+    }
+
+    private static byte[] encode(BufferedImage image, boolean jpeg) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        if (!jpeg) {
+            ImageIO.write(image, "png", bytes);
+            return bytes.toByteArray();
+        }
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(bytes)) {
+            writer.setOutput(out);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(JPEG_QUALITY);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return bytes.toByteArray();
+    }
+
+    private void count(String outcome) {
+        outcomes.computeIfAbsent(outcome, key -> Counter.builder("whiteboard.thumbnails.jobs")
+                .description("Thumbnail jobs by outcome")
+                .tag("outcome", key)
+                .register(registry)).increment();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
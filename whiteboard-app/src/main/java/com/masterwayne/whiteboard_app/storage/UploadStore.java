@@ -0,0 +1,352 @@
+package com.masterwayne.whiteboard_app.storage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed storage for chat attachments under data/uploads.
+ *
+ * Design:
+ * - Each upload is hashed with SHA-256 in one streaming pass over the multipart part; the
+ *   blob is stored as &lt;digest&gt;&lt;ext&gt;, so the same screenshot pasted into five channels is
+ *   stored once
+ * - A duplicate costs only the hashing pass: nothing is written, the existing blob is returned
+ * - A new blob is transferred into an incoming directory (a rename when the container already
+ *   spooled the part to the same disk) and then moved into place atomically
+ * - The digest index (digest -&gt; stored name, type, size) is kept in memory and appended to
+ *   data/uploads-meta/index.jsonl, outside the publicly served directory
+ * - Files stored before content addressing (random UUID names) are left as they are
+ * - Downscaled renditions of an image blob are stored beside it as &lt;digest&gt;-&lt;size&gt;&lt;ext&gt;;
+ *   they are derived from the blob, so they never change either
+ * - A deduplicated upload refreshes the blob's modification time, which is what the orphan sweeper
+ *   measures its grace period against; removal re-checks that time under the same lock
+ * - The type a file is served as comes from its stored extension and an allow-list of raster image
+ *   types, never from the uploader's multipart Content-Type: with deduplication one uploader's
+ *   claim would otherwise apply to everyone's copy
+ */
+@Component
+public class UploadStore {
+    private static final Logger logger = LoggerFactory.getLogger(UploadStore.class);
+    private static final String INDEX_FILE = "index.jsonl";
+    private static final String INCOMING_DIR = "incoming";
+    private static final int HASH_BUFFER_BYTES = 64 * 1024;
+    private static final Pattern STORED_NAME = Pattern.compile("[A-Za-z0-9][A-Za-z0-9._-]{0,199}");
+    private static final Pattern DIGEST_NAME = Pattern.compile("([0-9a-f]{64})(-[0-9]{1,5})?(\\.[a-z0-9]+)?");
+    // Rendered by browsers without running anything; SVG is left out on purpose, it can carry script
+    private static final Map<String, String> INLINE_TYPES = Map.of(
+            "png", "image/png",
+            "jpg", "image/jpeg",
+            "jpeg", "image/jpeg",
+            "gif", "image/gif",
+            "webp", "image/webp",
+            "bmp", "image/bmp",
+            "avif", "image/avif");
+
+    /**
+     * A stored blob and the metadata recorded when it was first uploaded. contentType is what the
+     * first uploader declared; it is kept for reference and never used to serve the blob.
+     */
+    public record StoredUpload(String digest, String storedName, String contentType, long size, Instant storedAt) {
+    }
+
+    private final ObjectMapper objectMapper;
+    private final Path uploadDir;
+    private final Path metaDir;
+    private final Map<String, StoredUpload> index = new ConcurrentHashMap<>();
+    private final Map<String, String> legacyDigests = new ConcurrentHashMap<>();
+    private final Object reuseLock = new Object();
+
+    public UploadStore(ObjectMapper objectMapper,
+                       @Value("${whiteboard.uploads.dir:data/uploads}") String uploadDir,
+                       @Value("${whiteboard.uploads.meta-dir:data/uploads-meta}") String metaDir) {
+        this.objectMapper = objectMapper;
+        this.uploadDir = Paths.get(uploadDir).toAbsolutePath().normalize();
+        this.metaDir = Paths.get(metaDir).toAbsolutePath().normalize();
+        try {
+            Files.createDirectories(this.uploadDir);
+            Files.createDirectories(this.metaDir.resolve(INCOMING_DIR));
+            loadIndex();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open upload store under " + this.uploadDir, e);
+        }
+    }
+
+    /**
+     * Stores the part unless identical content is already stored, and returns the blob either way.
+     */
+    public StoredUpload store(MultipartFile file, String originalName, String contentType) throws IOException {
+        String digest = digest(file);
+        StoredUpload existing = reuse(digest);
+        if (existing != null) {
+            logger.debug("Upload {} deduplicated to {}", originalName, existing.storedName());
+            return existing;
+        }
+
+        String storedName = digest + extension(originalName);
+        Path incoming = metaDir.resolve(INCOMING_DIR).resolve(UUID.randomUUID().toString());
+        Path target = uploadDir.resolve(storedName);
+        try {
+            // File rather than Path: the servlet part can then rename its spooled temp file
+            file.transferTo(incoming.toFile());
+            moveIntoPlace(incoming, target);
+        } catch (FileAlreadyExistsException e) {
+            // Same content stored concurrently under the same name
+            logger.debug("Upload {} raced an identical upload", storedName);
+        } finally {
+            Files.deleteIfExists(incoming);
+        }
+
+        StoredUpload stored = new StoredUpload(digest, storedName, contentType, file.getSize(), Instant.now());
+        StoredUpload winner = index.putIfAbsent(digest, stored);
+        if (winner != null) {
+            return winner;
+        }
+        appendIndex(stored);
+        logger.info("Stored upload {} as {} ({} bytes)", originalName, storedName, stored.size());
+        return stored;
+    }
+
+    /**
+     * Writes a rendition derived from a stored blob (a thumbnail, say), replacing any previous
+     * copy atomically so readers never see a partial file.
+     */
+    public void storeRendition(String name, byte[] content) throws IOException {
+        if (!DIGEST_NAME.matcher(name).matches()) {
+            throw new IllegalArgumentException("Not a rendition name: " + name);
+        }
+        Path incoming = metaDir.resolve(INCOMING_DIR).resolve(UUID.randomUUID().toString());
+        try {
+            Files.write(incoming, content);
+            try {
+                Files.move(incoming, uploadDir.resolve(name), StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(incoming, uploadDir.resolve(name), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(incoming);
+        }
+    }
+
+    public Optional<StoredUpload> findByDigest(String digest) {
+        return Optional.ofNullable(findExisting(digest));
+    }
+
+    /**
+     * Deletes a stored file (blob or rendition) unless it was stored or reused at or after the
+     * cutoff. Returns whether it was deleted.
+     */
+    public boolean removeIfUnusedSince(String storedName, Instant cutoff) throws IOException {
+        Path file = resolve(storedName).orElse(null);
+        if (file == null) {
+            return false;
+        }
+        synchronized (reuseLock) {
+            if (!Files.getLastModifiedTime(file).toInstant().isBefore(cutoff)) {
+                return false;
+            }
+            Files.deleteIfExists(file);
+        }
+        Matcher matcher = DIGEST_NAME.matcher(storedName);
+        if (matcher.matches() && matcher.group(2) == null) {
+            index.computeIfPresent(matcher.group(1),
+                    (digest, stored) -> stored.storedName().equals(storedName) ? null : stored);
+        }
+        legacyDigests.remove(storedName);
+        return true;
+    }
+
+    /**
+     * The key chat references are counted under: the digest for a blob and all its renditions, the
+     * file name for uploads from before content addressing. Accepts a stored name or an /uploads/ URL.
+     */
+    public static String referenceKey(String nameOrUrl) {
+        String name = nameOrUrl.substring(nameOrUrl.lastIndexOf('/') + 1);
+        Matcher matcher = DIGEST_NAME.matcher(name);
+        return matcher.matches() ? matcher.group(1) : name;
+    }
+
+    public Path getIncomingDir() {
+        return metaDir.resolve(INCOMING_DIR);
+    }
+
+    /**
+     * Resolves a stored name to its file, or empty when the name is not a plain file name in the
+     * upload directory or the file does not exist.
+     */
+    public Optional<Path> resolve(String storedName) {
+        if (storedName == null || !STORED_NAME.matcher(storedName).matches()) {
+            return Optional.empty();
+        }
+        Path file = uploadDir.resolve(storedName).normalize();
+        if (!file.getParent().equals(uploadDir) || !Files.isRegularFile(file)) {
+            return Optional.empty();
+        }
+        return Optional.of(file);
+    }
+
+    /**
+     * SHA-256 of a stored file. Free for content-addressed names; files from before content
+     * addressing are hashed once and remembered (their random names are never reused).
+     * Renditions keep their size suffix, so each one has a tag of its own.
+     */
+    public String contentDigest(String storedName, Path file) throws IOException {
+        Matcher matcher = DIGEST_NAME.matcher(storedName);
+        if (matcher.matches()) {
+            return matcher.group(2) == null ? matcher.group(1) : matcher.group(1) + matcher.group(2);
+        }
+        String cached = legacyDigests.get(storedName);
+        if (cached != null) {
+            return cached;
+        }
+        try (InputStream in = Files.newInputStream(file)) {
+            String digest = digest(in);
+            legacyDigests.put(storedName, digest);
+            return digest;
+        }
+    }
+
+    /**
+     * The image type a file name may be served inline as, from its extension; empty for anything
+     * that is not an allow-listed image, which must be served as a download.
+     */
+    public static Optional<String> inlineContentType(String name) {
+        String ext = extension(name);
+        return ext.isEmpty() ? Optional.empty() : Optional.ofNullable(INLINE_TYPES.get(ext.substring(1)));
+    }
+
+    public Path getUploadDir() {
+        return uploadDir;
+    }
+
+    public int getBlobCount() {
+        return index.size();
+    }
+
+    private StoredUpload findExisting(String digest) {
+        StoredUpload existing = index.get(digest);
+        if (existing != null && !Files.exists(uploadDir.resolve(existing.storedName()))) {
+            // Removed from disk behind our back: store it again
+            index.remove(digest, existing);
+            return null;
+        }
+        return existing;
+    }
+
+    // A dedup hit: mark the blob as in use again so a sweep running now does not remove it
+    private StoredUpload reuse(String digest) throws IOException {
+        synchronized (reuseLock) {
+            StoredUpload existing = findExisting(digest);
+            if (existing == null) {
+                return null;
+            }
+            try {
+                Files.setLastModifiedTime(uploadDir.resolve(existing.storedName()), FileTime.from(Instant.now()));
+                return existing;
+            } catch (NoSuchFileException e) {
+                index.remove(digest, existing);
+                return null;
+            }
+        }
+    }
+
+    private static void moveIntoPlace(Path incoming, Path target) throws IOException {
+        try {
+            Files.move(incoming, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(incoming, target);
+        }
+    }
+
+    private static String digest(MultipartFile file) throws IOException {
+        try (InputStream in = file.getInputStream()) {
+            return digest(in);
+        }
+    }
+
+    private static String digest(InputStream in) throws IOException {
+        MessageDigest sha256;
+        try {
+            sha256 = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+        byte[] buffer = new byte[HASH_BUFFER_BYTES];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            sha256.update(buffer, 0, read);
+        }
+        return HexFormat.of().formatHex(sha256.digest());
+    }
+
+    // Lower-cased, and limited to a short alphanumeric suffix so stored names stay safe in URLs
+    private static String extension(String originalName) {
+        int dot = originalName.lastIndexOf('.');
+        if (dot < 0 || dot == originalName.length() - 1) {
+            return "";
+        }
+        String ext = originalName.substring(dot + 1).toLowerCase(Locale.ROOT);
+        return ext.length() <= 10 && ext.chars().allMatch(Character::isLetterOrDigit) ? "." + ext : "";
+    }
+
+    private synchronized void appendIndex(StoredUpload stored) {
+        try {
+            byte[] line = (objectMapper.writeValueAsString(stored) + "\n").getBytes(StandardCharsets.UTF_8);
+            Files.write(metaDir.resolve(INDEX_FILE), line, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            // The blob is stored; only a restart would forget the dedup entry
+            logger.warn("Failed to append upload index entry for {}", stored.storedName(), e);
+        }
+    }
+
+    private void loadIndex() throws IOException {
+        Path indexFile = metaDir.resolve(INDEX_FILE);
+        if (!Files.exists(indexFile)) {
+            return;
+        }
+        List<String> lines = Files.readAllLines(indexFile, StandardCharsets.UTF_8);
+        for (String line : lines) {
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                StoredUpload stored = objectMapper.readValue(line, StoredUpload.class);
+                if (Files.exists(uploadDir.resolve(stored.storedName()))) {
+                    index.putIfAbsent(stored.digest(), stored);
+                }
+            } catch (IOException e) {
+                logger.warn("Skipping unreadable upload index entry: {}", e.getMessage());
+            }
+        }
+        logger.info("Upload index loaded: {} blobs", index.size());
+    }
+}
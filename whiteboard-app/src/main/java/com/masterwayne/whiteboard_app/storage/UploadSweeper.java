@@ -0,0 +1,174 @@
+package com.masterwayne.whiteboard_app.storage;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Removes uploaded files no chat message references any more, and keeps track of upload storage size.
+ *
+ * Design:
+ * - The referenced set is built from the event store's attachment URLs (with the jpa engine, only the
+ *   attachmentUrl column streamed in fetch-size batches), each reduced to its blob key (the SHA-256
+ *   digest, shared by the blob and its thumbnails), so heap grows with the number of distinct blobs
+ * - The upload directory is walked with a directory stream; an unreferenced file is removed only if
+ *   it has not been stored or reused within the grace period, which covers uploads whose message is
+ *   still queued for persistence
+ * - While fallback storage holds events (messages not in the database yet) nothing is removed;
+ *   sizes are still measured
+ * - Leftover transfer files in the incoming directory are removed after the same grace period
+ * - Gauges: stored bytes and files as of the last sweep; counters: files removed, bytes reclaimed
+ */
+@Component
+public class UploadSweeper {
+    private static final Logger logger = LoggerFactory.getLogger(UploadSweeper.class);
+
+    /**
+     * Outcome of one sweep. {@code removalSkipped} is set when fallback events were pending.
+     */
+    public record SweepReport(int referencedBlobs, long filesKept, long bytesKept, long filesRemoved,
+                              long bytesReclaimed, boolean removalSkipped) {
+    }
+
+    private final UploadStore uploadStore;
+    private final ChannelEventStore eventStore;
+    private final FallbackStorage fallbackStorage;
+    private final boolean enabled;
+    private final Duration gracePeriod;
+    private final Counter filesRemoved;
+    private final Counter bytesReclaimed;
+    private volatile long storedBytes = -1;
+    private volatile long storedFiles = -1;
+
+    public UploadSweeper(UploadStore uploadStore,
+                         ChannelEventStore eventStore,
+                         FallbackStorage fallbackStorage,
+                         MeterRegistry registry,
+                         @Value("${whiteboard.uploads.sweep.enabled:true}") boolean enabled,
+                         @Value("${whiteboard.uploads.sweep.grace-period-hours:24}") long gracePeriodHours) {
+        this.uploadStore = uploadStore;
+        this.eventStore = eventStore;
+        this.fallbackStorage = fallbackStorage;
+        this.enabled = enabled;
+        this.gracePeriod = Duration.ofHours(gracePeriodHours);
+        this.filesRemoved = Counter.builder("whiteboard.uploads.sweep.files.removed")
+                .description("Unreferenced upload files removed")
+                .register(registry);
+        this.bytesReclaimed = Counter.builder("whiteboard.uploads.sweep.bytes.reclaimed")
+                .description("Disk space reclaimed from unreferenced upload files")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("whiteboard.uploads.storage.bytes", this, UploadSweeper::getStoredBytes)
+                .description("Size of the upload directory at the last sweep (-1 before the first)")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("whiteboard.uploads.storage.files", this, UploadSweeper::getStoredFiles)
+                .description("Files in the upload directory at the last sweep (-1 before the first)")
+                .register(registry);
+    }
+
+    @Scheduled(initialDelayString = "${whiteboard.uploads.sweep.initial-delay:300000}",
+            fixedDelayString = "${whiteboard.uploads.sweep.interval:3600000}")
+    public void scheduledSweep() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            sweep();
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Upload sweep failed: {}", e.toString());
+        }
+    }
+
+    public synchronized SweepReport sweep() throws IOException {
+        long start = System.nanoTime();
+        // Taken before reading references: anything stored or reused after this is kept
+        Instant cutoff = Instant.now().minus(gracePeriod);
+        boolean removalSkipped = fallbackStorage.getFallbackEventCount() > 0;
+        Set<String> referenced = referencedKeys();
+
+        long filesKept = 0;
+        long bytesKept = 0;
+        long removed = 0;
+        long reclaimed = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(uploadStore.getUploadDir())) {
+            for (Path file : files) {
+                BasicFileAttributes attributes;
+                try {
+                    attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                } catch (NoSuchFileException e) {
+                    continue;
+                }
+                if (!attributes.isRegularFile()) {
+                    continue;
+                }
+                String name = file.getFileName().toString();
+                boolean orphan = !removalSkipped && !referenced.contains(UploadStore.referenceKey(name));
+                if (orphan && uploadStore.removeIfUnusedSince(name, cutoff)) {
+                    removed++;
+                    reclaimed += attributes.size();
+                    logger.debug("Removed unreferenced upload {} ({} bytes)", name, attributes.size());
+                } else {
+                    filesKept++;
+                    bytesKept += attributes.size();
+                }
+            }
+        }
+        reclaimed += removeStaleIncoming(cutoff);
+
+        storedFiles = filesKept;
+        storedBytes = bytesKept;
+        filesRemoved.increment(removed);
+        bytesReclaimed.increment(reclaimed);
+        SweepReport report = new SweepReport(referenced.size(), filesKept, bytesKept, removed, reclaimed, removalSkipped);
+        logger.info("Upload sweep: {} referenced blobs, kept {} files ({} bytes), removed {} ({} bytes){} in {} ms",
+                report.referencedBlobs(), filesKept, bytesKept, removed, reclaimed,
+                removalSkipped ? ", removal skipped while fallback events are pending" : "",
+                Duration.ofNanos(System.nanoTime() - start).toMillis());
+        return report;
+    }
+
+    public long getStoredBytes() {
+        return storedBytes;
+    }
+
+    public long getStoredFiles() {
+        return storedFiles;
+    }
+
+    private Set<String> referencedKeys() {
+        Set<String> referenced = new HashSet<>();
+        eventStore.forEachAttachmentUrl(url -> referenced.add(UploadStore.referenceKey(url)));
+        return referenced;
+    }
+
+    private long removeStaleIncoming(Instant cutoff) throws IOException {
+        long reclaimed = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(uploadStore.getIncomingDir())) {
+            for (Path file : files) {
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                if (attributes.isRegularFile() && attributes.lastModifiedTime().toInstant().isBefore(cutoff)
+                        && Files.deleteIfExists(file)) {
+                    reclaimed += attributes.size();
+                }
+            }
+        }
+        return reclaimed;
+    }
+}
@@ -0,0 +1,88 @@
+package com.masterwayne.whiteboard_app;
+
+import com.masterwayne.whiteboard_app.storage.UploadStore;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.*;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ActiveProfiles("dev")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+public class AttachmentControllerIntegrationTests {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private TestRestTemplate rest;
+
+    @Autowired
+    private UploadStore uploadStore;
+
+    @Test
+    void serves_with_strong_etag_conditional_and_range() throws Exception {
+        byte[] content = new byte[100_000];
+        for (int i = 0; i < content.length; i++) {
+            content[i] = (byte) (i * 31);
+        }
+        UploadStore.StoredUpload stored = uploadStore.store(
+                new MockMultipartFile("file", "diagram.png", "image/png", content), "diagram.png", "image/png");
+        String url = "http://localhost:" + port + "/uploads/" + stored.storedName();
+
+        ResponseEntity<byte[]> full = rest.getForEntity(url, byte[].class);
+        assertEquals(HttpStatus.OK, full.getStatusCode());
+        assertArrayEquals(content, full.getBody());
+        assertEquals("\"" + stored.digest() + "\"", full.getHeaders().getETag());
+        assertTrue(full.getHeaders().getCacheControl().contains("immutable"));
+        assertEquals(MediaType.IMAGE_PNG, full.getHeaders().getContentType());
+
+        HttpHeaders revalidate = new HttpHeaders();
+        revalidate.setIfNoneMatch(full.getHeaders().getETag());
+        ResponseEntity<byte[]> notModified = rest.exchange(url, HttpMethod.GET, new HttpEntity<>(revalidate), byte[].class);
+        assertEquals(HttpStatus.NOT_MODIFIED, notModified.getStatusCode());
+
+        HttpHeaders range = new HttpHeaders();
+        range.setRange(HttpRange.parseRanges("bytes=70000-70009"));
+        ResponseEntity<byte[]> partial = rest.exchange(url, HttpMethod.GET, new HttpEntity<>(range), byte[].class);
+        assertEquals(HttpStatus.PARTIAL_CONTENT, partial.getStatusCode());
+        assertEquals("bytes 70000-70009/100000", partial.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+        assertArrayEquals(Arrays.copyOfRange(content, 70000, 70010), partial.getBody());
+
+        ResponseEntity<byte[]> missing = rest.getForEntity("http://localhost:" + port + "/uploads/no-such-file.png", byte[].class);
+        assertEquals(HttpStatus.NOT_FOUND, missing.getStatusCode());
+    }
+
+    @Test
+    void serves_only_allow_listed_images_inline_whatever_type_was_declared() throws Exception {
+        byte[] page = "<html><script>alert(document.cookie)</script></html>".getBytes(StandardCharsets.UTF_8);
+        UploadStore.StoredUpload html = uploadStore.store(
+                new MockMultipartFile("file", "page.html", "image/png", page), "page.html", "image/png");
+        UploadStore.StoredUpload svg = uploadStore.store(
+                new MockMultipartFile("file", "logo.svg", "image/svg+xml", "<svg/>".getBytes(StandardCharsets.UTF_8)),
+                "logo.svg", "image/svg+xml");
+        UploadStore.StoredUpload png = uploadStore.store(
+                new MockMultipartFile("file", "photo.png", "text/html", new byte[]{1, 2, 3}), "photo.png", "text/html");
+
+        for (UploadStore.StoredUpload download : List.of(html, svg)) {
+            ResponseEntity<byte[]> response = rest.getForEntity(
+                    "http://localhost:" + port + "/uploads/" + download.storedName(), byte[].class);
+            assertEquals(MediaType.APPLICATION_OCTET_STREAM, response.getHeaders().getContentType());
+            assertTrue(response.getHeaders().getContentDisposition().isAttachment());
+            assertEquals("nosniff", response.getHeaders().getFirst("X-Content-Type-Options"));
+        }
+
+        ResponseEntity<byte[]> inline = rest.getForEntity("http://localhost:" + port + "/uploads/" + png.storedName(), byte[].class);
+        assertEquals(MediaType.IMAGE_PNG, inline.getHeaders().getContentType());
+        assertNull(inline.getHeaders().getFirst(HttpHeaders.CONTENT_DISPOSITION));
+    }
+}
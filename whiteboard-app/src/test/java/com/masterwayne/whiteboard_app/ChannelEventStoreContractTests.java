@@ -0,0 +1,200 @@
+package com.masterwayne.whiteboard_app;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.masterwayne.whiteboard_app.model.ChatMessage;
+import com.masterwayne.whiteboard_app.model.DrawPayload;
+import com.masterwayne.whiteboard_app.repository.ChannelDirectory;
+import com.masterwayne.whiteboard_app.repository.ChannelRepository;
+import com.masterwayne.whiteboard_app.repository.WhiteboardSessionRepository;
+import com.masterwayne.whiteboard_app.service.WhiteboardService;
+import com.masterwayne.whiteboard_app.storage.ChannelEventStore;
+import com.masterwayne.whiteboard_app.storage.ChannelEventStore.ChannelAppend;
+import com.masterwayne.whiteboard_app.storage.InMemoryChannelEventStore;
+import com.masterwayne.whiteboard_app.storage.JpaChannelEventStore;
+import com.masterwayne.whiteboard_app.storage.LogStructuredChannelEventStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs the same event sequences against every ChannelEventStore engine, so switching
+ * whiteboard.store.engine never changes what history survives them.
+ */
+@SpringBootTest
+@ActiveProfiles("dev")
+public class ChannelEventStoreContractTests {
+
+    @Autowired
+    private WhiteboardService service;
+
+    @Autowired
+    private WhiteboardSessionRepository sessionRepository;
+
+    @Autowired
+    private ChannelRepository channelRepository;
+
+    @Autowired
+    private ChannelDirectory channelDirectory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @TempDir
+    Path tempDir;
+
+    private String sessionName;
+    private ChannelEventStore store;
+
+    @AfterEach
+    void tearDown() {
+        if (store instanceof LogStructuredChannelEventStore logStore) {
+            logStore.close();
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"jpa", "log", "memory"})
+    void lateClearHidesOnlyShapesAtOrBelowItsSeq(String engine) throws Exception {
+        open(engine);
+        append(null, shapes(1, 4));
+        append(null, shapes(6, 8));
+        // Replayed from the fallback log after live writes resumed
+        append(shape(5L, "clear"), List.of());
+        assertEquals(List.of(6L, 7L, 8L), seqs(store.shapes(sessionName, "general")));
+
+        // A covered shape replayed after the clear, and an older clear, change nothing
+        append(null, shapes(3, 3));
+        append(shape(2L, "clear"), List.of());
+        assertEquals(List.of(6L, 7L, 8L), seqs(store.shapes(sessionName, "general")));
+        assertEquals(List.of(7L, 8L), seqs(store.shapesInRange(sessionName, "general", 6, 10)));
+        assertEquals(3, store.countShapes(sessionName, "general"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"jpa", "log", "memory"})
+    void clearAppliesBeforeShapesOfTheSameAppend(String engine) throws Exception {
+        open(engine);
+        append(null, shapes(1, 3));
+        append(shape(5L, "clear"), List.of(shape(4L, "shape-rect"), shape(6L, "shape-rect"), shape(null, "shape-rect")));
+        assertEquals(List.of(6L), seqs(store.shapes(sessionName, "general")));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"jpa", "log", "memory"})
+    void unsequencedClearCoversEverythingStoredSoFar(String engine) throws Exception {
+        open(engine);
+        append(null, shapes(1, 3));
+        append(shape(null, "clear"), List.of());
+        assertTrue(store.shapes(sessionName, "general").isEmpty());
+
+        append(null, shapes(4, 5));
+        assertEquals(List.of(4L, 5L), seqs(store.shapes(sessionName, "general")));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"jpa", "log", "memory"})
+    void clearDoesNotLowerMaxShapeSeq(String engine) throws Exception {
+        open(engine);
+        append(null, shapes(1, 3));
+        append(shape(4L, "clear"), List.of());
+        assertTrue(store.shapes(sessionName, "general").isEmpty());
+        assertEquals(4, store.maxShapeSeq(sessionName, "general"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"jpa", "log", "memory"})
+    void clearLeavesChatUntouched(String engine) throws Exception {
+        open(engine);
+        ChatMessage message = new ChatMessage();
+        message.setSeq(1L);
+        message.setSenderName("ada");
+        message.setContent("hello");
+        store.append(List.of(new ChannelAppend(sessionName, "general", null, shapes(1, 2), List.of(message))));
+        append(shape(3L, "clear"), List.of());
+
+        assertTrue(store.shapes(sessionName, "general").isEmpty());
+        assertEquals(1, store.countChatMessages(sessionName, "general"));
+        assertEquals("hello", store.chatMessages(sessionName, "general").get(0).getContent());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"jpa", "log", "memory"})
+    void eventsAppendedTwiceAreStoredOnce(String engine) throws Exception {
+        open(engine);
+        append(null, shapes(1, 4));
+        // A replay chunk that committed, lost its outcome and was applied again with its neighbours
+        append(null, List.of(shape(3L, "shape-rect"), shape(4L, "shape-rect"), shape(5L, "shape-rect"),
+                shape(5L, "shape-rect")));
+        store.append(List.of(new ChannelAppend(sessionName, "general", null, List.of(), List.of(chat(1L), chat(2L)))));
+        store.append(List.of(new ChannelAppend(sessionName, "general", null, List.of(), List.of(chat(2L), chat(3L)))));
+
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L), seqs(store.shapes(sessionName, "general")));
+        assertEquals(5, store.countShapes(sessionName, "general"));
+        assertEquals(List.of(3L, 4L), seqs(store.shapesInRange(sessionName, "general", 2, 4)));
+        assertEquals(List.of(1L, 2L, 3L), store.chatMessages(sessionName, "general").stream()
+                .map(ChatMessage::getSeq).sorted().toList());
+        assertEquals(3, store.countChatMessages(sessionName, "general"));
+    }
+
+    private static ChatMessage chat(long seq) {
+        ChatMessage message = new ChatMessage();
+        message.setSeq(seq);
+        message.setSenderName("ada");
+        message.setContent("message " + seq);
+        return message;
+    }
+
+    private void open(String engine) throws Exception {
+        sessionName = "contract-" + engine + "-" + System.nanoTime();
+        service.createSession(sessionName, "manager1");
+        store = switch (engine) {
+            case "jpa" -> new JpaChannelEventStore(sessionRepository, channelRepository, transactionManager);
+            case "log" -> new LogStructuredChannelEventStore(tempDir.resolve("store"), objectMapper,
+                    channelDirectory::channelExists, 512, 64, false);
+            default -> new InMemoryChannelEventStore(channelDirectory::channelExists);
+        };
+    }
+
+    private void append(DrawPayload clear, List<DrawPayload> shapes) throws Exception {
+        store.append(List.of(new ChannelAppend(sessionName, "general", clear, shapes, List.of())));
+    }
+
+    private static List<DrawPayload> shapes(long fromSeq, long toSeq) {
+        List<DrawPayload> shapes = new ArrayList<>();
+        for (long seq = fromSeq; seq <= toSeq; seq++) {
+            shapes.add(shape(seq, "shape-rect"));
+        }
+        return shapes;
+    }
+
+    private static DrawPayload shape(Long seq, String type) {
+        DrawPayload payload = new DrawPayload();
+        payload.setType(type);
+        payload.setSeq(seq);
+        payload.setX1(1.0);
+        payload.setY1(1.0);
+        payload.setX2(2.0);
+        payload.setY2(2.0);
+        payload.setColor("#000000");
+        return payload;
+    }
+
+    // JPA returns a bag in no particular order; only which shapes survive is under test
+    private static List<Long> seqs(List<DrawPayload> shapes) {
+        return shapes.stream().map(DrawPayload::getSeq).sorted().toList();
+    }
+}
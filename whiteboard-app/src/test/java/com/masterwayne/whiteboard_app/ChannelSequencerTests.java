@@ -0,0 +1,118 @@
+package com.masterwayne.whiteboard_app;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.masterwayne.whiteboard_app.model.DrawPayload;
+import com.masterwayne.whiteboard_app.service.ChannelSequencer;
+import com.masterwayne.whiteboard_app.service.ChannelSequencer.Stream;
+import com.masterwayne.whiteboard_app.storage.ChannelEventStore.ChannelAppend;
+import com.masterwayne.whiteboard_app.storage.FallbackAppender.FsyncPolicy;
+import com.masterwayne.whiteboard_app.storage.FallbackStorage;
+import com.masterwayne.whiteboard_app.storage.InMemoryChannelEventStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that a sequence is seeded above everything already taken: stored events, the latest clear
+ * and events still waiting in the fallback log, that a failed seed is retried rather than
+ * starting over at 0, and that channels which do not exist are never seeded.
+ */
+public class ChannelSequencerTests {
+
+    @TempDir
+    Path tempDir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @Test
+    void failedSeedIsRetriedInsteadOfStartingAtZero() throws Exception {
+        AtomicBoolean storeDown = new AtomicBoolean(true);
+        InMemoryChannelEventStore store = new InMemoryChannelEventStore() {
+            @Override
+            public long maxShapeSeq(String sessionName, String channelName) {
+                if (storeDown.get()) {
+                    throw new IllegalStateException("database unavailable");
+                }
+                return super.maxShapeSeq(sessionName, channelName);
+            }
+        };
+        store.append(List.of(new ChannelAppend("board", "general", null, List.of(shape(1L), shape(2L)), List.of())));
+        FallbackStorage fallback = openFallback();
+        try {
+            ChannelSequencer sequencer = new ChannelSequencer(store, fallback, (session, channel) -> true);
+
+            assertThrows(IllegalStateException.class, () -> sequencer.sequenceFor("board", "general", Stream.DRAW));
+            storeDown.set(false);
+            assertEquals(3, sequencer.sequenceFor("board", "general", Stream.DRAW).next());
+        } finally {
+            fallback.shutdown();
+        }
+    }
+
+    @Test
+    void seedStaysAboveClearAndUnreplayedFallbackEvents() throws Exception {
+        InMemoryChannelEventStore store = new InMemoryChannelEventStore();
+        DrawPayload clear = shape(5L);
+        clear.setType("clear");
+        store.append(List.of(new ChannelAppend("board", "general", null, List.of(shape(1L), shape(2L)), List.of()),
+                new ChannelAppend("board", "general", clear, List.of(), List.of())));
+
+        FallbackStorage earlierRun = openFallback();
+        earlierRun.writeDrawPayload("board", "sketches", shape(9L));
+        earlierRun.shutdown();
+
+        FallbackStorage fallback = openFallback();
+        try {
+            ChannelSequencer sequencer = new ChannelSequencer(store, fallback, (session, channel) -> true);
+
+            assertEquals(6, sequencer.sequenceFor("board", "general", Stream.DRAW).next());
+            assertEquals(10, sequencer.sequenceFor("board", "sketches", Stream.DRAW).next());
+            assertEquals(1, sequencer.sequenceFor("board", "sketches", Stream.CHAT).next());
+        } finally {
+            fallback.shutdown();
+        }
+    }
+
+    @Test
+    void unknownChannelsAreNeitherSeededNorKept() throws Exception {
+        AtomicInteger seedLookups = new AtomicInteger();
+        InMemoryChannelEventStore store = new InMemoryChannelEventStore() {
+            @Override
+            public long maxShapeSeq(String sessionName, String channelName) {
+                seedLookups.incrementAndGet();
+                return super.maxShapeSeq(sessionName, channelName);
+            }
+        };
+        FallbackStorage fallback = openFallback();
+        try {
+            ChannelSequencer sequencer = new ChannelSequencer(store, fallback,
+                    (session, channel) -> "board".equals(session) && "general".equals(channel));
+
+            assertThrows(IllegalArgumentException.class, () -> sequencer.sequenceFor("board", "ghost", Stream.DRAW));
+            assertThrows(IllegalArgumentException.class, () -> sequencer.sequenceFor("ghost", "general", Stream.DRAW));
+            assertEquals(0, seedLookups.get());
+            assertEquals(1, sequencer.sequenceFor("board", "general", Stream.DRAW).next());
+            assertEquals(1, seedLookups.get());
+        } finally {
+            fallback.shutdown();
+        }
+    }
+
+    private FallbackStorage openFallback() {
+        return new FallbackStorage(objectMapper, FsyncPolicy.EVENT, 200, 1000, 1 << 20, 1, 1, 5,
+                tempDir.toString());
+    }
+
+    private static DrawPayload shape(Long seq) {
+        DrawPayload payload = new DrawPayload();
+        payload.setType("line-segment");
+        payload.setSeq(seq);
+        return payload;
+    }
+}
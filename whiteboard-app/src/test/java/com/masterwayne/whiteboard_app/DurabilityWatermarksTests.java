@@ -0,0 +1,160 @@
+package com.masterwayne.whiteboard_app;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.masterwayne.whiteboard_app.exception.PersistenceException;
+import com.masterwayne.whiteboard_app.model.DrawPayload;
+import com.masterwayne.whiteboard_app.persistence.DurabilityWatermarks;
+import com.masterwayne.whiteboard_app.persistence.PersistenceWorker;
+import com.masterwayne.whiteboard_app.persistence.PersistenceWorker.PersistenceTask;
+import com.masterwayne.whiteboard_app.storage.FallbackAppender.FsyncPolicy;
+import com.masterwayne.whiteboard_app.storage.FallbackStorage;
+import com.masterwayne.whiteboard_app.storage.InMemoryChannelEventStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Drives the watermark through the persistence worker: a failed batch holds it below its events
+ * until replay commits those very events, whatever else replay commits first.
+ */
+public class DurabilityWatermarksTests {
+
+    @TempDir
+    Path tempDir;
+
+    private volatile boolean storeDown;
+    private final InMemoryChannelEventStore store = new InMemoryChannelEventStore() {
+        @Override
+        public void append(List<ChannelAppend> appends) throws PersistenceException {
+            if (storeDown) {
+                throw new UncheckedIOException(new IOException("database unavailable"));
+            }
+            super.append(appends);
+        }
+    };
+    private final DurabilityWatermarks watermarks = new DurabilityWatermarks(store, null, false);
+    private FallbackStorage fallbackStorage;
+    private PersistenceWorker worker;
+
+    private volatile boolean fallbackRefuses;
+    private volatile boolean fallbackFailsLater;
+
+    @BeforeEach
+    void setUp() {
+        fallbackStorage = new FallbackStorage(new ObjectMapper().findAndRegisterModules(), FsyncPolicy.EVENT, 200,
+                1000, 1 << 20, 1, 1, 5, tempDir.toString()) {
+            @Override
+            public CompletableFuture<Void> writeDrawPayload(String sessionName, String channelName, DrawPayload payload)
+                    throws IOException {
+                if (fallbackRefuses) {
+                    throw new IOException("disk full");
+                }
+                if (fallbackFailsLater) {
+                    return CompletableFuture.failedFuture(new IOException("disk full"));
+                }
+                return super.writeDrawPayload(sessionName, channelName, payload);
+            }
+        };
+        worker = new PersistenceWorker(store, fallbackStorage, watermarks);
+        worker.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        worker.shutdown();
+        fallbackStorage.shutdown();
+    }
+
+    @Test
+    void holdIsReleasedByTheHeldSeqsNotByHowManyEventsReplay() throws Exception {
+        storeDown = true;
+        assertTrue(worker.submitDrawBatch("board", "general", shapes(10, 11)));
+        await(() -> watermarks.isHeld("board", "general", false));
+
+        storeDown = false;
+        assertTrue(worker.submitDrawBatch("board", "general", shapes(12, 12)));
+        await(() -> store.countShapes("board", "general") == 1);
+        assertEquals(9, watermarks.durableSeq("board", "general", false));
+
+        // Left in the fallback log by an earlier run: more events than are held, none of them held
+        worker.submitReplayChunk(List.of(PersistenceTask.drawBatchTask("board", "general", shapes(1, 3))))
+                .get(5, TimeUnit.SECONDS);
+        assertTrue(watermarks.isHeld("board", "general", false));
+        assertEquals(9, watermarks.durableSeq("board", "general", false));
+
+        worker.submitReplayChunk(List.of(PersistenceTask.drawBatchTask("board", "general", shapes(10, 10))))
+                .get(5, TimeUnit.SECONDS);
+        assertTrue(watermarks.isHeld("board", "general", false));
+        assertEquals(10, watermarks.durableSeq("board", "general", false));
+
+        worker.submitReplayChunk(List.of(PersistenceTask.drawBatchTask("board", "general", shapes(11, 11))))
+                .get(5, TimeUnit.SECONDS);
+        assertFalse(watermarks.isHeld("board", "general", false));
+        assertEquals(12, watermarks.durableSeq("board", "general", false));
+    }
+
+    @Test
+    void fallbackWritesThatFailDoNotHoldTheWatermark() throws Exception {
+        storeDown = true;
+        fallbackRefuses = true;
+        assertTrue(worker.submitDrawBatch("board", "general", shapes(1, 2)));
+        fallbackRefuses = false;
+        fallbackFailsLater = true;
+        assertTrue(worker.submitDrawBatch("board", "general", shapes(3, 4)));
+        // Queued behind both batches: it fails as well, but by then they have been handled
+        worker.submitReplayChunk(List.of()).handle((done, e) -> null).get(5, TimeUnit.SECONDS);
+        assertFalse(watermarks.isHeld("board", "general", false));
+
+        storeDown = false;
+        assertTrue(worker.submitDrawBatch("board", "general", shapes(5, 5)));
+        await(() -> watermarks.durableSeq("board", "general", false) == 5);
+        assertEquals(0, fallbackStorage.getFallbackEventCount());
+    }
+
+    @Test
+    void clearingTheFallbackLogReleasesItsHolds() throws Exception {
+        storeDown = true;
+        assertTrue(worker.submitDrawBatch("board", "general", shapes(1, 2)));
+        await(() -> watermarks.isHeld("board", "general", false));
+
+        storeDown = false;
+        assertTrue(worker.submitDrawBatch("board", "general", shapes(3, 3)));
+        await(() -> store.countShapes("board", "general") == 1);
+        assertEquals(0, watermarks.durableSeq("board", "general", false));
+
+        worker.clearFallback();
+        assertFalse(watermarks.isHeld("board", "general", false));
+        assertEquals(3, watermarks.durableSeq("board", "general", false));
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+
+    private static List<DrawPayload> shapes(long fromSeq, long toSeq) {
+        List<DrawPayload> shapes = new ArrayList<>();
+        for (long seq = fromSeq; seq <= toSeq; seq++) {
+            DrawPayload payload = new DrawPayload();
+            payload.setType("line-segment");
+            payload.setSeq(seq);
+            shapes.add(payload);
+        }
+        return shapes;
+    }
+}
@@ -0,0 +1,71 @@
+package com.masterwayne.whiteboard_app;
+
+import com.masterwayne.whiteboard_app.storage.FallbackAppender;
+import com.masterwayne.whiteboard_app.storage.FallbackAppender.FsyncPolicy;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that concurrent appends are group-committed without losing or tearing lines, and that the
+ * file can be removed and is recreated on the next append.
+ */
+public class FallbackAppenderTests {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void concurrentAppendsKeepEveryLineIntact() throws Exception {
+        Path file = tempDir.resolve("fallback.jsonl");
+        try (FallbackAppender appender = new FallbackAppender(file, FsyncPolicy.EVENT, 200, 64)) {
+            List<Thread> writers = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int writerId = t;
+                Thread writer = new Thread(() -> {
+                    for (int i = 0; i < 250; i++) {
+                        try {
+                            appender.append(("{\"w\":" + writerId + ",\"i\":" + i + "}\n").getBytes(StandardCharsets.UTF_8));
+                        } catch (Exception e) {
+                            throw new IllegalStateException(e);
+                        }
+                    }
+                });
+                writers.add(writer);
+                writer.start();
+            }
+            for (Thread writer : writers) {
+                writer.join();
+            }
+
+            List<String> lines = Files.readAllLines(file);
+            assertEquals(1000, lines.size());
+            Set<String> unique = new HashSet<>(lines);
+            assertEquals(1000, unique.size());
+            assertTrue(unique.contains("{\"w\":3,\"i\":249}"));
+        }
+    }
+
+    @Test
+    void fileIsRecreatedAfterDelete() throws Exception {
+        Path file = tempDir.resolve("fallback.jsonl");
+        try (FallbackAppender appender = new FallbackAppender(file, FsyncPolicy.OS, 200, 16)) {
+            appender.append("first\n".getBytes(StandardCharsets.UTF_8));
+            appender.withFileClosed(() -> Files.deleteIfExists(file));
+            assertFalse(Files.exists(file));
+
+            appender.append("second\n".getBytes(StandardCharsets.UTF_8));
+            appender.flush();
+            assertEquals(List.of("second"), Files.readAllLines(file));
+        }
+    }
+}
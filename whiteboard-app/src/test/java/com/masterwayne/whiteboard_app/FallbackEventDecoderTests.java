@@ -0,0 +1,41 @@
+package com.masterwayne.whiteboard_app;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.masterwayne.whiteboard_app.storage.FallbackEventDecoder;
+import com.masterwayne.whiteboard_app.storage.FallbackStorage.FallbackEvent;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that parallel decoding returns events in log order and leaves unparseable lines empty.
+ */
+public class FallbackEventDecoderTests {
+
+    @Test
+    void parallelDecodeKeepsLogOrder() {
+        ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+        List<byte[]> lines = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            String json = i == 777 ? "{not json"
+                    : "{\"eventType\":\"DRAW\",\"sessionName\":\"s" + (i % 3) + "\",\"channelName\":\"c" + i + "\"}";
+            lines.add(json.getBytes(StandardCharsets.UTF_8));
+        }
+
+        try (FallbackEventDecoder decoder = new FallbackEventDecoder(objectMapper, 4)) {
+            FallbackEvent[] events = decoder.decode(lines);
+            assertEquals(2000, events.length);
+            assertNull(events[777]);
+            for (int i = 0; i < events.length; i++) {
+                if (i != 777) {
+                    assertEquals("c" + i, events[i].getChannelName());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.masterwayne.whiteboard_app;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.masterwayne.whiteboard_app.storage.FallbackAppender.FsyncPolicy;
+import com.masterwayne.whiteboard_app.storage.FallbackLog;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks segment rollover, constant-time counters, that replay resumes from the persisted
+ * checkpoint after a restart, and that compressed segments read back unchanged.
+ */
+public class FallbackLogTests {
+
+    @TempDir
+    Path tempDir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void replayResumesFromCheckpointAfterRestart() throws Exception {
+        Path dir = tempDir.resolve("fallback");
+        try (FallbackLog log = open(dir)) {
+            for (int i = 0; i < 20; i++) {
+                log.append(line(i));
+            }
+            log.flush();
+            assertEquals(20, log.getPendingEvents());
+            assertTrue(log.getSegmentCount() > 1, "small segment limit should have rolled");
+
+            FallbackLog.ReadResult first = log.read(log.getCheckpoint(), 8);
+            assertEquals(8, first.lines().size());
+            assertEquals("{\"i\":0}", new String(first.lines().get(0), StandardCharsets.UTF_8));
+            log.commit(first.next(), first.lines().size());
+            assertEquals(12, log.getPendingEvents());
+        }
+
+        try (FallbackLog reopened = open(dir)) {
+            assertEquals(12, reopened.getPendingEvents());
+            FallbackLog.ReadResult rest = reopened.read(reopened.getCheckpoint(), Integer.MAX_VALUE);
+            assertEquals(12, rest.lines().size());
+            assertEquals("{\"i\":8}", new String(rest.lines().get(0), StandardCharsets.UTF_8));
+            reopened.commit(rest.next(), rest.lines().size());
+            assertEquals(0, reopened.getPendingEvents());
+        }
+    }
+
+    @Test
+    void legacyFileIsMigratedIntoFirstSegment() throws Exception {
+        Path legacy = tempDir.resolve("offline-persist.jsonl");
+        Files.write(legacy, "{\"i\":1}\n{\"i\":2}\n".getBytes(StandardCharsets.UTF_8));
+
+        try (FallbackLog log = new FallbackLog(tempDir.resolve("fallback"), legacy, objectMapper,
+                FsyncPolicy.OS, 200, 16, 1024 * 1024)) {
+            assertFalse(Files.exists(legacy));
+            assertEquals(2, log.getPendingEvents());
+            assertEquals(2, log.read(log.getCheckpoint(), 10).lines().size());
+        }
+    }
+
+    @Test
+    void sealedSegmentsAreCompressedAndReadTransparently() throws Exception {
+        Path dir = tempDir.resolve("fallback");
+        try (FallbackLog log = openCompressed(dir)) {
+            for (int i = 0; i < 20; i++) {
+                log.append(line(i));
+            }
+            log.flush();
+            assertTrue(log.awaitCompression(5000));
+            assertTrue(log.getCompressedSegmentCount() > 0);
+
+            FallbackLog.ReadResult first = log.read(log.getCheckpoint(), 5);
+            assertEquals("{\"i\":4}", new String(first.lines().get(4), StandardCharsets.UTF_8));
+            log.commit(first.next(), first.lines().size());
+
+            Path backup = tempDir.resolve("backup");
+            log.backupTo(backup);
+            try (var files = Files.list(backup)) {
+                Path sealed = files.filter(path -> path.getFileName().toString().endsWith(".jsonl.z")).findFirst().orElseThrow();
+                assertTrue(Files.isSameFile(sealed, dir.resolve(sealed.getFileName())), "sealed segments are hard-linked");
+            }
+        }
+
+        try (FallbackLog reopened = openCompressed(dir)) {
+            assertEquals(15, reopened.getPendingEvents());
+            FallbackLog.ReadResult rest = reopened.read(reopened.getCheckpoint(), Integer.MAX_VALUE);
+            assertEquals(15, rest.lines().size());
+            assertEquals("{\"i\":5}", new String(rest.lines().get(0), StandardCharsets.UTF_8));
+            assertEquals("{\"i\":19}", new String(rest.lines().get(14), StandardCharsets.UTF_8));
+        }
+    }
+
+    private FallbackLog openCompressed(Path dir) throws Exception {
+        return new FallbackLog(dir, null, objectMapper, FsyncPolicy.OS, 200, 4, 40, 1);
+    }
+
+    private FallbackLog open(Path dir) throws Exception {
+        return new FallbackLog(dir, null, objectMapper, FsyncPolicy.OS, 200, 4, 40);
+    }
+
+    private static byte[] line(int i) {
+        return ("{\"i\":" + i + "}\n").getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,53 @@
+package com.masterwayne.whiteboard_app;
+
+import com.masterwayne.whiteboard_app.diagnostics.JfrEndpoint;
+import jdk.jfr.EventType;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.actuate.endpoint.web.WebEndpointResponse;
+import org.springframework.core.io.Resource;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Makes a one-second recording and checks that it leaves out the events that carry the process's
+ * environment variables and system properties, and that out-of-range durations are refused.
+ */
+public class JfrEndpointTests {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void recordingsLeaveOutTheEnvironmentAndSystemProperties() throws Exception {
+        WebEndpointResponse<Resource> response = new JfrEndpoint(5).record(1, "default");
+        assertEquals(WebEndpointResponse.STATUS_OK, response.getStatus());
+
+        Path file = tempDir.resolve("recording.jfr");
+        try (InputStream body = response.getBody().getInputStream()) {
+            Files.copy(body, file);
+        }
+        List<String> names = RecordingFile.readAllEvents(file).stream()
+                .map(RecordedEvent::getEventType)
+                .map(EventType::getName)
+                .distinct()
+                .toList();
+        assertTrue(names.contains("jdk.JVMInformation"));
+        assertFalse(names.contains("jdk.InitialEnvironmentVariable"));
+        assertFalse(names.contains("jdk.InitialSystemProperty"));
+    }
+
+    @Test
+    void refusesDurationsOutsideTheCap() {
+        JfrEndpoint endpoint = new JfrEndpoint(5);
+        assertEquals(WebEndpointResponse.STATUS_BAD_REQUEST, endpoint.record(0, null).getStatus());
+        assertEquals(WebEndpointResponse.STATUS_BAD_REQUEST, endpoint.record(6, null).getStatus());
+    }
+}
@@ -0,0 +1,47 @@
+package com.masterwayne.whiteboard_app;
+
+import com.masterwayne.whiteboard_app.diagnostics.LogRateLimiter;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the per-window budget, that a new window restores it, and that suppressed calls are counted
+ * once and reset on drain.
+ */
+public class LogRateLimiterTests {
+
+    @Test
+    void letsTheBudgetThroughAndCountsTheRest() {
+        LogRateLimiter limiter = new LogRateLimiter(3, Duration.ofHours(1));
+        int allowed = 0;
+        for (int i = 0; i < 10; i++) {
+            if (limiter.tryAcquire()) {
+                allowed++;
+            }
+        }
+        assertEquals(3, allowed);
+        assertEquals(7, limiter.drainSuppressed());
+        assertEquals(0, limiter.drainSuppressed());
+        assertFalse(limiter.tryAcquire());
+        assertEquals(1, limiter.drainSuppressed());
+    }
+
+    @Test
+    void newWindowRestoresTheBudget() throws InterruptedException {
+        LogRateLimiter limiter = new LogRateLimiter(2, Duration.ofMillis(50));
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+
+        Thread.sleep(80);
+
+        assertTrue(limiter.tryAcquire());
+        assertTrue(limiter.tryAcquire());
+        assertFalse(limiter.tryAcquire());
+        // Suppressed calls carry over windows until a line reports them
+        assertEquals(2, limiter.drainSuppressed());
+    }
+}
@@ -0,0 +1,86 @@
+package com.masterwayne.whiteboard_app;
+
+import com.masterwayne.whiteboard_app.messaging.MessageStageTimer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Drives messages through synchronous stand-ins for the inbound, broker and outbound channels and
+ * checks which stage timers record them.
+ */
+public class MessageStageTimerTests {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void sampledDrawIsTimedThroughEveryStage() {
+        pipeline(new MessageStageTimer(registry, 1.0), 3).send(frame("/app/draw/s1/general"));
+
+        assertEquals(1, count("inbound-to-handler", "draw"));
+        assertEquals(1, count("handler", "draw"));
+        // One write per subscriber
+        assertEquals(3, count("handler-to-write", "draw"));
+        assertEquals(0, count("handler", "chat"));
+    }
+
+    @Test
+    void chatIsTaggedSeparately() {
+        pipeline(new MessageStageTimer(registry, 1.0), 1).send(frame("/app/chat/s1/general"));
+
+        assertEquals(1, count("handler", "chat"));
+        assertEquals(1, count("handler-to-write", "chat"));
+        assertEquals(0, count("handler", "draw"));
+    }
+
+    @Test
+    void unsampledAndOtherDestinationsAreNotTimed() {
+        ExecutorSubscribableChannel inbound = pipeline(new MessageStageTimer(registry, 1.0), 1);
+        inbound.send(frame("/app/presence/s1"));
+        pipeline(new MessageStageTimer(registry, 0.0), 1).send(frame("/app/draw/s1/general"));
+
+        assertEquals(0, count("handler", "draw"));
+        assertEquals(0, count("handler-to-write", "draw"));
+    }
+
+    // inbound -> handler -> broker -> one outbound copy per subscriber, all on the calling thread
+    private ExecutorSubscribableChannel pipeline(MessageStageTimer timer, int subscribers) {
+        ExecutorSubscribableChannel outbound = new ExecutorSubscribableChannel();
+        outbound.addInterceptor(timer.outbound());
+        outbound.subscribe(message -> { });
+
+        ExecutorSubscribableChannel broker = new ExecutorSubscribableChannel();
+        broker.addInterceptor(timer.broker());
+        broker.subscribe(message -> {
+            for (int i = 0; i < subscribers; i++) {
+                outbound.send(MessageBuilder.fromMessage(message).build());
+            }
+        });
+
+        ExecutorSubscribableChannel inbound = new ExecutorSubscribableChannel();
+        inbound.addInterceptor(timer.inbound());
+        inbound.subscribe(message -> {
+            String destination = SimpMessageHeaderAccessor.getDestination(message.getHeaders());
+            String topic = destination.startsWith("/app/chat/") ? "/topic/chat/s1/general" : "/topic/whiteboard/s1/general";
+            broker.send(frame(topic));
+        });
+        return inbound;
+    }
+
+    private static Message<byte[]> frame(String destination) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(destination);
+        accessor.setLeaveMutable(true);
+        return MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+    }
+
+    private long count(String stage, String type) {
+        return registry.get("whiteboard.stomp.stage").tag("stage", stage).tag("type", type).timer().count();
+    }
+}
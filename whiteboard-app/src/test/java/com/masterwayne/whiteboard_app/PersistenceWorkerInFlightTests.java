@@ -0,0 +1,195 @@
+package com.masterwayne.whiteboard_app;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.masterwayne.whiteboard_app.exception.PersistenceException;
+import com.masterwayne.whiteboard_app.model.ChatMessage;
+import com.masterwayne.whiteboard_app.model.DrawPayload;
+import com.masterwayne.whiteboard_app.persistence.DurabilityWatermarks;
+import com.masterwayne.whiteboard_app.persistence.PersistenceWorker;
+import com.masterwayne.whiteboard_app.persistence.PersistenceWorker.PersistenceTask;
+import com.masterwayne.whiteboard_app.storage.FallbackAppender.FsyncPolicy;
+import com.masterwayne.whiteboard_app.storage.FallbackStorage;
+import com.masterwayne.whiteboard_app.storage.InMemoryChannelEventStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Holds the persistence worker inside its first store append and checks that queued and in-progress
+ * events are visible as pending until their batch is stored, and that events a failed batch wrote
+ * to the fallback log stay visible until replay stores or dead-letters them, and no longer once the
+ * log loses them.
+ */
+public class PersistenceWorkerInFlightTests {
+
+    @TempDir
+    Path tempDir;
+
+    private volatile boolean storeDown;
+    private final CountDownLatch appending = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final InMemoryChannelEventStore store = new InMemoryChannelEventStore() {
+        @Override
+        public void append(List<ChannelAppend> appends) throws PersistenceException {
+            appending.countDown();
+            try {
+                if (!release.await(10, TimeUnit.SECONDS)) {
+                    throw new IllegalStateException("Test did not release the worker");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+            if (storeDown) {
+                throw new UncheckedIOException(new IOException("database unavailable"));
+            }
+            super.append(appends);
+        }
+    };
+    private volatile boolean chatWritesFailLater;
+    private FallbackStorage fallbackStorage;
+    private PersistenceWorker worker;
+
+    @BeforeEach
+    void setUp() {
+        fallbackStorage = new FallbackStorage(new ObjectMapper().findAndRegisterModules(), FsyncPolicy.EVENT, 200,
+                1000, 1 << 20, 1, 1, 5, tempDir.toString()) {
+            @Override
+            public CompletableFuture<Void> writeChatMessage(String sessionName, String channelName, ChatMessage message)
+                    throws IOException {
+                if (chatWritesFailLater) {
+                    return CompletableFuture.failedFuture(new IOException("disk full"));
+                }
+                return super.writeChatMessage(sessionName, channelName, message);
+            }
+        };
+        worker = new PersistenceWorker(store, fallbackStorage, new DurabilityWatermarks(store, null, false));
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        worker.shutdown();
+        fallbackStorage.shutdown();
+    }
+
+    @Test
+    void pendingEventsAreIndexedUntilTheirBatchCommits() throws Exception {
+        worker.start();
+        assertTrue(worker.submitDrawEvent("board", "general", shape(1L, "shape-rect")));
+        assertTrue(worker.submitDrawEvent("board", "general", shape(2L, "shape-rect")));
+        assertTrue(worker.submitClear("board", "general", shape(3L, "clear")));
+        assertTrue(worker.submitDrawBatch("board", "general", List.of(shape(4L, "line-segment"), shape(5L, "line-segment"))));
+        ChatMessage message = new ChatMessage();
+        message.setSeq(1L);
+        assertTrue(worker.submitChatMessage("board", "general", message));
+
+        assertEquals(List.of(1L, 2L, 3L, 4L, 5L),
+                worker.pendingShapes("board", "general").stream().map(DrawPayload::getSeq).toList());
+        assertEquals(1, worker.pendingChatMessages("board", "general").size());
+        assertTrue(worker.pendingShapes("board", "other").isEmpty());
+
+        release.countDown();
+        long deadline = System.currentTimeMillis() + 5000;
+        while ((!worker.pendingShapes("board", "general").isEmpty() || !worker.pendingChatMessages("board", "general").isEmpty())
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertTrue(worker.pendingShapes("board", "general").isEmpty());
+        assertTrue(worker.pendingChatMessages("board", "general").isEmpty());
+        assertEquals(List.of(4L, 5L),
+                store.shapes("board", "general").stream().map(DrawPayload::getSeq).toList());
+    }
+
+    @Test
+    void eventsOfAFailedBatchStayPendingUntilReplayedOrDeadLettered() throws Exception {
+        storeDown = true;
+        release.countDown();
+        worker.start();
+        assertTrue(worker.submitDrawBatch("board", "general", List.of(shape(1L, "line-segment"), shape(2L, "line-segment"))));
+        ChatMessage message = new ChatMessage();
+        message.setSeq(1L);
+        assertTrue(worker.submitChatMessage("board", "general", message));
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (fallbackStorage.getFallbackEventCount() < 3 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertEquals(3, fallbackStorage.getFallbackEventCount());
+        assertEquals(List.of(1L, 2L),
+                worker.pendingShapes("board", "general").stream().map(DrawPayload::getSeq).toList());
+        assertEquals(1, worker.pendingChatMessages("board", "general").size());
+
+        // Replay hands the worker copies decoded from the fallback log, not the queued objects
+        storeDown = false;
+        worker.submitReplayChunk(List.of(PersistenceTask.drawBatchTask("board", "general",
+                List.of(shape(1L, "line-segment"), shape(2L, "line-segment"))))).get(5, TimeUnit.SECONDS);
+        assertTrue(worker.pendingShapes("board", "general").isEmpty());
+        assertEquals(List.of(1L, 2L),
+                store.shapes("board", "general").stream().map(DrawPayload::getSeq).toList());
+
+        ChatMessage poison = new ChatMessage();
+        poison.setSeq(1L);
+        assertEquals(1, worker.pendingChatMessages("board", "general").size());
+        worker.deadLettered(PersistenceTask.chatTask("board", "general", poison));
+        assertTrue(worker.pendingChatMessages("board", "general").isEmpty());
+    }
+
+    @Test
+    void eventsTheFallbackLogDoesNotKeepDropOutOfReads() throws Exception {
+        storeDown = true;
+        chatWritesFailLater = true;
+        release.countDown();
+        worker.start();
+        assertTrue(worker.submitDrawBatch("board", "general", List.of(shape(1L, "line-segment"), shape(2L, "line-segment"))));
+        ChatMessage message = new ChatMessage();
+        message.setSeq(1L);
+        assertTrue(worker.submitChatMessage("board", "general", message));
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while ((fallbackStorage.getFallbackEventCount() < 2 || !worker.pendingChatMessages("board", "general").isEmpty())
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        assertTrue(worker.pendingChatMessages("board", "general").isEmpty());
+        assertEquals(2, worker.pendingShapes("board", "general").size());
+
+        worker.clearFallback();
+        assertEquals(0, fallbackStorage.getFallbackEventCount());
+        assertTrue(worker.pendingShapes("board", "general").isEmpty());
+    }
+
+    @Test
+    void replayChunksCancelledBeforeTheWorkerTakesThemNeverCommit() throws Exception {
+        worker.start();
+        assertTrue(worker.submitDrawEvent("board", "general", shape(1L, "shape-rect")));
+        assertTrue(appending.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Void> timedOut = worker.submitReplayChunk(List.of(
+                PersistenceTask.drawTask("board", "general", shape(2L, "shape-rect"))));
+        assertTrue(timedOut.cancel(false));
+
+        release.countDown();
+        worker.submitReplayChunk(List.of(PersistenceTask.drawTask("board", "general", shape(3L, "shape-rect"))))
+                .get(5, TimeUnit.SECONDS);
+        assertEquals(List.of(1L, 3L),
+                store.shapes("board", "general").stream().map(DrawPayload::getSeq).toList());
+    }
+
+    private static DrawPayload shape(Long seq, String type) {
+        DrawPayload payload = new DrawPayload();
+        payload.setType(type);
+        payload.setSeq(seq);
+        return payload;
+    }
+}
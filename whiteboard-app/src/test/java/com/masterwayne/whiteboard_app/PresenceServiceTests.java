@@ -0,0 +1,134 @@
+package com.masterwayne.whiteboard_app;
+
+import com.masterwayne.whiteboard_app.dto.PresenceSnapshot;
+import com.masterwayne.whiteboard_app.dto.PresenceUpdate;
+import com.masterwayne.whiteboard_app.service.PresenceService;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Captures what each presence tick sends and checks conflation, departures, that a client which
+ * moved boards is evicted from the board it is on, and that a closed client stays gone.
+ */
+public class PresenceServiceTests {
+
+    private final List<Message<?>> sent = new ArrayList<>();
+    private final PresenceService presence = new PresenceService(new SimpMessagingTemplate((message, timeout) -> sent.add(message)));
+
+    @Test
+    void updatesBetweenTicksAreConflatedToTheLatest() {
+        presence.update("board", "c1", cursor(1.0));
+        presence.update("board", "c1", cursor(2.0));
+        presence.update("board", "c2", cursor(5.0));
+        presence.flush();
+
+        PresenceSnapshot tick = onlyTick("/topic/presence/board");
+        assertEquals(2, tick.getUpdates().size());
+        assertEquals(2.0, tick.getUpdates().stream().filter(u -> u.getClientId().equals("c1")).findFirst().orElseThrow().getX());
+        assertTrue(tick.getDeparted().isEmpty());
+
+        presence.flush();
+        assertTrue(sent.isEmpty(), "nothing changed, nothing to send");
+        assertEquals(2, presence.snapshot("board").size());
+    }
+
+    @Test
+    void evictedClientIsReportedAsDepartedOnce() {
+        presence.update("board", "c1", cursor(1.0));
+        presence.update("board", "c2", cursor(1.0));
+        presence.flush();
+        sent.clear();
+
+        presence.evict("c1");
+        presence.flush();
+
+        PresenceSnapshot tick = onlyTick("/topic/presence/board");
+        assertEquals(List.of("c1"), tick.getDeparted());
+        assertTrue(tick.getUpdates().isEmpty());
+        assertEquals(List.of("c2"), presence.snapshot("board").stream().map(PresenceUpdate::getClientId).toList());
+
+        presence.flush();
+        assertTrue(sent.isEmpty());
+    }
+
+    @Test
+    void lastClientLeavingIsStillReported() {
+        presence.update("board", "c1", cursor(1.0));
+        presence.flush();
+        sent.clear();
+
+        presence.evict("c1");
+        presence.flush();
+
+        assertEquals(List.of("c1"), onlyTick("/topic/presence/board").getDeparted());
+        assertTrue(presence.snapshot("board").isEmpty());
+    }
+
+    @Test
+    void clientMovingBoardsDepartsTheOldOneAndIsEvictedFromTheNewOne() {
+        presence.update("board-a", "c1", cursor(1.0));
+        presence.update("board-a", "c2", cursor(1.0));
+        presence.flush();
+        sent.clear();
+
+        presence.update("board-b", "c1", cursor(3.0));
+        presence.flush();
+        assertEquals(List.of("c1"), tick("/topic/presence/board-a").getDeparted());
+        assertEquals(1, tick("/topic/presence/board-b").getUpdates().size());
+        sent.clear();
+
+        presence.evict("c1");
+        presence.flush();
+        assertEquals(List.of("c1"), onlyTick("/topic/presence/board-b").getDeparted());
+        assertTrue(presence.snapshot("board-b").isEmpty());
+        assertEquals(List.of("c2"), presence.snapshot("board-a").stream().map(PresenceUpdate::getClientId).toList());
+    }
+
+    @Test
+    void updatesQueuedBehindTheCloseDoNotBringTheClientBack() {
+        presence.update("board", "c1", cursor(1.0));
+        presence.update("board", "c2", cursor(1.0));
+        presence.flush();
+        sent.clear();
+
+        presence.evict("c1");
+        // A /app/presence frame the inbound channel handles after the transport closed
+        presence.update("board", "c1", cursor(2.0));
+        presence.flush();
+
+        PresenceSnapshot tick = onlyTick("/topic/presence/board");
+        assertEquals(List.of("c1"), tick.getDeparted());
+        assertTrue(tick.getUpdates().isEmpty());
+        assertEquals(List.of("c2"), presence.snapshot("board").stream().map(PresenceUpdate::getClientId).toList());
+    }
+
+    private PresenceSnapshot onlyTick(String destination) {
+        assertEquals(1, sent.size());
+        PresenceSnapshot tick = tick(destination);
+        sent.clear();
+        return tick;
+    }
+
+    private PresenceSnapshot tick(String destination) {
+        return sent.stream()
+                .filter(message -> destination.equals(SimpMessageHeaderAccessor.getDestination(message.getHeaders())))
+                .map(message -> (PresenceSnapshot) message.getPayload())
+                .findFirst()
+                .orElseThrow(() -> new AssertionError("Nothing sent to " + destination));
+    }
+
+    private static PresenceUpdate cursor(double x) {
+        PresenceUpdate update = new PresenceUpdate();
+        update.setChannelName("general");
+        update.setX(x);
+        update.setY(0.0);
+        return update;
+    }
+}
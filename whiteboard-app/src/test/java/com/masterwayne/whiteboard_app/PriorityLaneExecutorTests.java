@@ -0,0 +1,152 @@
+package com.masterwayne.whiteboard_app;
+
+import com.masterwayne.whiteboard_app.messaging.PriorityLaneExecutor;
+import com.masterwayne.whiteboard_app.messaging.PriorityLaneExecutor.Lane;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.messaging.support.MessageHandlingRunnable;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks lane classification of STOMP channel tasks, that a chat message overtakes a queued draw backlog,
+ * including its own client's, and that each client's frames stay in order within a lane.
+ */
+public class PriorityLaneExecutorTests {
+
+    @Test
+    void classifiesByDestination() {
+        assertEquals(Lane.CHAT, PriorityLaneExecutor.classify(task(SimpMessageType.MESSAGE, "/app/chat/s/general", () -> {})));
+        assertEquals(Lane.CHAT, PriorityLaneExecutor.classify(task(SimpMessageType.MESSAGE, "/topic/chat/s/general", () -> {})));
+        assertEquals(Lane.DRAW, PriorityLaneExecutor.classify(task(SimpMessageType.MESSAGE, "/app/draw-batch/s/general", () -> {})));
+        assertEquals(Lane.DRAW, PriorityLaneExecutor.classify(task(SimpMessageType.MESSAGE, "/topic/whiteboard/s/general", () -> {})));
+        assertEquals(Lane.CONTROL, PriorityLaneExecutor.classify(task(SimpMessageType.SUBSCRIBE, "/topic/chat/s/general", () -> {})));
+        assertEquals(Lane.CONTROL, PriorityLaneExecutor.classify(() -> {}));
+    }
+
+    @Test
+    void chatOvertakesDrawBacklog() throws InterruptedException {
+        PriorityLaneExecutor executor = new PriorityLaneExecutor("test", 1,
+                Map.of(Lane.CHAT, 4, Lane.CONTROL, 2, Lane.DRAW, 1));
+        try {
+            CountDownLatch release = new CountDownLatch(1);
+            CountDownLatch finished = new CountDownLatch(52);
+            List<String> order = new CopyOnWriteArrayList<>();
+
+            executor.execute(task(SimpMessageType.MESSAGE, "/app/draw/s/general", () -> {
+                awaitQuietly(release);
+                finished.countDown();
+            }));
+            for (int i = 0; i < 50; i++) {
+                executor.execute(task(SimpMessageType.MESSAGE, "/app/draw/s/general", () -> {
+                    order.add("draw");
+                    finished.countDown();
+                }));
+            }
+            executor.execute(task(SimpMessageType.MESSAGE, "/app/chat/s/general", () -> {
+                order.add("chat");
+                finished.countDown();
+            }));
+            release.countDown();
+
+            assertTrue(finished.await(5, TimeUnit.SECONDS));
+            assertTrue(order.indexOf("chat") < 3, "chat should not wait behind the draw backlog: " + order.indexOf("chat"));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    void ordersEachClientPerLaneWithoutHoldingItsChatBehindItsDraws() throws InterruptedException {
+        PriorityLaneExecutor executor = new PriorityLaneExecutor("test", 4,
+                Map.of(Lane.CHAT, 4, Lane.CONTROL, 2, Lane.DRAW, 1));
+        try {
+            CountDownLatch release = new CountDownLatch(1);
+            CountDownLatch chatsDone = new CountDownLatch(50);
+            CountDownLatch finished = new CountDownLatch(100);
+            List<String> order = new CopyOnWriteArrayList<>();
+            // The outbound channel as configured with lanes: no publish-order decorator in front
+            ExecutorSubscribableChannel channel = new ExecutorSubscribableChannel(executor);
+            channel.subscribe(message -> {
+                int index = (Integer) message.getPayload();
+                if (SimpMessageHeaderAccessor.getDestination(message.getHeaders()).startsWith("/topic/whiteboard/")) {
+                    if (index == 0) {
+                        awaitQuietly(release);
+                    }
+                    order.add("draw-" + index);
+                } else {
+                    order.add("chat-" + index);
+                    chatsDone.countDown();
+                }
+                finished.countDown();
+            });
+
+            for (int i = 0; i < 50; i++) {
+                channel.send(message("/topic/whiteboard/s/general", "client-1", i));
+            }
+            for (int i = 0; i < 50; i++) {
+                channel.send(message("/topic/chat/s/general", "client-1", i));
+            }
+
+            assertTrue(chatsDone.await(5, TimeUnit.SECONDS), "chat should not wait behind its own client's draws");
+            assertTrue(order.stream().noneMatch(event -> event.startsWith("draw")));
+            release.countDown();
+            assertTrue(finished.await(5, TimeUnit.SECONDS));
+            assertEquals(IntStream.range(0, 50).mapToObj(i -> "draw-" + i).toList(),
+                    order.stream().filter(event -> event.startsWith("draw")).toList());
+            assertEquals(IntStream.range(0, 50).mapToObj(i -> "chat-" + i).toList(),
+                    order.stream().filter(event -> event.startsWith("chat")).toList());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static Message<Integer> message(String destination, String sessionId, int index) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(destination);
+        accessor.setSessionId(sessionId);
+        return MessageBuilder.createMessage(index, accessor.getMessageHeaders());
+    }
+
+    private static Runnable task(SimpMessageType type, String destination, Runnable body) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(type);
+        accessor.setDestination(destination);
+        Message<byte[]> message = MessageBuilder.createMessage(new byte[0], accessor.getMessageHeaders());
+        return new MessageHandlingRunnable() {
+            @Override
+            public Message<?> getMessage() {
+                return message;
+            }
+
+            @Override
+            public MessageHandler getMessageHandler() {
+                return m -> body.run();
+            }
+
+            @Override
+            public void run() {
+                body.run();
+            }
+        };
+    }
+}
@@ -0,0 +1,106 @@
+package com.masterwayne.whiteboard_app;
+
+import com.masterwayne.whiteboard_app.persistence.FallbackReplayer;
+import com.masterwayne.whiteboard_app.persistence.FallbackReplayer.ReplayReport;
+import com.masterwayne.whiteboard_app.persistence.ReplayJob;
+import com.masterwayne.whiteboard_app.persistence.ReplayJobManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Job lifecycle of background fallback replays, with a replayer that runs until the test releases
+ * it or the job is cancelled; what a replay does to history is covered in WhiteboardServiceTests.
+ */
+public class ReplayJobManagerTests {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final AtomicInteger runs = new AtomicInteger();
+    private final FallbackReplayer replayer = new FallbackReplayer(null, null, null, null, 500, 5000, 2000) {
+        @Override
+        public ReplayReport replay(ReplayJob job) {
+            runs.incrementAndGet();
+            try {
+                while (!job.isCancelRequested()) {
+                    if (release.await(10, TimeUnit.MILLISECONDS)) {
+                        return new ReplayReport(0, 0, 0, false, null);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new ReplayReport(0, 0, 0, true, "Cancelled");
+        }
+    };
+    private final ReplayJobManager manager = new ReplayJobManager(replayer);
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        manager.shutdown();
+    }
+
+    @Test
+    void resubmittingWhileAJobIsActiveReturnsThatJob() throws Exception {
+        ReplayJob running = manager.submit(0);
+        await(() -> running.getState() == ReplayJob.State.RUNNING);
+
+        assertSame(running, manager.submit(100));
+        assertSame(running, manager.activeJob().orElseThrow());
+        assertEquals(1, runs.get());
+        assertEquals(1, manager.recentJobs().size());
+
+        release.countDown();
+        await(running::isFinished);
+        assertEquals(ReplayJob.State.COMPLETED, running.getState());
+        assertTrue(manager.activeJob().isEmpty());
+
+        ReplayJob next = manager.submit(0);
+        assertNotSame(running, next);
+        await(next::isFinished);
+        assertEquals(2, runs.get());
+    }
+
+    @Test
+    void keepsOnlyTheTwentyMostRecentJobs() throws Exception {
+        release.countDown();
+        List<ReplayJob> submitted = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            ReplayJob job = manager.submit(0);
+            await(job::isFinished);
+            submitted.add(job);
+        }
+
+        assertEquals(submitted.subList(5, 25), manager.recentJobs());
+        assertTrue(manager.find(submitted.get(4).getId()).isEmpty());
+        assertSame(submitted.get(24), manager.find(submitted.get(24).getId()).orElseThrow());
+    }
+
+    @Test
+    void shutdownCancelsTheActiveJob() throws Exception {
+        ReplayJob running = manager.submit(0);
+        await(() -> running.getState() == ReplayJob.State.RUNNING);
+
+        manager.shutdown();
+
+        assertTrue(running.isCancelRequested());
+        assertEquals(ReplayJob.State.CANCELLED, running.getState());
+        assertTrue(manager.activeJob().isEmpty());
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(condition.getAsBoolean());
+    }
+}
@@ -0,0 +1,87 @@
+package com.masterwayne.whiteboard_app;
+
+import com.masterwayne.whiteboard_app.messaging.SessionTrafficMeter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.MessageBuilder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Feeds frames through the traffic interceptors and checks that only the top-K boards get their own
+ * series, with everything else in the _other bucket.
+ */
+public class SessionTrafficMeterTests {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final SessionTrafficMeter meter = new SessionTrafficMeter(registry, true, 2);
+
+    @Test
+    void exportsTopBoardsAndAggregatesTheRest() {
+        for (int board = 0; board < 5; board++) {
+            // board-4 is the hottest, board-0 the quietest
+            for (int i = 0; i <= board * 10; i++) {
+                inbound(SimpMessageType.MESSAGE, "c1", null, "/app/draw/board-" + board + "/general", 10);
+            }
+        }
+        outbound("/topic/whiteboard/board-4/general", 100);
+        meter.publish();
+
+        assertTrue(registry.find("whiteboard.traffic.messages").tag("session", "board-4").gauge() != null);
+        assertTrue(registry.find("whiteboard.traffic.messages").tag("session", "board-3").gauge() != null);
+        assertNull(registry.find("whiteboard.traffic.messages").tag("session", "board-2").gauge());
+        // Three non-top boards: 21 + 11 + 1 inbound messages
+        double otherIn = registry.get("whiteboard.traffic.messages")
+                .tag("session", "_other").tag("direction", "in").gauge().value();
+        double board4In = registry.get("whiteboard.traffic.messages")
+                .tag("session", "board-4").tag("direction", "in").gauge().value();
+        assertEquals(33.0 / 41.0, otherIn / board4In, 1e-9);
+        assertTrue(registry.get("whiteboard.traffic.bytes")
+                .tag("session", "board-4").tag("direction", "out").gauge().value() > 0);
+    }
+
+    @Test
+    void tracksSubscriptionsUntilDisconnect() {
+        inbound(SimpMessageType.SUBSCRIBE, "c1", "sub-0", "/topic/whiteboard/board-1/general", 0);
+        inbound(SimpMessageType.SUBSCRIBE, "c1", "sub-1", "/topic/chat/board-1/general", 0);
+        inbound(SimpMessageType.SUBSCRIBE, "c2", "sub-0", "/topic/whiteboard/board-1/general", 0);
+        meter.publish();
+        assertEquals(3, subscriptions("board-1"));
+
+        inbound(SimpMessageType.UNSUBSCRIBE, "c1", "sub-1", null, 0);
+        inbound(SimpMessageType.DISCONNECT, "c2", null, null, 0);
+        meter.publish();
+        assertEquals(1, subscriptions("board-1"));
+
+        // Idle with no subscriptions: forgotten on the next tick
+        inbound(SimpMessageType.DISCONNECT, "c1", null, null, 0);
+        meter.publish();
+        assertNull(registry.find("whiteboard.traffic.subscriptions").tag("session", "board-1").gauge());
+        assertEquals(0, registry.get("whiteboard.traffic.sessions").gauge().value());
+    }
+
+    private double subscriptions(String board) {
+        return registry.get("whiteboard.traffic.subscriptions").tag("session", board).gauge().value();
+    }
+
+    private void inbound(SimpMessageType type, String clientId, String subscriptionId, String destination, int bytes) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(type);
+        accessor.setSessionId(clientId);
+        accessor.setSubscriptionId(subscriptionId);
+        accessor.setDestination(destination);
+        meter.inbound().preSend(message(accessor, bytes), null);
+    }
+
+    private void outbound(String destination, int bytes) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(destination);
+        meter.outbound().preSend(message(accessor, bytes), null);
+    }
+
+    private static Message<byte[]> message(SimpMessageHeaderAccessor accessor, int bytes) {
+        return MessageBuilder.createMessage(new byte[bytes], accessor.getMessageHeaders());
+    }
+}
@@ -0,0 +1,71 @@
+package com.masterwayne.whiteboard_app;
+
+import com.masterwayne.whiteboard_app.messaging.SharedFrameStompEncoder;
+import org.junit.jupiter.api.Test;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.stomp.StompCommand;
+import org.springframework.messaging.simp.stomp.StompDecoder;
+import org.springframework.messaging.simp.stomp.StompEncoder;
+import org.springframework.messaging.simp.stomp.StompHeaderAccessor;
+import org.springframework.util.MimeTypeUtils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that frames from the shared-frame encoder decode to the same headers and body as the
+ * standard Spring encoder, for several subscribers sharing one payload.
+ */
+public class SharedFrameStompEncoderTests {
+
+    private final StompEncoder standard = new StompEncoder();
+    private final SharedFrameStompEncoder shared = new SharedFrameStompEncoder();
+    private final StompDecoder decoder = new StompDecoder();
+
+    @Test
+    void broadcastFramesMatchStandardEncoding() {
+        byte[] payload = "{\"type\":\"line-segment\",\"x1\":1.0,\"seq\":7}".getBytes(StandardCharsets.UTF_8);
+
+        for (int subscriber = 0; subscriber < 5; subscriber++) {
+            StompHeaderAccessor accessor = messageHeaders("sub-" + subscriber, "id:" + subscriber);
+            Message<byte[]> expected = decode(standard.encode(accessor.getMessageHeaders(), payload));
+            Message<byte[]> actual = decode(shared.encode(accessor.getMessageHeaders(), payload));
+
+            StompHeaderAccessor expectedHeaders = StompHeaderAccessor.wrap(expected);
+            StompHeaderAccessor actualHeaders = StompHeaderAccessor.wrap(actual);
+            assertEquals(StompCommand.MESSAGE, actualHeaders.getCommand());
+            assertEquals(expectedHeaders.getSubscriptionId(), actualHeaders.getSubscriptionId());
+            assertEquals(expectedHeaders.getMessageId(), actualHeaders.getMessageId());
+            assertEquals(expectedHeaders.getDestination(), actualHeaders.getDestination());
+            assertEquals(expectedHeaders.getContentType(), actualHeaders.getContentType());
+            assertArrayEquals(expected.getPayload(), actual.getPayload());
+        }
+    }
+
+    @Test
+    void nonMessageFramesUseStandardEncoding() {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.RECEIPT);
+        accessor.setReceiptId("r-1");
+        byte[] payload = new byte[0];
+        assertArrayEquals(standard.encode(accessor.getMessageHeaders(), payload),
+                shared.encode(accessor.getMessageHeaders(), payload));
+    }
+
+    private StompHeaderAccessor messageHeaders(String subscriptionId, String messageId) {
+        StompHeaderAccessor accessor = StompHeaderAccessor.create(StompCommand.MESSAGE);
+        accessor.setDestination("/topic/whiteboard/s1/general");
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        accessor.setSubscriptionId(subscriptionId);
+        accessor.setMessageId(messageId);
+        return accessor;
+    }
+
+    private Message<byte[]> decode(byte[] frame) {
+        List<Message<byte[]>> messages = decoder.decode(ByteBuffer.wrap(frame));
+        assertEquals(1, messages.size());
+        return messages.get(0);
+    }
+}
@@ -0,0 +1,91 @@
+package com.masterwayne.whiteboard_app;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.masterwayne.whiteboard_app.storage.ThumbnailService;
+import com.masterwayne.whiteboard_app.storage.ThumbnailService.ImageRenditions;
+import com.masterwayne.whiteboard_app.storage.UploadStore;
+import com.masterwayne.whiteboard_app.storage.UploadStore.StoredUpload;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.nio.file.Path;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that a large image gets both renditions in the background, a small one points at the
+ * original, and non-images get none.
+ */
+public class ThumbnailServiceTests {
+
+    @TempDir
+    Path tempDir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    @Test
+    void largeImageGetsDownscaledRenditions() throws Exception {
+        UploadStore store = new UploadStore(objectMapper, tempDir.resolve("uploads").toString(), tempDir.resolve("meta").toString());
+        ThumbnailService thumbnails = new ThumbnailService(store, new SimpleMeterRegistry(), 1, 4, 160, 640, 50_000_000L);
+        try {
+            StoredUpload photo = store.store(image("board.png", 2000, 1000, "png"), "board.png", "image/png");
+            ImageRenditions renditions = thumbnails.schedule(photo).orElseThrow();
+            assertEquals("/uploads/" + photo.digest() + "-160.png", renditions.thumbnailUrl());
+            assertEquals("/uploads/" + photo.digest() + "-640.png", renditions.previewUrl());
+
+            BufferedImage preview = ImageIO.read(awaitFile(store, photo.digest() + "-640.png").toFile());
+            BufferedImage thumbnail = ImageIO.read(awaitFile(store, photo.digest() + "-160.png").toFile());
+            assertEquals(640, preview.getWidth());
+            assertEquals(320, preview.getHeight());
+            assertEquals(160, thumbnail.getWidth());
+            assertEquals(80, thumbnail.getHeight());
+            assertEquals(photo.digest() + "-160",
+                    store.contentDigest(photo.digest() + "-160.png", store.resolve(photo.digest() + "-160.png").orElseThrow()));
+
+            StoredUpload icon = store.store(image("icon.jpg", 300, 200, "jpeg"), "icon.jpg", "image/jpeg");
+            ImageRenditions small = thumbnails.schedule(icon).orElseThrow();
+            assertEquals("/uploads/" + icon.digest() + "-160.jpg", small.thumbnailUrl());
+            assertEquals("/uploads/" + icon.storedName(), small.previewUrl());
+
+            StoredUpload notes = store.store(new MockMultipartFile("file", "notes.png", "image/png",
+                    "not an image".getBytes(StandardCharsets.UTF_8)), "notes.png", "image/png");
+            assertTrue(thumbnails.schedule(notes).isEmpty());
+        } finally {
+            thumbnails.shutdown();
+        }
+    }
+
+    private static Path awaitFile(UploadStore store, String name) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (System.currentTimeMillis() < deadline) {
+            var file = store.resolve(name);
+            if (file.isPresent()) {
+                return file.get();
+            }
+            Thread.sleep(20);
+        }
+        return fail("Rendition " + name + " was not generated");
+    }
+
+    private static MockMultipartFile image(String name, int width, int height, String format) throws Exception {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = image.createGraphics();
+        g.setColor(Color.WHITE);
+        g.fillRect(0, 0, width, height);
+        g.setColor(Color.BLUE);
+        g.drawLine(0, 0, width, height);
+        g.dispose();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ImageIO.write(image, format, bytes);
+        return new MockMultipartFile("file", name, "image/" + format, bytes.toByteArray());
+    }
+}
@@ -0,0 +1,55 @@
+package com.masterwayne.whiteboard_app;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.masterwayne.whiteboard_app.storage.UploadStore;
+import com.masterwayne.whiteboard_app.storage.UploadStore.StoredUpload;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that identical uploads share one blob, also after a restart, and different ones do not.
+ */
+public class UploadStoreTests {
+
+    @TempDir
+    Path tempDir;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(new JavaTimeModule());
+
+    @Test
+    void identicalContentIsStoredOnce() throws Exception {
+        byte[] screenshot = "fake png bytes".getBytes(StandardCharsets.UTF_8);
+        UploadStore store = open();
+
+        StoredUpload first = store.store(file("shot.PNG", screenshot), "shot.PNG", "image/png");
+        StoredUpload second = store.store(file("copy.png", screenshot), "copy.png", "image/png");
+        StoredUpload other = store.store(file("notes.txt", "other".getBytes(StandardCharsets.UTF_8)), "notes.txt", "text/plain");
+
+        assertEquals(first.storedName(), second.storedName());
+        assertTrue(first.storedName().matches("[0-9a-f]{64}\\.png"));
+        assertNotEquals(first.storedName(), other.storedName());
+        try (var blobs = Files.list(tempDir.resolve("uploads"))) {
+            assertEquals(2, blobs.count());
+        }
+
+        UploadStore reopened = open();
+        assertEquals(2, reopened.getBlobCount());
+        assertEquals(first.storedName(), reopened.store(file("again.png", screenshot), "again.png", "image/png").storedName());
+    }
+
+    private UploadStore open() {
+        return new UploadStore(objectMapper, tempDir.resolve("uploads").toString(), tempDir.resolve("meta").toString());
+    }
+
+    private static MockMultipartFile file(String name, byte[] content) {
+        return new MockMultipartFile("file", name, "application/octet-stream", content);
+    }
+}
@@ -0,0 +1,93 @@
+package com.masterwayne.whiteboard_app;
+
+import com.masterwayne.whiteboard_app.model.Channel;
+import com.masterwayne.whiteboard_app.model.ChatMessage;
+import com.masterwayne.whiteboard_app.repository.ChannelRepository;
+import com.masterwayne.whiteboard_app.storage.UploadStore;
+import com.masterwayne.whiteboard_app.storage.UploadStore.StoredUpload;
+import com.masterwayne.whiteboard_app.storage.UploadSweeper;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks that the sweeper removes only unreferenced uploads older than the grace period, together
+ * with their renditions, and that reusing an old blob protects it.
+ */
+@ActiveProfiles("dev")
+@SpringBootTest(properties = {
+        "whiteboard.uploads.dir=target/upload-sweeper-test/uploads",
+        "whiteboard.uploads.meta-dir=target/upload-sweeper-test/meta"
+})
+public class UploadSweeperTests {
+
+    @Autowired
+    private UploadStore uploadStore;
+
+    @Autowired
+    private UploadSweeper uploadSweeper;
+
+    @Autowired
+    private ChannelRepository channelRepository;
+
+    @Test
+    void removesOnlyOldUnreferencedUploads() throws Exception {
+        String run = Long.toString(System.nanoTime());
+        StoredUpload referenced = store("referenced-" + run);
+        StoredUpload orphan = store("orphan-" + run);
+        StoredUpload fresh = store("fresh-" + run);
+        StoredUpload reused = store("reused-" + run);
+        String orphanThumbnail = orphan.digest() + "-160.png";
+        uploadStore.storeRendition(orphanThumbnail, new byte[]{1, 2, 3});
+        for (String name : List.of(referenced.storedName(), orphan.storedName(), orphanThumbnail, reused.storedName())) {
+            age(name);
+        }
+
+        ChatMessage message = new ChatMessage();
+        message.setSenderName("alice");
+        message.setMessageType("FILE");
+        message.setAttachmentUrl("/uploads/" + referenced.storedName());
+        message.setTimestamp(Instant.now());
+        Channel channel = new Channel();
+        channel.setChannelName("sweeper-" + run);
+        channel.setChatMessages(List.of(message));
+        channelRepository.save(channel);
+
+        // Uploading the same content again marks the old blob as in use
+        store("reused-" + run);
+
+        UploadSweeper.SweepReport report = uploadSweeper.sweep();
+
+        assertFalse(report.removalSkipped());
+        assertTrue(uploadStore.resolve(referenced.storedName()).isPresent());
+        assertTrue(uploadStore.resolve(fresh.storedName()).isPresent());
+        assertTrue(uploadStore.resolve(reused.storedName()).isPresent());
+        assertTrue(uploadStore.resolve(orphan.storedName()).isEmpty());
+        assertTrue(uploadStore.resolve(orphanThumbnail).isEmpty());
+        assertTrue(uploadStore.findByDigest(orphan.digest()).isEmpty());
+        assertTrue(report.filesRemoved() >= 2);
+        assertEquals(report.bytesKept(), uploadSweeper.getStoredBytes());
+    }
+
+    private StoredUpload store(String content) throws Exception {
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        return uploadStore.store(new MockMultipartFile("file", "notes.txt", "text/plain", bytes), "notes.txt", "text/plain");
+    }
+
+    private void age(String name) throws Exception {
+        Path file = uploadStore.resolve(name).orElseThrow();
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().minus(Duration.ofDays(2))));
+    }
+}
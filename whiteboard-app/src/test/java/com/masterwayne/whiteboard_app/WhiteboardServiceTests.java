@@ -1,13 +1,24 @@
 package com.masterwayne.whiteboard_app;
 
+import com.masterwayne.whiteboard_app.controller.RecoveryController;
+import com.masterwayne.whiteboard_app.controller.RecoveryController.ReplayJobStatus;
+import com.masterwayne.whiteboard_app.dto.DurabilityStatus;
 import com.masterwayne.whiteboard_app.exception.SessionException;
+import com.masterwayne.whiteboard_app.model.DrawPayload;
 import com.masterwayne.whiteboard_app.model.WhiteboardSession;
+import com.masterwayne.whiteboard_app.service.ChannelSequencer;
 import com.masterwayne.whiteboard_app.service.WhiteboardService;
+import com.masterwayne.whiteboard_app.storage.FallbackStorage;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.test.context.ActiveProfiles;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 /**
@@ -21,6 +32,15 @@ public class WhiteboardServiceTests {
     @Autowired
     private WhiteboardService service;
 
+    @Autowired
+    private FallbackStorage fallbackStorage;
+
+    @Autowired
+    private ChannelSequencer sequencer;
+
+    @Autowired
+    private RecoveryController recoveryController;
+
     @Test
     void createSession_success() throws SessionException {
         String sessionName = "test-session-" + System.currentTimeMillis();
@@ -58,4 +78,218 @@ public class WhiteboardServiceTests {
         SessionException ex = assertThrows(SessionException.class, () -> service.joinSession(sessionName, "userA"));
         assertTrue(ex.getMessage().contains("already in the session"));
     }
+
+    @Test
+    void addShapes_emptyBatchThrows() throws SessionException {
+        String sessionName = "batch-empty-" + System.currentTimeMillis();
+        service.createSession(sessionName, "manager1");
+        assertThrows(SessionException.class, () -> service.addShapes(sessionName, "general", List.of()));
+    }
+
+    @Test
+    void addShapes_batchIsPersisted() throws Exception {
+        String sessionName = "batch-" + System.currentTimeMillis();
+        service.createSession(sessionName, "manager1");
+
+        List<DrawPayload> batch = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            DrawPayload segment = new DrawPayload();
+            segment.setType("line-segment");
+            segment.setX1((double) i);
+            segment.setY1((double) i);
+            segment.setX2((double) i + 1);
+            segment.setY2((double) i + 1);
+            segment.setColor("#000000");
+            batch.add(segment);
+        }
+        service.addShapes(sessionName, "general", batch);
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (service.getShapes(sessionName, "general").size() < batch.size() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        assertEquals(batch.size(), service.getShapes(sessionName, "general").size());
+    }
+
+    @Test
+    void addShape_stampsMonotonicSeqAndServesMissingRange() throws Exception {
+        String sessionName = "seq-" + System.currentTimeMillis();
+        service.createSession(sessionName, "manager1");
+
+        List<DrawPayload> sent = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            DrawPayload shape = new DrawPayload();
+            shape.setType("shape-rect");
+            shape.setX1((double) i);
+            service.addShape(sessionName, "general", shape);
+            sent.add(shape);
+        }
+        for (int i = 0; i < sent.size(); i++) {
+            assertEquals(i + 1L, sent.get(i).getSeq());
+        }
+
+        long deadline = System.currentTimeMillis() + 5000;
+        while (service.getShapes(sessionName, "general").size() < sent.size() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        List<DrawPayload> gap = service.getShapesInRange(sessionName, "general", 2, 4);
+        assertEquals(List.of(3L, 4L), gap.stream().map(DrawPayload::getSeq).toList());
+    }
+
+    @Test
+    void addShape_unknownChannelThrows() throws SessionException {
+        String sessionName = "unknown-channel-" + System.currentTimeMillis();
+        service.createSession(sessionName, "manager1");
+        DrawPayload shape = new DrawPayload();
+        shape.setType("shape-rect");
+
+        assertThrows(SessionException.class, () -> service.addShape(sessionName, "ghost", shape));
+        assertThrows(SessionException.class, () -> service.addShapes("no-such-session", "general", List.of(shape)));
+        assertNull(shape.getSeq());
+    }
+
+    @Test
+    void previews_areBroadcastWithoutTheClientSeq() throws Exception {
+        String sessionName = "preview-seq-" + System.currentTimeMillis();
+        service.createSession(sessionName, "manager1");
+
+        DrawPayload preview = new DrawPayload();
+        preview.setType("shape-preview-rect");
+        preview.setSeq(42L);
+        service.addShape(sessionName, "general", preview);
+        assertNull(preview.getSeq());
+
+        DrawPayload batchedPreview = new DrawPayload();
+        batchedPreview.setType("line-segment-preview");
+        batchedPreview.setSeq(43L);
+        DrawPayload segment = new DrawPayload();
+        segment.setType("line-segment");
+        service.addShapes(sessionName, "general", new ArrayList<>(List.of(batchedPreview, segment)));
+        assertNull(batchedPreview.getSeq());
+        assertEquals(1L, segment.getSeq());
+    }
+
+    @Test
+    void getShapes_readsItsOwnWritesWithoutWaitingForPersistence() throws Exception {
+        String sessionName = "ryw-" + System.currentTimeMillis();
+        service.createSession(sessionName, "manager1");
+
+        for (int i = 0; i < 50; i++) {
+            DrawPayload shape = new DrawPayload();
+            shape.setType("shape-rect");
+            shape.setX1((double) i);
+            service.addShape(sessionName, "general", shape);
+        }
+        // Committed or still queued, every shape is visible at once and exactly once
+        List<Long> seqs = service.getShapes(sessionName, "general").stream().map(DrawPayload::getSeq).sorted().toList();
+        assertEquals(50, seqs.size());
+        assertEquals(1L, seqs.get(0));
+        assertEquals(50L, seqs.get(49));
+    }
+
+    @Test
+    void getDurability_reachesSequencedSeqOnceCommitted() throws Exception {
+        String sessionName = "durable-" + System.currentTimeMillis();
+        service.createSession(sessionName, "manager1");
+
+        for (int i = 0; i < 5; i++) {
+            DrawPayload shape = new DrawPayload();
+            shape.setType("shape-rect");
+            shape.setX1((double) i);
+            service.addShape(sessionName, "general", shape);
+        }
+
+        long deadline = System.currentTimeMillis() + 5000;
+        DurabilityStatus status = service.getDurability(sessionName, "general");
+        while (status.getDrawDurableSeq() < 5 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+            status = service.getDurability(sessionName, "general");
+        }
+        assertEquals(5, status.getDrawSequencedSeq());
+        assertEquals(5, status.getDrawDurableSeq());
+        assertEquals(0, status.getChatDurableSeq());
+        assertFalse(status.isHeldByFallback());
+        assertThrows(SessionException.class, () -> service.getDurability(sessionName, "no-such-channel"));
+    }
+
+    @Test
+    void replayFallbackEvents_appliesEventsAndDeadLettersUnknownChannel() throws Exception {
+        String sessionName = "replay-" + System.currentTimeMillis();
+        service.createSession(sessionName, "manager1");
+
+        for (int i = 0; i < 3; i++) {
+            DrawPayload shape = new DrawPayload();
+            shape.setType("shape-rect");
+            shape.setX1((double) i);
+            fallbackStorage.writeDrawPayload(sessionName, "general", shape);
+        }
+        DrawPayload orphan = new DrawPayload();
+        orphan.setType("shape-rect");
+        fallbackStorage.writeDrawPayload(sessionName, "no-such-channel", orphan);
+        long deadLettersBefore = fallbackStorage.getDeadLetterCount();
+
+        assertTrue(service.replayFallbackEvents() >= 3);
+        assertEquals(3, service.getShapes(sessionName, "general").size());
+        assertEquals(deadLettersBefore + 1, fallbackStorage.getDeadLetterCount());
+        assertEquals(0, fallbackStorage.getFallbackEventCount());
+    }
+
+    @Test
+    void replayJob_runsInTheBackgroundAndIsTrackedById() throws Exception {
+        String sessionName = "replay-job-" + System.currentTimeMillis();
+        service.createSession(sessionName, "manager1");
+        DrawPayload shape = new DrawPayload();
+        shape.setType("shape-rect");
+        fallbackStorage.writeDrawPayload(sessionName, "general", shape);
+
+        ResponseEntity<ReplayJobStatus> accepted = recoveryController.triggerReplay(0);
+        assertEquals(HttpStatus.ACCEPTED, accepted.getStatusCode());
+        String jobId = accepted.getBody().getJobId();
+        assertEquals("/api/recovery/replay/" + jobId, accepted.getHeaders().getLocation().toString());
+
+        ReplayJobStatus status = recoveryController.getReplayJob(jobId).getBody();
+        long deadline = System.currentTimeMillis() + 5000;
+        while (status.getFinishedAt() == null && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+            status = recoveryController.getReplayJob(jobId).getBody();
+        }
+        assertEquals("COMPLETED", status.getState());
+        assertEquals(0, status.getRemainingEventCount());
+        assertEquals(1, service.getShapes(sessionName, "general").size());
+        assertTrue(recoveryController.listReplayJobs().getBody().stream().anyMatch(job -> job.getJobId().equals(jobId)));
+
+        assertEquals(HttpStatus.NOT_FOUND, recoveryController.getReplayJob("no-such-job").getStatusCode());
+        assertEquals(HttpStatus.NOT_FOUND, recoveryController.cancelReplayJob("no-such-job").getStatusCode());
+    }
+
+    @Test
+    void replayFallbackEvents_clearKeepsShapesDrawnAfterIt() throws Exception {
+        String sessionName = "replay-clear-" + System.currentTimeMillis();
+        service.createSession(sessionName, "manager1");
+        for (int i = 0; i < 4; i++) {
+            DrawPayload shape = new DrawPayload();
+            shape.setType("shape-rect");
+            service.addShape(sessionName, "general", shape);
+        }
+        // The clear took seq 5 but only reached the fallback log, as during an outage
+        DrawPayload clear = new DrawPayload();
+        clear.setType("clear");
+        clear.setSeq(sequencer.sequenceFor(sessionName, "general", ChannelSequencer.Stream.DRAW).next());
+        assertEquals(5L, clear.getSeq());
+        fallbackStorage.writeDrawPayload(sessionName, "general", clear);
+        for (int i = 0; i < 3; i++) {
+            DrawPayload shape = new DrawPayload();
+            shape.setType("shape-rect");
+            service.addShape(sessionName, "general", shape);
+        }
+        long deadline = System.currentTimeMillis() + 5000;
+        while (service.getDurability(sessionName, "general").getDrawDurableSeq() < 8 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+
+        assertTrue(service.replayFallbackEvents() >= 1);
+
+        assertEquals(List.of(6L, 7L, 8L),
+                service.getShapes(sessionName, "general").stream().map(DrawPayload::getSeq).sorted().toList());
+    }
 }
@@ -75,6 +75,8 @@ function Chat({ chatMessages, sendChatMessage, userName, channelName, isMinimize
       attachmentName: upload.originalName,
       attachmentContentType: upload.contentType,
       attachmentSize: upload.size,
+      attachmentThumbnailUrl: upload.thumbnailUrl,
+      attachmentPreviewUrl: upload.previewUrl,
     });
     setMessage('');
   };
@@ -130,6 +132,15 @@ function Chat({ chatMessages, sendChatMessage, userName, channelName, isMinimize
     return timeDiff > 300000; // 5 minutes
   };
 
+  // Renditions are generated after upload; until they exist, show the original
+  const handlePreviewError = (msg) => (e) => {
+    const img = e.currentTarget;
+    if (img.dataset.fallback) return;
+    img.dataset.fallback = 'true';
+    img.removeAttribute('srcset');
+    img.src = msg.attachmentUrl;
+  };
+
   const renderAttachment = (msg) => {
     if (!msg || !msg.attachmentUrl) return null;
     const type = msg.messageType || '';
@@ -143,9 +154,15 @@ function Chat({ chatMessages, sendChatMessage, userName, channelName, isMinimize
         <a className="chat-attachment-link" href={msg.attachmentUrl} target="_blank" rel="noreferrer">
           <img
             className="chat-attachment-image"
-            src={msg.attachmentUrl}
+            src={msg.attachmentPreviewUrl || msg.attachmentUrl}
+            srcSet={msg.attachmentThumbnailUrl && msg.attachmentPreviewUrl
+              ? `${msg.attachmentThumbnailUrl} 160w, ${msg.attachmentPreviewUrl} 640w`
+              : undefined}
+            sizes="320px"
             alt="uploaded"
             loading="lazy"
+            decoding="async"
+            onError={handlePreviewError(msg)}
           />
         </a>
       );
@@ -10,9 +10,18 @@ import Canvas from './Canvas';
 import Chat from './Chat';
 import ChannelManager from './ChannelManager';
 
+// Client-side stroke buffering for /app/draw-batch
+const SEGMENT_FLUSH_MS = 40;
+const SEGMENT_BATCH_MAX = 64;
+
 function WhiteboardPage({ session, onLogout, onSessionUpdate }) {
   const { sessionName, userName, channelName } = session;
   const stompClient = useRef(null);
+  const segmentBuffer = useRef({ channel: null, events: [] });
+  const segmentFlushTimer = useRef(null);
+  // Highest server sequence seen per stream; a jump means frames were missed
+  const lastDrawSeq = useRef(null);
+  const lastChatSeq = useRef(null);
 
   // State to hold all draw events and chat messages
   const [drawEvents, setDrawEvents] = useState([]);
@@ -57,6 +66,7 @@ function WhiteboardPage({ session, onLogout, onSessionUpdate }) {
     // Cleanup function to deactivate on unmount or channel change
     return () => {
       if (stompClient.current && stompClient.current.active) {
+        flushSegmentBuffer();
         console.log('Deactivating STOMP client');
         stompClient.current.deactivate();
       }
@@ -113,6 +123,8 @@ function WhiteboardPage({ session, onLogout, onSessionUpdate }) {
     // Clear current state to prepare for new channel data
     setChatMessages([]);
     setDrawEvents([]);
+    lastDrawSeq.current = null;
+    lastChatSeq.current = null;
 
     // Check if client is connected before subscribing
     if (!stompClient.current || !stompClient.current.connected) {
@@ -161,6 +173,7 @@ function WhiteboardPage({ session, onLogout, onSessionUpdate }) {
           const t = (e?.type || '').toString();
           return !(t === 'text' || t === 'text-move' || t === 'text-delete');
         });
+        advanceSeq(lastDrawSeq, maxSeq(shapes));
         setDrawEvents((prev) => {
           const prevArr = Array.isArray(prev) ? prev : [];
           if (!prevArr.length) return serverShapes;
@@ -188,6 +201,7 @@ function WhiteboardPage({ session, onLogout, onSessionUpdate }) {
         }
         // Ensure we set an array, even if empty
         const messagesArray = Array.isArray(messages) ? messages : [];
+        advanceSeq(lastChatSeq, maxSeq(messagesArray));
         setChatMessages(messagesArray);
         console.log('✅ Chat messages state updated with', messagesArray.length, 'messages');
       } else {
@@ -217,7 +231,60 @@ function WhiteboardPage({ session, onLogout, onSessionUpdate }) {
       return;
     }
 
+    // Buffered line segments arrive from /app/draw-batch as a single array frame
+    if (Array.isArray(drawEvent)) {
+      drawEvent.forEach(applyRemoteDrawEvent);
+      return;
+    }
+    applyRemoteDrawEvent(drawEvent);
+  };
+
+  const maxSeq = (events) => (Array.isArray(events) ? events : []).reduce(
+    (max, e) => (e && typeof e.seq === 'number' && e.seq > max ? e.seq : max),
+    0
+  );
+
+  const advanceSeq = (ref, seq) => {
+    if (typeof seq !== 'number' || seq <= 0) return;
+    if (ref.current === null || seq > ref.current) ref.current = seq;
+  };
+
+  // Record a live event's sequence and fetch only the skipped range when a gap shows up
+  const trackSeq = (ref, seq, kind) => {
+    if (typeof seq !== 'number') return;
+    const last = ref.current;
+    if (last !== null && seq > last + 1) {
+      fetchMissingRange(kind, last, seq - 1);
+    }
+    advanceSeq(ref, seq);
+  };
+
+  const fetchMissingRange = async (kind, afterSeq, toSeq) => {
+    try {
+      const res = await fetch(
+        `/api/sessions/${sessionName}/channels/${currentChannel}/${kind}?afterSeq=${afterSeq}&toSeq=${toSeq}`
+      );
+      if (!res.ok) return;
+      const missing = await res.json();
+      if (!Array.isArray(missing) || !missing.length) return;
+      console.log(`Recovered ${missing.length} missed ${kind} events (${afterSeq + 1}..${toSeq})`);
+      if (kind === 'shapes') {
+        missing.forEach(applyRemoteDrawEvent);
+      } else {
+        setChatMessages((prev) => {
+          const known = new Set(prev.map((m) => m.id));
+          const merged = [...prev, ...missing.filter((m) => !known.has(m.id))];
+          return merged.sort((a, b) => (a.seq ?? Infinity) - (b.seq ?? Infinity));
+        });
+      }
+    } catch (error) {
+      console.error(`Failed to fetch missed ${kind} events:`, error);
+    }
+  };
+
+  const applyRemoteDrawEvent = (drawEvent) => {
     const t = drawEvent?.type || '';
+    trackSeq(lastDrawSeq, drawEvent?.seq, 'shapes');
 
     // Canvas text is local-only (not shared between users)
     if (t === 'text' || t === 'text-move' || t === 'text-delete') {
@@ -246,6 +313,7 @@ function WhiteboardPage({ session, onLogout, onSessionUpdate }) {
 
   const onChatReceived = (payload) => {
     const chatMessage = JSON.parse(payload.body);
+    trackSeq(lastChatSeq, chatMessage?.seq, 'chat');
 
     // If we previously added an optimistic message locally, replace it
     // with the authoritative message from the server instead of
@@ -270,6 +338,31 @@ function WhiteboardPage({ session, onLogout, onSessionUpdate }) {
 
   // --- Functions to SEND data (passed to child components) ---
 
+  // Freehand strokes produce many tiny 'line-segment' events; buffer them briefly
+  // and publish them as one /app/draw-batch frame instead of one frame per segment.
+  const flushSegmentBuffer = () => {
+    if (segmentFlushTimer.current) {
+      clearTimeout(segmentFlushTimer.current);
+      segmentFlushTimer.current = null;
+    }
+    const { channel, events } = segmentBuffer.current;
+    segmentBuffer.current = { channel: null, events: [] };
+    if (!events.length) return;
+
+    if (!stompClient.current || !stompClient.current.connected) {
+      console.error('Cannot send draw batch: STOMP client not connected.');
+      return;
+    }
+    try {
+      stompClient.current.publish({
+        destination: `/app/draw-batch/${sessionName}/${channel}`,
+        body: JSON.stringify(events),
+      });
+    } catch (error) {
+      console.error('Error sending draw batch:', error);
+    }
+  };
+
   const sendDrawEvent = (drawPayload) => {
     if (drawPayload.type === 'clear') {
       // Immediate local clear so user sees instant feedback
@@ -280,6 +373,23 @@ function WhiteboardPage({ session, onLogout, onSessionUpdate }) {
       console.error('Cannot send draw event: STOMP client not connected.');
       return;
     }
+
+    if (drawPayload.type === 'line-segment') {
+      if (segmentBuffer.current.channel && segmentBuffer.current.channel !== currentChannel) {
+        flushSegmentBuffer();
+      }
+      segmentBuffer.current.channel = currentChannel;
+      segmentBuffer.current.events.push(drawPayload);
+      if (segmentBuffer.current.events.length >= SEGMENT_BATCH_MAX) {
+        flushSegmentBuffer();
+      } else if (!segmentFlushTimer.current) {
+        segmentFlushTimer.current = setTimeout(flushSegmentBuffer, SEGMENT_FLUSH_MS);
+      }
+      return;
+    }
+
+    // Keep ordering: anything buffered goes out before this event
+    flushSegmentBuffer();
     
     try {
       stompClient.current.publish({
@@ -318,6 +428,8 @@ function WhiteboardPage({ session, onLogout, onSessionUpdate }) {
         attachmentName: payload.attachmentName,
         attachmentContentType: payload.attachmentContentType,
         attachmentSize: payload.attachmentSize,
+        attachmentThumbnailUrl: payload.attachmentThumbnailUrl,
+        attachmentPreviewUrl: payload.attachmentPreviewUrl,
         timestamp: new Date().toISOString(), 
         optimistic: true,
         error: true 
@@ -334,6 +446,8 @@ function WhiteboardPage({ session, onLogout, onSessionUpdate }) {
       attachmentName: payload.attachmentName,
       attachmentContentType: payload.attachmentContentType,
       attachmentSize: payload.attachmentSize,
+      attachmentThumbnailUrl: payload.attachmentThumbnailUrl,
+      attachmentPreviewUrl: payload.attachmentPreviewUrl,
       timestamp: new Date().toISOString(), 
       optimistic: true 
     }]);
@@ -347,6 +461,8 @@ function WhiteboardPage({ session, onLogout, onSessionUpdate }) {
         attachmentName: payload.attachmentName,
         attachmentContentType: payload.attachmentContentType,
         attachmentSize: payload.attachmentSize,
+        attachmentThumbnailUrl: payload.attachmentThumbnailUrl,
+        attachmentPreviewUrl: payload.attachmentPreviewUrl,
       };
       stompClient.current.publish({
         destination: `/app/chat/${sessionName}/${currentChannel}`,